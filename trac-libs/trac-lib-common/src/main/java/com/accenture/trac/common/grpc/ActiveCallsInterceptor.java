@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.tracing.Span;
+
+import io.grpc.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class ActiveCallsInterceptor implements ServerInterceptor {
+
+    // Keep a register of calls that are currently in flight, for runtime diagnostics
+    // Calls are added when they start and removed when they close or are cancelled
+    // Apply this inside the tracing interceptor, so active calls can be matched up with their traces
+
+    private final AtomicLong nextCallId = new AtomicLong();
+    private final ConcurrentMap<Long, ActiveCall> activeCalls = new ConcurrentHashMap<>();
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+
+        var callId = nextCallId.incrementAndGet();
+        var span = Span.current();
+
+        var activeCall = new ActiveCall(
+                callId, call.getMethodDescriptor().getFullMethodName(),
+                Instant.now(), System.nanoTime(),
+                span != Span.NOOP ? span.getTraceId() : null);
+
+        activeCalls.put(callId, activeCall);
+
+        var trackedCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+
+                activeCalls.remove(callId);
+                super.close(status, trailers);
+            }
+        };
+
+        try {
+
+            var listener = next.startCall(trackedCall, headers);
+
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+
+                @Override
+                public void onCancel() {
+
+                    activeCalls.remove(callId);
+                    super.onCancel();
+                }
+            };
+        }
+        catch (RuntimeException e) {
+
+            activeCalls.remove(callId);
+            throw e;
+        }
+    }
+
+    public List<ActiveCall> getActiveCalls() {
+
+        // Oldest calls first, those are the ones most likely to be stuck
+
+        var calls = new ArrayList<>(activeCalls.values());
+        calls.sort(Comparator.comparingLong(call -> call.startNanos));
+
+        return calls;
+    }
+
+    public int getActiveCallCount() {
+        return activeCalls.size();
+    }
+
+    public static class ActiveCall {
+
+        private final long callId;
+        private final String methodName;
+        private final Instant startTime;
+        private final long startNanos;
+        private final String traceId;
+
+        ActiveCall(long callId, String methodName, Instant startTime, long startNanos, String traceId) {
+            this.callId = callId;
+            this.methodName = methodName;
+            this.startTime = startTime;
+            this.startNanos = startNanos;
+            this.traceId = traceId;
+        }
+
+        public long getCallId() {
+            return callId;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public Instant getStartTime() {
+            return startTime;
+        }
+
+        public Duration getAge() {
+            return Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+
+        public String getTraceId() {
+            // Null if the call is not traced
+            return traceId;
+        }
+    }
+}
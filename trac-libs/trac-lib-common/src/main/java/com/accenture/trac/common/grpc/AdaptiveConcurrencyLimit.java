@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.exception.ETracInternal;
+
+
+public class AdaptiveConcurrencyLimit {
+
+    // Gradient-style concurrency limit, adjusted from observed request latency
+
+    // Two moving averages of latency are kept, a slow one (the baseline) and a fast one (current conditions)
+    // When current latency is close to the baseline the limit grows, allowing some queuing headroom
+    // When current latency rises above the baseline, requests are queuing somewhere downstream (e.g. in the DB)
+    // The limit is then scaled down in proportion, which brings latency back towards the baseline
+
+    // Failed requests that indicate overload (e.g. timeouts) cut the limit straight away, AIMD style
+    // The limit only grows when it is actually being used, so a quiet service does not build up a huge limit
+
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    private int inFlight;
+
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit)
+            throw new ETracInternal(String.format(
+                    "Invalid concurrency limits: initial = %d, min = %d, max = %d",
+                    initialLimit, minLimit, maxLimit));
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    public synchronized boolean tryAcquire() {
+
+        if (inFlight >= (int) limit)
+            return false;
+
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void release(long rttNanos, boolean dropped) {
+
+        var usage = inFlight;
+        inFlight--;
+
+        if (dropped) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            return;
+        }
+
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        }
+        else {
+            shortRttNanos = shortRttNanos * (1 - SHORT_RTT_WEIGHT) + rttNanos * SHORT_RTT_WEIGHT;
+            longRttNanos = longRttNanos * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+        }
+
+        // Let the baseline come down quickly if latency improves, e.g. after a burst of slow requests
+        if (shortRttNanos < longRttNanos)
+            longRttNanos = shortRttNanos;
+
+        // Do not grow the limit if less than half of it is being used
+        if (usage < limit / 2)
+            return;
+
+        var gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRttNanos));
+        var queueSize = Math.sqrt(limit);
+        var newLimit = limit * gradient + queueSize;
+
+        limit = limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    public synchronized void releaseWithoutSample() {
+
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getShortRttNanos() {
+        return (long) shortRttNanos;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.metrics.Counter;
+import com.accenture.trac.common.metrics.Histogram;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+
+import io.grpc.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class CallMetricsInterceptor implements ServerInterceptor {
+
+    // Record latency, in-flight calls and result codes for every call, per method
+    // This is the outermost interceptor, so latency includes time spent queued or rejected
+
+    // The full method name is also made available in the call context, for use in error logging
+
+    public static final Context.Key<String> METHOD_NAME_KEY = Context.key("trac-method-name");
+
+    private final MetricsRegistry registry;
+    private final Map<String, MethodMetrics> methodMetrics;
+
+    public CallMetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+        this.methodMetrics = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+
+        var methodName = call.getMethodDescriptor().getFullMethodName();
+        var metrics = methodMetrics.computeIfAbsent(methodName, MethodMetrics::new);
+
+        var startTime = System.nanoTime();
+        var recorded = new AtomicBoolean(false);
+
+        metrics.inFlight.incrementAndGet();
+
+        var measuredCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+
+                if (recorded.compareAndSet(false, true))
+                    metrics.record(status.getCode(), System.nanoTime() - startTime);
+
+                super.close(status, trailers);
+            }
+        };
+
+        var context = Context.current().withValue(METHOD_NAME_KEY, methodName);
+
+        try {
+
+            var listener = Contexts.interceptCall(context, measuredCall, headers, next);
+
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+
+                @Override
+                public void onCancel() {
+
+                    if (recorded.compareAndSet(false, true))
+                        metrics.record(Status.Code.CANCELLED, System.nanoTime() - startTime);
+
+                    super.onCancel();
+                }
+            };
+        }
+        catch (RuntimeException e) {
+
+            if (recorded.compareAndSet(false, true))
+                metrics.record(Status.Code.UNKNOWN, System.nanoTime() - startTime);
+
+            throw e;
+        }
+    }
+
+    private class MethodMetrics {
+
+        final String methodName;
+        final Histogram latency;
+        final AtomicLong inFlight;
+        final Map<Status.Code, Counter> calls;
+
+        MethodMetrics(String methodName) {
+
+            this.methodName = methodName;
+            this.inFlight = new AtomicLong();
+            this.calls = new ConcurrentHashMap<>();
+
+            this.latency = registry.histogram(
+                    "trac_grpc_server_call_seconds",
+                    "Latency of gRPC server calls",
+                    "method", methodName);
+
+            registry.gauge(
+                    "trac_grpc_server_calls_in_flight",
+                    "gRPC server calls currently in progress",
+                    inFlight::get, "method", methodName);
+        }
+
+        void record(Status.Code code, long elapsedNanos) {
+
+            inFlight.decrementAndGet();
+            latency.recordNanos(elapsedNanos);
+
+            calls.computeIfAbsent(code, c -> registry.counter(
+                    "trac_grpc_server_calls_total",
+                    "Completed gRPC server calls, by result code",
+                    "method", methodName, "code", c.name()))
+                .inc();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import io.grpc.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+
+public class ConcurrencyLimitInterceptor implements ServerInterceptor {
+
+    // Apply an adaptive concurrency limit to incoming calls, see AdaptiveConcurrencyLimit
+    // Calls over the limit are rejected straight away with RESOURCE_EXHAUSTED, before any work is done
+    // Rejected calls carry a retry hint using the standard gRPC pushback trailer, based on current latency
+
+    public static final Metadata.Key<String> RETRY_PUSHBACK_KEY =
+            Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final long MIN_RETRY_HINT_MS = 10;
+
+    // These status codes mean the call failed because the service or its backend is struggling
+    private static final Set<Status.Code> OVERLOAD_CODES = Set.of(
+            Status.Code.DEADLINE_EXCEEDED,
+            Status.Code.RESOURCE_EXHAUSTED,
+            Status.Code.UNAVAILABLE);
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Function<MethodDescriptor<?, ?>, AdaptiveConcurrencyLimit> limitSelector;
+
+    public ConcurrencyLimitInterceptor(AdaptiveConcurrencyLimit limit) {
+        this.limitSelector = method -> limit;
+    }
+
+    public ConcurrencyLimitInterceptor(Function<MethodDescriptor<?, ?>, AdaptiveConcurrencyLimit> limitSelector) {
+        this.limitSelector = limitSelector;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+
+        var limit = limitSelector.apply(call.getMethodDescriptor());
+
+        if (!limit.tryAcquire()) {
+
+            var retryHintMs = retryHintMs(limit);
+
+            log.debug("Call rejected (concurrency limit = {}): {}",
+                    limit.getLimit(), call.getMethodDescriptor().getFullMethodName());
+
+            var trailers = new Metadata();
+            trailers.put(RETRY_PUSHBACK_KEY, Long.toString(retryHintMs));
+
+            var status = Status.RESOURCE_EXHAUSTED
+                    .withDescription("The service is overloaded, retry after " + retryHintMs + " ms");
+
+            call.close(status, trailers);
+
+            return new ServerCall.Listener<>() {};
+        }
+
+        var startTime = System.nanoTime();
+        var released = new AtomicBoolean(false);
+
+        var limitedCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+
+                if (released.compareAndSet(false, true)) {
+
+                    var rtt = System.nanoTime() - startTime;
+                    var dropped = OVERLOAD_CODES.contains(status.getCode());
+
+                    limit.release(rtt, dropped);
+                }
+
+                super.close(status, trailers);
+            }
+        };
+
+        try {
+
+            var listener = next.startCall(limitedCall, headers);
+
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+
+                @Override
+                public void onCancel() {
+
+                    // Cancelled calls say nothing about latency, release without a sample
+                    if (released.compareAndSet(false, true))
+                        limit.releaseWithoutSample();
+
+                    super.onCancel();
+                }
+            };
+        }
+        catch (RuntimeException e) {
+
+            if (released.compareAndSet(false, true))
+                limit.releaseWithoutSample();
+
+            throw e;
+        }
+    }
+
+    private long retryHintMs(AdaptiveConcurrencyLimit limit) {
+
+        // Suggest retrying after roughly one request time, with jitter so clients do not retry in lockstep
+
+        var rttMs = TimeUnit.NANOSECONDS.toMillis(limit.getShortRttNanos());
+        var baseMs = Math.max(MIN_RETRY_HINT_MS, rttMs);
+
+        return baseMs + ThreadLocalRandom.current().nextLong(baseMs);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+
+public class ExecutorDispatchInterceptor implements ServerInterceptor {
+
+    // Run each call on an executor chosen from its method descriptor
+    // A gRPC server only has one executor, so this interceptor moves call events onto the chosen executor
+    // Use with a direct server executor, otherwise every call gets handed off between threads twice
+
+    // Events for a single call are kept in order using a sequential executor per call
+    // The call context is carried over to the new thread, so deadlines and cancellation are still visible
+    // If the chosen executor rejects work (i.e. its queue is full), the call fails with RESOURCE_EXHAUSTED
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Function<MethodDescriptor<?, ?>, Executor> executorSelector;
+
+    public ExecutorDispatchInterceptor(Function<MethodDescriptor<?, ?>, Executor> executorSelector) {
+        this.executorSelector = executorSelector;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+
+        var executor = MoreExecutors.newSequentialExecutor(executorSelector.apply(call.getMethodDescriptor()));
+        var listener = next.startCall(call, headers);
+
+        return new DispatchListener<>(call, listener, executor, Context.current());
+    }
+
+    private class DispatchListener<ReqT, RespT> extends ServerCall.Listener<ReqT> {
+
+        private final ServerCall<ReqT, RespT> call;
+        private final ServerCall.Listener<ReqT> delegate;
+        private final Executor executor;
+        private final Context context;
+        private final AtomicBoolean rejected;
+
+        DispatchListener(
+                ServerCall<ReqT, RespT> call, ServerCall.Listener<ReqT> delegate,
+                Executor executor, Context context) {
+
+            this.call = call;
+            this.delegate = delegate;
+            this.executor = executor;
+            this.context = context;
+            this.rejected = new AtomicBoolean(false);
+        }
+
+        @Override
+        public void onMessage(ReqT message) {
+            dispatch(() -> delegate.onMessage(message));
+        }
+
+        @Override
+        public void onHalfClose() {
+            dispatch(delegate::onHalfClose);
+        }
+
+        @Override
+        public void onCancel() {
+            dispatch(delegate::onCancel);
+        }
+
+        @Override
+        public void onComplete() {
+            dispatch(delegate::onComplete);
+        }
+
+        @Override
+        public void onReady() {
+            dispatch(delegate::onReady);
+        }
+
+        private void dispatch(Runnable event) {
+
+            if (rejected.get())
+                return;
+
+            try {
+                executor.execute(context.wrap(event));
+            }
+            catch (RejectedExecutionException e) {
+
+                // Only close the call once, later events for a rejected call are dropped
+
+                if (rejected.compareAndSet(false, true)) {
+
+                    log.debug("Call rejected (executor queue is full): {}",
+                            call.getMethodDescriptor().getFullMethodName());
+
+                    var status = Status.RESOURCE_EXHAUSTED
+                            .withDescription("The service is overloaded, no capacity to process this call");
+
+                    call.close(status, new Metadata());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.tracing.Span;
+
+import io.grpc.*;
+
+
+public class TracingClientInterceptor implements ClientInterceptor {
+
+    // Pass the current span to the server in a traceparent header, so the server continues the same trace
+    // The current span is taken from the gRPC context when the call is created
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> method, CallOptions callOptions,
+            Channel next) {
+
+        var span = Span.current();
+        var call = next.newCall(method, callOptions);
+
+        if (span == Span.NOOP)
+            return call;
+
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+
+                headers.put(TracingServerInterceptor.TRACEPARENT_KEY, span.traceparent());
+                super.start(responseListener, headers);
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.common.tracing.SpanKind;
+import com.accenture.trac.common.tracing.Tracer;
+
+import io.grpc.*;
+
+
+public class TracingServerInterceptor implements ServerInterceptor {
+
+    // Start a server span for every call, continuing the trace from the caller's traceparent header
+    // The span is put in the call context, so the API, service and DAL layers can add child spans
+    // Apply this outside the execution lanes, so the span includes time spent queued
+
+    public static final Metadata.Key<String> TRACEPARENT_KEY =
+            Metadata.Key.of(Tracer.TRACEPARENT_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+
+    private final Tracer tracer;
+
+    public TracingServerInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+
+        var methodName = call.getMethodDescriptor().getFullMethodName();
+        var span = tracer.startSpan(methodName, SpanKind.SERVER, headers.get(TRACEPARENT_KEY));
+
+        if (span == Span.NOOP)
+            return next.startCall(call, headers);
+
+        span.setAttribute("rpc.system", "grpc");
+        span.setAttribute("rpc.method", methodName);
+
+        var tracedCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+
+                span.setAttribute("rpc.grpc.status_code", status.getCode().value());
+
+                if (!status.isOk())
+                    span.setError(status.getCode() + ": " + status.getDescription());
+
+                span.end();
+
+                super.close(status, trailers);
+            }
+        };
+
+        var context = span.inContext(Context.current());
+
+        try {
+
+            var listener = Contexts.interceptCall(context, tracedCall, headers, next);
+
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+
+                @Override
+                public void onCancel() {
+
+                    span.setError("Call cancelled by the client");
+                    span.end();
+
+                    super.onCancel();
+                }
+            };
+        }
+        catch (RuntimeException e) {
+
+            span.setError(e.getMessage());
+            span.end();
+
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.metadata;
+
+import com.accenture.trac.common.api.meta.MetadataPreallocateRequest;
+import com.accenture.trac.common.api.meta.MetadataTrustedWriteApiGrpc;
+import com.accenture.trac.common.exception.ETracInternal;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Client-side pool of preallocated object IDs.
+ *
+ * Components that create a lot of objects (e.g. a job creating many outputs) can
+ * use this pool to take preallocated IDs, instead of calling preallocateId() once
+ * for every object. A separate pool is kept for each object type. When the pool
+ * for a type runs dry, it is refilled with a single call to preallocateIds() on
+ * the trusted metadata API, which reserves a whole batch of IDs in one round trip.
+ *
+ * IDs that are taken from the pool but never used become orphans, in the same
+ * way as for single preallocated IDs. IDs left in the pool when it is discarded
+ * are also orphaned. The pool is thread safe.
+ */
+public class PreallocatedIdPool {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final MetadataTrustedWriteApiGrpc.MetadataTrustedWriteApiBlockingStub trustedApi;
+    private final String tenant;
+    private final int batchSize;
+
+    private final Map<ObjectType, ArrayDeque<TagHeader>> pools;
+
+    public PreallocatedIdPool(
+            MetadataTrustedWriteApiGrpc.MetadataTrustedWriteApiBlockingStub trustedApi,
+            String tenant, int batchSize) {
+
+        if (batchSize < 1)
+            throw new ETracInternal("Preallocated ID pool batch size must be at least 1");
+
+        this.trustedApi = trustedApi;
+        this.tenant = tenant;
+        this.batchSize = batchSize;
+
+        this.pools = new ConcurrentHashMap<>();
+    }
+
+    public PreallocatedIdPool(
+            MetadataTrustedWriteApiGrpc.MetadataTrustedWriteApiBlockingStub trustedApi,
+            String tenant) {
+
+        this(trustedApi, tenant, DEFAULT_BATCH_SIZE);
+    }
+
+    public TagHeader nextId(ObjectType objectType) {
+
+        var pool = pools.computeIfAbsent(objectType, type -> new ArrayDeque<>(batchSize));
+
+        // Lock per object type, so refilling one type does not hold up requests for another
+        // If a refill fails, the pool is left empty and the error goes back to the caller
+
+        synchronized (pool) {
+
+            if (pool.isEmpty())
+                refill(objectType, pool);
+
+            return pool.removeFirst();
+        }
+    }
+
+    public int available(ObjectType objectType) {
+
+        var pool = pools.get(objectType);
+
+        if (pool == null)
+            return 0;
+
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    private void refill(ObjectType objectType, ArrayDeque<TagHeader> pool) {
+
+        var request = MetadataPreallocateRequest.newBuilder()
+                .setTenant(tenant)
+                .setObjectType(objectType)
+                .setCount(batchSize)
+                .build();
+
+        var response = trustedApi.preallocateIds(request);
+
+        pool.addAll(response.getPreallocatedIdList());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+public class Histogram {
+
+    // Histogram with fixed buckets
+    // Recording is a short scan over the bucket bounds and two adds, there are no locks or allocations
+
+    // Latency histograms record nanoseconds and report seconds, from 0.5 ms up to 10 s
+    // Count histograms record plain counts, e.g. rows or round trips per call
+
+    static final double[] LATENCY_BUCKET_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0 };
+
+    static final double[] COUNT_BUCKETS = {
+            1, 2, 3, 5, 8, 13, 20, 50, 100, 200, 500, 1000, 5000 };
+
+    private static final double NANOS_PER_SECOND = 1.0e9;
+
+    private final double[] bucketBounds;
+    private final long[] rawBounds;
+    private final double outputScale;
+
+    private final LongAdder[] buckets;
+    private final LongAdder sum;
+
+    static Histogram latency() {
+        return new Histogram(LATENCY_BUCKET_SECONDS, NANOS_PER_SECOND);
+    }
+
+    static Histogram counts() {
+        return new Histogram(COUNT_BUCKETS, 1.0);
+    }
+
+    private Histogram(double[] bucketBounds, double unitsPerBucketUnit) {
+
+        this.bucketBounds = bucketBounds;
+        this.rawBounds = new long[bucketBounds.length];
+        this.outputScale = 1.0 / unitsPerBucketUnit;
+
+        for (var i = 0; i < bucketBounds.length; i++)
+            rawBounds[i] = Math.round(bucketBounds[i] * unitsPerBucketUnit);
+
+        // One extra bucket for values above the highest bound (+Inf)
+        buckets = new LongAdder[rawBounds.length + 1];
+
+        for (var i = 0; i < buckets.length; i++)
+            buckets[i] = new LongAdder();
+
+        sum = new LongAdder();
+    }
+
+    public void record(long value) {
+
+        var bucket = 0;
+
+        while (bucket < rawBounds.length && value > rawBounds[bucket])
+            bucket++;
+
+        buckets[bucket].increment();
+        sum.add(value);
+    }
+
+    public void recordNanos(long nanos) {
+        record(nanos);
+    }
+
+    public long count() {
+
+        var count = 0L;
+
+        for (var bucket : buckets)
+            count += bucket.sum();
+
+        return count;
+    }
+
+    public double scaledSum() {
+        return sum.sum() * outputScale;
+    }
+
+    double[] bucketBounds() {
+        return bucketBounds;
+    }
+
+    long[] cumulativeCounts() {
+
+        var counts = new long[buckets.length];
+        var total = 0L;
+
+        for (var i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+
+        return counts;
+    }
+}
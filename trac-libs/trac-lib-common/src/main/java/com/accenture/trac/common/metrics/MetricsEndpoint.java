@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.metrics;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class MetricsEndpoint {
+
+    // Serve metrics in the Prometheus text format on a separate admin port
+    // Scrapes are rare and cheap, a plain JDK HTTP server on a single thread is plenty
+    // Keeping admin traffic off the API port means scrapes still work when the API is saturated
+
+    public static final String METRICS_PATH = "/metrics";
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final MetricsRegistry registry;
+    private final int port;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsEndpoint(MetricsRegistry registry, int port) {
+        this.registry = registry;
+        this.port = port;
+    }
+
+    public void start() {
+
+        try {
+
+            var threadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("admin-http")
+                    .setDaemon(true)
+                    .build();
+
+            executor = Executors.newSingleThreadExecutor(threadFactory);
+
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext(METRICS_PATH, this::handleMetrics);
+            server.setExecutor(executor);
+            server.start();
+
+            log.info("Metrics available on port {}, path {}", port, METRICS_PATH);
+        }
+        catch (IOException e) {
+
+            var message = String.format("Failed to open admin port %d: %s", port, e.getMessage());
+            log.error(message);
+            throw new EStartup(message, e);
+        }
+    }
+
+    public void stop() {
+
+        if (server != null)
+            server.stop(0);
+
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+
+        try {
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            var body = registry.writeText().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", PROMETHEUS_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+}
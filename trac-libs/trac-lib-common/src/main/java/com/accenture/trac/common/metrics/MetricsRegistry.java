@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.metrics;
+
+import com.accenture.trac.common.exception.ETracInternal;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+
+public class MetricsRegistry {
+
+    // A small metrics registry, with output in the Prometheus text exposition format
+    // Metrics are identified by name and a set of labels, e.g. trac_dal_calls_total{method="loadTag"}
+
+    // Looking up a metric by name and labels is not free, callers on the hot path should look up
+    // their metrics once and keep hold of them, recording values is lock free
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+
+        var family = family(name, help, Type.COUNTER);
+        return (Counter) family.metrics.computeIfAbsent(labelText(labels), x -> new Counter());
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+
+        // Latency histogram, values are recorded in nanoseconds and reported in seconds
+
+        var family = family(name, help, Type.HISTOGRAM);
+        return (Histogram) family.metrics.computeIfAbsent(labelText(labels), x -> Histogram.latency());
+    }
+
+    public Histogram countHistogram(String name, String help, String... labels) {
+
+        var family = family(name, help, Type.HISTOGRAM);
+        return (Histogram) family.metrics.computeIfAbsent(labelText(labels), x -> Histogram.counts());
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+
+        var family = family(name, help, Type.GAUGE);
+        family.metrics.put(labelText(labels), value);
+    }
+
+    public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+
+        // A counter whose value is held elsewhere, e.g. cumulative totals kept by the connection pool
+
+        var family = family(name, help, Type.COUNTER);
+        family.metrics.put(labelText(labels), value);
+    }
+
+    public String writeText() {
+
+        var text = new StringBuilder();
+
+        for (var family : new TreeMap<>(families).values()) {
+
+            text.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            text.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+
+            for (var metric : new TreeMap<>(family.metrics).entrySet())
+                writeMetric(text, family.name, metric.getKey(), metric.getValue());
+        }
+
+        return text.toString();
+    }
+
+    private void writeMetric(StringBuilder text, String name, String labels, Object metric) {
+
+        if (metric instanceof Counter)
+            writeSample(text, name, labels, ((Counter) metric).get());
+
+        else if (metric instanceof DoubleSupplier)
+            writeSample(text, name, labels, ((DoubleSupplier) metric).getAsDouble());
+
+        else if (metric instanceof Histogram) {
+
+            var histogram = (Histogram) metric;
+            var counts = histogram.cumulativeCounts();
+
+            var bounds = histogram.bucketBounds();
+
+            for (var i = 0; i < bounds.length; i++) {
+                var bound = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+                var le = "le=\"" + bound + "\"";
+                writeSample(text, name + "_bucket", addLabel(labels, le), counts[i]);
+            }
+
+            var total = counts[counts.length - 1];
+
+            writeSample(text, name + "_bucket", addLabel(labels, "le=\"+Inf\""), total);
+            writeSample(text, name + "_sum", labels, histogram.scaledSum());
+            writeSample(text, name + "_count", labels, total);
+        }
+    }
+
+    private void writeSample(StringBuilder text, String name, String labels, long value) {
+        text.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private void writeSample(StringBuilder text, String name, String labels, double value) {
+
+        text.append(name).append(labels).append(' ');
+
+        if (Double.isNaN(value))
+            text.append("NaN");
+        else if (Double.isInfinite(value))
+            text.append(value > 0 ? "+Inf" : "-Inf");
+        else if (value == Math.rint(value) && Math.abs(value) < 1.0e15)
+            text.append((long) value);
+        else
+            text.append(value);
+
+        text.append('\n');
+    }
+
+    private Family family(String name, String help, Type type) {
+
+        var family = families.computeIfAbsent(name, x -> new Family(name, help, type));
+
+        if (family.type != type)
+            throw new ETracInternal(String.format("Metric [%s] is already registered as a %s", name, family.type));
+
+        return family;
+    }
+
+    private static String labelText(String... labels) {
+
+        if (labels.length % 2 != 0)
+            throw new ETracInternal("Metric labels must be given as name / value pairs");
+
+        if (labels.length == 0)
+            return "";
+
+        var text = new StringBuilder("{");
+
+        for (var i = 0; i < labels.length; i += 2) {
+
+            if (i > 0)
+                text.append(',');
+
+            text.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+        }
+
+        return text.append('}').toString();
+    }
+
+    private static String addLabel(String labels, String label) {
+
+        if (labels.isEmpty())
+            return "{" + label + "}";
+
+        return labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escapeLabelValue(String value) {
+
+        return value
+                .replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+    private static class Family {
+
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> metrics;
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.metrics = new ConcurrentHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.netty;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+
+public class NettyTransport {
+
+    // Transport settings for services that run a Netty server (directly or through gRPC)
+    // Settings are read from a config root, e.g. trac.gw.api.transport, trac.gw.api.workerThreads
+
+    // The native epoll transport is used on Linux when it is available, with NIO as the fallback
+    // Zero worker threads means use the Netty default, which is two per CPU core
+
+    public static final String TRANSPORT_KEY = ".transport";
+    public static final String BOSS_THREADS_KEY = ".bossThreads";
+    public static final String WORKER_THREADS_KEY = ".workerThreads";
+    public static final String DIRECT_BUFFERS_KEY = ".directBuffers";
+
+    private static final int DEFAULT_BOSS_THREADS = 1;
+    private static final int DEFAULT_WORKER_THREADS = 0;
+
+    public enum Type {
+        AUTO,
+        EPOLL,
+        NIO
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(NettyTransport.class);
+
+    // Each pooled allocator keeps its own arenas, so there is one shared heap allocator per process
+    // This matches PooledByteBufAllocator.DEFAULT, which is the shared allocator for direct buffers
+    private static final ByteBufAllocator HEAP_ALLOCATOR = new PooledByteBufAllocator(false);
+
+    private final Type type;
+    private final int bossThreads;
+    private final int workerThreads;
+    private final boolean directBuffers;
+
+    public NettyTransport(Type type, int bossThreads, int workerThreads, boolean directBuffers) {
+
+        // Resolve AUTO up front, so the event loop groups and channel type always match
+
+        if (type == Type.AUTO)
+            type = Epoll.isAvailable() ? Type.EPOLL : Type.NIO;
+
+        if (type == Type.EPOLL && !Epoll.isAvailable()) {
+
+            var message = "Native epoll transport is not available: " + Epoll.unavailabilityCause().getMessage();
+            log.error(message);
+            throw new EStartup(message, Epoll.unavailabilityCause());
+        }
+
+        this.type = type;
+        this.bossThreads = bossThreads;
+        this.workerThreads = workerThreads;
+        this.directBuffers = directBuffers;
+    }
+
+    public static NettyTransport fromConfig(Properties properties, String configRoot) {
+
+        var typeKey = configRoot + TRANSPORT_KEY;
+        var typeName = properties.getProperty(typeKey, Type.AUTO.name()).trim();
+
+        Type type;
+
+        try {
+            type = typeName.isEmpty() ? Type.AUTO : Type.valueOf(typeName.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+
+            var message = String.format(
+                    "Unknown transport type: %s = '%s' (valid options are 'auto', 'epoll', 'nio')",
+                    typeKey, typeName);
+
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        var bossThreads = readThreadCount(properties, configRoot + BOSS_THREADS_KEY, DEFAULT_BOSS_THREADS);
+        var workerThreads = readThreadCount(properties, configRoot + WORKER_THREADS_KEY, DEFAULT_WORKER_THREADS);
+
+        if (bossThreads < 1) {
+            var message = "Config property must be at least 1: " + configRoot + BOSS_THREADS_KEY;
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        var directBuffersValue = properties.getProperty(configRoot + DIRECT_BUFFERS_KEY, "true").trim();
+        var directBuffers = directBuffersValue.isEmpty() || Boolean.parseBoolean(directBuffersValue);
+
+        return new NettyTransport(type, bossThreads, workerThreads, directBuffers);
+    }
+
+    public EventLoopGroup createBossGroup(String threadName) {
+        return createEventLoopGroup(bossThreads, threadName);
+    }
+
+    public EventLoopGroup createWorkerGroup(String threadName) {
+        return createEventLoopGroup(workerThreads, threadName);
+    }
+
+    public Class<? extends ServerChannel> serverChannelType() {
+
+        return type == Type.EPOLL
+                ? EpollServerSocketChannel.class
+                : NioServerSocketChannel.class;
+    }
+
+    public ByteBufAllocator allocator() {
+
+        return directBuffers
+                ? PooledByteBufAllocator.DEFAULT
+                : HEAP_ALLOCATOR;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+
+        var workers = workerThreads > 0 ? Integer.toString(workerThreads) : "default";
+
+        return String.format("%s transport, boss threads = %d, worker threads = %s, direct buffers = %s",
+                type.name().toLowerCase(), bossThreads, workers, directBuffers);
+    }
+
+    private EventLoopGroup createEventLoopGroup(int nThreads, String threadName) {
+
+        var threadFactory = new DefaultThreadFactory(threadName);
+
+        return type == Type.EPOLL
+                ? new EpollEventLoopGroup(nThreads, threadFactory)
+                : new NioEventLoopGroup(nThreads, threadFactory);
+    }
+
+    private static int readThreadCount(Properties properties, String propKey, int propDefault) {
+
+        var propValue = properties.getProperty(propKey);
+
+        if (propValue == null || propValue.isBlank())
+            return propDefault;
+
+        try {
+
+            var threadCount = Integer.parseInt(propValue.trim());
+
+            if (threadCount < 0)
+                throw new NumberFormatException();
+
+            return threadCount;
+        }
+        catch (NumberFormatException e) {
+
+            var message = "Config property must be a non-negative integer: " + propKey + ", got value '" + propValue + "'";
+            log.error(message);
+            throw new EStartup(message);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.tracing;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class OtlpFileExporter implements ISpanExporter {
+
+    // Write finished spans to a local file, one OTLP/JSON export request per line
+    // This is the same layout the OpenTelemetry collector uses for its file exporter and receiver,
+    // so the file can be loaded into a collector or any OTLP-compatible tool
+
+    // Spans are queued and written by a background thread, request threads never wait on file IO
+    // If the queue is full, spans are dropped and counted rather than slowing down the service
+
+    private static final int QUEUE_SIZE = 10000;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String serviceName;
+    private final BlockingQueue<Span> queue;
+    private final BufferedWriter writer;
+    private final Thread exportThread;
+    private final AtomicLong droppedSpans;
+
+    private volatile boolean running;
+
+    public OtlpFileExporter(Path file, String serviceName) {
+
+        this.serviceName = serviceName;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        this.droppedSpans = new AtomicLong();
+
+        try {
+
+            if (file.getParent() != null)
+                Files.createDirectories(file.getParent());
+
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        catch (IOException e) {
+
+            var message = "Trace file could not be opened: " + file + " (" + e.getMessage() + ")";
+            log.error(message, e);
+            throw new EStartup(message, e);
+        }
+
+        this.running = true;
+        this.exportThread = new Thread(this::exportLoop, "trace-exporter");
+        this.exportThread.setDaemon(true);
+        this.exportThread.start();
+    }
+
+    @Override
+    public void export(Span span) {
+
+        if (!queue.offer(span))
+            droppedSpans.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+
+        // Do not interrupt the export thread, an interrupt during a write closes the underlying file channel
+        // The thread sees the flag within one flush interval
+
+        running = false;
+
+        try {
+            exportThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            writeBatches();
+            writer.close();
+        }
+        catch (IOException e) {
+            log.warn("Error closing trace file: {}", e.getMessage());
+        }
+
+        if (droppedSpans.get() > 0)
+            log.warn("Trace exporter dropped {} spans (queue full)", droppedSpans.get());
+    }
+
+    public long getDroppedSpans() {
+        return droppedSpans.get();
+    }
+
+    private void exportLoop() {
+
+        while (running) {
+
+            try {
+
+                var first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+                if (first == null)
+                    continue;
+
+                var batch = new ArrayList<Span>(MAX_BATCH_SIZE);
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                writeBatch(batch);
+                writer.flush();
+            }
+            catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (IOException e) {
+
+                log.warn("Error writing trace file: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void writeBatches() throws IOException {
+
+        var batch = new ArrayList<Span>(MAX_BATCH_SIZE);
+
+        while (queue.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+
+        writer.flush();
+    }
+
+    private void writeBatch(List<Span> batch) throws IOException {
+
+        var json = new StringBuilder(batch.size() * 256);
+
+        json.append("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+        appendAttribute(json, "service.name", serviceName);
+        json.append("]},\"scopeSpans\":[{\"scope\":{\"name\":\"trac\"},\"spans\":[");
+
+        for (var i = 0; i < batch.size(); i++) {
+
+            if (i > 0)
+                json.append(',');
+
+            appendSpan(json, batch.get(i));
+        }
+
+        json.append("]}]}]}\n");
+
+        writer.write(json.toString());
+    }
+
+    private void appendSpan(StringBuilder json, Span span) {
+
+        json.append("{\"traceId\":\"").append(span.getTraceId()).append('"');
+        json.append(",\"spanId\":\"").append(span.getSpanId()).append('"');
+
+        if (span.getParentSpanId() != null)
+            json.append(",\"parentSpanId\":\"").append(span.getParentSpanId()).append('"');
+
+        json.append(",\"name\":");
+        appendString(json, span.getName());
+        json.append(",\"kind\":").append(span.getKind().otlpCode());
+        json.append(",\"startTimeUnixNano\":\"").append(span.getStartEpochNanos()).append('"');
+        json.append(",\"endTimeUnixNano\":\"").append(span.getEndEpochNanos()).append('"');
+
+        var attributes = span.getAttributes();
+
+        if (!attributes.isEmpty()) {
+
+            json.append(",\"attributes\":[");
+
+            var first = true;
+
+            for (var attr : attributes.entrySet()) {
+
+                if (!first)
+                    json.append(',');
+
+                appendAttribute(json, attr.getKey(), attr.getValue());
+                first = false;
+            }
+
+            json.append(']');
+        }
+
+        if (span.isError()) {
+
+            json.append(",\"status\":{\"code\":2");
+
+            if (span.getErrorMessage() != null) {
+                json.append(",\"message\":");
+                appendString(json, span.getErrorMessage());
+            }
+
+            json.append('}');
+        }
+
+        json.append('}');
+    }
+
+    private void appendAttribute(StringBuilder json, String key, Object value) {
+
+        json.append("{\"key\":");
+        appendString(json, key);
+        json.append(",\"value\":{");
+
+        // OTLP/JSON encodes 64-bit ints as strings
+
+        if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            json.append("\"intValue\":\"").append(value).append('"');
+        }
+        else if (value instanceof Double || value instanceof Float) {
+            json.append("\"doubleValue\":").append(value);
+        }
+        else if (value instanceof Boolean) {
+            json.append("\"boolValue\":").append(value);
+        }
+        else {
+            json.append("\"stringValue\":");
+            appendString(json, value.toString());
+        }
+
+        json.append("}}");
+    }
+
+    private void appendString(StringBuilder json, String value) {
+
+        json.append('"');
+
+        for (var i = 0; i < value.length(); i++) {
+
+            var c = value.charAt(i);
+
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        json.append(String.format("\\u%04x", (int) c));
+                    else
+                        json.append(c);
+            }
+        }
+
+        json.append('"');
+    }
+}
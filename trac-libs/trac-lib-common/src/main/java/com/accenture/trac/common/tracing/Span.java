@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.tracing;
+
+import io.grpc.Context;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+public class Span implements AutoCloseable {
+
+    // A single timed operation in a trace, following the W3C trace context model
+    // Spans are carried in the gRPC call context, so code below the API layer can add child spans
+    // without needing a tracer, using Span.current().startChild()
+
+    // When tracing is off, or for code running outside a traced call, the current span is NOOP
+    // NOOP and its children record nothing, so instrumented code does not need to check
+
+    public static final Context.Key<Span> SPAN_KEY = Context.key("trac-span");
+
+    static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    static final String INVALID_SPAN_ID = "0000000000000000";
+
+    public static final Span NOOP = new Span(null, "", SpanKind.INTERNAL, INVALID_TRACE_ID, INVALID_SPAN_ID, null, false);
+
+    private final ISpanExporter exporter;
+    private final String name;
+    private final SpanKind kind;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final boolean sampled;
+
+    private final long startEpochNanos;
+    private final long startNanoTime;
+    private final AtomicBoolean ended;
+
+    private Map<String, Object> attributes;
+    private String errorMessage;
+    private boolean error;
+    private long endEpochNanos;
+
+    Span(
+            ISpanExporter exporter, String name, SpanKind kind,
+            String traceId, String spanId, String parentSpanId,
+            boolean sampled) {
+
+        this.exporter = exporter;
+        this.name = name;
+        this.kind = kind;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.sampled = sampled;
+
+        var now = Instant.now();
+        this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        this.startNanoTime = System.nanoTime();
+        this.ended = new AtomicBoolean(false);
+    }
+
+    public static Span current() {
+        return fromContext(Context.current());
+    }
+
+    public static Span fromContext(Context context) {
+
+        var span = SPAN_KEY.get(context);
+        return span != null ? span : NOOP;
+    }
+
+    public Context inContext(Context context) {
+        return context.withValue(SPAN_KEY, this);
+    }
+
+    public Span startChild(String name) {
+        return startChild(name, SpanKind.INTERNAL);
+    }
+
+    public Span startChild(String name, SpanKind kind) {
+
+        if (this == NOOP)
+            return NOOP;
+
+        return new Span(exporter, name, kind, traceId, newSpanId(), spanId, sampled);
+    }
+
+    public boolean isRecording() {
+        return sampled && exporter != null;
+    }
+
+    public synchronized Span setAttribute(String key, Object value) {
+
+        if (!isRecording() || value == null)
+            return this;
+
+        if (attributes == null)
+            attributes = new LinkedHashMap<>();
+
+        attributes.put(key, value);
+
+        return this;
+    }
+
+    public synchronized Span setError(String message) {
+
+        if (!isRecording())
+            return this;
+
+        this.error = true;
+        this.errorMessage = message;
+
+        return this;
+    }
+
+    public void end() {
+
+        if (!ended.compareAndSet(false, true) || !isRecording())
+            return;
+
+        synchronized (this) {
+            endEpochNanos = startEpochNanos + (System.nanoTime() - startNanoTime);
+        }
+
+        exporter.export(this);
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    public String traceparent() {
+
+        // W3C trace context header, version 00
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SpanKind getKind() {
+        return kind;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    public synchronized long getEndEpochNanos() {
+        return endEpochNanos;
+    }
+
+    public synchronized Map<String, Object> getAttributes() {
+        return attributes != null ? Map.copyOf(attributes) : Collections.emptyMap();
+    }
+
+    public synchronized boolean isError() {
+        return error;
+    }
+
+    public synchronized String getErrorMessage() {
+        return errorMessage;
+    }
+
+    static String newTraceId() {
+
+        var random = ThreadLocalRandom.current();
+        String traceId;
+
+        do {
+            traceId = hex(random.nextLong()) + hex(random.nextLong());
+        } while (traceId.equals(INVALID_TRACE_ID));
+
+        return traceId;
+    }
+
+    static String newSpanId() {
+
+        var random = ThreadLocalRandom.current();
+        String spanId;
+
+        do {
+            spanId = hex(random.nextLong());
+        } while (spanId.equals(INVALID_SPAN_ID));
+
+        return spanId;
+    }
+
+    private static String hex(long value) {
+
+        var digits = Long.toHexString(value);
+
+        if (digits.length() == 16)
+            return digits;
+
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+}
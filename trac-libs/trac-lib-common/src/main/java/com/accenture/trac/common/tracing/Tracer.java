@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.tracing;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+
+public class Tracer {
+
+    // Start root spans for incoming requests, continuing the caller's trace if there is a traceparent header
+    // Calls with a valid traceparent follow the caller's sampling decision, new traces use the sample ratio
+
+    // Tracing is configured under <configRoot>.tracing, it is off unless enabled in config
+    // Spans are written to a local file in OTLP/JSON format, see OtlpFileExporter
+
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    public static final Tracer DISABLED = new Tracer(null, 0.0);
+
+    private static final String TRACING_ENABLED_KEY = ".tracing.enabled";
+    private static final String TRACING_FILE_KEY = ".tracing.file";
+    private static final String TRACING_SAMPLE_RATIO_KEY = ".tracing.sampleRatio";
+
+    private static final String DEFAULT_SAMPLE_RATIO = "1.0";
+
+    private static final Pattern TRACEPARENT_PATTERN = Pattern.compile(
+            "^([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?$");
+
+    private static final Logger log = LoggerFactory.getLogger(Tracer.class);
+
+    private final ISpanExporter exporter;
+    private final double sampleRatio;
+
+    public Tracer(ISpanExporter exporter, double sampleRatio) {
+        this.exporter = exporter;
+        this.sampleRatio = sampleRatio;
+    }
+
+    public static Tracer fromConfig(Properties properties, String configRoot, String serviceName) {
+
+        var enabledValue = properties.getProperty(configRoot + TRACING_ENABLED_KEY, "false").trim();
+
+        if (!Boolean.parseBoolean(enabledValue))
+            return DISABLED;
+
+        var fileKey = configRoot + TRACING_FILE_KEY;
+        var fileValue = properties.getProperty(fileKey, "").trim();
+
+        if (fileValue.isEmpty()) {
+            var message = "Missing required config property: " + fileKey;
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        var ratioKey = configRoot + TRACING_SAMPLE_RATIO_KEY;
+        var ratioValue = properties.getProperty(ratioKey, DEFAULT_SAMPLE_RATIO).trim();
+        double sampleRatio;
+
+        try {
+            sampleRatio = Double.parseDouble(ratioValue);
+
+            if (sampleRatio < 0.0 || sampleRatio > 1.0)
+                throw new NumberFormatException();
+        }
+        catch (NumberFormatException e) {
+            var message = "Config property must be a number between 0 and 1: " + ratioKey + ", got value '" + ratioValue + "'";
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        log.info("Tracing is enabled: file = {}, sample ratio = {}", fileValue, sampleRatio);
+
+        var exporter = new OtlpFileExporter(Paths.get(fileValue), serviceName);
+
+        return new Tracer(exporter, sampleRatio);
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    public Span startSpan(String name, SpanKind kind) {
+        return startSpan(name, kind, null);
+    }
+
+    public Span startSpan(String name, SpanKind kind, String traceparent) {
+
+        if (exporter == null)
+            return Span.NOOP;
+
+        var match = traceparent != null
+                ? TRACEPARENT_PATTERN.matcher(traceparent.trim())
+                : null;
+
+        if (match != null && match.matches()) {
+
+            var version = match.group(1);
+            var traceId = match.group(2);
+            var parentSpanId = match.group(3);
+            var flags = Integer.parseInt(match.group(4), 16);
+
+            var valid = !version.equals("ff")
+                    && !traceId.equals(Span.INVALID_TRACE_ID)
+                    && !parentSpanId.equals(Span.INVALID_SPAN_ID);
+
+            if (valid) {
+                var sampled = (flags & 0x01) != 0;
+                return new Span(exporter, name, kind, traceId, Span.newSpanId(), parentSpanId, sampled);
+            }
+        }
+
+        var sampled = sampleRatio >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRatio;
+
+        return new Span(exporter, name, kind, Span.newTraceId(), Span.newSpanId(), null, sampled);
+    }
+
+    public void close() {
+
+        if (exporter != null)
+            exporter.close();
+    }
+}
@@ -16,6 +16,11 @@
 
 package com.accenture.trac.common.util;
 
+import com.accenture.trac.common.grpc.CallMetricsInterceptor;
+import com.accenture.trac.common.tracing.Span;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
 import io.grpc.Status;
 import io.grpc.StatusException;
 import io.grpc.StatusRuntimeException;
@@ -42,19 +47,46 @@ public class ApiWrapper {
 
     public <T> void unaryCall(StreamObserver<T> response, Supplier<CompletableFuture<T>> futureFunc) {
 
-        var stack = StackWalker.getInstance();
-        var method = stack.walk(frames -> frames.skip(1).findFirst());
-        var methodName = method.isPresent() ? method.get().getMethodName() : "(unknown API method)";
+        // Per-call timing and counts are recorded by CallMetricsInterceptor, only failures are logged here
+        // The method name is taken from the call context, walking the stack is a fallback if it is not set
+
+        var contextMethodName = CallMetricsInterceptor.METHOD_NAME_KEY.get();
+        var methodName = contextMethodName != null ? contextMethodName : callerMethodName();
+
+        // Calls that are cancelled or past their deadline before they start are not run at all
+        // If the call goes away while it is running, do not try to send a response
+
+        var context = Context.current();
+
+        if (context.isCancelled()) {
+            log.warn("API CALL CANCELLED BEFORE START: {}", methodName);
+            return;
+        }
+
+        // Handler span starts when the call is picked up, the gap from the server span is time spent queued
+        // It is made current while the handler runs, so spans from lower layers are nested under it
+        var span = Span.current().startChild("handle " + methodName);
 
         try {
 
-            log.info("API CALL START: {}", methodName);
+            var future = span != Span.NOOP
+                    ? span.inContext(context).call(futureFunc::get)
+                    : futureFunc.get();
 
-            futureFunc.get().handle((result, error) -> {
+            future.handle((result, error) -> {
 
-                if (result != null) {
+                if (context.isCancelled()) {
 
-                    log.info("API CALL SUCCEEDED: {}", methodName);
+                    var status = Contexts.statusFromCancelled(context);
+                    var statusCode = status != null ? status.getCode() : Status.Code.CANCELLED;
+
+                    log.warn("API CALL CANCELLED: {} ({})", methodName, statusCode);
+                    span.setError("Call cancelled (" + statusCode + ")");
+                    span.end();
+                }
+                else if (result != null) {
+
+                    span.end();
 
                     response.onNext(result);
                     response.onCompleted();
@@ -64,6 +96,9 @@ public class ApiWrapper {
                     log.error("API CALL FAILED: {}", methodName);
                     log.error(methodName, error);
 
+                    span.setError(String.valueOf(error));
+                    span.end();
+
                     mapErrorResponse(response, error);
                 }
 
@@ -75,10 +110,23 @@ public class ApiWrapper {
             log.error("API CALL FAILED: {}", methodName);
             log.error(methodName, error);
 
+            span.setError(String.valueOf(error));
+            span.end();
+
             mapErrorResponse(response, error);
         }
     }
 
+    private String callerMethodName() {
+
+        // Skip this method and unaryCall(), to find the API method that called unaryCall()
+
+        var stack = StackWalker.getInstance();
+        var method = stack.walk(frames -> frames.skip(2).findFirst());
+
+        return method.isPresent() ? method.get().getMethodName() : "(unknown API method)";
+    }
+
     private <T> void mapErrorResponse(StreamObserver<T> response, Throwable error) {
 
         // Error already as a GRPC status, top level API classes may do this
@@ -88,9 +136,10 @@ public class ApiWrapper {
         }
 
         // Errors wrapped up by the CompletableFuture API, we want to unwrap them
+        // The wrapped error may itself be a GRPC status, e.g. if the call was cancelled in the DAL
         else if (error instanceof CompletionException && error.getCause() != null) {
 
-            mapUnwrappedErrorResponse(response, error.getCause());
+            mapErrorResponse(response, error.getCause());
         }
 
         // All other regular errors
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import io.grpc.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ActiveCallsInterceptorTest {
+
+    private static final MethodDescriptor.Marshaller<String> NULL_MARSHALLER = new MethodDescriptor.Marshaller<>() {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            return "";
+        }
+    };
+
+    private static final MethodDescriptor<String, String> METHOD_A = testMethod("test.TestService/methodA");
+    private static final MethodDescriptor<String, String> METHOD_B = testMethod("test.TestService/methodB");
+
+    // The interceptor wraps the calls it is given, keep hold of the wrapped call so tests can close it
+
+    private ServerCall<String, String> lastCall;
+
+    private final ServerCallHandler<String, String> handler = (call, headers) -> {
+        lastCall = call;
+        return new ServerCall.Listener<>() {};
+    };
+
+    @Test
+    void callsTrackedUntilClosed() {
+
+        var interceptor = new ActiveCallsInterceptor();
+
+        var callA = new TestCall(METHOD_A);
+        var callB = new TestCall(METHOD_B);
+
+        interceptor.interceptCall(callA, new Metadata(), handler);
+        var wrappedA = lastCall;
+
+        interceptor.interceptCall(callB, new Metadata(), handler);
+
+        var active = interceptor.getActiveCalls();
+
+        assertEquals(2, interceptor.getActiveCallCount());
+        assertEquals(METHOD_A.getFullMethodName(), active.get(0).getMethodName());
+        assertEquals(METHOD_B.getFullMethodName(), active.get(1).getMethodName());
+        assertFalse(active.get(0).getAge().isNegative());
+
+        // Calls are not traced in this test
+        assertNull(active.get(0).getTraceId());
+
+        wrappedA.close(Status.OK, new Metadata());
+
+        assertEquals(1, interceptor.getActiveCallCount());
+        assertEquals(METHOD_B.getFullMethodName(), interceptor.getActiveCalls().get(0).getMethodName());
+    }
+
+    @Test
+    void cancelledCallsRemoved() {
+
+        var interceptor = new ActiveCallsInterceptor();
+        var call = new TestCall(METHOD_A);
+
+        var listener = interceptor.interceptCall(call, new Metadata(), handler);
+        assertEquals(1, interceptor.getActiveCallCount());
+
+        listener.onCancel();
+        assertEquals(0, interceptor.getActiveCallCount());
+    }
+
+    @Test
+    void failedStartRemoved() {
+
+        var interceptor = new ActiveCallsInterceptor();
+        var call = new TestCall(METHOD_A);
+
+        ServerCallHandler<String, String> failingHandler = (c, h) -> { throw new IllegalStateException("failed"); };
+
+        assertThrows(IllegalStateException.class, () -> interceptor.interceptCall(call, new Metadata(), failingHandler));
+        assertEquals(0, interceptor.getActiveCallCount());
+    }
+
+    private static MethodDescriptor<String, String> testMethod(String fullMethodName) {
+
+        return MethodDescriptor.<String, String>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(fullMethodName)
+                .setRequestMarshaller(NULL_MARSHALLER)
+                .setResponseMarshaller(NULL_MARSHALLER)
+                .build();
+    }
+
+    private static class TestCall extends ServerCall<String, String> {
+
+        private final MethodDescriptor<String, String> method;
+
+        TestCall(MethodDescriptor<String, String> method) {
+            this.method = method;
+        }
+
+        @Override public void request(int numMessages) {}
+        @Override public void sendHeaders(Metadata headers) {}
+        @Override public void sendMessage(String message) {}
+        @Override public void close(Status status, Metadata trailers) {}
+        @Override public boolean isCancelled() { return false; }
+
+        @Override
+        public MethodDescriptor<String, String> getMethodDescriptor() {
+            return method;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.exception.ETracInternal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST_RTT = Duration.ofMillis(5).toNanos();
+    private static final long SLOW_RTT = Duration.ofMillis(50).toNanos();
+
+    @Test
+    void invalidLimits() {
+
+        assertThrows(ETracInternal.class, () -> new AdaptiveConcurrencyLimit(10, 0, 20));
+        assertThrows(ETracInternal.class, () -> new AdaptiveConcurrencyLimit(10, 5, 4));
+        assertThrows(ETracInternal.class, () -> new AdaptiveConcurrencyLimit(30, 5, 20));
+    }
+
+    @Test
+    void rejectWhenFull() {
+
+        var limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+
+        limit.releaseWithoutSample();
+
+        assertTrue(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    void dropReducesLimit() {
+
+        var limit = new AdaptiveConcurrencyLimit(10, 2, 10);
+
+        for (var i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST_RTT, true);
+        }
+
+        assertTrue(limit.getLimit() < 10);
+        assertTrue(limit.getLimit() >= 2);
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void growUnderSteadyLoad() {
+
+        var limit = new AdaptiveConcurrencyLimit(4, 1, 50);
+
+        // Keep the limit fully used with steady latency, it should grow towards the max
+
+        for (var i = 0; i < 200; i++) {
+
+            while (limit.tryAcquire())
+                assertTrue(limit.getInFlight() <= limit.getLimit());
+
+            limit.release(FAST_RTT, false);
+        }
+
+        assertTrue(limit.getLimit() > 4);
+    }
+
+    @Test
+    void shrinkWhenLatencyRises() {
+
+        var limit = new AdaptiveConcurrencyLimit(40, 1, 40);
+
+        for (var i = 0; i < 100; i++) {
+            while (limit.tryAcquire()) { /* fill up */ }
+            limit.release(FAST_RTT, false);
+        }
+
+        var steadyLimit = limit.getLimit();
+
+        // Baseline latency is slow to move, so a sudden rise shows up as a gradient below 1
+
+        for (var i = 0; i < 20; i++) {
+            while (limit.tryAcquire()) { /* fill up */ }
+            limit.release(SLOW_RTT, false);
+        }
+
+        assertTrue(limit.getLimit() < steadyLimit);
+    }
+
+    @Test
+    void idleDoesNotGrow() {
+
+        var limit = new AdaptiveConcurrencyLimit(10, 1, 50);
+
+        for (var i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST_RTT, false);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.common.grpc;
+
+import io.grpc.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ConcurrencyLimitInterceptorTest {
+
+    private static final MethodDescriptor.Marshaller<String> NULL_MARSHALLER = new MethodDescriptor.Marshaller<>() {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            return "";
+        }
+    };
+
+    private static final MethodDescriptor<String, String> TEST_METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("test.TestService/testMethod")
+            .setRequestMarshaller(NULL_MARSHALLER)
+            .setResponseMarshaller(NULL_MARSHALLER)
+            .build();
+
+    // The interceptor wraps the calls it is given, keep hold of the wrapped call so tests can close it
+
+    private ServerCall<String, String> lastCall;
+    private int handlerCount;
+
+    private final ServerCallHandler<String, String> handler = (call, headers) -> {
+        lastCall = call;
+        handlerCount++;
+        return new ServerCall.Listener<>() {};
+    };
+
+    @Test
+    void overLimit_rejected() {
+
+        var limit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        var interceptor = new ConcurrencyLimitInterceptor(limit);
+
+        var call1 = new TestCall();
+        var call2 = new TestCall();
+
+        interceptor.interceptCall(call1, new Metadata(), handler);
+        interceptor.interceptCall(call2, new Metadata(), handler);
+
+        // Only the first call reaches the handler, the second is closed without doing any work
+        assertEquals(1, handlerCount);
+        assertEquals(1, limit.getInFlight());
+
+        assertNull(call1.closedStatus);
+        assertNotNull(call2.closedStatus);
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, call2.closedStatus.getCode());
+    }
+
+    @Test
+    void overLimit_retryPushback() {
+
+        var limit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        var interceptor = new ConcurrencyLimitInterceptor(limit);
+
+        var call1 = new TestCall();
+        var call2 = new TestCall();
+
+        interceptor.interceptCall(call1, new Metadata(), handler);
+        interceptor.interceptCall(call2, new Metadata(), handler);
+
+        var pushback = call2.closedTrailers.get(ConcurrencyLimitInterceptor.RETRY_PUSHBACK_KEY);
+        assertNotNull(pushback);
+
+        // No latency has been recorded yet, so the hint is the 10 ms minimum plus up to the same again in jitter
+        var pushbackMs = Long.parseLong(pushback);
+        assertTrue(pushbackMs >= 10 && pushbackMs < 20, "Unexpected retry pushback: " + pushbackMs);
+    }
+
+    @Test
+    void permitReleasedOnClose() {
+
+        var limit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        var interceptor = new ConcurrencyLimitInterceptor(limit);
+
+        var call1 = new TestCall();
+        interceptor.interceptCall(call1, new Metadata(), handler);
+        assertEquals(1, limit.getInFlight());
+
+        lastCall.close(Status.OK, new Metadata());
+        assertEquals(0, limit.getInFlight());
+        assertEquals(Status.Code.OK, call1.closedStatus.getCode());
+
+        // With the permit back, the next call is admitted
+        var call2 = new TestCall();
+        interceptor.interceptCall(call2, new Metadata(), handler);
+
+        assertEquals(2, handlerCount);
+        assertNull(call2.closedStatus);
+    }
+
+    @Test
+    void permitReleasedOnCancel() {
+
+        var limit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        var interceptor = new ConcurrencyLimitInterceptor(limit);
+
+        var listener = interceptor.interceptCall(new TestCall(), new Metadata(), handler);
+        assertEquals(1, limit.getInFlight());
+
+        listener.onCancel();
+        assertEquals(0, limit.getInFlight());
+
+        var call2 = new TestCall();
+        interceptor.interceptCall(call2, new Metadata(), handler);
+
+        assertEquals(2, handlerCount);
+        assertNull(call2.closedStatus);
+    }
+
+    @Test
+    void permitReleasedOnce() {
+
+        var limit = new AdaptiveConcurrencyLimit(2, 1, 2);
+        var interceptor = new ConcurrencyLimitInterceptor(limit);
+
+        var listener1 = interceptor.interceptCall(new TestCall(), new Metadata(), handler);
+        var wrappedCall1 = lastCall;
+
+        interceptor.interceptCall(new TestCall(), new Metadata(), handler);
+        assertEquals(2, limit.getInFlight());
+
+        // Close and cancel of the same call must not give back two permits
+        wrappedCall1.close(Status.CANCELLED, new Metadata());
+        listener1.onCancel();
+
+        assertEquals(1, limit.getInFlight());
+    }
+
+    @Test
+    void permitReleasedOnFailedStart() {
+
+        var limit = new AdaptiveConcurrencyLimit(1, 1, 1);
+        var interceptor = new ConcurrencyLimitInterceptor(limit);
+
+        ServerCallHandler<String, String> failingHandler = (c, h) -> { throw new IllegalStateException("failed"); };
+
+        assertThrows(IllegalStateException.class, () -> interceptor.interceptCall(new TestCall(), new Metadata(), failingHandler));
+        assertEquals(0, limit.getInFlight());
+    }
+
+    private static class TestCall extends ServerCall<String, String> {
+
+        private Status closedStatus;
+        private Metadata closedTrailers;
+
+        @Override public void request(int numMessages) {}
+        @Override public void sendHeaders(Metadata headers) {}
+        @Override public void sendMessage(String message) {}
+        @Override public boolean isCancelled() { return false; }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            closedStatus = status;
+            closedTrailers = trailers;
+        }
+
+        @Override
+        public MethodDescriptor<String, String> getMethodDescriptor() {
+            return TEST_METHOD;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.grpc;
+
+import com.accenture.trac.common.tracing.ISpanExporter;
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.common.tracing.SpanKind;
+import com.accenture.trac.common.tracing.Tracer;
+
+import io.grpc.*;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.ServerCalls;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TracingInterceptorTest {
+
+    // Round trip a call through the client and server interceptors over an in-process channel
+    // The client span is passed as a traceparent header and the server span continues the same trace
+
+    private static final MethodDescriptor.Marshaller<String> STRING_MARSHALLER = new MethodDescriptor.Marshaller<>() {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    private static final MethodDescriptor<String, String> ECHO_METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("test.TestService/echo")
+            .setRequestMarshaller(STRING_MARSHALLER)
+            .setResponseMarshaller(STRING_MARSHALLER)
+            .build();
+
+    private static class ListExporter implements ISpanExporter {
+
+        final List<Span> spans = new ArrayList<>();
+
+        @Override public synchronized void export(Span span) { spans.add(span); }
+        @Override public void close() {}
+    }
+
+    private ListExporter serverExporter;
+    private ListExporter clientExporter;
+    private Tracer clientTracer;
+
+    private volatile String receivedTraceparent;
+    private volatile Span handlerSpan;
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setup() throws Exception {
+
+        serverExporter = new ListExporter();
+        clientExporter = new ListExporter();
+        clientTracer = new Tracer(clientExporter, 1.0);
+
+        var serverTracer = new Tracer(serverExporter, 1.0);
+
+        // Record the raw header as it arrives, before the tracing interceptor sees it
+
+        var headerCapture = new ServerInterceptor() {
+
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                    ServerCall<ReqT, RespT> call, Metadata headers,
+                    ServerCallHandler<ReqT, RespT> next) {
+
+                receivedTraceparent = headers.get(TracingServerInterceptor.TRACEPARENT_KEY);
+                return next.startCall(call, headers);
+            }
+        };
+
+        var echoService = ServerServiceDefinition.builder("test.TestService")
+                .addMethod(ECHO_METHOD, ServerCalls.asyncUnaryCall((String request, io.grpc.stub.StreamObserver<String> response) -> {
+
+                    handlerSpan = Span.current();
+
+                    if (request.equals("fail")) {
+                        response.onError(Status.INVALID_ARGUMENT.withDescription("bad request").asRuntimeException());
+                    }
+                    else {
+                        response.onNext(request);
+                        response.onCompleted();
+                    }
+                }))
+                .build();
+
+        var serverName = UUID.randomUUID().toString();
+
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(echoService,
+                        new TracingServerInterceptor(serverTracer),
+                        headerCapture))
+                .build()
+                .start();
+
+        channel = InProcessChannelBuilder.forName(serverName)
+                .directExecutor()
+                .intercept(new TracingClientInterceptor())
+                .build();
+    }
+
+    @AfterEach
+    void teardown() {
+
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void roundTrip_traceContinued() throws Exception {
+
+        var clientSpan = clientTracer.startSpan("client", SpanKind.CLIENT);
+
+        var response = clientSpan.inContext(Context.current())
+                .call(() -> ClientCalls.blockingUnaryCall(channel, ECHO_METHOD, CallOptions.DEFAULT, "hello"));
+
+        clientSpan.end();
+
+        assertEquals("hello", response);
+        assertEquals(clientSpan.traceparent(), receivedTraceparent);
+
+        assertEquals(1, serverExporter.spans.size());
+        var serverSpan = serverExporter.spans.get(0);
+
+        assertEquals(ECHO_METHOD.getFullMethodName(), serverSpan.getName());
+        assertEquals(SpanKind.SERVER, serverSpan.getKind());
+        assertEquals(clientSpan.getTraceId(), serverSpan.getTraceId());
+        assertEquals(clientSpan.getSpanId(), serverSpan.getParentSpanId());
+        assertNotEquals(clientSpan.getSpanId(), serverSpan.getSpanId());
+        assertTrue(serverSpan.isSampled());
+        assertFalse(serverSpan.isError());
+        assertEquals(Status.Code.OK.value(), serverSpan.getAttributes().get("rpc.grpc.status_code"));
+
+        // The server span is current while the call is handled, so lower layers can add child spans
+        assertSame(serverSpan, handlerSpan);
+    }
+
+    @Test
+    void roundTrip_notSampled() throws Exception {
+
+        var unsampledTracer = new Tracer(clientExporter, 0.0);
+        var clientSpan = unsampledTracer.startSpan("client", SpanKind.CLIENT);
+
+        clientSpan.inContext(Context.current())
+                .call(() -> ClientCalls.blockingUnaryCall(channel, ECHO_METHOD, CallOptions.DEFAULT, "hello"));
+
+        assertTrue(receivedTraceparent.endsWith("-00"));
+
+        // The server follows the caller's sampling decision, the span is not exported
+        assertEquals(clientSpan.getTraceId(), handlerSpan.getTraceId());
+        assertFalse(handlerSpan.isSampled());
+        assertTrue(serverExporter.spans.isEmpty());
+    }
+
+    @Test
+    void noClientSpan_newTrace() {
+
+        var response = ClientCalls.blockingUnaryCall(channel, ECHO_METHOD, CallOptions.DEFAULT, "hello");
+
+        assertEquals("hello", response);
+        assertNull(receivedTraceparent);
+
+        assertEquals(1, serverExporter.spans.size());
+        var serverSpan = serverExporter.spans.get(0);
+
+        assertNull(serverSpan.getParentSpanId());
+        assertEquals(32, serverSpan.getTraceId().length());
+    }
+
+    @Test
+    void invalidTraceparent_newTrace() {
+
+        var headers = new Metadata();
+        headers.put(TracingServerInterceptor.TRACEPARENT_KEY, "00-00000000000000000000000000000000-00f067aa0ba902b7-01");
+
+        var headerChannel = ClientInterceptors.intercept(channel, MetadataUtils.newAttachHeadersInterceptor(headers));
+        ClientCalls.blockingUnaryCall(headerChannel, ECHO_METHOD, CallOptions.DEFAULT, "hello");
+
+        assertEquals(1, serverExporter.spans.size());
+        var serverSpan = serverExporter.spans.get(0);
+
+        assertNull(serverSpan.getParentSpanId());
+        assertNotEquals("00000000000000000000000000000000", serverSpan.getTraceId());
+    }
+
+    @Test
+    void failedCall_spanError() {
+
+        var error = assertThrows(StatusRuntimeException.class,
+                () -> ClientCalls.blockingUnaryCall(channel, ECHO_METHOD, CallOptions.DEFAULT, "fail"));
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, error.getStatus().getCode());
+
+        assertEquals(1, serverExporter.spans.size());
+        var serverSpan = serverExporter.spans.get(0);
+
+        assertTrue(serverSpan.isError());
+        assertEquals("INVALID_ARGUMENT: bad request", serverSpan.getErrorMessage());
+        assertEquals(Status.Code.INVALID_ARGUMENT.value(), serverSpan.getAttributes().get("rpc.grpc.status_code"));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.metrics;
+
+import com.accenture.trac.common.exception.ETracInternal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class MetricsRegistryTest {
+
+    @Test
+    void counter_sameLabelsSameCounter() {
+
+        var registry = new MetricsRegistry();
+
+        var counter1 = registry.counter("test_calls_total", "Test calls", "method", "a");
+        var counter2 = registry.counter("test_calls_total", "Test calls", "method", "a");
+        var counter3 = registry.counter("test_calls_total", "Test calls", "method", "b");
+
+        assertSame(counter1, counter2);
+        assertNotSame(counter1, counter3);
+
+        counter1.inc();
+        counter2.inc(2);
+
+        var text = registry.writeText();
+
+        assertTrue(text.contains("# HELP test_calls_total Test calls\n"));
+        assertTrue(text.contains("# TYPE test_calls_total counter\n"));
+        assertTrue(text.contains("test_calls_total{method=\"a\"} 3\n"));
+        assertTrue(text.contains("test_calls_total{method=\"b\"} 0\n"));
+    }
+
+    @Test
+    void gauge_readOnOutput() {
+
+        var registry = new MetricsRegistry();
+        var value = new double[] { 1.0 };
+
+        registry.gauge("test_level", "Test level", () -> value[0]);
+        assertTrue(registry.writeText().contains("test_level 1\n"));
+
+        value[0] = 2.5;
+        assertTrue(registry.writeText().contains("test_level 2.5\n"));
+    }
+
+    @Test
+    void histogram_cumulativeBuckets() {
+
+        var registry = new MetricsRegistry();
+        var histogram = registry.histogram("test_seconds", "Test latency", "method", "a");
+
+        histogram.recordNanos(200_000);          // 0.2 ms
+        histogram.recordNanos(2_000_000);        // 2 ms
+        histogram.recordNanos(20_000_000_000L);  // 20 s, above the highest bucket
+
+        assertEquals(3, histogram.count());
+
+        var text = registry.writeText();
+
+        assertTrue(text.contains("# TYPE test_seconds histogram\n"));
+        assertTrue(text.contains("test_seconds_bucket{method=\"a\",le=\"0.0005\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{method=\"a\",le=\"0.0025\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{method=\"a\",le=\"10\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{method=\"a\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_seconds_count{method=\"a\"} 3\n"));
+    }
+
+    @Test
+    void countHistogram_countBuckets() {
+
+        var registry = new MetricsRegistry();
+        var histogram = registry.countHistogram("test_round_trips", "Test round trips");
+
+        histogram.record(1);
+        histogram.record(4);
+        histogram.record(10000);
+
+        var text = registry.writeText();
+
+        assertTrue(text.contains("test_round_trips_bucket{le=\"1\"} 1\n"));
+        assertTrue(text.contains("test_round_trips_bucket{le=\"5\"} 2\n"));
+        assertTrue(text.contains("test_round_trips_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_round_trips_sum 10005\n"));
+    }
+
+    @Test
+    void labels_escaped() {
+
+        var registry = new MetricsRegistry();
+        registry.counter("test_total", "Test", "name", "a\"b\\c").inc();
+
+        assertTrue(registry.writeText().contains("test_total{name=\"a\\\"b\\\\c\"} 1\n"));
+    }
+
+    @Test
+    void typeMismatch_fails() {
+
+        var registry = new MetricsRegistry();
+        registry.counter("test_metric", "Test");
+
+        assertThrows(ETracInternal.class, () -> registry.histogram("test_metric", "Test"));
+    }
+}
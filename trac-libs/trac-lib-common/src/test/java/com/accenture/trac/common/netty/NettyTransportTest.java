@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.netty;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class NettyTransportTest {
+
+    private static final String CONFIG_ROOT = "test.api";
+
+    @Test
+    void autoTransport() {
+
+        var transport = NettyTransport.fromConfig(new Properties(), CONFIG_ROOT);
+
+        var expectedType = Epoll.isAvailable() ? NettyTransport.Type.EPOLL : NettyTransport.Type.NIO;
+        var expectedChannel = Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+
+        assertEquals(expectedType, transport.getType());
+        assertEquals(expectedChannel, transport.serverChannelType());
+    }
+
+    @Test
+    void nioTransport() throws Exception {
+
+        var props = new Properties();
+        props.setProperty(CONFIG_ROOT + NettyTransport.TRANSPORT_KEY, "nio");
+        props.setProperty(CONFIG_ROOT + NettyTransport.WORKER_THREADS_KEY, "3");
+
+        var transport = NettyTransport.fromConfig(props, CONFIG_ROOT);
+        var workerGroup = transport.createWorkerGroup("test-worker");
+
+        try {
+            assertEquals(NettyTransport.Type.NIO, transport.getType());
+            assertEquals(NioServerSocketChannel.class, transport.serverChannelType());
+            assertTrue(workerGroup instanceof NioEventLoopGroup);
+            assertEquals(3, ((NioEventLoopGroup) workerGroup).executorCount());
+        }
+        finally {
+            workerGroup.shutdownGracefully().sync();
+        }
+    }
+
+    @Test
+    void epollTransport() throws Exception {
+
+        var props = new Properties();
+        props.setProperty(CONFIG_ROOT + NettyTransport.TRANSPORT_KEY, "epoll");
+
+        // Asking for epoll explicitly is an error if it is not available, rather than a silent fallback
+
+        if (!Epoll.isAvailable()) {
+            assertThrows(EStartup.class, () -> NettyTransport.fromConfig(props, CONFIG_ROOT));
+            return;
+        }
+
+        var transport = NettyTransport.fromConfig(props, CONFIG_ROOT);
+        var bossGroup = transport.createBossGroup("test-boss");
+
+        try {
+            assertEquals(EpollServerSocketChannel.class, transport.serverChannelType());
+            assertTrue(bossGroup instanceof EpollEventLoopGroup);
+        }
+        finally {
+            bossGroup.shutdownGracefully().sync();
+        }
+    }
+
+    @Test
+    void invalidConfig() {
+
+        var badType = new Properties();
+        badType.setProperty(CONFIG_ROOT + NettyTransport.TRANSPORT_KEY, "kqueue");
+
+        var badThreads = new Properties();
+        badThreads.setProperty(CONFIG_ROOT + NettyTransport.WORKER_THREADS_KEY, "-1");
+
+        var noBoss = new Properties();
+        noBoss.setProperty(CONFIG_ROOT + NettyTransport.BOSS_THREADS_KEY, "0");
+
+        assertThrows(EStartup.class, () -> NettyTransport.fromConfig(badType, CONFIG_ROOT));
+        assertThrows(EStartup.class, () -> NettyTransport.fromConfig(badThreads, CONFIG_ROOT));
+        assertThrows(EStartup.class, () -> NettyTransport.fromConfig(noBoss, CONFIG_ROOT));
+    }
+}
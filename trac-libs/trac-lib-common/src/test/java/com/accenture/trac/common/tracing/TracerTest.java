@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.tracing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TracerTest {
+
+    private static class ListExporter implements ISpanExporter {
+
+        final List<Span> spans = new ArrayList<>();
+
+        @Override public void export(Span span) { spans.add(span); }
+        @Override public void close() {}
+    }
+
+    @Test
+    void traceparent_continued() {
+
+        var exporter = new ListExporter();
+        var tracer = new Tracer(exporter, 0.0);
+
+        var traceparent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+        var span = tracer.startSpan("test", SpanKind.SERVER, traceparent);
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.getTraceId());
+        assertEquals("00f067aa0ba902b7", span.getParentSpanId());
+        assertNotEquals("00f067aa0ba902b7", span.getSpanId());
+        assertTrue(span.isSampled());
+
+        var child = span.startChild("child");
+        assertEquals(span.getTraceId(), child.getTraceId());
+        assertEquals(span.getSpanId(), child.getParentSpanId());
+        assertEquals("00-" + span.getTraceId() + "-" + child.getSpanId() + "-01", child.traceparent());
+
+        child.end();
+        span.end();
+        span.end();
+
+        assertEquals(2, exporter.spans.size());
+    }
+
+    @Test
+    void traceparent_notSampled() {
+
+        var exporter = new ListExporter();
+        var tracer = new Tracer(exporter, 1.0);
+
+        var traceparent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00";
+        var span = tracer.startSpan("test", SpanKind.SERVER, traceparent);
+
+        assertFalse(span.isSampled());
+        assertTrue(span.traceparent().endsWith("-00"));
+
+        span.end();
+        assertTrue(exporter.spans.isEmpty());
+    }
+
+    @Test
+    void traceparent_invalid() {
+
+        var exporter = new ListExporter();
+        var tracer = new Tracer(exporter, 1.0);
+
+        var badHeaders = List.of(
+                "not-a-traceparent",
+                "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+                "ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+        for (var header : badHeaders) {
+
+            var span = tracer.startSpan("test", SpanKind.SERVER, header);
+
+            assertNotEquals("4bf92f3577b34da6a3ce929d0e0e4736", span.getTraceId());
+            assertNull(span.getParentSpanId());
+            assertEquals(32, span.getTraceId().length());
+            assertEquals(16, span.getSpanId().length());
+        }
+    }
+
+    @Test
+    void disabled_noop() {
+
+        var span = Tracer.DISABLED.startSpan("test", SpanKind.SERVER);
+
+        assertSame(Span.NOOP, span);
+        assertSame(Span.NOOP, span.startChild("child"));
+        assertFalse(span.isRecording());
+    }
+
+    @Test
+    void fileExporter_otlpJson(@TempDir Path tempDir) throws Exception {
+
+        var traceFile = tempDir.resolve("traces.jsonl");
+        var exporter = new OtlpFileExporter(traceFile, "test-service");
+        var tracer = new Tracer(exporter, 1.0);
+
+        var span = tracer.startSpan("test \"call\"", SpanKind.SERVER);
+        span.setAttribute("rows", 3L);
+        span.setError("failed");
+        span.end();
+
+        tracer.close();
+
+        var lines = Files.readAllLines(traceFile);
+        assertEquals(1, lines.size());
+
+        var json = lines.get(0);
+        assertTrue(json.startsWith("{\"resourceSpans\":[{\"resource\":{\"attributes\":[{\"key\":\"service.name\""));
+        assertTrue(json.contains("\"traceId\":\"" + span.getTraceId() + "\""));
+        assertTrue(json.contains("\"name\":\"test \\\"call\\\"\""));
+        assertTrue(json.contains("\"kind\":2"));
+        assertTrue(json.contains("{\"key\":\"rows\",\"value\":{\"intValue\":\"3\"}}"));
+        assertTrue(json.contains("\"status\":{\"code\":2,\"message\":\"failed\"}"));
+    }
+}
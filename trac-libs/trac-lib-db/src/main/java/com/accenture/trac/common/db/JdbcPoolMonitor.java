@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.db;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class JdbcPoolMonitor {
+
+    // Connection pool statistics, for health reporting and metrics
+    // Counters are cumulative, consumers work out rates by comparing samples
+
+    // Hikari is an implementation detail of this library, so its metrics types are not exposed here
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    private volatile PoolStats poolStats;
+
+    JdbcPoolMonitor() {}
+
+    public long acquireCount() {
+        return acquireCount.get();
+    }
+
+    public long acquireNanos() {
+        return acquireNanos.get();
+    }
+
+    public long timeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public int pendingThreads() {
+        var stats = poolStats;
+        return stats != null ? stats.getPendingThreads() : 0;
+    }
+
+    public int activeConnections() {
+        var stats = poolStats;
+        return stats != null ? stats.getActiveConnections() : 0;
+    }
+
+    public int idleConnections() {
+        var stats = poolStats;
+        return stats != null ? stats.getIdleConnections() : 0;
+    }
+
+    public int totalConnections() {
+        var stats = poolStats;
+        return stats != null ? stats.getTotalConnections() : 0;
+    }
+
+    public int maxConnections() {
+        var stats = poolStats;
+        return stats != null ? stats.getMaxConnections() : 0;
+    }
+
+    TrackerFactory trackerFactory() {
+        return new TrackerFactory();
+    }
+
+    class TrackerFactory implements MetricsTrackerFactory {
+
+        JdbcPoolMonitor monitor() {
+            return JdbcPoolMonitor.this;
+        }
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            JdbcPoolMonitor.this.poolStats = poolStats;
+            return new Tracker();
+        }
+    }
+
+    private class Tracker implements IMetricsTracker {
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.incrementAndGet();
+            acquireNanos.addAndGet(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeoutCount.incrementAndGet();
+        }
+    }
+}
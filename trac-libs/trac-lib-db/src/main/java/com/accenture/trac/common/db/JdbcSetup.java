@@ -54,6 +54,8 @@ public class JdbcSetup {
             var hikariProps = createHikariProperties(props, configBase);
 
             var config = new HikariConfig(hikariProps);
+            config.setMetricsTrackerFactory(new JdbcPoolMonitor().trackerFactory());
+
             var source = new HikariDataSource(config);
 
             var log = LoggerFactory.getLogger(JdbcSetup.class);
@@ -90,6 +92,20 @@ public class JdbcSetup {
         hikariSource.close();
     }
 
+    public static JdbcPoolMonitor getPoolMonitor(DataSource source) {
+
+        if (!(source instanceof HikariDataSource))
+            throw new ETracInternal("Datasource being monitored was not created by JdbcSetup");
+
+        var hikariSource = (HikariDataSource) source;
+        var trackerFactory = hikariSource.getMetricsTrackerFactory();
+
+        if (!(trackerFactory instanceof JdbcPoolMonitor.TrackerFactory))
+            throw new ETracInternal("Datasource being monitored does not have a pool monitor");
+
+        return ((JdbcPoolMonitor.TrackerFactory) trackerFactory).monitor();
+    }
+
     private static Properties createHikariProperties(Properties props, String configBase) {
 
         var dialect = getSqlDialect(props, configBase);
@@ -38,49 +38,49 @@ import java.util.function.Supplier;
 
 public class TracApiConfig {
 
-    public static RoutingConfig metaApiRoutes(String serviceHost, int servicePort) {
+    public static RoutingConfig metaApiRoutes(String serviceHost, int servicePort, int maxMessageSize) {
 
         var apiRoutes = new RoutingConfig();
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta/api/v1/{tenant}/{objectType}/create-object",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataPublicWriteApiGrpc.getCreateObjectMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta/api/v1/{tenant}/{objectType}/update-object",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataPublicWriteApiGrpc.getUpdateObjectMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta/api/v1/{tenant}/{objectType}/update-tag",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataPublicWriteApiGrpc.getUpdateTagMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.GET,
                 "/trac-meta/api/v1/{tenant}/{objectType}/{objectId}/versions/{objectVersion}/tags/{tagVersion}",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataReadApiGrpc.getLoadTagMethod(),
                 MetadataReadRequest.getDefaultInstance());
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.GET,
                 "/trac-meta/api/v1/{tenant}/{objectType}/{objectId}/versions/{objectVersion}/tags/latest",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataReadApiGrpc.getLoadLatestTagMethod(),
                 MetadataReadRequest.getDefaultInstance());
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.GET,
                 "/trac-meta/api/v1/{tenant}/{objectType}/{objectId}/versions/latest/tags/latest",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataReadApiGrpc.getLoadLatestObjectMethod(),
                 MetadataReadRequest.getDefaultInstance());
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta/api/v1/{tenant}/{searchParams.objectType}/search?priorVersions={searchParams.priorVersions}",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataSearchApiGrpc.getSearchMethod(),
                 MetadataSearchRequest.getDefaultInstance(),
                 "searchParams.search", SearchExpression.getDefaultInstance());
@@ -88,37 +88,43 @@ public class TracApiConfig {
         return apiRoutes;
     }
 
-    public static RoutingConfig metaApiTrustedRoutes(String serviceHost, int servicePort) {
+    public static RoutingConfig metaApiTrustedRoutes(String serviceHost, int servicePort, int maxMessageSize) {
 
         var apiRoutes = new RoutingConfig();
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta-trusted/api/v1/{tenant}/trusted/{objectType}/create-object",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataTrustedWriteApiGrpc.getCreateObjectMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta-trusted/api/v1/{tenant}/trusted/{objectType}/update-object",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataTrustedWriteApiGrpc.getUpdateObjectMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta-trusted/api/v1/{tenant}/trusted/{objectType}/update-tag",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataTrustedWriteApiGrpc.getUpdateTagMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta-trusted/api/v1/{tenant}/trusted/{objectType}/preallocate",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataTrustedWriteApiGrpc.getPreallocateIdMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
+        TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
+                "/trac-meta-trusted/api/v1/{tenant}/trusted/{objectType}/preallocate-batch",
+                serviceHost, servicePort, maxMessageSize,
+                MetadataTrustedWriteApiGrpc.getPreallocateIdsMethod(),
+                MetadataPreallocateRequest.getDefaultInstance(), true);
+
         TracApiConfig.addApiCall(apiRoutes, HttpMethod.POST,
                 "/trac-meta-trusted/api/v1/{tenant}/trusted/{objectType}/create-preallocated",
-                serviceHost, servicePort,
+                serviceHost, servicePort, maxMessageSize,
                 MetadataTrustedWriteApiGrpc.getCreatePreallocatedObjectMethod(),
                 MetadataWriteRequest.getDefaultInstance(), true);
 
@@ -128,7 +134,7 @@ public class TracApiConfig {
     public static <TRequest extends Message, TRequestBody extends Message, TResponse extends Message>
     void addApiCall(
             RoutingConfig routes, HttpMethod method, String urlPattern,
-            String serviceHost, int servicePort,
+            String serviceHost, int servicePort, int maxMessageSize,
             MethodDescriptor<TRequest, TResponse> grpcMethod, TRequest blankRequest,
             String bodyElement, TRequestBody bodyTemplate) {
 
@@ -137,8 +143,8 @@ public class TracApiConfig {
         var requestBuilder = new RestApiRequestBuilder<>(urlPattern, blankRequest, bodyElement);
 
         // Handler is supplied at runtime when there is a route match for the API call
-        var requestHandler = wrapUnaryHandler(() ->
-                new RestApiUnaryHandler<>(serviceHost, servicePort, grpcMethod, requestBuilder, bodyTemplate));
+        var requestHandler = wrapUnaryHandler(maxMessageSize, () ->
+                new RestApiUnaryHandler<>(serviceHost, servicePort, maxMessageSize, grpcMethod, requestBuilder, bodyTemplate));
 
         routes.addRoute(requestMatcher, requestHandler);
     }
@@ -146,7 +152,7 @@ public class TracApiConfig {
     public static <TRequest extends Message, TResponse extends Message>
     void addApiCall(
                     RoutingConfig routes, HttpMethod method, String urlPattern,
-                    String serviceHost, int servicePort,
+                    String serviceHost, int servicePort, int maxMessageSize,
                     MethodDescriptor<TRequest, TResponse> grpcMethod, TRequest blankRequest,
                     boolean hasBody) {
 
@@ -156,8 +162,8 @@ public class TracApiConfig {
 
         // Handler is supplied at runtime when there is a route match for the API call
         var requestHandler = hasBody
-            ? wrapUnaryHandler(() -> new RestApiUnaryHandler<>(serviceHost, servicePort, grpcMethod, requestBuilder, blankRequest))
-            : wrapUnaryHandler(() -> new RestApiUnaryHandler<>(serviceHost, servicePort, grpcMethod, requestBuilder));
+            ? wrapUnaryHandler(maxMessageSize, () -> new RestApiUnaryHandler<>(serviceHost, servicePort, maxMessageSize, grpcMethod, requestBuilder, blankRequest))
+            : wrapUnaryHandler(maxMessageSize, () -> new RestApiUnaryHandler<>(serviceHost, servicePort, maxMessageSize, grpcMethod, requestBuilder));
 
         routes.addRoute(requestMatcher, requestHandler);
     }
@@ -165,13 +171,14 @@ public class TracApiConfig {
     public static <TRequest extends Message, TResponse extends Message>
     void addApiCall(
             RoutingConfig routes, HttpMethod method, String urlPattern,
-            String serviceHost, int servicePort,
+            String serviceHost, int servicePort, int maxMessageSize,
             MethodDescriptor<TRequest, TResponse> grpcMethod, TRequest blankRequest) {
 
-        addApiCall(routes, method, urlPattern, serviceHost, servicePort, grpcMethod, blankRequest, false);
+        addApiCall(routes, method, urlPattern, serviceHost, servicePort, maxMessageSize, grpcMethod, blankRequest, false);
     }
 
-    private static Supplier<ChannelInboundHandler> wrapUnaryHandler(Supplier<ChannelInboundHandler> unaryHandler) {
+    private static Supplier<ChannelInboundHandler> wrapUnaryHandler(
+            int maxMessageSize, Supplier<ChannelInboundHandler> unaryHandler) {
 
         return () -> new ChannelInitializer<>() {
             @Override
@@ -180,7 +187,7 @@ public class TracApiConfig {
                 var pipeline = channel.pipeline();
 
                 pipeline.remove(this);
-                pipeline.addLast(new HttpObjectAggregator(10 * 1024 * 1024));
+                pipeline.addLast(new HttpObjectAggregator(maxMessageSize));
                 pipeline.addLast(unaryHandler.get());
             }
         };
@@ -17,8 +17,10 @@
 package com.accenture.trac.gateway;
 
 import com.accenture.trac.common.exception.EUnexpected;
+import com.accenture.trac.common.tracing.Tracer;
 import com.accenture.trac.gateway.routing.RoutingConfig;
 import com.accenture.trac.gateway.routing.RoutingHandler;
+import com.accenture.trac.gateway.tracing.HttpTracingHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandler;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -34,12 +36,14 @@ public class TracChannelInitializer extends ChannelInitializer<SocketChannel> {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final RoutingConfig routes;
+    private final Tracer tracer;
 
-    public TracChannelInitializer(RoutingConfig routes) {
+    public TracChannelInitializer(RoutingConfig routes, Tracer tracer) {
 
         log.info("Created channel initializer");
 
         this.routes = routes;
+        this.tracer = tracer;
     }
 
     @Override
@@ -49,6 +53,10 @@ public class TracChannelInitializer extends ChannelInitializer<SocketChannel> {
 
         pipeline.remove(this);
         pipeline.addLast(new HttpServerCodec());
+
+        if (tracer.isEnabled())
+            pipeline.addLast(new HttpTracingHandler(tracer));
+
         pipeline.addLast(new HttpRequestLogger());
         pipeline.addLast(new RoutingHandler(routes));
     }
@@ -19,7 +19,12 @@ package com.accenture.trac.gateway;
 import com.accenture.trac.common.config.ConfigManager;
 import com.accenture.trac.common.config.StandardArgsProcessor;
 import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.common.netty.NettyTransport;
+import com.accenture.trac.common.tracing.Tracer;
 import com.accenture.trac.common.util.VersionInfo;
+import com.accenture.trac.gateway.health.BackendHealthMonitor;
+import com.accenture.trac.gateway.health.HttpHealthHandler;
+import com.accenture.trac.gateway.proxy.JsonTranslationWarmup;
 import com.accenture.trac.gateway.routing.BasicRouteMatcher;
 import com.accenture.trac.gateway.routing.RoutingConfig;
 import com.accenture.trac.gateway.routing.RoutingHandler;
@@ -27,12 +32,10 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.Properties;
 
 
@@ -47,10 +50,23 @@ public class TracPlatformGateway {
     // The expectation is that the gateway will be substantially re-written at some later point, when
     // more of the core platform components are completed.
 
-    private static final String GW_PORT_CONFIG_KEY = "trac.gw.api.port";
+    private static final String GW_CONFIG_ROOT = "trac.gw";
+    private static final String GW_API_CONFIG_ROOT = "trac.gw.api";
+    private static final String GW_PORT_CONFIG_KEY = GW_API_CONFIG_ROOT + ".port";
+    private static final String GW_BACKLOG_CONFIG_KEY = GW_API_CONFIG_ROOT + ".backlog";
+    private static final String GW_MAX_MESSAGE_SIZE_CONFIG_KEY = GW_API_CONFIG_ROOT + ".maxMessageSize";
+    private static final String GW_WARMUP_ITERATIONS_CONFIG_KEY = "trac.gw.warmup.iterations";
+    private static final String GW_HEALTH_INTERVAL_CONFIG_KEY = "trac.gw.health.intervalMillis";
+    private static final String GW_HEALTH_TIMEOUT_CONFIG_KEY = "trac.gw.health.timeoutMillis";
     private static final String META_SVC_HOST_CONFIG_KEY = "trac.gw.services.meta.host";
     private static final String META_SVC_PORT_CONFIG_KEY = "trac.gw.services.meta.port";
 
+    private static final String DEFAULT_BACKLOG = "128";
+    private static final String DEFAULT_MAX_MESSAGE_SIZE = Integer.toString(10 * 1024 * 1024);
+    private static final String DEFAULT_WARMUP_ITERATIONS = "500";
+    private static final String DEFAULT_HEALTH_INTERVAL = "1000";
+    private static final String DEFAULT_HEALTH_TIMEOUT = "500";
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final ConfigManager configManager;
@@ -70,30 +86,53 @@ public class TracPlatformGateway {
         var gwPort = readConfigInt(properties, GW_PORT_CONFIG_KEY, null);
         var metaSvcHost = readConfigString(properties, META_SVC_HOST_CONFIG_KEY, null);
         var metaSvcPort = readConfigInt(properties, META_SVC_PORT_CONFIG_KEY, null);
+        var backlog = readConfigInt(properties, GW_BACKLOG_CONFIG_KEY, DEFAULT_BACKLOG);
+        var maxMessageSize = readConfigInt(properties, GW_MAX_MESSAGE_SIZE_CONFIG_KEY, DEFAULT_MAX_MESSAGE_SIZE);
+        var warmupIterations = readConfigInt(properties, GW_WARMUP_ITERATIONS_CONFIG_KEY, DEFAULT_WARMUP_ITERATIONS);
+        var healthInterval = readConfigInt(properties, GW_HEALTH_INTERVAL_CONFIG_KEY, DEFAULT_HEALTH_INTERVAL);
+        var healthTimeout = readConfigInt(properties, GW_HEALTH_TIMEOUT_CONFIG_KEY, DEFAULT_HEALTH_TIMEOUT);
+        var transport = NettyTransport.fromConfig(properties, GW_API_CONFIG_ROOT);
+        var tracer = Tracer.fromConfig(properties, GW_CONFIG_ROOT, "trac-gateway");
+
+        // Health of the back end services is polled in the background and reported on /health
+        var healthMonitor = new BackendHealthMonitor(Duration.ofMillis(healthInterval), Duration.ofMillis(healthTimeout))
+                .addBackend("trac-meta", metaSvcHost, metaSvcPort);
 
         log.info("Configuring API routes...");
 
-        var metaApiRoutes = TracApiConfig.metaApiRoutes(metaSvcHost, metaSvcPort);
-        var metaApiTrustedRoutes = TracApiConfig.metaApiTrustedRoutes(metaSvcHost, metaSvcPort);
+        var metaApiRoutes = TracApiConfig.metaApiRoutes(metaSvcHost, metaSvcPort, maxMessageSize);
+        var metaApiTrustedRoutes = TracApiConfig.metaApiTrustedRoutes(metaSvcHost, metaSvcPort, maxMessageSize);
 
         var routingConfig = RoutingConfig.newBlankConfig()
                 .addRoute(new BasicRouteMatcher("trac-meta"), () -> new RoutingHandler(metaApiRoutes))
-                .addRoute(new BasicRouteMatcher("trac-meta-trusted"), () -> new RoutingHandler(metaApiTrustedRoutes));
+                .addRoute(new BasicRouteMatcher("trac-meta-trusted"), () -> new RoutingHandler(metaApiTrustedRoutes))
+                .addRoute(new BasicRouteMatcher("health"), () -> new HttpHealthHandler(healthMonitor));
+
+        // Warm up JSON translation before the port is opened, so the first real requests do not pay for it
+        // Setting warmup iterations to zero disables the warmup
+        var jsonWarmup = new JsonTranslationWarmup(warmupIterations);
+        jsonWarmup.run();
 
         log.info("Opening gateway on port {}...", gwPort);
+        log.info("Gateway server: {}, backlog = {}, max message size = {}", transport, backlog, maxMessageSize);
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup(2, new DefaultThreadFactory("boss"));
-        EventLoopGroup workerGroup = new NioEventLoopGroup(2, new DefaultThreadFactory("worker"));
+        EventLoopGroup bossGroup = transport.createBossGroup("boss");
+        EventLoopGroup workerGroup = transport.createWorkerGroup("worker");
 
         try {
+            healthMonitor.start();
+
             ServerBootstrap bootstrap = new ServerBootstrap();
 
             bootstrap
                     .group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class) // (3)
-                    .childHandler(new TracChannelInitializer(routingConfig))
-                    .option(ChannelOption.SO_BACKLOG, 128)          // (5)
-                    .childOption(ChannelOption.SO_KEEPALIVE, true); // (6)
+                    .channel(transport.serverChannelType())
+                    .childHandler(new TracChannelInitializer(routingConfig, tracer))
+                    .option(ChannelOption.SO_BACKLOG, backlog)
+                    .option(ChannelOption.ALLOCATOR, transport.allocator())
+                    .childOption(ChannelOption.ALLOCATOR, transport.allocator())
+                    .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.TCP_NODELAY, true);
 
             // Bind and start to accept incoming connections.
             ChannelFuture f = bootstrap
@@ -107,8 +146,10 @@ public class TracPlatformGateway {
             // shut down your server.
             f.channel().closeFuture().sync();
         } finally {
+            healthMonitor.stop();
             workerGroup.shutdownGracefully();
             bossGroup.shutdownGracefully();
+            tracer.close();
         }
     }
 
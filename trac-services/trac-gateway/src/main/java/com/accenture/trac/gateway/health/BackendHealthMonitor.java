@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.gateway.health;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.StatusRuntimeException;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import io.grpc.health.v1.HealthGrpc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+public class BackendHealthMonitor {
+
+    // Polls the gRPC health service of each back end service and keeps the latest status
+    // HTTP health checks are answered from the latest status, so load balancer probes do not reach the back ends
+
+    // Back ends report NOT_SERVING while they are starting up or saturated
+    // A back end that cannot be reached at all is also treated as NOT_SERVING
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Duration interval;
+    private final Duration timeout;
+
+    private final Map<String, ManagedChannel> channels;
+    private final Map<String, ServingStatus> status;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean shuttingDown;
+
+    public BackendHealthMonitor(Duration interval, Duration timeout) {
+
+        this.interval = interval;
+        this.timeout = timeout;
+
+        this.channels = new ConcurrentHashMap<>();
+        this.status = new ConcurrentHashMap<>();
+    }
+
+    public BackendHealthMonitor addBackend(String serviceName, String serviceHost, int servicePort) {
+
+        var channel = ManagedChannelBuilder.forAddress(serviceHost, servicePort)
+                .userAgent("TRAC/Gateway")
+                .usePlaintext()
+                .disableRetry()
+                .build();
+
+        channels.put(serviceName, channel);
+        status.put(serviceName, ServingStatus.UNKNOWN);
+
+        return this;
+    }
+
+    public void start() {
+
+        var threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("health-monitor")
+                .setDaemon(true)
+                .build();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduler.scheduleWithFixedDelay(this::checkBackends, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+
+        // Report not serving straight away, so load balancers stop sending traffic while the gateway goes down
+        shuttingDown = true;
+
+        if (scheduler != null)
+            scheduler.shutdownNow();
+
+        channels.values().forEach(ManagedChannel::shutdownNow);
+    }
+
+    public boolean isServing() {
+
+        if (shuttingDown)
+            return false;
+
+        return status.values().stream().allMatch(s -> s == ServingStatus.SERVING);
+    }
+
+    public Map<String, ServingStatus> backendStatus() {
+        return new TreeMap<>(status);
+    }
+
+    private void checkBackends() {
+
+        for (var backend : channels.entrySet())
+            checkBackend(backend.getKey(), backend.getValue());
+    }
+
+    private void checkBackend(String serviceName, ManagedChannel channel) {
+
+        ServingStatus newStatus;
+
+        try {
+
+            // The empty service name is the status of the back end server as a whole
+            var request = HealthCheckRequest.newBuilder().setService("").build();
+
+            var response = HealthGrpc.newBlockingStub(channel)
+                    .withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .check(request);
+
+            newStatus = response.getStatus();
+        }
+        catch (StatusRuntimeException e) {
+
+            log.debug("Health check failed for [{}]: {}", serviceName, e.getStatus());
+            newStatus = ServingStatus.NOT_SERVING;
+        }
+
+        var oldStatus = status.put(serviceName, newStatus);
+
+        if (oldStatus != newStatus) {
+
+            if (newStatus == ServingStatus.SERVING)
+                log.info("Back end service [{}] is now {}", serviceName, newStatus);
+            else
+                log.warn("Back end service [{}] is now {}", serviceName, newStatus);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.gateway.health;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.charset.StandardCharsets;
+
+
+public class HttpHealthHandler extends ChannelInboundHandlerAdapter {
+
+    // HTTP equivalent of the gRPC health service, for load balancers that probe over HTTP
+    // Responds 200 when the gateway and all its back end services are serving, otherwise 503
+
+    private final BackendHealthMonitor monitor;
+
+    private HttpRequest clientRequest;
+
+    public HttpHealthHandler(BackendHealthMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+
+        try {
+
+            if (msg instanceof HttpRequest)
+                clientRequest = (HttpRequest) msg;
+
+            if (msg instanceof LastHttpContent && clientRequest != null)
+                sendResponse(ctx);
+        }
+        finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void sendResponse(ChannelHandlerContext ctx) {
+
+        var serving = monitor.isServing();
+        var overallStatus = serving ? "SERVING" : "NOT_SERVING";
+        var httpStatus = serving ? HttpResponseStatus.OK : HttpResponseStatus.SERVICE_UNAVAILABLE;
+
+        var json = new StringBuilder();
+        json.append("{\"status\": \"").append(overallStatus).append("\", \"services\": {");
+
+        var first = true;
+
+        for (var backend : monitor.backendStatus().entrySet()) {
+
+            if (!first)
+                json.append(", ");
+
+            json.append("\"").append(backend.getKey()).append("\": \"").append(backend.getValue()).append("\"");
+            first = false;
+        }
+
+        json.append("}}");
+
+        var content = ctx.alloc().buffer();
+
+        // HEAD requests get the status code and headers only
+        if (clientRequest.method() != HttpMethod.HEAD)
+            content.writeCharSequence(json, StandardCharsets.UTF_8);
+
+        var protocolVersion = clientRequest.protocolVersion();
+        var response = new DefaultFullHttpResponse(protocolVersion, httpStatus, content);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
+        response.headers().set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+
+        ctx.writeAndFlush(response);
+        ctx.close();
+    }
+}
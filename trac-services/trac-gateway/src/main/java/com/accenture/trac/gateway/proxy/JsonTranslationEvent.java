@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.gateway.proxy;
+
+import com.google.protobuf.Message;
+import io.grpc.MethodDescriptor;
+import jdk.jfr.*;
+
+
+@Name("trac.gateway.JsonTranslation")
+@Label("JSON Translation")
+@Category({"TRAC", "Gateway"})
+@Description("Translation between JSON and protobuf for a REST API call")
+@StackTrace(false)
+class JsonTranslationEvent extends Event {
+
+    static final String JSON_TO_PROTO = "JSON to protobuf";
+    static final String PROTO_TO_JSON = "protobuf to JSON";
+
+    @Label("Method")
+    String method;
+
+    @Label("Direction")
+    String direction;
+
+    @Label("Message Type")
+    String messageType;
+
+    @Label("JSON Size")
+    @DataAmount(DataAmount.BYTES)
+    int jsonBytes;
+
+    @Label("Failed")
+    boolean failed;
+
+    void commitFor(MethodDescriptor<?, ?> grpcMethod, String direction, Message message, int jsonBytes) {
+
+        end();
+
+        if (!shouldCommit())
+            return;
+
+        this.method = grpcMethod.getFullMethodName();
+        this.direction = direction;
+        this.messageType = message != null ? message.getDescriptorForType().getName() : null;
+        this.jsonBytes = jsonBytes;
+
+        commit();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.gateway.proxy;
+
+import com.accenture.trac.common.api.meta.*;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.*;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+
+public class JsonTranslationWarmup {
+
+    // Round-trip representative API messages through the JSON printer and parser before the gateway opens
+    // The first translations otherwise pay for descriptor setup, type registry lookups and JIT compilation
+    // Warmup is best effort, errors are logged but never stop the gateway from starting
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final int iterations;
+
+    public JsonTranslationWarmup(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public void run() {
+
+        if (iterations <= 0)
+            return;
+
+        log.info("JSON translation warmup starting: iterations = {}", iterations);
+
+        var startTime = System.nanoTime();
+        var messages = sampleMessages();
+        var jsonPrinter = JsonFormat.printer();
+        var jsonParser = JsonFormat.parser();
+
+        try {
+
+            for (var i = 0; i < iterations; i++) {
+                for (var message : messages) {
+
+                    var json = jsonPrinter.print(message);
+                    var builder = message.newBuilderForType();
+                    jsonParser.merge(json, builder);
+                    builder.build();
+                }
+            }
+
+            var elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+            log.info("JSON translation warmup complete in {} ms", elapsedMillis);
+        }
+        catch (InvalidProtocolBufferException e) {
+
+            log.warn("JSON translation warmup failed: {}", e.getMessage(), e);
+        }
+    }
+
+    static List<Message> sampleMessages() {
+
+        var header = TagHeader.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setObjectId(UUID.randomUUID().toString())
+                .setObjectVersion(1)
+                .setTagVersion(1)
+                .build();
+
+        var selector = TagSelector.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setObjectId(header.getObjectId())
+                .setLatestObject(true)
+                .setLatestTag(true)
+                .build();
+
+        var definition = ObjectDefinition.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setData(DataDefinition.newBuilder()
+                .setPath("warmup")
+                .setFormat(DataFormat.CSV)
+                .setSchema(TableDefinition.newBuilder()
+                .addField(FieldDefinition.newBuilder()
+                        .setFieldName("warmup_field")
+                        .setFieldType(BasicType.DECIMAL)
+                        .setFieldOrder(1))))
+                .build();
+
+        var tag = Tag.newBuilder()
+                .setHeader(header)
+                .setDefinition(definition)
+                .putAttr("warmup_string", MetadataCodec.encodeValue("warmup"))
+                .putAttr("warmup_int", MetadataCodec.encodeValue(42L))
+                .putAttr("warmup_float", MetadataCodec.encodeValue(1.5))
+                .putAttr("warmup_bool", MetadataCodec.encodeValue(true))
+                .putAttr("warmup_date", MetadataCodec.encodeValue(LocalDate.now()))
+                .putAttr("warmup_datetime", MetadataCodec.encodeValue(OffsetDateTime.now()))
+                .putAttr("warmup_array", MetadataCodec.encodeArrayValue(List.of("a", "b"), String.class))
+                .build();
+
+        var writeRequest = MetadataWriteRequest.newBuilder()
+                .setTenant("warmup")
+                .setObjectType(ObjectType.DATA)
+                .setPriorVersion(selector)
+                .setDefinition(definition)
+                .addTagUpdate(TagUpdate.newBuilder()
+                        .setAttrName("warmup_string")
+                        .setValue(MetadataCodec.encodeValue("warmup")))
+                .build();
+
+        var searchTerm = SearchTerm.newBuilder()
+                .setAttrName("warmup_string")
+                .setAttrType(BasicType.STRING)
+                .setOperator(SearchOperator.EQ)
+                .setSearchValue(MetadataCodec.encodeValue("warmup"));
+
+        var searchExpr = SearchExpression.newBuilder()
+                .setLogical(LogicalExpression.newBuilder()
+                .setOperator(LogicalOperator.AND)
+                .addExpr(SearchExpression.newBuilder().setTerm(searchTerm))
+                .addExpr(SearchExpression.newBuilder().setTerm(searchTerm)))
+                .build();
+
+        var searchRequest = MetadataSearchRequest.newBuilder()
+                .setTenant("warmup")
+                .setSearchParams(SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(searchExpr))
+                .build();
+
+        var searchResponse = MetadataSearchResponse.newBuilder()
+                .addSearchResult(tag)
+                .build();
+
+        return List.of(tag, header, writeRequest, searchExpr, searchRequest, searchResponse);
+    }
+}
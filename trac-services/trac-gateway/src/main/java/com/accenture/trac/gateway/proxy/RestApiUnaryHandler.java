@@ -18,8 +18,13 @@ package com.accenture.trac.gateway.proxy;
 
 import com.accenture.trac.common.exception.EInputValidation;
 import com.accenture.trac.common.exception.EUnexpected;
+import com.accenture.trac.common.grpc.TracingClientInterceptor;
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.common.tracing.SpanKind;
+import com.accenture.trac.gateway.tracing.HttpTracingHandler;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.stream.MalformedJsonException;
 import com.google.protobuf.*;
 import com.google.protobuf.util.JsonFormat;
@@ -41,6 +46,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 
 public class RestApiUnaryHandler<
@@ -49,10 +55,14 @@ public class RestApiUnaryHandler<
         TResponse extends Message>
         extends ChannelInboundHandlerAdapter {
 
+    // Clients can set a timeout for the call in milliseconds, this is passed on as the gRPC deadline
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
     private final Logger log;
 
     private final String serviceHost;
     private final int servicePort;
+    private final int maxMessageSize;
 
     private final MethodDescriptor<TRequest, TResponse> grpcMethod;
     private final RestApiRequestBuilder<TRequest> requestBuilder;
@@ -63,10 +73,12 @@ public class RestApiUnaryHandler<
     private HttpRequest clientRequest;
     private CompositeByteBuf clientRequestContent;
     private ManagedChannel serviceChannel;
+    private ListenableFuture<TResponse> proxyCall;
+    private Span proxySpan;
 
 
     public RestApiUnaryHandler(
-            String serviceHost, int servicePort,
+            String serviceHost, int servicePort, int maxMessageSize,
             MethodDescriptor<TRequest, TResponse> grpcMethod,
             RestApiRequestBuilder<TRequest> requestBuilder,
             TRequestBody blankRequestBody) {
@@ -75,6 +87,7 @@ public class RestApiUnaryHandler<
 
         this.serviceHost = serviceHost;
         this.servicePort = servicePort;
+        this.maxMessageSize = maxMessageSize;
 
         this.grpcMethod = grpcMethod;
         this.requestBuilder = requestBuilder;
@@ -83,7 +96,7 @@ public class RestApiUnaryHandler<
     }
 
     public RestApiUnaryHandler(
-            String serviceHost, int servicePort,
+            String serviceHost, int servicePort, int maxMessageSize,
             MethodDescriptor<TRequest, TResponse> grpcMethod,
             RestApiRequestBuilder<TRequest> requestBuilder) {
 
@@ -91,6 +104,7 @@ public class RestApiUnaryHandler<
 
         this.serviceHost = serviceHost;
         this.servicePort = servicePort;
+        this.maxMessageSize = maxMessageSize;
 
         this.grpcMethod = grpcMethod;
         this.requestBuilder = requestBuilder;
@@ -137,6 +151,9 @@ public class RestApiUnaryHandler<
 
     private void dispatchRequest(ChannelHandlerContext ctx) {
 
+        var requestSpan = HttpTracingHandler.channelSpan(ctx);
+        var translateSpan = requestSpan.startChild("translate request");
+
         try {
             TRequest proxyRequest;
 
@@ -147,16 +164,33 @@ public class RestApiUnaryHandler<
             else
                 proxyRequest = requestBuilder.build(clientRequest.uri());
 
+            var options = callOptions(clientRequest);
+
+            translateSpan.end();
+
             serviceChannel = ManagedChannelBuilder.forAddress(serviceHost, servicePort)
                     .userAgent("TRAC/Gateway")
                     .usePlaintext()
                     .disableRetry()
+                    .maxInboundMessageSize(maxMessageSize)
                     .executor(ctx.executor())
                     .build();
 
-            var options = CallOptions.DEFAULT;
-            var serviceCall = serviceChannel.newCall(grpcMethod, options);
-            var proxyCall = ClientCalls.futureUnaryCall(serviceCall, proxyRequest);
+            // The proxy span is made current while the call starts, so its traceparent is sent to the service
+            proxySpan = requestSpan.startChild(grpcMethod.getFullMethodName(), SpanKind.CLIENT);
+            proxySpan.setAttribute("rpc.system", "grpc");
+
+            var tracedChannel = ClientInterceptors.intercept(serviceChannel, new TracingClientInterceptor());
+            var callContext = proxySpan.inContext(Context.current());
+            var priorContext = callContext.attach();
+
+            try {
+                var serviceCall = tracedChannel.newCall(grpcMethod, options);
+                proxyCall = ClientCalls.futureUnaryCall(serviceCall, proxyRequest);
+            }
+            finally {
+                callContext.detach(priorContext);
+            }
 
             Futures.addCallback(proxyCall, new Callback(ctx), ctx.executor());
         }
@@ -164,6 +198,9 @@ public class RestApiUnaryHandler<
 
             log.warn("Bad request in REST API: " + error.getMessage(), error);
 
+            translateSpan.setError(error.getMessage());
+            translateSpan.end();
+
             // Validation errors can occur in the request builder
             // These are from extracting fields from the URL, or translating JSON -> protobuf
             // In this case, send some helpful information back about what cause the failure
@@ -187,8 +224,57 @@ public class RestApiUnaryHandler<
         }
     }
 
+    private CallOptions callOptions(HttpRequest request) {
+
+        var timeoutHeader = request.headers().get(REQUEST_TIMEOUT_HEADER);
+
+        if (timeoutHeader == null || timeoutHeader.isBlank())
+            return CallOptions.DEFAULT;
+
+        try {
+
+            var timeoutMillis = Long.parseLong(timeoutHeader.trim());
+
+            if (timeoutMillis <= 0)
+                throw new NumberFormatException();
+
+            return CallOptions.DEFAULT.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (NumberFormatException e) {
+
+            var message = String.format(
+                    "Invalid value for %s: [%s] (expected a positive number of milliseconds)",
+                    REQUEST_TIMEOUT_HEADER, timeoutHeader);
+
+            log.warn(message);
+            throw new EInputValidation(message, e);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+
+        // If the client goes away before the response is ready, cancel the call to the back end service
+        // Cancellation is passed along to the service, which can then stop any work still in progress
+
+        if (proxyCall != null && !proxyCall.isDone()) {
+
+            log.warn("PROXY API CALL CANCELLED: {} (client disconnected)", grpcMethod.getFullMethodName());
+            proxyCall.cancel(true);
+
+            proxySpan.setError("Client disconnected");
+            proxySpan.end();
+        }
+
+        super.channelInactive(ctx);
+    }
+
     private Message translateRequestBody(ByteBuf bodyBuffer) {
 
+        var event = new JsonTranslationEvent();
+        var jsonBytes = bodyBuffer.readableBytes();
+        event.begin();
+
         try (var jsonStream = new ByteBufInputStream(bodyBuffer);
              var jsonReader = new InputStreamReader(jsonStream)) {
 
@@ -196,10 +282,17 @@ public class RestApiUnaryHandler<
             var jsonParser = JsonFormat.parser();
             jsonParser.merge(jsonReader, bodyBuilder);
 
-            return bodyBuilder.build();
+            var body = bodyBuilder.build();
+
+            event.commitFor(grpcMethod, JsonTranslationEvent.JSON_TO_PROTO, body, jsonBytes);
+
+            return body;
         }
         catch (InvalidProtocolBufferException e) {
 
+            event.failed = true;
+            event.commitFor(grpcMethod, JsonTranslationEvent.JSON_TO_PROTO, null, jsonBytes);
+
             // Validation failures will go back to users (API users, i.e. application developers)
             // Strip out GSON class name from the error message for readability
             var detailMessage = e.getLocalizedMessage();
@@ -239,10 +332,20 @@ public class RestApiUnaryHandler<
 
                 log.info("PROXY API CALL SUCCEEDED: {}", grpcMethod.getFullMethodName());
 
+                proxySpan.end();
+
+                var translateSpan = HttpTracingHandler.channelSpan(ctx).startChild("translate response");
+                var event = new JsonTranslationEvent();
+                event.begin();
+
                 var json = JsonFormat.printer().print(result);
-                var content = ctx.alloc().buffer();
+                var jsonBytes = json.getBytes(StandardCharsets.UTF_8);
 
-                content.writeBytes(json.getBytes(StandardCharsets.UTF_8));
+                event.commitFor(grpcMethod, JsonTranslationEvent.PROTO_TO_JSON, result, jsonBytes.length);
+                translateSpan.end();
+
+                var content = ctx.alloc().buffer();
+                content.writeBytes(jsonBytes);
 
                 var protocolVersion = clientRequest.protocolVersion();
                 var response = new DefaultFullHttpResponse(protocolVersion, HttpResponseStatus.OK, content);
@@ -265,6 +368,9 @@ public class RestApiUnaryHandler<
 
             log.error("PROXY API CALL FAILED: {} {}", grpcMethod.getFullMethodName(), error.getMessage());
 
+            proxySpan.setError(error.getMessage());
+            proxySpan.end();
+
             HttpResponse response;
 
             if (error instanceof StatusRuntimeException)
@@ -306,6 +412,10 @@ public class RestApiUnaryHandler<
                     httpCode = HttpResponseStatus.PRECONDITION_FAILED;
                     break;
 
+                case DEADLINE_EXCEEDED:
+                    httpCode = HttpResponseStatus.GATEWAY_TIMEOUT;
+                    break;
+
                 default:
 
                     // For unrecognised errors, send error code 500 with no message
@@ -17,6 +17,7 @@
 package com.accenture.trac.gateway.routing;
 
 import com.accenture.trac.common.exception.EUnexpected;
+import com.accenture.trac.gateway.tracing.HttpTracingHandler;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -61,11 +62,15 @@ public class RoutingHandler extends ChannelInboundHandlerAdapter {
             this.protocolVersion = request.protocolVersion();
 
             // Look up the handler for this request
+            var span = HttpTracingHandler.channelSpan(ctx).startChild("route");
             var uri = URI.create(request.uri());
             var method = request.method();
             var headers = request.headers();
             var handler = routerConfig.matchRequest(uri, method, headers);
 
+            span.setAttribute("route.matched", handler != null);
+            span.end();
+
             if (handler != null) {
 
                 // A route is available, great!
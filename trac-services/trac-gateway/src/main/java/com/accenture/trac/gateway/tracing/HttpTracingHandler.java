@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.gateway.tracing;
+
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.common.tracing.SpanKind;
+import com.accenture.trac.common.tracing.Tracer;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.AttributeKey;
+
+
+public class HttpTracingHandler extends ChannelDuplexHandler {
+
+    // Start a server span for each HTTP request, continuing the trace from the client's traceparent header
+    // The span is stored on the channel, handlers later in the pipeline add child spans using channelSpan()
+    // The gateway closes the connection after each response, so the span ends when the channel goes inactive
+
+    private static final AttributeKey<Span> SPAN_ATTR = AttributeKey.valueOf("trac-span");
+
+    private final Tracer tracer;
+
+    public HttpTracingHandler(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public static Span channelSpan(ChannelHandlerContext ctx) {
+
+        var span = ctx.channel().attr(SPAN_ATTR).get();
+        return span != null ? span : Span.NOOP;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+
+        if (msg instanceof HttpRequest && !ctx.channel().hasAttr(SPAN_ATTR)) {
+
+            var request = (HttpRequest) msg;
+            var traceparent = request.headers().get(Tracer.TRACEPARENT_HEADER);
+            var span = tracer.startSpan("HTTP " + request.method(), SpanKind.SERVER, traceparent);
+
+            span.setAttribute("http.method", request.method().name());
+            span.setAttribute("http.target", request.uri());
+
+            ctx.channel().attr(SPAN_ATTR).set(span);
+        }
+
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+
+        if (msg instanceof HttpResponse) {
+
+            var span = channelSpan(ctx);
+            var statusCode = ((HttpResponse) msg).status().code();
+
+            span.setAttribute("http.status_code", statusCode);
+
+            if (statusCode >= 500)
+                span.setError(((HttpResponse) msg).status().toString());
+        }
+
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+
+        channelSpan(ctx).end();
+
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta;
+
+import com.accenture.trac.common.api.meta.*;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.*;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.services.MetadataConstants;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Channel;
+import io.grpc.Deadline;
+import io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+class MetadataWarmup {
+
+    // Run representative API calls before the service reports ready
+    // This takes the cost of class loading, JIT compilation, filling the DB pool, protobuf descriptor setup etc.
+    // before real traffic arrives, instead of putting it on the first requests after every restart
+
+    // Reads and searches go through the full API stack, using an in-process channel
+    // Writes go through the DAL and are rolled back, so warmup never changes the metadata store
+
+    // Several threads run at once, so the DB pool and execution lanes are exercised concurrently
+    // Warmup is best effort, errors are counted and reported but never stop the service from starting
+    // API calls carry the warmup deadline, so a call that hangs cannot hold up startup past the timeout
+
+    private static final int HARVEST_PAGE_SIZE = 20;
+    private static final String WARMUP_ATTR = "warmup_attr";
+
+    private static final List<ObjectType> OBJECT_TYPES = List.of(
+            ObjectType.DATA, ObjectType.MODEL, ObjectType.FLOW,
+            ObjectType.JOB, ObjectType.FILE, ObjectType.CUSTOM);
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final JdbcMetadataDal dal;
+    private final MetadataReadApiGrpc.MetadataReadApiBlockingStub readApi;
+    private final MetadataSearchApiGrpc.MetadataSearchApiBlockingStub searchApi;
+
+    private final int iterations;
+    private final int threads;
+    private final Duration timeout;
+
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+
+    MetadataWarmup(JdbcMetadataDal dal, Channel channel, int iterations, int threads, Duration timeout) {
+
+        this.dal = dal;
+        this.readApi = MetadataReadApiGrpc.newBlockingStub(channel);
+        this.searchApi = MetadataSearchApiGrpc.newBlockingStub(channel);
+
+        this.iterations = iterations;
+        this.threads = threads;
+        this.timeout = timeout;
+    }
+
+    void run() throws InterruptedException {
+
+        var startTime = System.nanoTime();
+        var deadline = startTime + timeout.toNanos();
+        var callDeadline = Deadline.after(timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        var tenants = dal.listTenants();
+
+        log.info("Warmup starting: tenants = {}, iterations = {}, threads = {}", tenants.size(), iterations, threads);
+
+        var threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("warmup-%d")
+                .setDaemon(true)
+                .build();
+
+        var executor = Executors.newFixedThreadPool(threads, threadFactory);
+
+        try {
+
+            for (var tenant : tenants) {
+
+                // Find some real objects to read, so reads use the normal (not found) path
+                var samples = harvestSamples(tenant, callDeadline);
+
+                var tasks = new ArrayList<Future<?>>();
+
+                for (var thread = 0; thread < threads; thread++) {
+
+                    var threadIterations = iterations / threads + (thread < iterations % threads ? 1 : 0);
+                    tasks.add(executor.submit(() -> runIterations(tenant, samples, threadIterations, deadline, callDeadline)));
+                }
+
+                for (var task : tasks)
+                    awaitTask(task, deadline);
+
+                if (System.nanoTime() >= deadline) {
+                    log.warn("Warmup did not complete within {} seconds, starting anyway", timeout.getSeconds());
+                    break;
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        var elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+
+        if (errorCount.get() > 0)
+            log.warn("Warmup complete in {} ms: {} calls, {} errors", elapsed.toMillis(), callCount.get(), errorCount.get());
+        else
+            log.info("Warmup complete in {} ms: {} calls", elapsed.toMillis(), callCount.get());
+    }
+
+    private void runIterations(
+            String tenant, List<TagHeader> samples, int iterations,
+            long deadline, Deadline callDeadline) {
+
+        var random = ThreadLocalRandom.current();
+        var readApi = this.readApi.withDeadline(callDeadline);
+        var searchApi = this.searchApi.withDeadline(callDeadline);
+
+        for (var i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+
+            var objectType = OBJECT_TYPES.get(random.nextInt(OBJECT_TYPES.size()));
+
+            warmupCall(() -> searchApi.search(searchRequest(tenant, objectType, SearchOperator.EQ)));
+
+            if (!samples.isEmpty()) {
+
+                var sample = samples.get(random.nextInt(samples.size()));
+
+                warmupCall(() -> readApi.loadTag(readRequest(tenant, sample, true, true)));
+                warmupCall(() -> readApi.loadLatestTag(readRequest(tenant, sample, true, false)));
+                warmupCall(() -> readApi.loadLatestObject(readRequest(tenant, sample, false, false)));
+            }
+
+            warmupCall(() -> dal.trialSaveNewObjects(tenant, List.of(warmupTag())).get());
+        }
+    }
+
+    private List<TagHeader> harvestSamples(String tenant, Deadline callDeadline) {
+
+        var samples = new ArrayList<TagHeader>();
+        var searchApi = this.searchApi.withDeadline(callDeadline);
+
+        for (var objectType : OBJECT_TYPES) {
+
+            try {
+
+                // Nothing uses the warmup attribute, so NE matches every object of the given type
+                var response = searchApi.search(searchRequest(tenant, objectType, SearchOperator.NE));
+                callCount.incrementAndGet();
+
+                response.getSearchResultList().stream()
+                        .limit(HARVEST_PAGE_SIZE)
+                        .map(Tag::getHeader)
+                        .forEach(samples::add);
+            }
+            catch (StatusRuntimeException e) {
+
+                errorCount.incrementAndGet();
+                log.debug("Warmup search failed: {}", e.getMessage());
+            }
+        }
+
+        return samples;
+    }
+
+    int getCallCount() {
+        return callCount.get();
+    }
+
+    int getErrorCount() {
+        return errorCount.get();
+    }
+
+    private void warmupCall(Callable<?> call) {
+
+        try {
+            call.call();
+            callCount.incrementAndGet();
+        }
+        catch (Exception e) {
+            errorCount.incrementAndGet();
+            log.debug("Warmup call failed: {}", e.getMessage());
+        }
+    }
+
+    private void awaitTask(Future<?> task, long deadline) throws InterruptedException {
+
+        try {
+            var remaining = Math.max(0, deadline - System.nanoTime());
+            task.get(remaining, TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            task.cancel(true);
+        }
+        catch (ExecutionException e) {
+            errorCount.incrementAndGet();
+            log.warn("Warmup task failed: {}", e.getCause().getMessage());
+        }
+    }
+
+    private MetadataSearchRequest searchRequest(String tenant, ObjectType objectType, SearchOperator operator) {
+
+        var searchValue = MetadataCodec.encodeValue(UUID.randomUUID().toString());
+
+        var searchTerm = SearchTerm.newBuilder()
+                .setAttrName(WARMUP_ATTR)
+                .setAttrType(BasicType.STRING)
+                .setOperator(operator)
+                .setSearchValue(searchValue);
+
+        return MetadataSearchRequest.newBuilder()
+                .setTenant(tenant)
+                .setSearchParams(SearchParameters.newBuilder()
+                .setObjectType(objectType)
+                .setSearch(SearchExpression.newBuilder().setTerm(searchTerm)))
+                .build();
+    }
+
+    private MetadataReadRequest readRequest(String tenant, TagHeader header, boolean objectVersion, boolean tagVersion) {
+
+        var request = MetadataReadRequest.newBuilder()
+                .setTenant(tenant)
+                .setObjectType(header.getObjectType())
+                .setObjectId(header.getObjectId());
+
+        if (objectVersion)
+            request.setObjectVersion(header.getObjectVersion());
+
+        if (tagVersion)
+            request.setTagVersion(header.getTagVersion());
+
+        return request.build();
+    }
+
+    private Tag warmupTag() {
+
+        var header = TagHeader.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setObjectId(UUID.randomUUID().toString())
+                .setObjectVersion(MetadataConstants.OBJECT_FIRST_VERSION)
+                .setTagVersion(MetadataConstants.TAG_FIRST_VERSION);
+
+        var definition = ObjectDefinition.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setData(DataDefinition.newBuilder()
+                .setPath("warmup")
+                .setFormat(DataFormat.CSV)
+                .setSchema(TableDefinition.newBuilder()
+                .addField(FieldDefinition.newBuilder()
+                        .setFieldName("warmup_field")
+                        .setFieldType(BasicType.STRING)
+                        .setFieldOrder(1))));
+
+        return Tag.newBuilder()
+                .setHeader(header)
+                .setDefinition(definition)
+                .putAttr(WARMUP_ATTR, MetadataCodec.encodeValue(UUID.randomUUID().toString()))
+                .putAttr("warmup_int", MetadataCodec.encodeValue(42L))
+                .putAttr("warmup_datetime", MetadataCodec.encodeValue(OffsetDateTime.now()))
+                .build();
+    }
+}
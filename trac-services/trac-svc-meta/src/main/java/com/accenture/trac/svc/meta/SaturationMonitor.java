@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta;
+
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+
+class SaturationMonitor {
+
+    // Samples saturation signals at a regular interval and reports NOT_SERVING while the service is saturated
+    // A load balancer watching the health service can then steer traffic to other nodes,
+    // instead of sending more calls to a node where they will queue and time out
+
+    // Signals are compared between consecutive samples, so each check looks at recent behaviour only
+    // To avoid flapping, the service must be healthy for several samples in a row before it reports SERVING again
+
+    static class Signals {
+
+        final long poolAcquireCount;
+        final long poolAcquireNanos;
+        final long poolTimeouts;
+        final double queueUtilisation;
+        final long dalTransactions;
+        final long dalErrors;
+
+        Signals(
+                long poolAcquireCount, long poolAcquireNanos, long poolTimeouts,
+                double queueUtilisation, long dalTransactions, long dalErrors) {
+
+            this.poolAcquireCount = poolAcquireCount;
+            this.poolAcquireNanos = poolAcquireNanos;
+            this.poolTimeouts = poolTimeouts;
+            this.queueUtilisation = queueUtilisation;
+            this.dalTransactions = dalTransactions;
+            this.dalErrors = dalErrors;
+        }
+    }
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Supplier<Signals> signals;
+    private final Consumer<ServingStatus> statusListener;
+
+    private final int poolWaitMillis;
+    private final int queuePercent;
+    private final int errorPercent;
+    private final int minTransactions;
+    private final int recoverySamples;
+
+    private Signals lastSample;
+    private boolean saturated;
+    private int healthySamples;
+
+    SaturationMonitor(
+            Supplier<Signals> signals, Consumer<ServingStatus> statusListener,
+            int poolWaitMillis, int queuePercent, int errorPercent,
+            int minTransactions, int recoverySamples) {
+
+        this.signals = signals;
+        this.statusListener = statusListener;
+
+        this.poolWaitMillis = poolWaitMillis;
+        this.queuePercent = queuePercent;
+        this.errorPercent = errorPercent;
+        this.minTransactions = minTransactions;
+        this.recoverySamples = recoverySamples;
+    }
+
+    synchronized boolean isSaturated() {
+        return saturated;
+    }
+
+    synchronized void check() {
+
+        var sample = signals.get();
+        var previous = lastSample;
+
+        lastSample = sample;
+
+        // The first sample is only a baseline
+        if (previous == null)
+            return;
+
+        var reason = saturationReason(previous, sample);
+
+        if (reason != null) {
+
+            healthySamples = 0;
+
+            if (!saturated) {
+                log.warn("Service is saturated, reporting NOT_SERVING: {}", reason);
+                saturated = true;
+                statusListener.accept(ServingStatus.NOT_SERVING);
+            }
+        }
+        else if (saturated && ++healthySamples >= recoverySamples) {
+
+            log.info("Service is no longer saturated, reporting SERVING");
+            saturated = false;
+            statusListener.accept(ServingStatus.SERVING);
+        }
+    }
+
+    private String saturationReason(Signals previous, Signals sample) {
+
+        var acquireCount = sample.poolAcquireCount - previous.poolAcquireCount;
+        var acquireNanos = sample.poolAcquireNanos - previous.poolAcquireNanos;
+        var timeouts = sample.poolTimeouts - previous.poolTimeouts;
+
+        if (timeouts > 0)
+            return String.format("%d DB connection timeout(s)", timeouts);
+
+        if (acquireCount > 0) {
+
+            var avgWaitMillis = acquireNanos / acquireCount / 1000000;
+
+            if (avgWaitMillis >= poolWaitMillis)
+                return String.format("average DB connection wait = %d ms", avgWaitMillis);
+        }
+
+        var queueUsedPercent = (int) Math.round(sample.queueUtilisation * 100);
+
+        if (queueUsedPercent >= queuePercent)
+            return String.format("executor queue is %d%% full", queueUsedPercent);
+
+        var transactions = sample.dalTransactions - previous.dalTransactions;
+        var errors = sample.dalErrors - previous.dalErrors;
+
+        if (transactions >= minTransactions && errors * 100 >= errorPercent * transactions)
+            return String.format("DAL error rate = %d / %d", errors, transactions);
+
+        return null;
+    }
+}
@@ -16,33 +16,56 @@
 
 package com.accenture.trac.svc.meta;
 
+import com.accenture.trac.common.api.meta.MetadataAdminApiGrpc;
 import com.accenture.trac.common.config.ConfigManager;
 import com.accenture.trac.common.config.StandardArgsProcessor;
+import com.accenture.trac.common.db.JdbcPoolMonitor;
 import com.accenture.trac.common.db.JdbcSetup;
 import com.accenture.trac.common.exception.*;
-import com.accenture.trac.common.util.InterfaceLogging;
+import com.accenture.trac.common.grpc.ActiveCallsInterceptor;
+import com.accenture.trac.common.grpc.AdaptiveConcurrencyLimit;
+import com.accenture.trac.common.grpc.TracingServerInterceptor;
+import com.accenture.trac.common.netty.NettyTransport;
+import com.accenture.trac.common.metrics.MetricsEndpoint;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+import com.accenture.trac.common.tracing.Tracer;
+import com.accenture.trac.common.util.InterfaceMetrics;
 import com.accenture.trac.common.util.VersionInfo;
+import com.accenture.trac.svc.meta.api.ExecutionLanes;
+import com.accenture.trac.svc.meta.api.MetadataAdminApi;
+import com.accenture.trac.svc.meta.api.MetadataDiagnosticsApi;
 import com.accenture.trac.svc.meta.api.MetadataPublicWriteApi;
 import com.accenture.trac.svc.meta.api.MetadataReadApi;
 import com.accenture.trac.svc.meta.api.MetadataSearchApi;
 import com.accenture.trac.svc.meta.api.MetadataTrustedWriteApi;
+import com.accenture.trac.svc.meta.dal.CacheStatus;
 import com.accenture.trac.svc.meta.dal.IMetadataDal;
+import com.accenture.trac.svc.meta.dal.MetadataReadCoalescer;
+import com.accenture.trac.svc.meta.dal.MetadataSearchCache;
 import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
-import com.accenture.trac.svc.meta.services.MetadataReadService;
-import com.accenture.trac.svc.meta.services.MetadataSearchService;
-import com.accenture.trac.svc.meta.services.MetadataWriteService;
+import com.accenture.trac.svc.meta.services.*;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.services.HealthStatusManager;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
-import java.util.Properties;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 
 public class TracMetadataService {
@@ -53,38 +76,109 @@ public class TracMetadataService {
     // Because we are using JDBC, there is no option for fully async execution
     // We will need a thread pool that can handle the maximum number of concurrent requests
     // Since requests will sit on the JDBC thread pool anyway, we can use thread-per-request
-    // A primary executor is given to gRPC for handling incoming requests
+    // A primary executor handles incoming requests, or one executor per workload if execution lanes are enabled
     // Then use Runnable::run to execute JDBC calls directly, i.e. no hand-off to a secondary pool
 
     // We do set up a blocking queue as an overflow
-    // It would be good to tie this into health reporting and load balancing
-    // That is not for this first quick implementation!
-
-    private static final String PORT_CONFIG_KEY = "trac.svc.meta.api.port";
+    // Queue depth, DB pool wait time and DAL errors feed into health reporting, see SaturationMonitor
+
+    private static final String API_CONFIG_ROOT = "trac.svc.meta.api";
+    private static final String PORT_CONFIG_KEY = API_CONFIG_ROOT + ".port";
+    private static final String FLOW_CONTROL_WINDOW_KEY = API_CONFIG_ROOT + ".flowControlWindow";
+    private static final String MAX_MESSAGE_SIZE_KEY = API_CONFIG_ROOT + ".maxMessageSize";
+    private static final String ADMIN_PORT_CONFIG_KEY = "trac.svc.meta.admin.port";
+    private static final String DIAGNOSTICS_PORT_CONFIG_KEY = "trac.svc.meta.diagnostics.port";
+    private static final String TRACING_CONFIG_ROOT = "trac.svc.meta";
     private static final String DB_CONFIG_ROOT = "trac.svc.meta.db.sql";
     private static final String POOL_SIZE_KEY = DB_CONFIG_ROOT + ".pool.size";
     private static final String POOL_OVERFLOW_KEY = DB_CONFIG_ROOT + ".pool.overflow";
-
+    private static final String SLOW_QUERY_THRESHOLD_KEY = DB_CONFIG_ROOT + ".slowQuery.thresholdMillis";
+    private static final String SLOW_QUERY_EXPLAIN_KEY = DB_CONFIG_ROOT + ".slowQuery.explain";
+    private static final String LIMIT_CONFIG_ROOT = API_CONFIG_ROOT + ".limit";
+    private static final String LIMIT_ENABLED_KEY = LIMIT_CONFIG_ROOT + ".enabled";
+    private static final String LIMIT_INITIAL_KEY = LIMIT_CONFIG_ROOT + ".initial";
+    private static final String LIMIT_MIN_KEY = LIMIT_CONFIG_ROOT + ".min";
+    private static final String LIMIT_MAX_KEY = LIMIT_CONFIG_ROOT + ".max";
+    private static final String LANES_CONFIG_ROOT = "trac.svc.meta.lanes";
+    private static final String LANES_ENABLED_KEY = LANES_CONFIG_ROOT + ".enabled";
+    private static final String LANES_METHODS_ROOT = LANES_CONFIG_ROOT + ".methods.";
+    private static final String LANE_CONNECTIONS_SUFFIX = ".connections";
+    private static final String LANE_OVERFLOW_SUFFIX = ".overflow";
+    private static final String WARMUP_CONFIG_ROOT = "trac.svc.meta.warmup";
+    private static final String WARMUP_ENABLED_KEY = WARMUP_CONFIG_ROOT + ".enabled";
+    private static final String WARMUP_ITERATIONS_KEY = WARMUP_CONFIG_ROOT + ".iterations";
+    private static final String WARMUP_THREADS_KEY = WARMUP_CONFIG_ROOT + ".threads";
+    private static final String WARMUP_TIMEOUT_KEY = WARMUP_CONFIG_ROOT + ".timeoutSeconds";
+    private static final String HEALTH_CONFIG_ROOT = "trac.svc.meta.health";
+    private static final String HEALTH_ENABLED_KEY = HEALTH_CONFIG_ROOT + ".enabled";
+    private static final String HEALTH_INTERVAL_KEY = HEALTH_CONFIG_ROOT + ".intervalMillis";
+    private static final String HEALTH_POOL_WAIT_KEY = HEALTH_CONFIG_ROOT + ".poolWaitMillis";
+    private static final String HEALTH_QUEUE_PERCENT_KEY = HEALTH_CONFIG_ROOT + ".queuePercent";
+    private static final String HEALTH_ERROR_PERCENT_KEY = HEALTH_CONFIG_ROOT + ".errorPercent";
+    private static final String HEALTH_MIN_TRANSACTIONS_KEY = HEALTH_CONFIG_ROOT + ".minTransactions";
+    private static final String HEALTH_RECOVERY_SAMPLES_KEY = HEALTH_CONFIG_ROOT + ".recoverySamples";
+    private static final String ID_GENERATOR_KEY = "trac.svc.meta.ids.generator";
+    private static final String SEARCH_INDEX_KEY = "trac.svc.meta.search.index";
+    private static final String SEARCH_WATERMARK_MARGIN_KEY = "trac.svc.meta.search.watermark.marginMillis";
+    private static final String SEARCH_CACHE_SIZE_KEY = "trac.svc.meta.search.cache.maxEntries";
+    private static final String LATEST_CACHE_TTL_KEY = "trac.svc.meta.latest.cache.ttlMillis";
+    private static final String READ_COALESCE_WINDOW_KEY = "trac.svc.meta.reads.coalesce.windowMicros";
+    private static final String READ_COALESCE_BATCH_KEY = "trac.svc.meta.reads.coalesce.maxBatch";
+
+    private static final String ID_GENERATOR_RANDOM = "random";
+    private static final String ID_GENERATOR_TIME_ORDERED = "time-ordered";
+
+    private static final String SEARCH_INDEX_SYNC = "sync";
+    private static final String SEARCH_INDEX_WRITE_BEHIND = "write-behind";
+
+    private static final int DEFAULT_FLOW_CONTROL_WINDOW = NettyServerBuilder.DEFAULT_FLOW_CONTROL_WINDOW;
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 4 * 1024 * 1024;
     private static final int DEFAULT_POOL_SIZE = 20;
     private static final int DEFAULT_OVERFLOW_SIZE = 10;
+    private static final int DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 500;
+    private static final int DEFAULT_LIMIT_MIN = 1;
+    private static final int DEFAULT_ADMIN_LANE_CONNECTIONS = 1;
+    private static final int DEFAULT_LANE_SHARE = 4;
+    private static final int DEFAULT_WARMUP_ITERATIONS = 200;
+    private static final int DEFAULT_WARMUP_THREADS = 4;
+    private static final int DEFAULT_WARMUP_TIMEOUT_SECONDS = 60;
+    private static final int DEFAULT_HEALTH_INTERVAL_MILLIS = 1000;
+    private static final int DEFAULT_HEALTH_POOL_WAIT_MILLIS = 250;
+    private static final int DEFAULT_HEALTH_QUEUE_PERCENT = 90;
+    private static final int DEFAULT_HEALTH_ERROR_PERCENT = 50;
+    private static final int DEFAULT_HEALTH_MIN_TRANSACTIONS = 20;
+    private static final int DEFAULT_HEALTH_RECOVERY_SAMPLES = 3;
+    private static final int DEFAULT_COALESCE_WINDOW_MICROS = 0;
+    private static final int DEFAULT_SEARCH_WATERMARK_MARGIN_MILLIS = 5000;
+    private static final int DEFAULT_SEARCH_CACHE_SIZE = 0;
+    private static final int DEFAULT_LATEST_CACHE_TTL_MILLIS = 0;
 
     private final Logger log;
 
     private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
 
     private DataSource dataSource;
-    private ExecutorService executor;
+    private ExecutionLanes lanes;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
     private JdbcMetadataDal dal;
     private Server server;
+    private HealthStatusManager health;
+    private MetricsEndpoint metricsEndpoint;
+    private Server diagnosticsServer;
+    private ScheduledExecutorService healthScheduler;
+    private Tracer tracer;
 
-    TracMetadataService(ConfigManager configManager) {
+    public TracMetadataService(ConfigManager configManager) {
 
         this.log = LoggerFactory.getLogger(getClass());
 
         this.configManager = configManager;
+        this.metrics = new MetricsRegistry();
     }
 
-    void start() throws IOException {
+    public void start() throws IOException {
 
         var componentName = VersionInfo.getComponentName(TracMetadataService.class);
         var componentVersion = VersionInfo.getComponentVersion(TracMetadataService.class);
@@ -98,35 +192,82 @@ public class TracMetadataService {
         dataSource = JdbcSetup.createDatasource(properties, DB_CONFIG_ROOT);
 
         // Construct the DAL using a direct executor, as per the comments above
-        dal = new JdbcMetadataDal(dialect, dataSource, Runnable::run);
+        var searchIndexMode = readSearchIndexMode(properties);
+        dal = new JdbcMetadataDal(dialect, dataSource, Runnable::run, searchIndexMode);
+        configureQueryLog(properties, dal);
+        configureLatestCache(properties, dal);
+        configureSearchWatermark(properties, dal, searchIndexMode);
+        dal.configureTenantUsage(metrics);
         dal.startup();
 
-        executor = createPrimaryExecutor(properties);
+        lanes = createExecutionLanes(properties);
+        registerDbMetrics();
 
         // Set up services and APIs
-        var dalWithLogging = InterfaceLogging.wrap(dal, IMetadataDal.class);
+        var searchDal = createSearchCache(properties, dal, searchIndexMode);
+        var readDal = createReadCoalescer(properties, searchDal);
+        var dalWithMetrics = InterfaceMetrics.wrap(readDal, IMetadataDal.class, metrics, "trac_dal");
 
-        var readLogic = new MetadataReadService(dalWithLogging);
-        var writeLogic = new MetadataWriteService(dalWithLogging);
-        var searchLogic = new MetadataSearchService(dalWithLogging);
+        var readLogic = new MetadataReadService(dalWithMetrics);
+        var idGenerator = createIdGenerator(properties);
+        var writeLogic = new MetadataWriteService(dalWithMetrics, idGenerator);
+        var searchLogic = new MetadataSearchService(dalWithMetrics);
+        var adminLogic = new MetadataAdminService(dalWithMetrics, dal.getTenantUsage());
 
         var readApi = new MetadataReadApi(readLogic);
         var publicWriteApi = new MetadataPublicWriteApi(writeLogic);
         var trustedWriteApi = new MetadataTrustedWriteApi(writeLogic);
         var searchApi = new MetadataSearchApi(searchLogic);
+        var adminApi = new MetadataAdminApi(adminLogic);
+
+        var apiServices = List.of(
+                lanes.bindService(readApi, ExecutionLanes.Lane.READ),
+                lanes.bindService(publicWriteApi, ExecutionLanes.Lane.WRITE),
+                lanes.bindService(trustedWriteApi, ExecutionLanes.Lane.WRITE),
+                lanes.bindService(searchApi, ExecutionLanes.Lane.SEARCH),
+                lanes.bindService(adminApi, ExecutionLanes.Lane.ADMIN));
+
+        // Health service reports not serving until startup is complete (including warmup)
+        // It is not bound to an execution lane, health checks should be answered even when the service is busy
+
+        health = new HealthStatusManager();
+        setServingStatus(apiServices, HealthCheckResponse.ServingStatus.NOT_SERVING);
 
         // Create the main server
+        // Calls are dispatched onto their execution lane, so gRPC itself can use a direct executor
 
         var servicePort = readConfigInt(properties, PORT_CONFIG_KEY, null);
+        var flowControlWindow = readConfigInt(properties, FLOW_CONTROL_WINDOW_KEY, DEFAULT_FLOW_CONTROL_WINDOW);
+        var maxMessageSize = readConfigInt(properties, MAX_MESSAGE_SIZE_KEY, DEFAULT_MAX_MESSAGE_SIZE);
+
+        var transport = NettyTransport.fromConfig(properties, API_CONFIG_ROOT);
+        bossGroup = transport.createBossGroup("boss");
+        workerGroup = transport.createWorkerGroup("grpc-worker");
 
-        this.server = ServerBuilder
+        log.info("API server: {}, flow control window = {}, max message size = {}",
+                transport, flowControlWindow, maxMessageSize);
+
+        var serverBuilder = NettyServerBuilder
                 .forPort(servicePort)
-                .addService(readApi)
-                .addService(publicWriteApi)
-                .addService(trustedWriteApi)
-                .addService(searchApi)
-                .executor(executor)
-                .build();
+                .channelType(transport.serverChannelType())
+                .bossEventLoopGroup(bossGroup)
+                .workerEventLoopGroup(workerGroup)
+                .withOption(ChannelOption.ALLOCATOR, transport.allocator())
+                .withChildOption(ChannelOption.ALLOCATOR, transport.allocator())
+                .flowControlWindow(flowControlWindow)
+                .maxInboundMessageSize(maxMessageSize)
+                .addService(health.getHealthService())
+                .directExecutor();
+
+        // Tracing is applied to the main server only, so warmup calls do not produce traces
+        // Active calls are also only tracked for the main server, inside tracing so they can report trace IDs
+        tracer = Tracer.fromConfig(properties, TRACING_CONFIG_ROOT, "trac-svc-meta");
+        var tracing = new TracingServerInterceptor(tracer);
+        var activeCalls = new ActiveCallsInterceptor();
+
+        apiServices.forEach(service -> serverBuilder.addService(ServerInterceptors.intercept(service, activeCalls, tracing)));
+
+        this.server = serverBuilder.build();
 
         // Register a shutdown hook, so SIGTERM triggers a clean shutdown
         var mainThread = Thread.currentThread();
@@ -150,52 +291,560 @@ public class TracMetadataService {
 
         // Good to go, let's start!
         server.start();
+
+        // Metrics go on a separate admin port, if one is configured
+        startMetricsEndpoint(properties);
+
+        // Diagnostics are available during warmup, in case warmup is slow or gets stuck
+        startDiagnosticsServer(properties, searchDal, activeCalls);
+
+        // Warm up before reporting ready, so the first real requests do not pay the startup costs
+        runWarmup(properties, apiServices);
+
+        setServingStatus(apiServices, HealthCheckResponse.ServingStatus.SERVING);
+        log.info("Service is ready");
+
+        // From here on, health status follows saturation of the DB pool, executors and DAL
+        startSaturationMonitor(properties, apiServices);
+    }
+
+    void runWarmup(Properties properties, List<ServerServiceDefinition> apiServices) throws IOException {
+
+        var enabled = Boolean.parseBoolean(properties.getProperty(WARMUP_ENABLED_KEY, "true").trim());
+
+        if (!enabled) {
+            log.info("Warmup is disabled");
+            return;
+        }
+
+        var iterations = readConfigInt(properties, WARMUP_ITERATIONS_KEY, DEFAULT_WARMUP_ITERATIONS);
+        var threads = readConfigInt(properties, WARMUP_THREADS_KEY, DEFAULT_WARMUP_THREADS);
+        var timeoutSeconds = readConfigInt(properties, WARMUP_TIMEOUT_KEY, DEFAULT_WARMUP_TIMEOUT_SECONDS);
+
+        if (iterations < 0 || threads < 1 || timeoutSeconds < 1) {
+
+            var message = String.format(
+                    "Invalid warmup settings: %s >= 0, %s >= 1 and %s >= 1 are required",
+                    WARMUP_ITERATIONS_KEY, WARMUP_THREADS_KEY, WARMUP_TIMEOUT_KEY);
+
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        // Warmup calls use an in-process server with the same service definitions as the main server
+        // So they go through the same interceptors, execution lanes and API logic as real calls
+
+        var warmupName = InProcessServerBuilder.generateName();
+        var warmupServerBuilder = InProcessServerBuilder.forName(warmupName).directExecutor();
+        apiServices.forEach(warmupServerBuilder::addService);
+
+        var warmupServer = warmupServerBuilder.build().start();
+        var warmupChannel = InProcessChannelBuilder.forName(warmupName).directExecutor().build();
+
+        try {
+            var warmup = new MetadataWarmup(dal, warmupChannel, iterations, threads, Duration.ofSeconds(timeoutSeconds));
+            warmup.run();
+        }
+        catch (InterruptedException e) {
+            log.warn("Warmup was interrupted");
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            warmupChannel.shutdownNow();
+            warmupServer.shutdownNow();
+        }
+    }
+
+    private void configureQueryLog(Properties properties, JdbcMetadataDal dal) {
+
+        // Per-query DB metrics, with a slow query log for statements over the threshold
+        // Explaining slow queries costs an extra round trip, so it is off by default
+
+        var thresholdMillis = readConfigInt(properties, SLOW_QUERY_THRESHOLD_KEY, DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS);
+        var explain = Boolean.parseBoolean(properties.getProperty(SLOW_QUERY_EXPLAIN_KEY, "false").trim());
+
+        log.info("Slow query log: threshold = {} ms, explain = {}", thresholdMillis, explain);
+
+        dal.configureQueryLog(metrics, Duration.ofMillis(thresholdMillis), explain);
+    }
+
+    private void configureLatestCache(Properties properties, JdbcMetadataDal dal) {
+
+        // Caching latest version / tag pointers is off by default
+        // Writes from other service instances are only picked up when cached pointers expire
+
+        var ttlMillis = readConfigInt(properties, LATEST_CACHE_TTL_KEY, DEFAULT_LATEST_CACHE_TTL_MILLIS);
+
+        if (ttlMillis <= 0)
+            return;
+
+        log.info("Latest pointer cache enabled, TTL = {} ms", ttlMillis);
+
+        dal.configureLatestCache(Duration.ofMillis(ttlMillis));
+    }
+
+    private void configureSearchWatermark(Properties properties, JdbcMetadataDal dal, JdbcMetadataDal.SearchIndexMode searchIndexMode) {
+
+        // With write-behind indexing, the search watermark is held back by a safety margin
+        // Writes that take longer than the margin to commit may be missing from search results after the watermark
+
+        if (searchIndexMode != JdbcMetadataDal.SearchIndexMode.WRITE_BEHIND)
+            return;
+
+        var marginMillis = readConfigInt(properties, SEARCH_WATERMARK_MARGIN_KEY, DEFAULT_SEARCH_WATERMARK_MARGIN_MILLIS);
+
+        if (marginMillis < 0) {
+
+            var message = String.format(
+                    "Search watermark margin cannot be negative: %s = %d",
+                    SEARCH_WATERMARK_MARGIN_KEY, marginMillis);
+
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        log.info("Search watermark safety margin = {} ms", marginMillis);
+
+        dal.configureSearchWatermark(Duration.ofMillis(marginMillis));
+    }
+
+    private void registerDbMetrics() {
+
+        var poolMonitor = JdbcSetup.getPoolMonitor(dataSource);
+
+        metrics.gauge("trac_db_pool_connections_active", "DB connections currently in use", poolMonitor::activeConnections);
+        metrics.gauge("trac_db_pool_connections_total", "DB connections currently open", poolMonitor::totalConnections);
+        metrics.gauge("trac_db_pool_connections_max", "Maximum size of the DB connection pool", poolMonitor::maxConnections);
+        metrics.gauge("trac_db_pool_pending_threads", "Threads waiting for a DB connection", poolMonitor::pendingThreads);
+
+        metrics.counterFunction("trac_db_pool_acquire_total", "DB connections handed out by the pool", poolMonitor::acquireCount);
+        metrics.counterFunction("trac_db_pool_acquire_seconds_total", "Total time spent waiting for DB connections", () -> poolMonitor.acquireNanos() / 1.0e9);
+        metrics.counterFunction("trac_db_pool_timeouts_total", "Requests for a DB connection that timed out", poolMonitor::timeoutCount);
+
+        metrics.counterFunction("trac_db_transactions_total", "DB transactions run by the DAL", dal::getTransactionCount);
+        metrics.counterFunction("trac_db_errors_total", "DB transactions that failed with a DB error", dal::getErrorCount);
+    }
+
+    private void startMetricsEndpoint(Properties properties) {
+
+        var adminPort = properties.getProperty(ADMIN_PORT_CONFIG_KEY);
+
+        if (adminPort == null || adminPort.isBlank()) {
+            log.info("No admin port configured, metrics will not be available");
+            return;
+        }
+
+        metricsEndpoint = new MetricsEndpoint(metrics, readConfigInt(properties, ADMIN_PORT_CONFIG_KEY, null));
+        metricsEndpoint.start();
+    }
+
+    private void startDiagnosticsServer(
+            Properties properties, IMetadataDal searchDal,
+            ActiveCallsInterceptor activeCalls) throws IOException {
+
+        // Diagnostics have their own gRPC server, with the default gRPC executor
+        // They do not go through the execution lanes, so they still answer when the lanes are saturated
+
+        var diagnosticsPort = properties.getProperty(DIAGNOSTICS_PORT_CONFIG_KEY);
+
+        if (diagnosticsPort == null || diagnosticsPort.isBlank()) {
+            log.info("No diagnostics port configured, runtime diagnostics will not be available");
+            return;
+        }
+
+        var poolMonitor = JdbcSetup.getPoolMonitor(dataSource);
+        var searchCache = searchDal instanceof MetadataSearchCache ? (MetadataSearchCache) searchDal : null;
+
+        Supplier<List<CacheStatus>> caches = () -> {
+
+            var status = new ArrayList<>(dal.getCacheStatus());
+
+            if (searchCache != null)
+                status.add(searchCache.getCacheStatus());
+
+            return status;
+        };
+
+        var diagnosticsApi = new MetadataDiagnosticsApi(lanes, poolMonitor, dal, caches, activeCalls);
+        var port = readConfigInt(properties, DIAGNOSTICS_PORT_CONFIG_KEY, null);
+
+        diagnosticsServer = NettyServerBuilder
+                .forPort(port)
+                .addService(diagnosticsApi)
+                .build()
+                .start();
+
+        log.info("Diagnostics server is listening on port {}", port);
+    }
+
+    private void startSaturationMonitor(Properties properties, List<ServerServiceDefinition> apiServices) {
+
+        var enabled = Boolean.parseBoolean(properties.getProperty(HEALTH_ENABLED_KEY, "true").trim());
+
+        if (!enabled) {
+            log.info("Saturation monitoring is disabled");
+            return;
+        }
+
+        var interval = readConfigInt(properties, HEALTH_INTERVAL_KEY, DEFAULT_HEALTH_INTERVAL_MILLIS);
+        var poolWait = readConfigInt(properties, HEALTH_POOL_WAIT_KEY, DEFAULT_HEALTH_POOL_WAIT_MILLIS);
+        var queuePercent = readConfigInt(properties, HEALTH_QUEUE_PERCENT_KEY, DEFAULT_HEALTH_QUEUE_PERCENT);
+        var errorPercent = readConfigInt(properties, HEALTH_ERROR_PERCENT_KEY, DEFAULT_HEALTH_ERROR_PERCENT);
+        var minTransactions = readConfigInt(properties, HEALTH_MIN_TRANSACTIONS_KEY, DEFAULT_HEALTH_MIN_TRANSACTIONS);
+        var recoverySamples = readConfigInt(properties, HEALTH_RECOVERY_SAMPLES_KEY, DEFAULT_HEALTH_RECOVERY_SAMPLES);
+
+        if (interval < 1 || poolWait < 1 || queuePercent < 1 || errorPercent < 1 || minTransactions < 1 || recoverySamples < 1) {
+
+            var message = String.format("Invalid health settings: all %s.* values must be >= 1", HEALTH_CONFIG_ROOT);
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        var poolMonitor = JdbcSetup.getPoolMonitor(dataSource);
+
+        var monitor = new SaturationMonitor(
+                () -> sampleSignals(poolMonitor),
+                status -> setServingStatus(apiServices, status),
+                poolWait, queuePercent, errorPercent,
+                minTransactions, recoverySamples);
+
+        log.info("Saturation monitoring: interval = {} ms, pool wait = {} ms, queue = {}%, errors = {}%",
+                interval, poolWait, queuePercent, errorPercent);
+
+        var threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("health-monitor")
+                .setDaemon(true)
+                .build();
+
+        healthScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        healthScheduler.scheduleAtFixedRate(monitor::check, 0, interval, TimeUnit.MILLISECONDS);
     }
 
-    ExecutorService createPrimaryExecutor(Properties properties) {
+    private SaturationMonitor.Signals sampleSignals(JdbcPoolMonitor poolMonitor) {
+
+        // Lanes are sampled separately, so one full lane is enough to report saturation
+
+        var queueUtilisation = 0.0;
+
+        for (var lane : ExecutionLanes.Lane.values())
+            queueUtilisation = Math.max(queueUtilisation, lanes.queueUtilisation(lane));
+
+        return new SaturationMonitor.Signals(
+                poolMonitor.acquireCount(),
+                poolMonitor.acquireNanos(),
+                poolMonitor.timeoutCount(),
+                queueUtilisation,
+                dal.getTransactionCount(),
+                dal.getErrorCount());
+    }
+
+    private void setServingStatus(List<ServerServiceDefinition> apiServices, HealthCheckResponse.ServingStatus status) {
+
+        // The empty service name is the status of the server as a whole
+
+        health.setStatus("", status);
+
+        for (var service : apiServices)
+            health.setStatus(service.getServiceDescriptor().getName(), status);
+    }
+
+    ExecutionLanes createExecutionLanes(Properties properties) {
+
+        var poolSize = readConfigInt(properties, POOL_SIZE_KEY, DEFAULT_POOL_SIZE);
+        var overflowSize = readConfigInt(properties, POOL_OVERFLOW_KEY, DEFAULT_OVERFLOW_SIZE);
+        var lanesEnabled = Boolean.parseBoolean(properties.getProperty(LANES_ENABLED_KEY, "false").trim());
+
+        var executors = new EnumMap<ExecutionLanes.Lane, ExecutorService>(ExecutionLanes.Lane.class);
+        var limits = new EnumMap<ExecutionLanes.Lane, AdaptiveConcurrencyLimit>(ExecutionLanes.Lane.class);
+
+        if (!lanesEnabled) {
+
+            // Without lanes, all calls share the primary executor and concurrency limit
+            // As per comments at the top of this file
+
+            // A small number of headroom threads might be useful for admin tasks to avoid starvation
+            // Although, to actually do anything useful with that prioritization would be needed
+            // Execution lanes are the way to do that
+
+            var HEADROOM_THREADS = 1;
+
+            var executor = createExecutor("worker-%d", poolSize, overflowSize, HEADROOM_THREADS);
+            var limit = createConcurrencyLimit(properties, poolSize, null);
+
+            for (var lane : ExecutionLanes.Lane.values()) {
+                executors.put(lane, executor);
+                limit.ifPresent(l -> limits.put(lane, l));
+            }
+        }
+        else {
+
+            // Each lane gets a share of the DB pool, the shares must fit in the pool
+            // Otherwise lanes would compete for connections and the isolation would be lost
+
+            var laneConnections = readLaneConnections(properties, poolSize);
+            var totalConnections = laneConnections.values().stream().mapToInt(Integer::intValue).sum();
+
+            if (totalConnections > poolSize) {
+
+                var message = String.format(
+                        "Execution lanes need %d connections but the DB pool only has %d (%s)",
+                        totalConnections, poolSize, POOL_SIZE_KEY);
+
+                log.error(message);
+                throw new EStartup(message);
+            }
+
+            for (var lane : ExecutionLanes.Lane.values()) {
+
+                var laneKey = LANES_CONFIG_ROOT + "." + lane.name().toLowerCase();
+                var connections = laneConnections.get(lane);
+                var overflow = readConfigInt(properties, laneKey + LANE_OVERFLOW_SUFFIX, overflowSize);
+                var threadName = "worker-" + lane.name().toLowerCase() + "-%d";
+
+                log.info("Execution lane {}: connections = {}, overflow = {}", lane, connections, overflow);
+
+                executors.put(lane, createExecutor(threadName, connections, overflow, 0));
+                createConcurrencyLimit(properties, connections, lane).ifPresent(l -> limits.put(lane, l));
+            }
+        }
+
+        var methodOverrides = readLaneOverrides(properties);
+
+        return new ExecutionLanes(executors, limits, methodOverrides, metrics);
+    }
+
+    private Map<ExecutionLanes.Lane, Integer> readLaneConnections(Properties properties, int poolSize) {
+
+        // Defaults: one connection for admin, a quarter of the pool each for writes and searches, reads get the rest
+
+        var laneShare = Math.max(1, poolSize / DEFAULT_LANE_SHARE);
+
+        var adminConnections = readLaneConfigInt(properties, ExecutionLanes.Lane.ADMIN, DEFAULT_ADMIN_LANE_CONNECTIONS);
+        var writeConnections = readLaneConfigInt(properties, ExecutionLanes.Lane.WRITE, laneShare);
+        var searchConnections = readLaneConfigInt(properties, ExecutionLanes.Lane.SEARCH, laneShare);
+        var readDefault = poolSize - adminConnections - writeConnections - searchConnections;
+        var readConnections = readLaneConfigInt(properties, ExecutionLanes.Lane.READ, Math.max(1, readDefault));
+
+        var laneConnections = new EnumMap<ExecutionLanes.Lane, Integer>(ExecutionLanes.Lane.class);
+        laneConnections.put(ExecutionLanes.Lane.READ, readConnections);
+        laneConnections.put(ExecutionLanes.Lane.WRITE, writeConnections);
+        laneConnections.put(ExecutionLanes.Lane.SEARCH, searchConnections);
+        laneConnections.put(ExecutionLanes.Lane.ADMIN, adminConnections);
+
+        for (var lane : laneConnections.entrySet()) {
+
+            if (lane.getValue() < 1) {
+
+                var laneKey = LANES_CONFIG_ROOT + "." + lane.getKey().name().toLowerCase() + LANE_CONNECTIONS_SUFFIX;
+                var message = "Config property must be at least 1: " + laneKey;
+                log.error(message);
+                throw new EStartup(message);
+            }
+        }
+
+        return laneConnections;
+    }
+
+    private int readLaneConfigInt(Properties properties, ExecutionLanes.Lane lane, int defaultValue) {
+
+        var laneKey = LANES_CONFIG_ROOT + "." + lane.name().toLowerCase() + LANE_CONNECTIONS_SUFFIX;
+        return readConfigInt(properties, laneKey, defaultValue);
+    }
+
+    private Map<String, ExecutionLanes.Lane> readLaneOverrides(Properties properties) {
+
+        // Individual methods can be moved to a different lane, e.g.
+        // trac.svc.meta.lanes.methods.trac.api.meta.MetadataTrustedWriteApi/preallocateIds = admin
+
+        var overrides = new HashMap<String, ExecutionLanes.Lane>();
+
+        // Explaining a search runs the search, so by default it shares the search lane's connections
+        overrides.put(MetadataAdminApiGrpc.getExplainSearchMethod().getFullMethodName(), ExecutionLanes.Lane.SEARCH);
+
+        for (var key : properties.stringPropertyNames()) {
+
+            if (!key.startsWith(LANES_METHODS_ROOT))
+                continue;
+
+            var methodName = key.substring(LANES_METHODS_ROOT.length());
+            var laneName = properties.getProperty(key).trim();
+
+            try {
+                overrides.put(methodName, ExecutionLanes.Lane.valueOf(laneName.toUpperCase()));
+            }
+            catch (IllegalArgumentException e) {
+
+                var message = String.format(
+                        "Unknown execution lane: %s = '%s' (valid options are %s)",
+                        key, laneName, Arrays.toString(ExecutionLanes.Lane.values()).toLowerCase());
+
+                log.error(message);
+                throw new EStartup(message);
+            }
+        }
+
+        return overrides;
+    }
+
+    private ExecutorService createExecutor(String threadName, int poolSize, int overflowSize, int headroomThreads) {
 
         // Headroom threads - these threads get used after the core pool and the overflow queue is full
         // That is not the behaviour we want, we want to fill up the pool first, then start queuing
         // So, we just use the core pool
 
-        // A small number of headroom threads might be useful for admin tasks to avoid starvation
-        // Although, to actually do anything useful with that prioritization would be needed
-
-        var HEADROOM_THREADS = 1;
         var HEADROOM_THREADS_TIMEOUT = 60;
         var HEADROOM_THREADS_TIMEOUT_UNIT = TimeUnit.SECONDS;
 
-        try {
+        var threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(threadName)
+                .setPriority(Thread.NORM_PRIORITY)
+                .build();
 
-            // Use the DB pool settings to create the primary executor
-            // As per comments at the top of this file
+        var overflowQueue = new ArrayBlockingQueue<Runnable>(overflowSize);
 
-            var poolSize = readConfigInt(properties, POOL_SIZE_KEY, DEFAULT_POOL_SIZE);
-            var overflowSize = readConfigInt(properties, POOL_OVERFLOW_KEY, DEFAULT_OVERFLOW_SIZE);
+        var executor = new ThreadPoolExecutor(
+                poolSize, poolSize + headroomThreads,
+                HEADROOM_THREADS_TIMEOUT, HEADROOM_THREADS_TIMEOUT_UNIT,
+                overflowQueue, threadFactory);
+
+        executor.prestartAllCoreThreads();
+        executor.allowCoreThreadTimeOut(false);
+
+        return executor;
+    }
 
-            var threadFactory = new ThreadFactoryBuilder()
-                    .setNameFormat("worker-%d")
-                    .setPriority(Thread.NORM_PRIORITY)
-                    .build();
+    private Optional<AdaptiveConcurrencyLimit> createConcurrencyLimit(
+            Properties properties, int capacity, ExecutionLanes.Lane lane) {
 
-            var overflowQueue = new ArrayBlockingQueue<Runnable>(overflowSize);
+        // Adaptive limit on concurrent calls, calls over the limit are rejected rather than queued
+        // The limit can never go above the available threads, so calls are not rejected by the executor
 
-            var executor = new ThreadPoolExecutor(
-                    poolSize, poolSize + HEADROOM_THREADS,
-                    HEADROOM_THREADS_TIMEOUT, HEADROOM_THREADS_TIMEOUT_UNIT,
-                    overflowQueue, threadFactory);
+        var enabled = Boolean.parseBoolean(properties.getProperty(LIMIT_ENABLED_KEY, "true").trim());
 
-            executor.prestartAllCoreThreads();
-            executor.allowCoreThreadTimeOut(false);
+        if (!enabled)
+            return Optional.empty();
 
-            return executor;
+        // For execution lanes, the limit for each lane starts at (and is capped by) the lane capacity
+
+        if (lane != null) {
+
+            var minLimit = Math.min(capacity, readConfigInt(properties, LIMIT_MIN_KEY, DEFAULT_LIMIT_MIN));
+
+            if (minLimit < 1) {
+                var message = "Config property must be at least 1: " + LIMIT_MIN_KEY;
+                log.error(message);
+                throw new EStartup(message);
+            }
+
+            return Optional.of(new AdaptiveConcurrencyLimit(capacity, minLimit, capacity));
         }
-        catch (NumberFormatException e) {
 
-            var message = "Pool size and overflow must be integers: " + e.getMessage();
+        var maxLimit = readConfigInt(properties, LIMIT_MAX_KEY, capacity);
+        var minLimit = readConfigInt(properties, LIMIT_MIN_KEY, DEFAULT_LIMIT_MIN);
+        var initialLimit = readConfigInt(properties, LIMIT_INITIAL_KEY, maxLimit);
+
+        if (minLimit < 1 || maxLimit < minLimit || maxLimit > capacity ||
+            initialLimit < minLimit || initialLimit > maxLimit) {
+
+            var message = String.format(
+                    "Invalid concurrency limit: 1 <= %s <= %s <= %s <= %s is required",
+                    LIMIT_MIN_KEY, LIMIT_INITIAL_KEY, LIMIT_MAX_KEY, POOL_SIZE_KEY);
+
             log.error(message);
-            throw new EStartup(message, e);
+            throw new EStartup(message);
         }
+
+        log.info("Adaptive concurrency limit enabled, initial = {}, min = {}, max = {}",
+                initialLimit, minLimit, maxLimit);
+
+        return Optional.of(new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit));
+    }
+
+    IObjectIdGenerator createIdGenerator(Properties properties) {
+
+        // Random IDs are the default, time-ordered IDs give better index locality for inserts
+
+        var generatorType = properties.getProperty(ID_GENERATOR_KEY, ID_GENERATOR_RANDOM).trim();
+
+        if (generatorType.isEmpty() || generatorType.equalsIgnoreCase(ID_GENERATOR_RANDOM))
+            return new RandomObjectIdGenerator();
+
+        if (generatorType.equalsIgnoreCase(ID_GENERATOR_TIME_ORDERED))
+            return new TimeOrderedObjectIdGenerator();
+
+        var message = String.format(
+                "Unknown object ID generator: %s = '%s' (valid options are '%s', '%s')",
+                ID_GENERATOR_KEY, generatorType, ID_GENERATOR_RANDOM, ID_GENERATOR_TIME_ORDERED);
+
+        log.error(message);
+        throw new EStartup(message);
+    }
+
+    IMetadataDal createSearchCache(
+            Properties properties, IMetadataDal dal,
+            JdbcMetadataDal.SearchIndexMode searchIndexMode) {
+
+        // The search cache is off by default, it is only safe when a single service instance is writing
+
+        var cacheSize = readConfigInt(properties, SEARCH_CACHE_SIZE_KEY, DEFAULT_SEARCH_CACHE_SIZE);
+
+        if (cacheSize <= 0)
+            return dal;
+
+        if (searchIndexMode != JdbcMetadataDal.SearchIndexMode.SYNC) {
+
+            var message = String.format(
+                    "Search cache cannot be used with write-behind search indexing (%s, %s)",
+                    SEARCH_CACHE_SIZE_KEY, SEARCH_INDEX_KEY);
+
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        log.info("Search cache enabled, max entries = {}", cacheSize);
+
+        return new MetadataSearchCache(dal, cacheSize);
+    }
+
+    IMetadataDal createReadCoalescer(Properties properties, IMetadataDal dal) {
+
+        // Read coalescing is off by default, a window of a few hundred micros is enough to batch concurrent loads
+
+        var windowMicros = readConfigInt(properties, READ_COALESCE_WINDOW_KEY, DEFAULT_COALESCE_WINDOW_MICROS);
+        var maxBatch = readConfigInt(properties, READ_COALESCE_BATCH_KEY, MetadataReadCoalescer.DEFAULT_MAX_BATCH_SIZE);
+
+        if (windowMicros <= 0)
+            return dal;
+
+        if (maxBatch < 1) {
+            var message = "Config property must be at least 1: " + READ_COALESCE_BATCH_KEY;
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        log.info("Read coalescing enabled, window = {} us, max batch = {}", windowMicros, maxBatch);
+
+        return new MetadataReadCoalescer(dal, Duration.ofNanos(windowMicros * 1000L), maxBatch);
+    }
+
+    JdbcMetadataDal.SearchIndexMode readSearchIndexMode(Properties properties) {
+
+        // Sync indexing is the default, write-behind trades search freshness for lower write latency
+
+        var indexMode = properties.getProperty(SEARCH_INDEX_KEY, SEARCH_INDEX_SYNC).trim();
+
+        if (indexMode.isEmpty() || indexMode.equalsIgnoreCase(SEARCH_INDEX_SYNC))
+            return JdbcMetadataDal.SearchIndexMode.SYNC;
+
+        if (indexMode.equalsIgnoreCase(SEARCH_INDEX_WRITE_BEHIND))
+            return JdbcMetadataDal.SearchIndexMode.WRITE_BEHIND;
+
+        var message = String.format(
+                "Unknown search index mode: %s = '%s' (valid options are '%s', '%s')",
+                SEARCH_INDEX_KEY, indexMode, SEARCH_INDEX_SYNC, SEARCH_INDEX_WRITE_BEHIND);
+
+        log.error(message);
+        throw new EStartup(message);
     }
 
     private int readConfigInt(Properties props, String propKey, Integer propDefault) {
@@ -230,7 +879,7 @@ public class TracMetadataService {
         }
     }
 
-    void stop() {
+    public void stop() {
 
         try {
             log.info("TRAC Metadata service is going down");
@@ -239,14 +888,35 @@ public class TracMetadataService {
             // Wait for the server to drain
             // Once there are no active requests, clean up internal resources
 
+            if (healthScheduler != null)
+                healthScheduler.shutdownNow();
+
+            health.enterTerminalState();
+
+            if (metricsEndpoint != null)
+                metricsEndpoint.stop();
+
             server.shutdown();
             server.awaitTermination(30, TimeUnit.SECONDS);
 
-            executor.shutdown();
+            // Diagnostics stay up while the main server drains
+            if (diagnosticsServer != null) {
+                diagnosticsServer.shutdown();
+                diagnosticsServer.awaitTermination(10, TimeUnit.SECONDS);
+            }
+
+            lanes.shutdown(30, TimeUnit.SECONDS);
             dal.shutdown();
 
+            // Event loops are supplied to gRPC, so they are not shut down with the server
+            workerGroup.shutdownGracefully();
+            bossGroup.shutdownGracefully();
+
             JdbcSetup.destroyDatasource(dataSource);
 
+            if (tracer != null)
+                tracer.close();
+
             System.out.println("TRAC Metadata service will exit normally");
             log.info("TRAC Metadata service will exit normally");
         }
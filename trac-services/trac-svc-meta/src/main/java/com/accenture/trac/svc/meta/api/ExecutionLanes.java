@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.api;
+
+import com.accenture.trac.common.exception.ETracInternal;
+import com.accenture.trac.common.grpc.AdaptiveConcurrencyLimit;
+import com.accenture.trac.common.grpc.CallMetricsInterceptor;
+import com.accenture.trac.common.grpc.ConcurrencyLimitInterceptor;
+import com.accenture.trac.common.grpc.ExecutorDispatchInterceptor;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+
+import io.grpc.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+public class ExecutionLanes {
+
+    // Calls are classified into lanes by method, each lane has its own executor and (optionally) concurrency limit
+    // Since JDBC calls run directly on the executor threads, the lane thread count is also its DB connection quota
+    // This stops one kind of workload (e.g. a burst of wide searches) starving the others of threads and connections
+
+    // Lanes can also share an executor, which gives the original single pool behaviour
+
+    public enum Lane {
+        READ,
+        WRITE,
+        SEARCH,
+        ADMIN
+    }
+
+    private final Map<Lane, ExecutorService> executors;
+    private final Map<Lane, AdaptiveConcurrencyLimit> limits;
+    private final Map<String, Lane> methodOverrides;
+    private final Map<String, Lane> methodLanes;
+    private final CallMetricsInterceptor callMetrics;
+
+    public ExecutionLanes(
+            Map<Lane, ExecutorService> executors,
+            Map<Lane, AdaptiveConcurrencyLimit> limits,
+            Map<String, Lane> methodOverrides) {
+
+        this(executors, limits, methodOverrides, new MetricsRegistry());
+    }
+
+    public ExecutionLanes(
+            Map<Lane, ExecutorService> executors,
+            Map<Lane, AdaptiveConcurrencyLimit> limits,
+            Map<String, Lane> methodOverrides,
+            MetricsRegistry metrics) {
+
+        for (var lane : Lane.values()) {
+
+            if (!executors.containsKey(lane))
+                throw new ETracInternal("No executor configured for execution lane " + lane);
+
+            if (!limits.isEmpty() && !limits.containsKey(lane))
+                throw new ETracInternal("No concurrency limit configured for execution lane " + lane);
+        }
+
+        this.executors = new EnumMap<>(executors);
+        this.limits = limits.isEmpty() ? Map.of() : new EnumMap<>(limits);
+        this.methodOverrides = Map.copyOf(methodOverrides);
+        this.methodLanes = new ConcurrentHashMap<>();
+        this.callMetrics = new CallMetricsInterceptor(metrics);
+
+        registerMetrics(metrics);
+    }
+
+    public ServerServiceDefinition bindService(BindableService service, Lane lane) {
+
+        // All methods of the service go in the given lane, unless there is an override for individual methods
+
+        var serviceDef = service.bindService();
+
+        for (var method : serviceDef.getMethods()) {
+
+            var methodName = method.getMethodDescriptor().getFullMethodName();
+            var methodLane = methodOverrides.getOrDefault(methodName, lane);
+
+            methodLanes.put(methodName, methodLane);
+        }
+
+        // The last interceptor runs first, so calls are checked against the limit before they are dispatched
+
+        var interceptors = new ArrayList<ServerInterceptor>();
+        interceptors.add(new ExecutorDispatchInterceptor(method -> executors.get(classify(method))));
+
+        if (!limits.isEmpty())
+            interceptors.add(new ConcurrencyLimitInterceptor(method -> limits.get(classify(method))));
+
+        // Metrics are outermost, so call latency includes time spent queued for the lane
+        interceptors.add(callMetrics);
+
+        return ServerInterceptors.intercept(serviceDef, interceptors);
+    }
+
+    public Lane classify(MethodDescriptor<?, ?> method) {
+
+        var lane = methodLanes.get(method.getFullMethodName());
+
+        if (lane == null)
+            throw new ETracInternal("Method is not assigned to an execution lane: " + method.getFullMethodName());
+
+        return lane;
+    }
+
+    public double queueUtilisation(Lane lane) {
+
+        // Fraction of the lane's overflow queue in use, 0.0 if the lane executor has no bounded queue
+
+        var executor = executors.get(lane);
+
+        if (!(executor instanceof ThreadPoolExecutor))
+            return 0.0;
+
+        var queue = ((ThreadPoolExecutor) executor).getQueue();
+        var queueDepth = queue.size();
+        var queueCapacity = queueDepth + queue.remainingCapacity();
+
+        if (queueCapacity == 0 || queueCapacity == Integer.MAX_VALUE)
+            return 0.0;
+
+        return (double) queueDepth / queueCapacity;
+    }
+
+    public int queueDepth(Lane lane) {
+
+        var executor = executors.get(lane);
+
+        return executor instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executor).getQueue().size()
+                : 0;
+    }
+
+    public int activeThreads(Lane lane) {
+
+        var executor = executors.get(lane);
+
+        return executor instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executor).getActiveCount()
+                : 0;
+    }
+
+    public int poolSize(Lane lane) {
+
+        var executor = executors.get(lane);
+
+        return executor instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executor).getPoolSize()
+                : 0;
+    }
+
+    public AdaptiveConcurrencyLimit concurrencyLimit(Lane lane) {
+
+        // Null if concurrency limits are not enabled
+        return limits.get(lane);
+    }
+
+    private void registerMetrics(MetricsRegistry metrics) {
+
+        // Lanes that share an executor report the same executor values
+
+        for (var lane : Lane.values()) {
+
+            var laneName = lane.name().toLowerCase();
+            var executor = executors.get(lane);
+
+            metrics.gauge("trac_lane_queue_utilisation",
+                    "Fraction of the lane overflow queue in use",
+                    () -> queueUtilisation(lane), "lane", laneName);
+
+            if (executor instanceof ThreadPoolExecutor) {
+
+                var pool = (ThreadPoolExecutor) executor;
+
+                metrics.gauge("trac_lane_queue_depth",
+                        "Calls waiting in the lane overflow queue",
+                        () -> pool.getQueue().size(), "lane", laneName);
+
+                metrics.gauge("trac_lane_active_threads",
+                        "Lane threads currently running a call",
+                        pool::getActiveCount, "lane", laneName);
+
+                metrics.gauge("trac_lane_pool_size",
+                        "Threads in the lane executor",
+                        pool::getPoolSize, "lane", laneName);
+
+                metrics.counterFunction("trac_lane_tasks_completed_total",
+                        "Tasks completed by the lane executor",
+                        pool::getCompletedTaskCount, "lane", laneName);
+            }
+
+            var limit = limits.get(lane);
+
+            if (limit != null) {
+
+                metrics.gauge("trac_lane_concurrency_limit",
+                        "Current adaptive concurrency limit for the lane",
+                        limit::getLimit, "lane", laneName);
+
+                metrics.gauge("trac_lane_calls_in_flight",
+                        "Calls currently admitted by the lane concurrency limit",
+                        limit::getInFlight, "lane", laneName);
+            }
+        }
+    }
+
+    public void shutdown(long timeout, TimeUnit timeUnit) throws InterruptedException {
+
+        // Lanes may share an executor, only shut down each executor once
+
+        var distinctExecutors = Collections.newSetFromMap(new IdentityHashMap<ExecutorService, Boolean>());
+        distinctExecutors.addAll(executors.values());
+
+        for (var executor : distinctExecutors)
+            executor.shutdown();
+
+        for (var executor : distinctExecutors)
+            executor.awaitTermination(timeout, timeUnit);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.api;
+
+import com.accenture.trac.common.api.meta.*;
+import com.accenture.trac.common.util.ApiWrapper;
+import com.accenture.trac.svc.meta.dal.SearchExplain;
+import com.accenture.trac.svc.meta.dal.TenantUsage;
+import com.accenture.trac.svc.meta.services.MetadataAdminService;
+
+import io.grpc.stub.StreamObserver;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+public class MetadataAdminApi extends MetadataAdminApiGrpc.MetadataAdminApiImplBase {
+
+    private final ApiWrapper apiWrapper;
+    private final MetadataAdminService adminService;
+
+    public MetadataAdminApi(MetadataAdminService adminService) {
+        this.apiWrapper = new ApiWrapper(getClass(), ApiErrorMapping.ERROR_MAPPING);
+        this.adminService = adminService;
+    }
+
+    @Override
+    public void getTenantUsage(TenantUsageRequest request, StreamObserver<TenantUsageResponse> response) {
+
+        apiWrapper.unaryCall(response, () -> {
+
+            var tenant = request.getTenant();
+            var usage = adminService.getTenantUsage(tenant);
+
+            return usage.thenApply(MetadataAdminApi::encodeTenantUsage);
+        });
+    }
+
+    @Override
+    public void explainSearch(MetadataSearchRequest request, StreamObserver<SearchExplainResponse> response) {
+
+        apiWrapper.unaryCall(response, () -> {
+
+            var tenant = request.getTenant();
+            var searchParams = request.getSearchParams();
+
+            var explain = adminService.explainSearch(tenant, searchParams);
+
+            return explain.thenApply(MetadataAdminApi::encodeSearchExplain);
+        });
+    }
+
+    private static SearchExplainResponse encodeSearchExplain(SearchExplain explain) {
+
+        return SearchExplainResponse.newBuilder()
+                .setQuery(explain.getQuery())
+                .addAllParamTypes(explain.getParamTypes())
+                .addAllPlan(explain.getPlan())
+                .setBuildTimeMicros(TimeUnit.NANOSECONDS.toMicros(explain.getBuildNanos()))
+                .setExecuteTimeMicros(TimeUnit.NANOSECONDS.toMicros(explain.getExecuteNanos()))
+                .setHydrateTimeMicros(TimeUnit.NANOSECONDS.toMicros(explain.getHydrateNanos()))
+                .setResultCount(explain.getResultCount())
+                .build();
+    }
+
+    private static TenantUsageResponse encodeTenantUsage(Map<String, TenantUsage.Snapshot> usage) {
+
+        var response = TenantUsageResponse.newBuilder();
+
+        for (var entry : usage.entrySet()) {
+
+            var snapshot = entry.getValue();
+
+            response.addTenantUsage(TenantUsageStats.newBuilder()
+                    .setTenant(entry.getKey())
+                    .setRequests(snapshot.requests)
+                    .setDbTimeMicros(TimeUnit.NANOSECONDS.toMicros(snapshot.dbNanos))
+                    .setRowsRead(snapshot.rowsRead)
+                    .setRowsWritten(snapshot.rowsWritten)
+                    .setDefinitionBytesStored(snapshot.definitionBytesStored)
+                    .setDefinitionBytesReturned(snapshot.definitionBytesReturned)
+                    .setSearches(snapshot.searches)
+                    .setSearchTimeMicros(TimeUnit.NANOSECONDS.toMicros(snapshot.searchNanos))
+                    .setSearchResults(snapshot.searchResults));
+        }
+
+        return response.build();
+    }
+}
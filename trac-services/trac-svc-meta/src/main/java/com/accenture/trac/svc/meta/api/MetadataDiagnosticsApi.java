@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.api;
+
+import com.accenture.trac.common.api.meta.*;
+import com.accenture.trac.common.db.JdbcPoolMonitor;
+import com.accenture.trac.common.grpc.ActiveCallsInterceptor;
+import com.accenture.trac.common.util.ApiWrapper;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+
+import io.grpc.stub.StreamObserver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+
+public class MetadataDiagnosticsApi extends MetadataDiagnosticsApiGrpc.MetadataDiagnosticsApiImplBase {
+
+    // Read-only view of service internals, served on the diagnostics port
+    // Everything here comes from in-memory state, no calls go to the DAL or the database
+    // So diagnostics keep working when the DB pool or the execution lanes are saturated
+
+    private final ApiWrapper apiWrapper;
+
+    private final ExecutionLanes lanes;
+    private final JdbcPoolMonitor poolMonitor;
+    private final JdbcMetadataDal dal;
+    private final Supplier<List<com.accenture.trac.svc.meta.dal.CacheStatus>> caches;
+    private final ActiveCallsInterceptor activeCalls;
+
+    public MetadataDiagnosticsApi(
+            ExecutionLanes lanes, JdbcPoolMonitor poolMonitor, JdbcMetadataDal dal,
+            Supplier<List<com.accenture.trac.svc.meta.dal.CacheStatus>> caches,
+            ActiveCallsInterceptor activeCalls) {
+
+        this.apiWrapper = new ApiWrapper(getClass(), ApiErrorMapping.ERROR_MAPPING);
+
+        this.lanes = lanes;
+        this.poolMonitor = poolMonitor;
+        this.dal = dal;
+        this.caches = caches;
+        this.activeCalls = activeCalls;
+    }
+
+    @Override
+    public void getRuntimeStatus(RuntimeStatusRequest request, StreamObserver<RuntimeStatusResponse> response) {
+
+        apiWrapper.unaryCall(response, () -> {
+
+            var status = RuntimeStatusResponse.newBuilder();
+
+            for (var lane : ExecutionLanes.Lane.values())
+                status.addLanes(laneStatus(lane));
+
+            status.setDbPool(DbPoolStatus.newBuilder()
+                    .setActiveConnections(poolMonitor.activeConnections())
+                    .setIdleConnections(poolMonitor.idleConnections())
+                    .setTotalConnections(poolMonitor.totalConnections())
+                    .setMaxConnections(poolMonitor.maxConnections())
+                    .setPendingThreads(poolMonitor.pendingThreads())
+                    .setAcquireCount(poolMonitor.acquireCount())
+                    .setAcquireTimeMicros(TimeUnit.NANOSECONDS.toMicros(poolMonitor.acquireNanos()))
+                    .setTimeoutCount(poolMonitor.timeoutCount()));
+
+            for (var cache : caches.get()) {
+
+                status.addCaches(CacheStatus.newBuilder()
+                        .setCache(cache.getName())
+                        .setSize(cache.getSize())
+                        .setMaxSize(cache.getMaxSize())
+                        .setHitCount(cache.getHitCount())
+                        .setMissCount(cache.getMissCount())
+                        .setEvictionCount(cache.getEvictionCount())
+                        .setHitRate(cache.getHitRate()));
+            }
+
+            dal.getTenantMap().entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(tenant -> status.addTenants(TenantStatus.newBuilder()
+                            .setTenant(tenant.getKey())
+                            .setTenantId(tenant.getValue())));
+
+            var uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+            status.setActiveCalls(activeCalls.getActiveCallCount());
+            status.setUptimeSeconds(TimeUnit.MILLISECONDS.toSeconds(uptimeMillis));
+
+            return CompletableFuture.completedFuture(status.build());
+        });
+    }
+
+    @Override
+    public void listActiveCalls(ActiveCallsRequest request, StreamObserver<ActiveCallsResponse> response) {
+
+        apiWrapper.unaryCall(response, () -> {
+
+            var calls = ActiveCallsResponse.newBuilder();
+
+            for (var call : activeCalls.getActiveCalls()) {
+
+                var activeCall = ActiveCall.newBuilder()
+                        .setMethod(call.getMethodName())
+                        .setStartTime(call.getStartTime().toString())
+                        .setAgeMillis(call.getAge().toMillis());
+
+                if (call.getTraceId() != null)
+                    activeCall.setTraceId(call.getTraceId());
+
+                calls.addActiveCalls(activeCall);
+            }
+
+            return CompletableFuture.completedFuture(calls.build());
+        });
+    }
+
+    @Override
+    public void getThreadDump(ThreadDumpRequest request, StreamObserver<ThreadDumpResponse> response) {
+
+        apiWrapper.unaryCall(response, () -> {
+
+            // Locked monitors and synchronizers are not collected, they make the dump much more expensive
+
+            var maxDepth = request.getMaxDepth() > 0 ? request.getMaxDepth() : Integer.MAX_VALUE;
+            var threadBean = ManagementFactory.getThreadMXBean();
+            var threadInfo = threadBean.dumpAllThreads(false, false, maxDepth);
+
+            var dump = ThreadDumpResponse.newBuilder();
+
+            for (var thread : threadInfo)
+                dump.addThreads(threadStatus(thread));
+
+            return CompletableFuture.completedFuture(dump.build());
+        });
+    }
+
+    private LaneStatus laneStatus(ExecutionLanes.Lane lane) {
+
+        var status = LaneStatus.newBuilder()
+                .setLane(lane.name().toLowerCase())
+                .setQueueDepth(lanes.queueDepth(lane))
+                .setActiveThreads(lanes.activeThreads(lane))
+                .setPoolSize(lanes.poolSize(lane));
+
+        var limit = lanes.concurrencyLimit(lane);
+
+        if (limit != null) {
+            status.setConcurrencyLimit(limit.getLimit());
+            status.setCallsInFlight(limit.getInFlight());
+        }
+
+        return status.build();
+    }
+
+    private ThreadStatus threadStatus(ThreadInfo thread) {
+
+        var status = ThreadStatus.newBuilder()
+                .setName(thread.getThreadName())
+                .setThreadId(thread.getThreadId())
+                .setState(thread.getThreadState().name())
+                .setDaemon(thread.isDaemon());
+
+        if (thread.getLockName() != null)
+            status.setLockName(thread.getLockName());
+
+        if (thread.getLockOwnerName() != null)
+            status.setLockOwner(thread.getLockOwnerName());
+
+        for (var frame : thread.getStackTrace())
+            status.addStackTrace(frame.toString());
+
+        return status.build();
+    }
+}
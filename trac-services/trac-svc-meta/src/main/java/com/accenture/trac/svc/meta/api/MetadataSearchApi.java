@@ -19,10 +19,13 @@ package com.accenture.trac.svc.meta.api;
 import com.accenture.trac.common.api.meta.MetadataSearchApiGrpc;
 import com.accenture.trac.common.api.meta.MetadataSearchRequest;
 import com.accenture.trac.common.api.meta.MetadataSearchResponse;
+import com.accenture.trac.common.metadata.MetadataCodec;
 import com.accenture.trac.common.util.ApiWrapper;
 import com.accenture.trac.svc.meta.services.MetadataSearchService;
 import io.grpc.stub.StreamObserver;
 
+import java.time.ZoneOffset;
+
 
 public class MetadataSearchApi extends MetadataSearchApiGrpc.MetadataSearchApiImplBase {
 
@@ -42,11 +45,21 @@ public class MetadataSearchApi extends MetadataSearchApiGrpc.MetadataSearchApiIm
             var tenant = request.getTenant();
             var searchParams = request.getSearchParams();
 
-            var searchResult = searchService.search(tenant, searchParams);
+            // Read the watermark before searching, so it is never ahead of the search results
+
+            return searchService.searchWatermark(tenant).thenCompose(watermark -> {
+
+                var watermarkValue = MetadataCodec
+                        .encodeValue(watermark.atOffset(ZoneOffset.UTC))
+                        .getDatetimeValue();
+
+                var searchResult = searchService.search(tenant, searchParams);
 
-            return searchResult.thenApply(resultList -> MetadataSearchResponse.newBuilder()
-                    .addAllSearchResult(resultList)
-                    .build());
+                return searchResult.thenApply(resultList -> MetadataSearchResponse.newBuilder()
+                        .addAllSearchResult(resultList)
+                        .setSearchWatermark(watermarkValue)
+                        .build());
+            });
         });
     }
 }
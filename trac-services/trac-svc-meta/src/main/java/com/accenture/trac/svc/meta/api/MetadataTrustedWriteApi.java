@@ -16,6 +16,8 @@
 
 package com.accenture.trac.svc.meta.api;
 
+import com.accenture.trac.common.api.meta.MetadataPreallocateRequest;
+import com.accenture.trac.common.api.meta.MetadataPreallocateResponse;
 import com.accenture.trac.common.api.meta.MetadataTrustedWriteApiGrpc;
 import com.accenture.trac.common.api.meta.MetadataWriteRequest;
 import com.accenture.trac.common.metadata.TagHeader;
@@ -93,6 +95,22 @@ public class MetadataTrustedWriteApi extends MetadataTrustedWriteApiGrpc.Metadat
         });
     }
 
+    @Override
+    public void preallocateIds(MetadataPreallocateRequest request, StreamObserver<MetadataPreallocateResponse> responseObserver) {
+
+        apiWrapper.unaryCall(responseObserver, () -> {
+
+            var tenant = request.getTenant();
+            var objectType = request.getObjectType();
+            var count = request.getCount();
+
+            return writeService.preallocateIds(tenant, objectType, count)
+                    .thenApply(headers -> MetadataPreallocateResponse.newBuilder()
+                    .addAllPreallocatedId(headers)
+                    .build());
+        });
+    }
+
     @Override
     public void createPreallocatedObject(MetadataWriteRequest request, StreamObserver<TagHeader> responseObserver) {
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.google.common.cache.Cache;
+
+
+public class CacheStatus {
+
+    // Point in time view of a DAL cache, for runtime diagnostics
+    // Caches must be built with recordStats() for the hit and miss counts to be populated
+
+    private final String name;
+    private final long size;
+    private final long maxSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public static CacheStatus of(String name, Cache<?, ?> cache, long maxSize) {
+
+        var stats = cache.stats();
+
+        return new CacheStatus(
+                name, cache.size(), maxSize,
+                stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    public CacheStatus(String name, long size, long maxSize, long hitCount, long missCount, long evictionCount) {
+        this.name = name;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public double getHitRate() {
+
+        var requests = hitCount + missCount;
+
+        return requests > 0 ? (double) hitCount / requests : 0.0;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+
+public abstract class DelegatingMetadataDal implements IMetadataDal {
+
+    // Base class for DAL wrappers, every call is passed through to the wrapped DAL
+    // Wrappers override only the calls they need to intercept
+
+    protected final IMetadataDal dal;
+
+    protected DelegatingMetadataDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewObject(String tenant, Tag tag) {
+        return dal.saveNewObject(tenant, tag);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewObjects(String tenant, List<Tag> tags) {
+        return dal.saveNewObjects(tenant, tags);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewVersion(String tenant, Tag tag) {
+        return dal.saveNewVersion(tenant, tag);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewVersions(String tenant, List<Tag> tags) {
+        return dal.saveNewVersions(tenant, tags);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewTag(String tenant, Tag tag) {
+        return dal.saveNewTag(tenant, tag);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewTags(String tenant, List<Tag> tags) {
+        return dal.saveNewTags(tenant, tags);
+    }
+
+    @Override
+    public CompletableFuture<Void> preallocateObjectId(String tenant, ObjectType objectType, UUID objectId) {
+        return dal.preallocateObjectId(tenant, objectType, objectId);
+    }
+
+    @Override
+    public CompletableFuture<Void> preallocateObjectIds(String tenant, List<ObjectType> objectTypes, List<UUID> objectIds) {
+        return dal.preallocateObjectIds(tenant, objectTypes, objectIds);
+    }
+
+    @Override
+    public CompletableFuture<Void> savePreallocatedObject(String tenant, Tag tag) {
+        return dal.savePreallocatedObject(tenant, tag);
+    }
+
+    @Override
+    public CompletableFuture<Void> savePreallocatedObjects(String tenant, List<Tag> tags) {
+        return dal.savePreallocatedObjects(tenant, tags);
+    }
+
+    @Override public CompletableFuture<Tag>
+    loadTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion, int tagVersion) {
+        return dal.loadTag(tenant, objectType, objectId, objectVersion, tagVersion);
+    }
+
+    @Override public CompletableFuture<List<Tag>>
+    loadTags(String tenant, List<ObjectType> objectType, List<UUID> objectId, List<Integer> objectVersion, List<Integer> tagVersion) {
+        return dal.loadTags(tenant, objectType, objectId, objectVersion, tagVersion);
+    }
+
+    @Override public CompletableFuture<Tag>
+    loadLatestTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion) {
+        return dal.loadLatestTag(tenant, objectType, objectId, objectVersion);
+    }
+
+    @Override public CompletableFuture<List<Tag>>
+    loadLatestTags(String tenant, List<ObjectType> objectType, List<UUID> objectId, List<Integer> objectVersion) {
+        return dal.loadLatestTags(tenant, objectType, objectId, objectVersion);
+    }
+
+    @Override public CompletableFuture<Tag>
+    loadLatestVersion(String tenant, ObjectType objectType, UUID objectId) {
+        return dal.loadLatestVersion(tenant, objectType, objectId);
+    }
+
+    @Override public CompletableFuture<List<Tag>>
+    loadLatestVersions(String tenant, List<ObjectType> objectType, List<UUID> objectId) {
+        return dal.loadLatestVersions(tenant, objectType, objectId);
+    }
+
+    @Override public CompletableFuture<List<Tag>>
+    search(String tenant, SearchParameters searchParameters) {
+        return dal.search(tenant, searchParameters);
+    }
+
+    @Override public CompletableFuture<Instant>
+    loadSearchWatermark(String tenant) {
+        return dal.loadSearchWatermark(tenant);
+    }
+
+    @Override public CompletableFuture<SearchExplain>
+    explainSearch(String tenant, SearchParameters searchParameters) {
+        return dal.explainSearch(tenant, searchParameters);
+    }
+}
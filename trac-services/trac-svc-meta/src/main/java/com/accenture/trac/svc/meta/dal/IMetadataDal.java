@@ -20,6 +20,7 @@ import com.accenture.trac.common.metadata.ObjectType;
 import com.accenture.trac.common.metadata.Tag;
 import com.accenture.trac.common.metadata.search.SearchParameters;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -70,4 +71,10 @@ public interface IMetadataDal {
     CompletableFuture<List<Tag>>
     search(String tenant, SearchParameters searchParameters);
 
+    CompletableFuture<Instant>
+    loadSearchWatermark(String tenant);
+
+    CompletableFuture<SearchExplain>
+    explainSearch(String tenant, SearchParameters searchParameters);
+
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+
+import io.grpc.Context;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+
+public class MetadataReadCoalescer extends DelegatingMetadataDal {
+
+    // Coalesce concurrent single-object loads into batch loads, to get more work done per DB transaction
+
+    // The first load for a (tenant, load type) becomes the leader for a new batch
+    // The leader waits for the coalescing window, or until the batch is full, then runs the batch on its own thread
+    // Other loads that arrive in the window join the batch and return straight away with a pending result
+
+    // If a batch fails, each load in the batch is retried individually
+    // This makes sure every caller gets their own result or error, e.g. one missing item does not fail the others
+
+    // Everything else is passed straight through
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private static final int LATEST_VERSION = -1;
+    private static final int LATEST_TAG = -1;
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Map<BatchKey, Batch> pending;
+    private final Object pendingLock;
+
+    public MetadataReadCoalescer(IMetadataDal dal, Duration window, int maxBatchSize) {
+
+        super(dal);
+
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+
+        this.pending = new HashMap<>();
+        this.pendingLock = new Object();
+    }
+
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // COALESCED LOADS
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Override public CompletableFuture<Tag>
+    loadTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion, int tagVersion) {
+
+        var load = new Load(objectType, objectId, objectVersion, tagVersion);
+        return coalesce(new BatchKey(tenant, LoadType.TAG), load);
+    }
+
+    @Override public CompletableFuture<Tag>
+    loadLatestTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion) {
+
+        var load = new Load(objectType, objectId, objectVersion, LATEST_TAG);
+        return coalesce(new BatchKey(tenant, LoadType.LATEST_TAG), load);
+    }
+
+    @Override public CompletableFuture<Tag>
+    loadLatestVersion(String tenant, ObjectType objectType, UUID objectId) {
+
+        var load = new Load(objectType, objectId, LATEST_VERSION, LATEST_TAG);
+        return coalesce(new BatchKey(tenant, LoadType.LATEST_VERSION), load);
+    }
+
+    private CompletableFuture<Tag> coalesce(BatchKey key, Load load) {
+
+        Batch batch;
+        boolean leader;
+        boolean filled = false;
+
+        synchronized (pendingLock) {
+
+            batch = pending.get(key);
+            leader = (batch == null);
+
+            if (leader) {
+                batch = new Batch(Thread.currentThread());
+                pending.put(key, batch);
+            }
+
+            batch.loads.add(load);
+
+            // Once a batch is full, close it so new loads start a new batch
+            if (batch.loads.size() >= maxBatchSize) {
+                pending.remove(key);
+                batch.closed = true;
+                filled = true;
+            }
+        }
+
+        if (!leader) {
+
+            // Wake the leader early if this load filled the batch
+            if (filled)
+                LockSupport.unpark(batch.leader);
+
+            return load.result;
+        }
+
+        awaitBatch(key, batch);
+
+        // A batch of several loads serves several calls, so it is not cancelled along with the leader's call
+        var leaderBatch = batch;
+
+        if (leaderBatch.loads.size() > 1)
+            Context.current().fork().run(() -> runBatch(key, leaderBatch));
+        else
+            runBatch(key, leaderBatch);
+
+        return load.result;
+    }
+
+    private void awaitBatch(BatchKey key, Batch batch) {
+
+        // Parking returns straight away while the thread is interrupted (e.g. executor shutdownNow)
+        // So an interrupt closes the batch early, rather than spinning on the lock for the rest of the window
+        // The interrupt flag is restored before the batch runs
+
+        var deadline = System.nanoTime() + windowNanos;
+        var interrupted = false;
+
+        try {
+
+            while (true) {
+
+                synchronized (pendingLock) {
+
+                    var remaining = deadline - System.nanoTime();
+
+                    if (batch.closed || remaining <= 0 || interrupted) {
+
+                        if (pending.get(key) == batch)
+                            pending.remove(key);
+
+                        batch.closed = true;
+                        return;
+                    }
+                }
+
+                LockSupport.parkNanos(this, deadline - System.nanoTime());
+
+                if (Thread.interrupted())
+                    interrupted = true;
+            }
+        }
+        finally {
+
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runBatch(BatchKey key, Batch batch) {
+
+        var loads = batch.loads;
+
+        if (loads.size() == 1) {
+            loadOne(key, loads.get(0));
+            return;
+        }
+
+        var objectTypes = loads.stream().map(l -> l.objectType).collect(Collectors.toList());
+        var objectIds = loads.stream().map(l -> l.objectId).collect(Collectors.toList());
+        var objectVersions = loads.stream().map(l -> l.objectVersion).collect(Collectors.toList());
+        var tagVersions = loads.stream().map(l -> l.tagVersion).collect(Collectors.toList());
+
+        CompletableFuture<List<Tag>> batchResult;
+
+        switch (key.loadType) {
+
+            case TAG:
+                batchResult = dal.loadTags(key.tenant, objectTypes, objectIds, objectVersions, tagVersions);
+                break;
+
+            case LATEST_TAG:
+                batchResult = dal.loadLatestTags(key.tenant, objectTypes, objectIds, objectVersions);
+                break;
+
+            default:
+                batchResult = dal.loadLatestVersions(key.tenant, objectTypes, objectIds);
+                break;
+        }
+
+        batchResult.whenComplete((tags, error) -> {
+
+            if (error == null) {
+                for (var i = 0; i < loads.size(); i++)
+                    loads.get(i).result.complete(tags.get(i));
+            }
+            else {
+                for (var load : loads)
+                    loadOne(key, load);
+            }
+        });
+    }
+
+    private void loadOne(BatchKey key, Load load) {
+
+        CompletableFuture<Tag> result;
+
+        switch (key.loadType) {
+
+            case TAG:
+                result = dal.loadTag(key.tenant, load.objectType, load.objectId, load.objectVersion, load.tagVersion);
+                break;
+
+            case LATEST_TAG:
+                result = dal.loadLatestTag(key.tenant, load.objectType, load.objectId, load.objectVersion);
+                break;
+
+            default:
+                result = dal.loadLatestVersion(key.tenant, load.objectType, load.objectId);
+                break;
+        }
+
+        result.whenComplete((tag, error) -> {
+
+            if (error == null)
+                load.result.complete(tag);
+            else
+                load.result.completeExceptionally(error);
+        });
+    }
+
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // BATCH STATE
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private enum LoadType {
+        TAG,
+        LATEST_TAG,
+        LATEST_VERSION
+    }
+
+    private static final class BatchKey {
+
+        final String tenant;
+        final LoadType loadType;
+
+        BatchKey(String tenant, LoadType loadType) {
+            this.tenant = tenant;
+            this.loadType = loadType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            var other = (BatchKey) o;
+            return tenant.equals(other.tenant) && loadType == other.loadType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenant, loadType);
+        }
+    }
+
+    private static final class Batch {
+
+        final Thread leader;
+        final List<Load> loads = new ArrayList<>();
+        boolean closed;
+
+        Batch(Thread leader) {
+            this.leader = leader;
+        }
+    }
+
+    private static final class Load {
+
+        final ObjectType objectType;
+        final UUID objectId;
+        final int objectVersion;
+        final int tagVersion;
+
+        final CompletableFuture<Tag> result = new CompletableFuture<>();
+
+        Load(ObjectType objectType, UUID objectId, int objectVersion, int tagVersion) {
+            this.objectType = objectType;
+            this.objectId = objectId;
+            this.objectVersion = objectVersion;
+            this.tagVersion = tagVersion;
+        }
+    }
+}
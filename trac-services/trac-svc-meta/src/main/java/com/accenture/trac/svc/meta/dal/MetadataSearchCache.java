@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class MetadataSearchCache extends DelegatingMetadataDal {
+
+    // Cache search results, keyed by tenant and search parameters
+
+    // Each (tenant, object type) has a write generation, which is moved on whenever a write for that type completes
+    // Cached results record the generation from before the search started
+    // A cached result is only served if the generation has not moved since, i.e. no writes could have changed it
+
+    // Search results only depend on tags, so preallocating IDs does not move the generation
+    // Writes from other service instances are not seen, so the cache should only be used with a single instance
+    // Results must be complete when the search returns, so this cache does not work with write-behind indexing
+
+    private final Cache<SearchKey, CachedResult> results;
+    private final ConcurrentMap<TypeKey, AtomicLong> generations;
+    private final long maxEntries;
+
+    public MetadataSearchCache(IMetadataDal dal, long maxEntries) {
+
+        super(dal);
+
+        this.results = CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().build();
+        this.generations = new ConcurrentHashMap<>();
+        this.maxEntries = maxEntries;
+    }
+
+    public CacheStatus getCacheStatus() {
+
+        // Entries that are present but out of date count as hits in the cache stats, even though they are not served
+        return CacheStatus.of("search", results, maxEntries);
+    }
+
+    @Override public CompletableFuture<List<Tag>>
+    search(String tenant, SearchParameters searchParameters) {
+
+        var searchKey = new SearchKey(tenant, searchParameters);
+        var generation = generation(new TypeKey(tenant, searchParameters.getObjectType()));
+
+        var currentGeneration = generation.get();
+        var cached = results.getIfPresent(searchKey);
+
+        if (cached != null && cached.generation == currentGeneration)
+            return CompletableFuture.completedFuture(cached.tags);
+
+        return dal.search(tenant, searchParameters).thenApply(tags -> {
+
+            // Cached results are shared between callers, so they must not be modified
+            var immutableTags = List.copyOf(tags);
+
+            results.put(searchKey, new CachedResult(currentGeneration, immutableTags));
+
+            return immutableTags;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewObject(String tenant, Tag tag) {
+        return afterWrite(tenant, List.of(tag), dal.saveNewObject(tenant, tag));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewObjects(String tenant, List<Tag> tags) {
+        return afterWrite(tenant, tags, dal.saveNewObjects(tenant, tags));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewVersion(String tenant, Tag tag) {
+        return afterWrite(tenant, List.of(tag), dal.saveNewVersion(tenant, tag));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewVersions(String tenant, List<Tag> tags) {
+        return afterWrite(tenant, tags, dal.saveNewVersions(tenant, tags));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewTag(String tenant, Tag tag) {
+        return afterWrite(tenant, List.of(tag), dal.saveNewTag(tenant, tag));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveNewTags(String tenant, List<Tag> tags) {
+        return afterWrite(tenant, tags, dal.saveNewTags(tenant, tags));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePreallocatedObject(String tenant, Tag tag) {
+        return afterWrite(tenant, List.of(tag), dal.savePreallocatedObject(tenant, tag));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePreallocatedObjects(String tenant, List<Tag> tags) {
+        return afterWrite(tenant, tags, dal.savePreallocatedObjects(tenant, tags));
+    }
+
+    private CompletableFuture<Void> afterWrite(String tenant, List<Tag> tags, CompletableFuture<Void> write) {
+
+        // Move the generation on whether the write succeeded or not
+        // A failed write does not change any results, but there is no harm in refreshing the cache
+
+        return write.whenComplete((result, error) -> {
+
+            var objectTypes = EnumSet.noneOf(ObjectType.class);
+
+            for (var tag : tags)
+                objectTypes.add(tag.getHeader().getObjectType());
+
+            for (var objectType : objectTypes)
+                generation(new TypeKey(tenant, objectType)).incrementAndGet();
+        });
+    }
+
+    private AtomicLong generation(TypeKey typeKey) {
+
+        return generations.computeIfAbsent(typeKey, k -> new AtomicLong());
+    }
+
+
+    private static final class SearchKey {
+
+        final String tenant;
+        final SearchParameters searchParameters;
+
+        SearchKey(String tenant, SearchParameters searchParameters) {
+            this.tenant = tenant;
+            this.searchParameters = searchParameters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            var other = (SearchKey) o;
+            return tenant.equals(other.tenant) && searchParameters.equals(other.searchParameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenant, searchParameters);
+        }
+    }
+
+    private static final class TypeKey {
+
+        final String tenant;
+        final ObjectType objectType;
+
+        TypeKey(String tenant, ObjectType objectType) {
+            this.tenant = tenant;
+            this.objectType = objectType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            var other = (TypeKey) o;
+            return tenant.equals(other.tenant) && objectType == other.objectType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenant, objectType);
+        }
+    }
+
+    private static final class CachedResult {
+
+        final long generation;
+        final List<Tag> tags;
+
+        CachedResult(long generation, List<Tag> tags) {
+            this.generation = generation;
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import java.util.List;
+
+
+public class SearchExplain {
+
+    // Diagnostic breakdown of a single search, for tenant developers working out why a search is slow
+    // Parameter types are reported but not values, so the explain output does not leak search values into logs
+
+    private final String query;
+    private final List<String> paramTypes;
+    private final List<String> plan;
+
+    private final long buildNanos;
+    private final long executeNanos;
+    private final long hydrateNanos;
+    private final int resultCount;
+
+    public SearchExplain(
+            String query, List<String> paramTypes, List<String> plan,
+            long buildNanos, long executeNanos, long hydrateNanos,
+            int resultCount) {
+
+        this.query = query;
+        this.paramTypes = paramTypes;
+        this.plan = plan;
+        this.buildNanos = buildNanos;
+        this.executeNanos = executeNanos;
+        this.hydrateNanos = hydrateNanos;
+        this.resultCount = resultCount;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<String> getParamTypes() {
+        return paramTypes;
+    }
+
+    public List<String> getPlan() {
+        // Empty if the SQL dialect cannot explain queries
+        return plan;
+    }
+
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    public long getHydrateNanos() {
+        return hydrateNanos;
+    }
+
+    public int getResultCount() {
+        return resultCount;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+public class TenantUsage {
+
+    // Resource usage in the metadata database, broken down by tenant
+    // This is for capacity planning and finding noisy neighbours, it is not a billing record
+
+    // Counters are LongAdders, which stripe updates across cells under contention
+    // Recording is on the hot path for every DAL transaction, so there are no locks after the first call for a tenant
+    // Counters start when the service starts, they are not persisted and only cover this service instance
+
+    private final MetricsRegistry metrics;
+    private final ConcurrentMap<String, TenantCounters> tenants;
+
+    public TenantUsage(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        this.tenants = new ConcurrentHashMap<>();
+    }
+
+    public void recordTransaction(
+            String tenant, long dbNanos,
+            long rowsRead, long rowsWritten,
+            long definitionBytesStored, long definitionBytesReturned) {
+
+        var counters = countersFor(tenant);
+
+        counters.requests.increment();
+        counters.dbNanos.add(dbNanos);
+        counters.rowsRead.add(rowsRead);
+        counters.rowsWritten.add(rowsWritten);
+        counters.definitionBytesStored.add(definitionBytesStored);
+        counters.definitionBytesReturned.add(definitionBytesReturned);
+    }
+
+    public void recordSearch(String tenant, long dbNanos, long results) {
+
+        // Searches are also recorded as transactions, these counters break out the search share
+
+        var counters = countersFor(tenant);
+
+        counters.searches.increment();
+        counters.searchNanos.add(dbNanos);
+        counters.searchResults.add(results);
+    }
+
+    public Map<String, Snapshot> snapshot() {
+
+        // Counters are read one at a time, so a snapshot taken under load is not an exact point in time
+
+        var snapshot = new TreeMap<String, Snapshot>();
+
+        for (var entry : tenants.entrySet())
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+
+        return snapshot;
+    }
+
+    public Snapshot snapshot(String tenant) {
+
+        var counters = tenants.get(tenant);
+
+        return counters != null ? counters.snapshot() : new TenantCounters().snapshot();
+    }
+
+    private TenantCounters countersFor(String tenant) {
+
+        var counters = tenants.get(tenant);
+
+        if (counters != null)
+            return counters;
+
+        return tenants.computeIfAbsent(tenant, this::newTenant);
+    }
+
+    private TenantCounters newTenant(String tenant) {
+
+        // Metrics are registered once, when the tenant is first seen
+        // The registry reads the counters at scrape time, so there is no extra work when recording
+
+        var counters = new TenantCounters();
+
+        metrics.counterFunction("trac_tenant_requests_total",
+                "DAL transactions run for the tenant",
+                counters.requests::sum, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_db_seconds_total",
+                "Time spent in the database for the tenant, including commits",
+                () -> counters.dbNanos.sum() / 1.0e9, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_rows_read_total",
+                "Rows read from the database for the tenant",
+                counters.rowsRead::sum, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_rows_written_total",
+                "Rows written to the database for the tenant",
+                counters.rowsWritten::sum, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_definition_bytes_stored_total",
+                "Encoded size of object definitions saved for the tenant",
+                counters.definitionBytesStored::sum, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_definition_bytes_returned_total",
+                "Encoded size of object definitions loaded for the tenant",
+                counters.definitionBytesReturned::sum, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_searches_total",
+                "Searches run against the database for the tenant",
+                counters.searches::sum, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_search_seconds_total",
+                "Time spent in the database running searches for the tenant",
+                () -> counters.searchNanos.sum() / 1.0e9, "tenant", tenant);
+
+        metrics.counterFunction("trac_tenant_search_results_total",
+                "Search results returned for the tenant",
+                counters.searchResults::sum, "tenant", tenant);
+
+        return counters;
+    }
+
+    private static class TenantCounters {
+
+        final LongAdder requests = new LongAdder();
+        final LongAdder dbNanos = new LongAdder();
+        final LongAdder rowsRead = new LongAdder();
+        final LongAdder rowsWritten = new LongAdder();
+        final LongAdder definitionBytesStored = new LongAdder();
+        final LongAdder definitionBytesReturned = new LongAdder();
+        final LongAdder searches = new LongAdder();
+        final LongAdder searchNanos = new LongAdder();
+        final LongAdder searchResults = new LongAdder();
+
+        Snapshot snapshot() {
+
+            return new Snapshot(
+                    requests.sum(), dbNanos.sum(),
+                    rowsRead.sum(), rowsWritten.sum(),
+                    definitionBytesStored.sum(), definitionBytesReturned.sum(),
+                    searches.sum(), searchNanos.sum(), searchResults.sum());
+        }
+    }
+
+    public static class Snapshot {
+
+        public final long requests;
+        public final long dbNanos;
+        public final long rowsRead;
+        public final long rowsWritten;
+        public final long definitionBytesStored;
+        public final long definitionBytesReturned;
+        public final long searches;
+        public final long searchNanos;
+        public final long searchResults;
+
+        Snapshot(
+                long requests, long dbNanos,
+                long rowsRead, long rowsWritten,
+                long definitionBytesStored, long definitionBytesReturned,
+                long searches, long searchNanos, long searchResults) {
+
+            this.requests = requests;
+            this.dbNanos = dbNanos;
+            this.rowsRead = rowsRead;
+            this.rowsWritten = rowsWritten;
+            this.definitionBytesStored = definitionBytesStored;
+            this.definitionBytesReturned = definitionBytesReturned;
+            this.searches = searches;
+            this.searchNanos = searchNanos;
+            this.searchResults = searchResults;
+        }
+    }
+}
@@ -21,11 +21,7 @@ import com.accenture.trac.common.exception.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.sql.*;
-import java.time.ZoneOffset;
-import java.util.List;
-import java.util.function.Function;
 
 
 public class JdbcAttrHelpers {
@@ -87,129 +83,4 @@ public class JdbcAttrHelpers {
                 throw new ETracInternal(message);
         }
     }
-
-    static Value readAttrValue(ResultSet rs) throws SQLException {
-
-        BasicType primitiveType = fetchAttrType(rs);
-
-        switch (primitiveType) {
-
-            case BOOLEAN:
-                return fetchAttrValue(rs, "attr_value_boolean", ResultSet::getBoolean, BasicType.BOOLEAN);
-
-            case INTEGER:
-                return fetchAttrValue(rs, "attr_value_integer", ResultSet::getLong, BasicType.INTEGER);
-
-            case FLOAT:
-                return fetchAttrValue(rs, "attr_value_float", ResultSet::getDouble, BasicType.FLOAT);
-
-            case STRING:
-                return fetchAttrValue(rs, "attr_value_string", ResultSet::getString, BasicType.STRING);
-
-            case DECIMAL:
-                return fetchAttrValue(rs, "attr_value_decimal", ResultSet::getBigDecimal, BasicType.DECIMAL,
-                        BigDecimal::stripTrailingZeros);
-
-            case DATE:
-                return fetchAttrValue(rs, "attr_value_date", ResultSet::getDate, BasicType.DATE,
-                        Date::toLocalDate);
-
-            case DATETIME:
-                return fetchAttrValue(rs, "attr_value_datetime", ResultSet::getTimestamp, BasicType.DATETIME,
-                        timestamp -> timestamp.toInstant().atOffset(ZoneOffset.UTC));
-
-            default:
-
-                // Internal error - the metadata service should make sure tag attrs are always stored correctly
-
-                var message = String.format(
-                        "Failed to read attr value" +
-                        " (attr type %s is not recognised as a primitive type)",
-                        primitiveType.name());
-
-                log.error(message);
-
-                throw new ETracInternal(message);
-        }
-    }
-
-    static BasicType fetchAttrType(ResultSet rs) throws SQLException {
-
-        try {
-            var primitiveTypeCode = rs.getString("attr_type");
-            return BasicType.valueOf(primitiveTypeCode);
-        }
-        catch (IllegalArgumentException e) {
-
-            // Internal error - the metadata service should make sure tag attrs are always stored correctly
-            var message = "Failed to read attr value (attr type was not stored or could not be decoded)";
-            log.error(message);
-
-            throw new ETracInternal(message, e);
-        }
-    }
-
-    static private <TValue>
-    Value fetchAttrValue(
-            ResultSet rs, String fieldName,
-            AttrGetter<TValue> getter,
-            BasicType primitiveType)
-            throws SQLException {
-
-        return fetchAttrValue(rs, fieldName, getter, primitiveType, Function.identity());
-    }
-
-    static private <TValue, TMappedValue>
-    Value fetchAttrValue(
-            ResultSet rs, String fieldName,
-            AttrGetter<TValue> getter,
-            BasicType primitiveType,
-            Function<TValue, TMappedValue> mapping)
-            throws SQLException {
-
-        var sqlValue = getter.get(rs, fieldName);
-
-        if (rs.wasNull())
-            return null;
-
-        var mappedValue = mapping.apply(sqlValue);
-
-        return MetadataCodec.encodeValue(mappedValue, primitiveType);
-    }
-
-    @FunctionalInterface
-    private interface AttrGetter<TSqlValue> {
-
-        TSqlValue get(ResultSet rs, String fieldName) throws SQLException;
-    }
-
-    static Value assembleArrayValue(List<Value> items) {
-
-        var arrayBasicType = items.get(0).getType().getBasicType();
-
-        // Sanity check to make sure all the items in a multi-valued attr are of the same type
-        var arrayTypeCheck = items.stream().allMatch(item -> item.getType().getBasicType() == arrayBasicType);
-
-        if (!arrayTypeCheck) {
-
-            // Internal error - the metadata service should never store multi-valued attrs with mismatched types
-            var message = "Failed to assemble multi-valued attr (some items do not match the specified array type)";
-            log.error(message);
-
-            throw new ETracInternal(message);
-        }
-
-        var typeDescriptor = TypeDescriptor.newBuilder()
-                .setBasicType(BasicType.ARRAY)
-                .setArrayType(TypeDescriptor.newBuilder()
-                        .setBasicType(arrayBasicType));
-
-        var arrayValue = ArrayValue.newBuilder()
-                .addAllItem(items);
-
-        return Value.newBuilder()
-                .setType(typeDescriptor)
-                .setArrayValue(arrayValue)
-                .build();
-    }
 }
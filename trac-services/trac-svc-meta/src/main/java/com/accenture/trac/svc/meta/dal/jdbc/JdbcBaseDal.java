@@ -17,14 +17,20 @@
 package com.accenture.trac.svc.meta.dal.jdbc;
 
 import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.svc.meta.dal.TenantUsage;
 import com.accenture.trac.svc.meta.dal.jdbc.dialects.Dialect;
 import com.accenture.trac.svc.meta.dal.jdbc.dialects.IDialect;
 
+import io.grpc.Context;
+
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 class JdbcBaseDal {
@@ -34,16 +40,53 @@ class JdbcBaseDal {
     private final DataSource source;
     private final Executor executor;
 
+    // Counters for health reporting
+    // Errors are DB failures, business errors such as missing or duplicate items are normal results
+    private final AtomicLong transactionCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    // Per-query metrics and slow query logging, replaced when the service configures it
+    private volatile JdbcQueryLog queryLog;
+
+    // Per-tenant resource usage, replaced when the service configures it
+    private volatile TenantUsage tenantUsage;
+
     JdbcBaseDal(JdbcDialect dialect, DataSource source, Executor executor) {
         this.dialect = Dialect.dialectFor(dialect);
         this.source = source;
         this.executor = executor;
+
+        this.queryLog = new JdbcQueryLog(
+                this.dialect, new MetricsRegistry(),
+                JdbcQueryLog.DEFAULT_SLOW_QUERY_THRESHOLD, false);
+
+        this.tenantUsage = new TenantUsage(new MetricsRegistry());
     }
 
     IDialect getDialect() {
         return dialect;
     }
 
+    public long getTransactionCount() {
+        return transactionCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    void setQueryLog(JdbcQueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    public TenantUsage getTenantUsage() {
+        return tenantUsage;
+    }
+
+    void setTenantUsage(TenantUsage tenantUsage) {
+        this.tenantUsage = tenantUsage;
+    }
+
     void prepareMappingTable(Connection conn) throws SQLException {
         dialect.prepareMappingTable(conn);
     }
@@ -59,43 +102,137 @@ class JdbcBaseDal {
         }
     }
 
+    // Operation and tenant identify the transaction in diagnostics, see JdbcTransactionEvent
+
     <TResult> CompletableFuture<TResult>
-    wrapTransaction(JdbcFunction<TResult> func, JdbcErrorHandler... errorHandlers) {
+    wrapTransaction(String operation, String tenant, JdbcFunction<TResult> func, JdbcErrorHandler... errorHandlers) {
+
+        return wrapTransaction(operation, tenant, func, true, errorHandlers);
+    }
+
+    CompletableFuture<Void>
+    wrapTransaction(String operation, String tenant, JdbcAction func, JdbcErrorHandler... errorHandlers) {
+
+        return wrapTransaction(operation, tenant, conn -> {func.apply(conn); return null;}, errorHandlers);
+    }
+
+    CompletableFuture<Void>
+    wrapRollback(String operation, String tenant, JdbcAction func, JdbcErrorHandler... errorHandlers) {
+
+        // Run the action in a transaction that is always rolled back
+        // This runs the same SQL as a real write, without saving anything
+
+        return wrapTransaction(operation, tenant, conn -> {func.apply(conn); return null;}, false, errorHandlers);
+    }
+
+    private <TResult> CompletableFuture<TResult>
+    wrapTransaction(
+            String operation, String tenant, JdbcFunction<TResult> func,
+            boolean commit, JdbcErrorHandler... errorHandlers) {
+
+        // Capture the call context on the calling thread, its deadline and cancellation apply to the transaction
+        var callContext = Context.current();
 
         return CompletableFuture.supplyAsync(() -> {
 
-            try (var conn = source.getConnection()) {
+            transactionCount.incrementAndGet();
+
+            var event = new JdbcTransactionEvent();
+            event.begin();
+
+            var tracker = queryLog.startTransaction(Span.fromContext(callContext));
+
+            try (tracker;
+                 var guard = new JdbcCallGuard(callContext);
+                 var conn = guard.wrapConnection(source.getConnection())) {
 
                 conn.setAutoCommit(false);
 
                 var result = func.apply(conn);
-                conn.commit();
+
+                var commitSpan = tracker.startSpan(commit ? "commit" : "rollback");
+
+                try {
+
+                    var commitStart = System.nanoTime();
+
+                    if (commit)
+                        conn.commit();
+                    else
+                        conn.rollback();
+
+                    tracker.recordCommit(System.nanoTime() - commitStart);
+                }
+                finally {
+                    commitSpan.end();
+                }
+
+                event.recordStatements(tracker);
+                event.committed = commit;
 
                 return result;
             }
             catch (SQLException error) {
 
+                event.failed = true;
+
                 // TODO: Logging?
 
+                // Statements cancelled or timed out because the call went away are not DB errors
+                if (JdbcCallGuard.isCancelledError(callContext, error))
+                    throw JdbcCallGuard.cancelledError(callContext, error);
+
                 var code = dialect.mapErrorCode(error);
 
                 // If the error code is not recognised, throw an internal error type
+                if (code == JdbcErrorCode.UNKNOWN_ERROR_CODE)
+                    errorCount.incrementAndGet();
+
                 JdbcError.handleUnknownError(error, code, dialect);
 
                 for (JdbcErrorHandler handler: errorHandlers)
                     handler.handle(error, code);
 
                 // If the error code is not handled, throw an internal error type
+                errorCount.incrementAndGet();
                 throw JdbcError.unhandledError(error, code);
             }
+            finally {
+
+                event.end();
+
+                // Failed transactions still used the database, so they count towards tenant usage
+                // Unknown tenants are not recorded, otherwise any caller could add counters and metric series
+                if (tenant != null && isKnownTenant(tenant))
+                    recordTenantUsage(tenant, tracker);
+
+                if (event.shouldCommit()) {
+                    event.operation = operation;
+                    event.tenant = tenant;
+                    event.commit();
+                }
+            }
 
         }, executor);
     }
 
-    CompletableFuture<Void>
-    wrapTransaction(JdbcAction func, JdbcErrorHandler... errorHandlers) {
+    boolean isKnownTenant(String tenant) {
+
+        // Subclasses that resolve tenants should only record usage for tenants that exist
+        return false;
+    }
+
+    private void recordTenantUsage(String tenant, JdbcQueryTracker tracker) {
+
+        var usage = tenantUsage;
+
+        usage.recordTransaction(tenant,
+                tracker.getDbNanos(),
+                tracker.getRowsRead(), tracker.getRowsWritten(),
+                tracker.getDefinitionBytesStored(), tracker.getDefinitionBytesReturned());
 
-        return wrapTransaction(conn -> {func.apply(conn); return null;}, errorHandlers);
+        if (tracker.isSearch())
+            usage.recordSearch(tenant, tracker.getDbNanos(), tracker.getSearchResults());
     }
 
     @FunctionalInterface
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+
+class JdbcCallGuard implements Context.CancellationListener, AutoCloseable {
+
+    // Ties the JDBC work for one transaction to the gRPC call it is running for
+
+    // Statements created on a guarded connection get a query timeout from the call deadline, if there is one
+    // If the call is cancelled (client went away or the deadline passed), running statements are cancelled
+    // That way abandoned calls give up their DB connection instead of running SQL nobody is waiting for
+
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcCallGuard.class);
+
+    private final Context context;
+    private final Set<Statement> statements;
+
+    JdbcCallGuard(Context context) {
+
+        this.context = context;
+        this.statements = ConcurrentHashMap.newKeySet();
+
+        // Do not start work for a call that has already gone away
+        if (context.isCancelled())
+            throw cancelledError(context, null);
+
+        context.addListener(this, DIRECT_EXECUTOR);
+    }
+
+    Connection wrapConnection(Connection conn) {
+
+        // The root context is never cancelled and has no deadline, e.g. for background tasks
+        if (context == Context.ROOT)
+            return conn;
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+
+                    try {
+
+                        var result = method.invoke(conn, args);
+
+                        if (result instanceof Statement)
+                            guardStatement((Statement) result);
+
+                        return result;
+                    }
+                    catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public void cancelled(Context context) {
+
+        for (var stmt : statements) {
+
+            try {
+                stmt.cancel();
+            }
+            catch (SQLException e) {
+
+                // Statements may already be closed or finished, nothing more to do
+                log.debug("Statement could not be cancelled: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+
+        context.removeListener(this);
+        statements.clear();
+    }
+
+    static boolean isCancelledError(Context context, SQLException error) {
+
+        if (context.isCancelled())
+            return true;
+
+        return error instanceof SQLTimeoutException && context.getDeadline() != null;
+    }
+
+    static StatusRuntimeException cancelledError(Context context, Throwable cause) {
+
+        var status = context.isCancelled()
+                ? Contexts.statusFromCancelled(context)
+                : Status.DEADLINE_EXCEEDED;
+
+        if (status == null)
+            status = Status.CANCELLED;
+
+        return status.withCause(cause).asRuntimeException();
+    }
+
+    private void guardStatement(Statement stmt) throws SQLException {
+
+        var deadline = context.getDeadline();
+
+        if (deadline != null) {
+
+            // Query timeouts are in whole seconds, round up so the call deadline normally goes first
+            var remainingMillis = deadline.timeRemaining(TimeUnit.MILLISECONDS);
+            var timeoutSeconds = Math.max(1, (int) TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999));
+
+            stmt.setQueryTimeout(timeoutSeconds);
+        }
+
+        statements.add(stmt);
+
+        // The call could be cancelled between starting the transaction and creating this statement
+        if (context.isCancelled())
+            stmt.cancel();
+    }
+}
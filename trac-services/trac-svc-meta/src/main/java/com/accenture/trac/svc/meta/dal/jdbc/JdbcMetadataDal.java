@@ -20,17 +20,27 @@ import com.accenture.trac.common.exception.EStartup;
 import com.accenture.trac.common.metadata.search.SearchParameters;
 import com.accenture.trac.common.metadata.*;
 import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+import com.accenture.trac.svc.meta.dal.CacheStatus;
 import com.accenture.trac.svc.meta.dal.IMetadataDal;
+import com.accenture.trac.svc.meta.dal.SearchExplain;
+import com.accenture.trac.svc.meta.dal.TenantUsage;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 
@@ -39,6 +49,20 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     private static final int LATEST_TAG = -1;
     private static final int LATEST_VERSION = -1;
 
+    private static final int SEARCH_INDEX_BATCH_SIZE = 500;
+    private static final long SEARCH_INDEX_INTERVAL_MS = 200;
+
+    public static final Duration DEFAULT_SEARCH_WATERMARK_MARGIN = Duration.ofSeconds(5);
+
+    public enum SearchIndexMode {
+
+        /** Search attrs are written in the same transaction as the tag */
+        SYNC,
+
+        /** Tags are written with serialized attrs, search attrs are written later by a background indexer */
+        WRITE_BEHIND
+    }
+
     private final Logger log;
 
     private final JdbcTenantImpl tenants;
@@ -46,10 +70,23 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     private final JdbcReadBatchImpl readBatch;
     private final JdbcWriteBatchImpl writeBatch;
     private final JdbcSearchImpl search;
+    private final JdbcSearchIndexImpl searchIndex;
+    private JdbcResolutionCache cache;
+
+    private final SearchIndexMode searchIndexMode;
+    private Duration searchWatermarkMargin = DEFAULT_SEARCH_WATERMARK_MARGIN;
+    private ScheduledExecutorService searchIndexer;
 
 
     public JdbcMetadataDal(JdbcDialect dialect, DataSource dataSource, Executor executor) {
 
+        this(dialect, dataSource, executor, SearchIndexMode.SYNC);
+    }
+
+    public JdbcMetadataDal(
+            JdbcDialect dialect, DataSource dataSource, Executor executor,
+            SearchIndexMode searchIndexMode) {
+
         super(dialect, dataSource, executor);
 
         log = LoggerFactory.getLogger(getClass());
@@ -59,6 +96,35 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
         readBatch = new JdbcReadBatchImpl(this.dialect);
         writeBatch = new JdbcWriteBatchImpl(this.dialect, readBatch);
         search = new JdbcSearchImpl();
+        searchIndex = new JdbcSearchIndexImpl(writeBatch);
+        cache = new JdbcResolutionCache();
+
+        this.searchIndexMode = searchIndexMode;
+    }
+
+    public void configureQueryLog(MetricsRegistry metrics, Duration slowQueryThreshold, boolean explainSlowQueries) {
+
+        // Call before startup, per-query metrics go in the service registry
+        setQueryLog(new JdbcQueryLog(dialect, metrics, slowQueryThreshold, explainSlowQueries));
+    }
+
+    public void configureLatestCache(Duration latestTtl) {
+
+        // Call before startup, latest version / tag pointers are only cached if this is set
+        cache = new JdbcResolutionCache(JdbcResolutionCache.DEFAULT_MAX_ENTRIES, latestTtl);
+    }
+
+    public void configureSearchWatermark(Duration safetyMargin) {
+
+        // Call before startup, only used for write-behind indexing, see JdbcSearchIndexImpl.readSearchWatermark()
+        // The margin should cover the longest write transaction, the watermark is always at least this far behind
+        searchWatermarkMargin = safetyMargin;
+    }
+
+    public void configureTenantUsage(MetricsRegistry metrics) {
+
+        // Call before startup, per-tenant usage metrics go in the service registry
+        setTenantUsage(new TenantUsage(metrics));
     }
 
     public void startup() {
@@ -66,6 +132,11 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
         try {
             // Synchronous database call, avoid futures / callbacks during the startup sequence!
             executeDirect(tenants::loadTenantMap);
+
+            // If write-behind indexing was used previously, there may be tags left in the index queue
+            // In sync mode, index them now so search is fully up to date before any requests are served
+            if (searchIndexMode == SearchIndexMode.SYNC)
+                flushSearchIndex();
         }
         catch (SQLException e) {
 
@@ -74,11 +145,86 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
             throw new EStartup(message, e);
         }
+
+        if (searchIndexMode == SearchIndexMode.WRITE_BEHIND) {
+
+            log.info("Search indexing is running in write-behind mode");
+
+            var threadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("search-indexer")
+                    .setDaemon(true)
+                    .build();
+
+            searchIndexer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            searchIndexer.scheduleWithFixedDelay(
+                    this::runSearchIndexer,
+                    SEARCH_INDEX_INTERVAL_MS, SEARCH_INDEX_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     public void shutdown() {
 
-        // Noop
+        if (searchIndexer != null) {
+
+            searchIndexer.shutdown();
+
+            try {
+                searchIndexer.awaitTermination(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            searchIndexer = null;
+        }
+    }
+
+    public List<String> listTenants() {
+
+        return tenants.listTenants();
+    }
+
+    public Map<String, Short> getTenantMap() {
+
+        return tenants.getTenantMap();
+    }
+
+    @Override
+    boolean isKnownTenant(String tenant) {
+
+        return tenants.isKnownTenant(tenant);
+    }
+
+    public List<CacheStatus> getCacheStatus() {
+
+        return cache.cacheStatus();
+    }
+
+    public void flushSearchIndex() throws SQLException {
+
+        var nIndexed = SEARCH_INDEX_BATCH_SIZE;
+
+        while (nIndexed == SEARCH_INDEX_BATCH_SIZE) {
+
+            var result = new int[1];
+            executeDirect(conn -> result[0] = searchIndex.indexQueuedTags(conn, SEARCH_INDEX_BATCH_SIZE));
+
+            nIndexed = result[0];
+        }
+    }
+
+    private void runSearchIndexer() {
+
+        // Exceptions must not escape, otherwise the scheduled executor will stop running the indexer
+        // Failed batches are left in the queue and will be picked up on the next run
+
+        try {
+            flushSearchIndex();
+        }
+        catch (Exception e) {
+            log.error("Search indexing failed: " + e.getMessage(), e);
+        }
     }
 
 
@@ -107,21 +253,35 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
     private CompletableFuture<Void> saveNewObjects(String tenant, ObjectParts parts) {
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("saveNewObjects", tenant, 
+                conn -> { saveNewObjects(conn, tenant, parts); },
+                (error, code) ->  JdbcError.handleDuplicateObjectId(error, code, parts));
+    }
 
-            prepareMappingTable(conn);
+    public CompletableFuture<Void> trialSaveNewObjects(String tenant, List<Tag> tags) {
 
-            var tenantId = tenants.getTenantId(tenant);
+        // Run the full save for new objects, then roll it back, used for warming up the write path
+        // Nothing is cached during a save for new objects, so there is nothing to clean up afterwards
 
-            long[] objectPk = writeBatch.writeObjectId(conn, tenantId, parts.objectType, parts.objectId);
-            long[] defPk = writeBatch.writeObjectDefinition(conn, tenantId, objectPk, parts.version, parts.definition);
-            long[] tagPk = writeBatch.writeTagRecord(conn, tenantId, defPk, parts.tagVersion, parts.objectType);
-            writeBatch.writeTagAttrs(conn, tenantId, tagPk, parts.tag);
+        var parts = separateParts(tags);
 
-            writeBatch.writeLatestVersion(conn, tenantId, objectPk, defPk);
-            writeBatch.writeLatestTag(conn, tenantId, defPk, tagPk);
-        },
-        (error, code) ->  JdbcError.handleDuplicateObjectId(error, code, parts));
+        return wrapRollback("saveNewObjects", tenant, 
+                conn -> { saveNewObjects(conn, tenant, parts); },
+                (error, code) ->  JdbcError.handleDuplicateObjectId(error, code, parts));
+    }
+
+    private void saveNewObjects(Connection conn, String tenant, ObjectParts parts) throws SQLException {
+
+        prepareMappingTable(conn);
+
+        var tenantId = tenants.getTenantId(tenant);
+
+        long[] objectPk = writeBatch.writeObjectId(conn, tenantId, parts.objectType, parts.objectId);
+        long[] defPk = writeBatch.writeObjectDefinition(conn, tenantId, objectPk, parts.version, parts.definition);
+        long[] tagPk = writeTags(conn, tenantId, defPk, parts);
+
+        writeBatch.writeLatestVersion(conn, tenantId, objectPk, defPk);
+        writeBatch.writeLatestTag(conn, tenantId, defPk, tagPk);
     }
 
     @Override
@@ -140,25 +300,27 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
     private CompletableFuture<Void> saveNewVersions(String tenant, ObjectParts parts) {
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("saveNewVersions", tenant, conn -> {
 
             prepareMappingTable(conn);
 
             var tenantId = tenants.getTenantId(tenant);
-            var objectType = readBatch.readObjectTypeById(conn, tenantId, parts.objectId);
+            var objectType = resolveObjects(conn, tenantId, parts.objectId);
 
             checkObjectTypes(parts, objectType);
 
             long[] defPk = writeBatch.writeObjectDefinition(conn, tenantId, objectType.keys, parts.version, parts.definition);
-            long[] tagPk = writeBatch.writeTagRecord(conn, tenantId, defPk, parts.tagVersion, parts.objectType);
-            writeBatch.writeTagAttrs(conn, tenantId, tagPk, parts.tag);
+            long[] tagPk = writeTags(conn, tenantId, defPk, parts);
 
             writeBatch.updateLatestVersion(conn, tenantId, objectType.keys, defPk);
             writeBatch.writeLatestTag(conn, tenantId, defPk, tagPk);
+
+            return objectType.keys;
         },
         (error, code) -> JdbcError.handleMissingItem(error, code, parts),
         (error, code) ->  JdbcError.handleDuplicateObjectId(error, code, parts),
-        (error, code) ->  JdbcError.newVersion_WrongType(error, code, parts));
+        (error, code) ->  JdbcError.newVersion_WrongType(error, code, parts))
+        .thenAccept(cache::invalidateLatestVersions);
     }
 
     @Override
@@ -177,24 +339,67 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
     private CompletableFuture<Void> saveNewTags(String tenant, ObjectParts parts) {
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("saveNewTags", tenant, conn -> {
 
             prepareMappingTable(conn);
 
             var tenantId = tenants.getTenantId(tenant);
-            var objectType = readBatch.readObjectTypeById(conn, tenantId, parts.objectId);
+            var objectType = resolveObjects(conn, tenantId, parts.objectId);
 
             checkObjectTypes(parts, objectType);
 
-            long[] defPk = readBatch.lookupDefinitionPk(conn, tenantId, objectType.keys, parts.version);
-            long[] tagPk = writeBatch.writeTagRecord(conn, tenantId, defPk, parts.tagVersion, parts.objectType);
-            writeBatch.writeTagAttrs(conn, tenantId, tagPk, parts.tag);
+            long[] defPk = resolveDefinitionPks(conn, tenantId, objectType.keys, parts.version);
+            long[] tagPk = writeTagDeltas(conn, tenantId, defPk, parts);
 
             writeBatch.updateLatestTag(conn, tenantId, defPk, tagPk);
+
+            return defPk;
         },
         (error, code) -> JdbcError.handleMissingItem(error, code, parts),
         (error, code) ->  JdbcError.handleDuplicateObjectId(error, code, parts),
-        (error, code) ->  JdbcError.newTag_WrongType(error, code, parts));
+        (error, code) ->  JdbcError.newTag_WrongType(error, code, parts))
+        .thenAccept(cache::invalidateLatestTags);
+    }
+
+    private long[] writeTags(Connection conn, short tenantId, long[] defPk, ObjectParts parts) throws SQLException {
+
+        if (searchIndexMode == SearchIndexMode.WRITE_BEHIND)
+            return writeTagsForIndexing(conn, tenantId, defPk, parts);
+
+        long[] tagPk = writeBatch.writeTagRecord(conn, tenantId, defPk, parts.tagVersion, parts.objectType, parts.tag);
+        writeBatch.writeTagAttrs(conn, tenantId, tagPk, parts.tag);
+
+        return tagPk;
+    }
+
+    private long[] writeTagDeltas(Connection conn, short tenantId, long[] defPk, ObjectParts parts) throws SQLException {
+
+        if (searchIndexMode == SearchIndexMode.WRITE_BEHIND)
+            return writeTagsForIndexing(conn, tenantId, defPk, parts);
+
+        // New tags are indexed for search as a delta against the current snapshot where possible, see JdbcTagDelta
+        var snapshot = readBatch.readTagSnapshotByLatest(conn, tenantId, defPk);
+        var delta = JdbcTagDelta.deltas(parts.tag, parts.tagVersion, snapshot);
+
+        long[] tagPk = writeBatch.writeTagRecord(
+                conn, tenantId, defPk, parts.tagVersion, parts.objectType,
+                delta.attrBaseFk, parts.tag);
+
+        writeBatch.writeTagAttrs(conn, tenantId, tagPk, delta);
+
+        return tagPk;
+    }
+
+    private long[] writeTagsForIndexing(Connection conn, short tenantId, long[] defPk, ObjectParts parts) throws SQLException {
+
+        // Write-behind indexing: reads by ID use the serialized attrs, so they are consistent immediately
+        // Search attrs are written later by the indexer, from the serialized attrs
+
+        long[] tagPk = writeBatch.writeTagRecord(conn, tenantId, defPk, parts.tagVersion, parts.objectType, parts.tag);
+
+        writeBatch.writeTagIndexQueue(conn, tenantId, tagPk, Instant.now());
+
+        return tagPk;
     }
 
     @Override
@@ -213,7 +418,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
     private CompletableFuture<Void> preallocateObjectIds(String tenant, ObjectParts parts) {
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("preallocateObjectIds", tenant, conn -> {
 
             prepareMappingTable(conn);
 
@@ -240,18 +445,17 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
     private CompletableFuture<Void> savePreallocatedObjects(String tenant, ObjectParts parts) {
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("savePreallocatedObjects", tenant, conn -> {
 
             prepareMappingTable(conn);
 
             var tenantId = tenants.getTenantId(tenant);
-            var objectType = readBatch.readObjectTypeById(conn, tenantId, parts.objectId);
+            var objectType = resolveObjects(conn, tenantId, parts.objectId);
 
             checkObjectTypes(parts, objectType);
 
             long[] defPk = writeBatch.writeObjectDefinition(conn, tenantId, objectType.keys, parts.version, parts.definition);
-            long[] tagPk = writeBatch.writeTagRecord(conn, tenantId, defPk, parts.tagVersion, parts.objectType);
-            writeBatch.writeTagAttrs(conn, tenantId, tagPk, parts.tag);
+            long[] tagPk = writeTags(conn, tenantId, defPk, parts);
 
             writeBatch.writeLatestVersion(conn, tenantId, objectType.keys, defPk);
             writeBatch.writeLatestTag(conn, tenantId, defPk, tagPk);
@@ -278,18 +482,17 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
         var parts = assembleParts(objectType, objectId, objectVersion, tagVersion);
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("loadTag", tenant, conn -> {
 
             var tenantId = tenants.getTenantId(tenant);
-            var storedType = readSingle.readObjectTypeById(conn, tenantId, objectId);
+            var storedType = resolveObject(conn, tenantId, objectId);
 
             checkObjectType(parts, storedType);
 
             var definition = readSingle.readDefinitionByVersion(conn, tenantId, storedType.key, objectVersion);
             var tagRecord = readSingle.readTagRecordByVersion(conn, tenantId, definition.key, tagVersion);
-            var tagAttrs = readSingle.readTagAttrs(conn, tenantId, tagRecord.key);
 
-            return buildTag(objectType, objectId, definition, tagRecord, tagAttrs);
+            return buildTag(objectType, objectId, definition, tagRecord);
         },
         (error, code) -> JdbcError.loadOne_missingItem(error, code, parts),
         (error, code) -> JdbcError.loadOne_WrongObjectType(error, code, parts));
@@ -299,19 +502,19 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     loadLatestTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion) {
 
         var parts = assembleParts(objectType, objectId, objectVersion, LATEST_TAG);
+        var latestEpoch = cache.latestEpoch();
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("loadLatestTag", tenant, conn -> {
 
             var tenantId = tenants.getTenantId(tenant);
-            var storedType = readSingle.readObjectTypeById(conn, tenantId, objectId);
+            var storedType = resolveObject(conn, tenantId, objectId);
 
             checkObjectType(parts, storedType);
 
             var definition = readSingle.readDefinitionByVersion(conn, tenantId, storedType.key, objectVersion);
-            var tagRecord = readSingle.readTagRecordByLatest(conn, tenantId, definition.key);
-            var tagAttrs = readSingle.readTagAttrs(conn, tenantId, tagRecord.key);
+            var tagRecord = readLatestTagRecord(conn, tenantId, definition.key, latestEpoch);
 
-            return buildTag(objectType, objectId, definition, tagRecord, tagAttrs);
+            return buildTag(objectType, objectId, definition, tagRecord);
         },
         (error, code) -> JdbcError.loadOne_missingItem(error, code, parts),
         (error, code) -> JdbcError.loadOne_WrongObjectType(error, code, parts));
@@ -321,19 +524,19 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     loadLatestVersion(String tenant, ObjectType objectType, UUID objectId) {
 
         var parts = assembleParts(objectType, objectId, LATEST_VERSION, LATEST_TAG);
+        var latestEpoch = cache.latestEpoch();
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("loadLatestVersion", tenant, conn -> {
 
             var tenantId = tenants.getTenantId(tenant);
-            var storedType = readSingle.readObjectTypeById(conn, tenantId, objectId);
+            var storedType = resolveObject(conn, tenantId, objectId);
 
             checkObjectType(parts, storedType);
 
-            var definition = readSingle.readDefinitionByLatest(conn, tenantId, storedType.key);
-            var tagRecord = readSingle.readTagRecordByLatest(conn, tenantId, definition.key);
-            var tagAttrs = readSingle.readTagAttrs(conn, tenantId, tagRecord.key);
+            var definition = readLatestDefinition(conn, tenantId, storedType.key, latestEpoch);
+            var tagRecord = readLatestTagRecord(conn, tenantId, definition.key, latestEpoch);
 
-            return buildTag(objectType, objectId, definition, tagRecord, tagAttrs);
+            return buildTag(objectType, objectId, definition, tagRecord);
         },
         (error, code) -> JdbcError.loadOne_missingItem(error, code, parts),
         (error, code) -> JdbcError.loadOne_WrongObjectType(error, code, parts));
@@ -354,7 +557,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
 
         var parts = assembleParts(objectTypes, objectIds, objectVersions, tagVersions);
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("loadTags", tenant, conn -> {
 
             prepareMappingTable(conn);
 
@@ -375,7 +578,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
         var parts = assembleParts(objectTypes, objectIds, objectVersions,
                 Collections.nCopies(objectIds.size(), LATEST_TAG));
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("loadLatestTags", tenant, conn -> {
 
             prepareMappingTable(conn);
 
@@ -397,7 +600,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
                 Collections.nCopies(objectIds.size(), LATEST_VERSION),
                 Collections.nCopies(objectIds.size(), LATEST_TAG));
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("loadLatestVersions", tenant, conn -> {
 
             prepareMappingTable(conn);
 
@@ -415,13 +618,92 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     private long[]
     lookupObjectPks(Connection conn, short tenantId, ObjectParts parts) throws SQLException {
 
-        var storedType = readBatch.readObjectTypeById(conn, tenantId, parts.objectId);
+        var storedType = resolveObjects(conn, tenantId, parts.objectId);
         checkObjectTypes(parts, storedType);
 
         return storedType.keys;
     }
 
 
+    // -----------------------------------------------------------------------------------------------------------------
+    // KEY RESOLUTION
+    // -----------------------------------------------------------------------------------------------------------------
+
+    // Resolve IDs and latest pointers using the resolution cache where possible, see JdbcResolutionCache
+    // Latest pointers are resolved to explicit versions, which are then read using the version-specific queries
+
+    private KeyedItem<ObjectType>
+    resolveObject(Connection conn, short tenantId, UUID objectId) throws SQLException {
+
+        var cached = cache.getObject(tenantId, objectId);
+
+        if (cached != null)
+            return cached;
+
+        var storedType = readSingle.readObjectTypeById(conn, tenantId, objectId);
+        cache.putObject(tenantId, objectId, storedType);
+
+        return storedType;
+    }
+
+    private KeyedItems<ObjectType>
+    resolveObjects(Connection conn, short tenantId, UUID[] objectId) throws SQLException {
+
+        var cached = cache.getObjects(tenantId, objectId);
+
+        if (cached != null)
+            return cached;
+
+        var storedTypes = readBatch.readObjectTypeById(conn, tenantId, objectId);
+        cache.putObjects(tenantId, objectId, storedTypes);
+
+        return storedTypes;
+    }
+
+    private long[]
+    resolveDefinitionPks(Connection conn, short tenantId, long[] objectPk, int[] version) throws SQLException {
+
+        var cached = cache.getDefinitionPks(objectPk, version);
+
+        if (cached != null)
+            return cached;
+
+        var defPk = readBatch.lookupDefinitionPk(conn, tenantId, objectPk, version);
+        cache.putDefinitionPks(objectPk, version, defPk);
+
+        return defPk;
+    }
+
+    private KeyedItem<ObjectDefinition>
+    readLatestDefinition(Connection conn, short tenantId, long objectPk, long latestEpoch) throws SQLException {
+
+        var latestVersion = cache.getLatestVersion(objectPk);
+
+        if (latestVersion != null)
+            return readSingle.readDefinitionByVersion(conn, tenantId, objectPk, latestVersion);
+
+        var definition = readSingle.readDefinitionByLatest(conn, tenantId, objectPk);
+        cache.putLatestVersion(objectPk, definition.version, latestEpoch);
+        cache.putDefinitionPk(objectPk, definition.version, definition.key);
+
+        return definition;
+    }
+
+    private KeyedItem<Tag>
+    readLatestTagRecord(Connection conn, short tenantId, long definitionPk, long latestEpoch) throws SQLException {
+
+        var latestTag = cache.getLatestTag(definitionPk);
+
+        if (latestTag != null)
+            return readSingle.readTagRecordByVersion(conn, tenantId, definitionPk, latestTag);
+
+        var tagRecord = readSingle.readTagRecordByLatest(conn, tenantId, definitionPk);
+        cache.putLatestTag(definitionPk, tagRecord.version, latestEpoch);
+
+        return tagRecord;
+    }
+
+
     // -----------------------------------------------------------------------------------------------------------------
     // SEARCH METHODS
     // -----------------------------------------------------------------------------------------------------------------
@@ -430,7 +712,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     @Override public CompletableFuture<List<Tag>>
     search(String tenant, SearchParameters searchParameters) {
 
-        return wrapTransaction(conn -> {
+        return wrapTransaction("search", tenant, conn -> {
 
             prepareMappingTable(conn);
 
@@ -445,6 +727,55 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
         });
     }
 
+    @Override public CompletableFuture<SearchExplain>
+    explainSearch(String tenant, SearchParameters searchParameters) {
+
+        // Run the search for real, timing each stage, then ask the DB for its plan
+        // The plan is fetched last, so it does not warm up the DB caches for the timed run
+
+        return wrapTransaction("explainSearch", tenant, conn -> {
+
+            prepareMappingTable(conn);
+
+            var tenantId = tenants.getTenantId(tenant);
+
+            var buildStart = System.nanoTime();
+            var query = search.buildSearch(tenantId, searchParameters);
+
+            var executeStart = System.nanoTime();
+            long[] tagPk = search.search(conn, query);
+
+            var hydrateStart = System.nanoTime();
+            readBatch.readTagWithHeader(conn, tenantId, tagPk);
+
+            var hydrateEnd = System.nanoTime();
+            var paramTypes = search.explainParamTypes(query);
+            var plan = search.explainPlan(conn, dialect, query);
+
+            return new SearchExplain(
+                    query.getQuery(), paramTypes, plan,
+                    executeStart - buildStart,
+                    hydrateStart - executeStart,
+                    hydrateEnd - hydrateStart,
+                    tagPk.length);
+        });
+    }
+
+    @Override public CompletableFuture<Instant>
+    loadSearchWatermark(String tenant) {
+
+        // In sync mode search is always up to date
+        if (searchIndexMode == SearchIndexMode.SYNC)
+            return CompletableFuture.completedFuture(Instant.now());
+
+        return wrapTransaction("loadSearchWatermark", tenant, conn -> {
+
+            var tenantId = tenants.getTenantId(tenant);
+
+            return searchIndex.readSearchWatermark(conn, tenantId, searchWatermarkMargin);
+        });
+    }
+
 
     // -----------------------------------------------------------------------------------------------------------------
     // OBJECT PARTS
@@ -566,8 +897,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
     private Tag buildTag(
             ObjectType objectType, UUID objectId,
             KeyedItem<ObjectDefinition> definition,
-            KeyedItem<Void> tagRecord,
-            Map<String, Value> tagAttrs) {
+            KeyedItem<Tag> tagRecord) {
 
         var header = TagHeader.newBuilder()
                 .setObjectType(objectType)
@@ -578,7 +908,7 @@ public class JdbcMetadataDal extends JdbcBaseDal implements IMetadataDal {
         return Tag.newBuilder()
                 .setHeader(header)
                 .setDefinition(definition.item)
-                .putAllAttr(tagAttrs)
+                .putAllAttr(tagRecord.item.getAttrMap())
                 .build();
     }
 
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.common.metrics.Counter;
+import com.accenture.trac.common.metrics.Histogram;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.svc.meta.dal.jdbc.dialects.IDialect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+class JdbcQueryLog {
+
+    // Per-query instrumentation for the JDBC DAL
+    // Every statement is tagged with a logical query name when it is prepared, see JdbcQueryTracker
+    // Execution time, rows and batch size are recorded per query, round trips and rows per transaction
+
+    // Statements over the slow query threshold are logged with the shapes of their bound parameters
+    // Parameter values are never logged, they can contain business data
+    // Optionally, slow queries are explained using the dialect's EXPLAIN and the plan is logged as well
+    // EXPLAIN runs in the caller's transaction, inside a savepoint so that if it fails the transaction can carry on
+
+    // If the calling API request is traced, each statement is also recorded as a span
+
+    static final Duration DEFAULT_SLOW_QUERY_THRESHOLD = Duration.ofMillis(500);
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final IDialect dialect;
+    private final MetricsRegistry metrics;
+    private final long slowQueryNanos;
+    private final boolean explainSlowQueries;
+
+    private final Map<String, QueryMetrics> queryMetrics;
+    private final Histogram transactionRoundTrips;
+    private final Histogram transactionRows;
+
+    JdbcQueryLog(IDialect dialect, MetricsRegistry metrics, Duration slowQueryThreshold, boolean explainSlowQueries) {
+
+        this.dialect = dialect;
+        this.metrics = metrics;
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+        this.explainSlowQueries = explainSlowQueries;
+
+        this.queryMetrics = new ConcurrentHashMap<>();
+
+        this.transactionRoundTrips = metrics.countHistogram(
+                "trac_db_transaction_round_trips",
+                "DB round trips per DAL transaction");
+
+        this.transactionRows = metrics.countHistogram(
+                "trac_db_transaction_rows",
+                "Rows read or written per DAL transaction");
+    }
+
+    JdbcQueryTracker startTransaction(Span parentSpan) {
+        return new JdbcQueryTracker(this, parentSpan);
+    }
+
+    QueryMetrics queryMetrics(String queryName) {
+        return queryMetrics.computeIfAbsent(queryName, QueryMetrics::new);
+    }
+
+    boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= slowQueryNanos;
+    }
+
+    void recordTransaction(int statements, int roundTrips, long rows, long elapsedNanos) {
+
+        if (statements == 0)
+            return;
+
+        transactionRoundTrips.record(roundTrips);
+        transactionRows.record(rows);
+
+        if (log.isDebugEnabled()) {
+            log.debug("DB transaction: {} statements, {} round trips, {} rows, {} ms in DB",
+                    statements, roundTrips, rows, elapsedNanos / 1000000);
+        }
+    }
+
+    void logSlowQuery(
+            Connection conn, String queryName, String query, List<String> paramShapes, Object[] params,
+            long elapsedNanos, long rows, int batchItems, boolean explain) {
+
+        queryMetrics(queryName).slowQueries.inc();
+
+        log.warn("SLOW QUERY: {} took {} ms, rows = {}, batch size = {}, params = {}",
+                queryName, elapsedNanos / 1000000, rows, batchItems, paramShapes);
+
+        if (!explain || !explainSlowQueries)
+            return;
+
+        var explainQuery = dialect.explainQuery(query);
+
+        if (explainQuery == null)
+            return;
+
+        Savepoint savepoint = null;
+
+        try {
+
+            // Some databases (e.g. PostgreSQL) abort the whole transaction if any statement fails
+            // Rolling back to the savepoint clears the failed EXPLAIN, so the DAL operation is not affected
+
+            savepoint = conn.setSavepoint();
+
+            List<String> plan;
+
+            try (var stmt = conn.prepareStatement(explainQuery)) {
+
+                for (var i = 0; i < params.length; i++)
+                    stmt.setObject(i + 1, params[i]);
+
+                try (var rs = stmt.executeQuery()) {
+                    plan = readPlan(rs);
+                }
+            }
+
+            log.warn("SLOW QUERY PLAN: {}\n{}", queryName, String.join("\n", plan));
+        }
+        catch (SQLException e) {
+
+            log.warn("SLOW QUERY PLAN: {} could not be explained ({})", queryName, e.getMessage());
+
+            if (savepoint != null)
+                rollbackExplain(conn, savepoint, queryName);
+        }
+    }
+
+    private void rollbackExplain(Connection conn, Savepoint savepoint, String queryName) {
+
+        // The savepoint is not released explicitly, it goes when the transaction ends
+        // Not every driver supports releasing savepoints (e.g. Oracle)
+
+        try {
+            conn.rollback(savepoint);
+        }
+        catch (SQLException e) {
+            log.warn("SLOW QUERY PLAN: {} could not roll back the failed EXPLAIN ({})", queryName, e.getMessage());
+        }
+    }
+
+    static List<String> readPlan(ResultSet rs) throws SQLException {
+
+        // Plans come back as a result set, one row per line, dialects differ in how many columns they use
+
+        var plan = new ArrayList<String>();
+        var columns = rs.getMetaData().getColumnCount();
+
+        while (rs.next()) {
+
+            var row = new StringBuilder();
+
+            for (var col = 1; col <= columns; col++) {
+
+                if (col > 1)
+                    row.append(" | ");
+
+                row.append(rs.getString(col));
+            }
+
+            plan.add(row.toString());
+        }
+
+        return plan;
+    }
+
+    class QueryMetrics {
+
+        final Histogram latency;
+        final Counter rows;
+        final Counter batchItems;
+        final Counter slowQueries;
+
+        QueryMetrics(String queryName) {
+
+            latency = metrics.histogram(
+                    "trac_db_query_seconds",
+                    "Time spent executing statements and fetching rows, by logical query",
+                    "query", queryName);
+
+            rows = metrics.counter(
+                    "trac_db_query_rows_total",
+                    "Rows read or written, by logical query",
+                    "query", queryName);
+
+            batchItems = metrics.counter(
+                    "trac_db_query_batch_items_total",
+                    "Items sent in JDBC batches, by logical query",
+                    "query", queryName);
+
+            slowQueries = metrics.counter(
+                    "trac_db_slow_queries_total",
+                    "Statements over the slow query threshold, by logical query",
+                    "query", queryName);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.common.tracing.Span;
+import com.accenture.trac.common.tracing.SpanKind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+class JdbcQueryTracker implements AutoCloseable {
+
+    // Tracks the statements run by one DAL transaction, see JdbcQueryLog
+    // The tracker is bound to the thread running the transaction while it is open
+    // DAL code prepares statements through the static prepare() methods, which attach a logical query name
+    // Outside a transaction (e.g. schema setup in tests) statements are prepared as normal and not tracked
+
+    // Statements and their result sets are wrapped in plain delegating classes, so tracking is a few field updates
+    // Rows are split into read (rows fetched from result sets) and written (update counts)
+    // DAL code also reports definition sizes and search results here, these feed per-tenant usage, see TenantUsage
+
+    private static final ThreadLocal<JdbcQueryTracker> CURRENT = new ThreadLocal<>();
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcQueryTracker.class);
+
+    private final JdbcQueryLog queryLog;
+    private final Span parentSpan;
+    private final JdbcQueryTracker previous;
+
+    private int statements;
+    private int roundTrips;
+    private long rowsRead;
+    private long rowsWritten;
+    private long elapsedNanos;
+    private long commitNanos;
+
+    private long definitionBytesStored;
+    private long definitionBytesReturned;
+    private boolean searched;
+    private long searchResults;
+
+    JdbcQueryTracker(JdbcQueryLog queryLog, Span parentSpan) {
+
+        this.queryLog = queryLog;
+        this.parentSpan = parentSpan;
+        this.previous = CURRENT.get();
+
+        CURRENT.set(this);
+    }
+
+    @Override
+    public void close() {
+
+        if (previous != null)
+            CURRENT.set(previous);
+        else
+            CURRENT.remove();
+
+        queryLog.recordTransaction(statements, roundTrips, getRows(), elapsedNanos);
+    }
+
+    int getStatements() {
+        return statements;
+    }
+
+    int getRoundTrips() {
+        return roundTrips;
+    }
+
+    long getRows() {
+        return rowsRead + rowsWritten;
+    }
+
+    long getRowsRead() {
+        return rowsRead;
+    }
+
+    long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    long getDbNanos() {
+        return elapsedNanos + commitNanos;
+    }
+
+    long getDefinitionBytesStored() {
+        return definitionBytesStored;
+    }
+
+    long getDefinitionBytesReturned() {
+        return definitionBytesReturned;
+    }
+
+    boolean isSearch() {
+        return searched;
+    }
+
+    long getSearchResults() {
+        return searchResults;
+    }
+
+    void recordCommit(long nanos) {
+        commitNanos += nanos;
+    }
+
+    Span startSpan(String name) {
+
+        return parentSpan.startChild(name, SpanKind.CLIENT);
+    }
+
+    static PreparedStatement prepare(Connection conn, String queryName, String query) throws SQLException {
+
+        var stmt = conn.prepareStatement(query);
+        return track(conn, queryName, query, stmt);
+    }
+
+    static PreparedStatement prepare(
+            Connection conn, String queryName, String query,
+            String[] keyColumns) throws SQLException {
+
+        var stmt = conn.prepareStatement(query, keyColumns);
+        return track(conn, queryName, query, stmt);
+    }
+
+    static PreparedStatement prepare(
+            Connection conn, String queryName, String query,
+            int autoGeneratedKeys) throws SQLException {
+
+        var stmt = conn.prepareStatement(query, autoGeneratedKeys);
+        return track(conn, queryName, query, stmt);
+    }
+
+    static void recordDefinitionStored(int encodedSize) {
+
+        var tracker = CURRENT.get();
+
+        if (tracker != null)
+            tracker.definitionBytesStored += encodedSize;
+    }
+
+    static void recordDefinitionReturned(int encodedSize) {
+
+        var tracker = CURRENT.get();
+
+        if (tracker != null)
+            tracker.definitionBytesReturned += encodedSize;
+    }
+
+    static void recordSearch(int results) {
+
+        var tracker = CURRENT.get();
+
+        if (tracker != null) {
+            tracker.searched = true;
+            tracker.searchResults += results;
+        }
+    }
+
+    private static PreparedStatement track(
+            Connection conn, String queryName, String query,
+            PreparedStatement stmt) {
+
+        var tracker = CURRENT.get();
+
+        if (tracker == null)
+            return stmt;
+
+        return new TrackedStatement(tracker, conn, queryName, query, stmt);
+    }
+
+    private void recordStatement(
+            int statementRoundTrips, long statementRowsRead,
+            long statementRowsWritten, long statementNanos) {
+
+        statements += 1;
+        roundTrips += statementRoundTrips;
+        rowsRead += statementRowsRead;
+        rowsWritten += statementRowsWritten;
+        elapsedNanos += statementNanos;
+    }
+
+
+    @FunctionalInterface
+    private interface StatementCall<T> {
+        T call() throws SQLException;
+    }
+
+    private static class TrackedStatement extends JdbcDelegatingStatement {
+
+        // Parameters are captured for the first row in a batch, later rows have the same shape
+        // Values are kept only so slow queries can be explained, they are never logged
+
+        private final JdbcQueryTracker tracker;
+        private final Connection conn;
+        private final String queryName;
+        private final String query;
+
+        private Object[] params = new Object[0];
+        private String[] paramShapes = new String[0];
+
+        private int batchItems;
+        private int roundTrips;
+        private long rowsRead;
+        private long rowsWritten;
+        private long elapsedNanos;
+        private boolean isQuery;
+        private boolean closed;
+        private Span span;
+
+        TrackedStatement(
+                JdbcQueryTracker tracker, Connection conn,
+                String queryName, String query,
+                PreparedStatement stmt) {
+
+            super(stmt);
+
+            this.tracker = tracker;
+            this.conn = conn;
+            this.queryName = queryName;
+            this.query = query;
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+
+            isQuery = true;
+
+            var rs = timed(stmt::executeQuery);
+            return new TrackedResultSet(rs);
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+
+            return timed(stmt::execute);
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+
+            var count = timed(stmt::executeUpdate);
+            rowsWritten += Math.max(0, count);
+            return count;
+        }
+
+        @Override
+        public long executeLargeUpdate() throws SQLException {
+
+            var count = timed(stmt::executeLargeUpdate);
+            rowsWritten += Math.max(0, count);
+            return count;
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+
+            // Drivers may report SUCCESS_NO_INFO (-2) instead of row counts, do not count those
+
+            var counts = timed(stmt::executeBatch);
+
+            for (var count : counts)
+                if (count > 0) rowsWritten += count;
+
+            return counts;
+        }
+
+        @Override
+        public long[] executeLargeBatch() throws SQLException {
+
+            var counts = timed(stmt::executeLargeBatch);
+
+            for (var count : counts)
+                if (count > 0) rowsWritten += count;
+
+            return counts;
+        }
+
+        @Override
+        public void addBatch() throws SQLException {
+
+            batchItems += 1;
+            stmt.addBatch();
+        }
+
+        @Override
+        public void close() throws SQLException {
+
+            try {
+                stmt.close();
+            }
+            finally {
+                finish();
+            }
+        }
+
+        @Override
+        protected void parameterSet(int parameterIndex, Object value) {
+
+            if (batchItems == 0)
+                recordParam(parameterIndex, value);
+        }
+
+        private <T> T timed(StatementCall<T> call) throws SQLException {
+
+            if (span == null)
+                span = tracker.startSpan(queryName);
+
+            var startTime = System.nanoTime();
+
+            try {
+                return call.call();
+            }
+            catch (SQLException | RuntimeException e) {
+                span.setError(e.getMessage());
+                throw e;
+            }
+            finally {
+                roundTrips += 1;
+                elapsedNanos += System.nanoTime() - startTime;
+            }
+        }
+
+        private class TrackedResultSet extends JdbcDelegatingResultSet {
+
+            // Fetching rows can cost as much as running the query, so time next() as well
+            // Large result sets need several fetches, but there is no portable way to count those
+
+            TrackedResultSet(ResultSet rs) {
+                super(rs);
+            }
+
+            @Override
+            public boolean next() throws SQLException {
+
+                var startTime = System.nanoTime();
+
+                try {
+
+                    var hasRow = rs.next();
+
+                    if (hasRow)
+                        rowsRead += 1;
+
+                    return hasRow;
+                }
+                finally {
+                    elapsedNanos += System.nanoTime() - startTime;
+                }
+            }
+        }
+
+        private void recordParam(int index, Object value) {
+
+            if (index < 1)
+                return;
+
+            if (index > params.length) {
+                params = Arrays.copyOf(params, index);
+                paramShapes = Arrays.copyOf(paramShapes, index);
+            }
+
+            params[index - 1] = value;
+            paramShapes[index - 1] = paramShape(value);
+        }
+
+        private void finish() {
+
+            if (closed)
+                return;
+
+            closed = true;
+
+            // Statements that were prepared but never run are not recorded
+            if (roundTrips == 0)
+                return;
+
+            // Recording must never break the DAL operation it is observing
+            try {
+
+                var rows = rowsRead + rowsWritten;
+
+                var metrics = tracker.queryLog.queryMetrics(queryName);
+                metrics.latency.recordNanos(elapsedNanos);
+                metrics.rows.inc(rows);
+                metrics.batchItems.inc(batchItems);
+
+                tracker.recordStatement(roundTrips, rowsRead, rowsWritten, elapsedNanos);
+
+                span.setAttribute("db.rows", rows);
+                span.setAttribute("db.round_trips", roundTrips);
+
+                if (batchItems > 0)
+                    span.setAttribute("db.batch_size", batchItems);
+
+                span.end();
+
+                if (tracker.queryLog.isSlow(elapsedNanos)) {
+
+                    tracker.queryLog.logSlowQuery(
+                            conn, queryName, query,
+                            shapeList(), params,
+                            elapsedNanos, rows, batchItems,
+                            isQuery);
+                }
+            }
+            catch (RuntimeException e) {
+
+                log.warn("Failed to record query metrics for {}: {}", queryName, e.getMessage());
+            }
+        }
+
+        private List<String> shapeList() {
+
+            var shapes = new ArrayList<String>(paramShapes.length);
+
+            for (var shape : paramShapes)
+                shapes.add(shape != null ? shape : "unset");
+
+            return shapes;
+        }
+    }
+
+    static String paramShape(Object value) {
+
+        if (value == null)
+            return "null";
+
+        if (value instanceof String)
+            return "string(" + ((String) value).length() + ")";
+
+        if (value instanceof byte[])
+            return "bytes(" + ((byte[]) value).length + ")";
+
+        return value.getClass().getSimpleName().toLowerCase();
+    }
+}
@@ -55,7 +55,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.readObjectTypeById", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -127,7 +127,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.fetchDefinition", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -147,6 +147,7 @@ class JdbcReadBatchImpl {
                     var defVersion = rs.getInt(2);
                     var defEncoded = rs.getBytes(3);
                     var defDecoded = ObjectDefinition.parseFrom(defEncoded);
+                    JdbcQueryTracker.recordDefinitionReturned(defEncoded.length);
 
                     // TODO: Encode / decode helper, type = protobuf | json ?
 
@@ -174,9 +175,8 @@ class JdbcReadBatchImpl {
         mapTagByVersion(conn, tenantId, mappingStage);
 
         var tagRecords = fetchTagRecord(conn, tenantId, definitionFk.length, mappingStage);
-        var attrs = fetchTagAttrs(conn, tenantId, definitionFk.length, mappingStage);
 
-        return applyTagRecordAttrs(tagRecords, attrs);
+        return applyTagRecordAttrs(tagRecords);
     }
 
     JdbcBaseDal.KeyedItems<Tag.Builder>
@@ -186,9 +186,8 @@ class JdbcReadBatchImpl {
         mapTagByLatest(conn, tenantId, mappingStage);
 
         var tagRecords = fetchTagRecord(conn, tenantId, definitionFk.length, mappingStage);
-        var attrs = fetchTagAttrs(conn, tenantId, definitionFk.length, mappingStage);
 
-        return applyTagRecordAttrs(tagRecords, attrs);
+        return applyTagRecordAttrs(tagRecords);
     }
 
     JdbcBaseDal.KeyedItems<Tag.Builder>
@@ -198,19 +197,45 @@ class JdbcReadBatchImpl {
         mapDefinitionByTagPk(conn, tenantId, mappingStage);
 
         var headers = fetchTagHeader(conn, tenantId, tagPk.length, mappingStage);
-        var attrs = fetchTagAttrs(conn, tenantId, tagPk.length, mappingStage);
+        var tagRecords = fetchTagRecord(conn, tenantId, tagPk.length, mappingStage);
 
-        return applyTagAttrs(headers, attrs);
+        return applyTagAttrs(headers, tagRecords);
     }
 
-    private JdbcBaseDal.KeyedItems<Void>
+    JdbcBaseDal.KeyedItems<Tag>
+    readTagSnapshotByLatest(Connection conn, short tenantId, long[] definitionFk) throws SQLException {
+
+        // Find the snapshot used as the base for the latest tag of each definition
+        // If the latest tag is itself a snapshot, that tag is the base
+        // Result keys / versions are for the snapshot tag, items hold the snapshot attrs only (no header or definition)
+
+        var mappingStage = insertFkForMapping(conn, definitionFk);
+        mapTagByLatest(conn, tenantId, mappingStage);
+        mapTagToAttrBase(conn, tenantId, mappingStage);
+
+        var tagRecords = fetchTagRecord(conn, tenantId, definitionFk.length, mappingStage);
+        var queued = fetchTagIndexQueued(conn, definitionFk.length, mappingStage);
+
+        // Tags waiting for write-behind indexing cannot be used as a base for deltas
+        // Their tag_attr rows are not populated yet, so report no snapshot and a full snapshot will be written
+
+        var snapshots = new Tag[definitionFk.length];
+
+        for (var i = 0; i < definitionFk.length; i++)
+            snapshots[i] = queued[i] ? null : tagRecords.items[i];
+
+        return new JdbcBaseDal.KeyedItems<>(tagRecords.keys, tagRecords.versions, snapshots);
+    }
+
+    private JdbcBaseDal.KeyedItems<Tag>
     fetchTagRecord(Connection conn, short tenantId, int length, int mappingStage) throws SQLException {
 
-        // Tag records contain no attributes, we only need pks and versions
-        // Note: Common attributes may be added to the tag table as search optimisations, but do not need to be read
+        // Tag attrs are serialized on the tag record, so reading a tag is a single row with no attr join
+        // The tag_attr table is only used for search
+        // Items hold a tag with the attrs only, no header or definition
 
         var query =
-                "select tag.tag_pk, tag.tag_version \n" +
+                "select tag.tag_pk, tag.tag_version, tag.tag_attrs \n" +
                 "from tag\n" +
                 "join key_mapping km\n" +
                 "  on tag.tag_pk = km.pk\n" +
@@ -220,7 +245,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.fetchTagRecord", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -229,6 +254,7 @@ class JdbcReadBatchImpl {
 
                 long[] pks = new long[length];
                 int[] versions = new int[length];
+                Tag[] tagAttrs = new Tag[length];
 
                 for (var i = 0; i < length; i++) {
 
@@ -237,16 +263,58 @@ class JdbcReadBatchImpl {
 
                     var tagPk = rs.getLong(1);
                     var tagVersion = rs.getInt(2);
+                    var tagAttrsEncoded = rs.getBytes(3);
 
                     pks[i] = tagPk;
                     versions[i] = tagVersion;
+                    tagAttrs[i] = Tag.parseFrom(tagAttrsEncoded);
                 }
 
                 if (rs.next())
                     throw new JdbcException(JdbcErrorCode.TOO_MANY_ROWS);
 
-                // Tag record requires only PK and version info
-                return new JdbcBaseDal.KeyedItems<>(pks, versions, null);
+                return new JdbcBaseDal.KeyedItems<>(pks, versions, tagAttrs);
+            }
+            catch (InvalidProtocolBufferException e) {
+                throw new JdbcException(JdbcErrorCode.INVALID_OBJECT_DEFINITION);
+            }
+        }
+    }
+
+    private boolean[]
+    fetchTagIndexQueued(Connection conn, int length, int mappingStage) throws SQLException {
+
+        var query =
+                "select q.tag_fk\n" +
+                "from key_mapping km\n" +
+                "left join tag_index_queue q\n" +
+                "  on q.tag_fk = km.pk\n" +
+                "where km.mapping_stage = ?\n" +
+                "order by km.ordering";
+
+        query = query.replaceFirst("key_mapping", dialect.mappingTableName());
+
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.fetchTagIndexQueued", query)) {
+
+            stmt.setInt(1, mappingStage);
+
+            try (var rs = stmt.executeQuery()) {
+
+                var queued = new boolean[length];
+
+                for (var i = 0; i < length; i++) {
+
+                    if (!rs.next())
+                        throw new JdbcException(JdbcErrorCode.NO_DATA);
+
+                    rs.getLong(1);
+                    queued[i] = !rs.wasNull();
+                }
+
+                if (rs.next())
+                    throw new JdbcException(JdbcErrorCode.TOO_MANY_ROWS);
+
+                return queued;
             }
         }
     }
@@ -281,7 +349,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.fetchTagHeader", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -327,116 +395,22 @@ class JdbcReadBatchImpl {
         }
     }
 
-    private Map<String, Value>[]
-    fetchTagAttrs(Connection conn, short tenantId, int nTags, int mappingStage) throws SQLException {
-
-        // PKs are inserted into the key mapping table in the order of tag PK
-        // We read back attribute records according to those PKs
-        // There will be multiple entries per tagPk, i.e. [0, n)
-        // The order of attributes within each tag is not known
-
-        var query =
-                "select ta.*, km.ordering as tag_index\n" +
-                "from key_mapping km\n" +
-                "left join tag_attr ta\n" +
-                "  on ta.tag_fk = km.pk\n" +
-                "where ta.tenant_id = ?\n" +
-                "  and km.mapping_stage = ?\n" +
-                "order by km.ordering, ta.attr_name, ta.attr_index";
-
-        query = query.replaceFirst("key_mapping", dialect.mappingTableName());
-
-        try (var stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, tenantId);
-            stmt.setInt(2, mappingStage);
-
-            try (var rs = stmt.executeQuery()) {
-
-                @SuppressWarnings("unchecked")
-                var result = (Map<String, Value>[]) new HashMap[nTags];
-
-                // Start by storing attrs for tag index = 0
-                var currentTagAttrs = new HashMap<String, Value>();
-                var currentTagIndex = 0;
-
-                var currentAttrArray = new ArrayList<Value>();
-                var currentAttrName = "";
-
-                while (rs.next()) {
-
-                    var tagIndex = rs.getInt("tag_index");
-                    var attrName = rs.getString("attr_name");
-                    var attrIndex = rs.getInt("attr_index");
-                    var attrValue = JdbcAttrHelpers.readAttrValue(rs);
-
-                    // Check to see if we have finished processing a multi-valued attr
-                    // If so, record it against the last tag and attr name before moving on
-                    if (!currentAttrArray.isEmpty()) {
-                        if (tagIndex != currentTagIndex || !attrName.equals(currentAttrName)) {
-
-                            var arrayValue = JdbcAttrHelpers.assembleArrayValue(currentAttrArray);
-                            currentTagAttrs.put(currentAttrName, arrayValue);
-
-                            currentAttrArray = new ArrayList<>();
-                        }
-                    }
-
-                    // Check if the current tag index has moved on
-                    // If so store accumulated attrs for the previous index
-                    while (currentTagIndex != tagIndex) {
-
-                        result[currentTagIndex] = currentTagAttrs;
-
-                        currentTagAttrs = new HashMap<>();
-                        currentTagIndex++;
-                    }
-
-                    // Sanity check - should never happen
-                    if (currentTagIndex >= nTags)
-                        throw new JdbcException(JdbcErrorCode.TOO_MANY_ROWS);
-
-                    // Update current attr name
-                    currentAttrName = attrName;
-
-                    // Accumulate attr against the current tag index
-                    if (attrIndex < 0)
-                        currentTagAttrs.put(attrName, attrValue);
-                    else
-                        currentAttrArray.add(attrValue);
-                }
-
-                // Check in case the last attr record was part of a multi-valued attr
-                if (!currentAttrArray.isEmpty()) {
-                    var arrayValue = JdbcAttrHelpers.assembleArrayValue(currentAttrArray);
-                    currentTagAttrs.put(currentAttrName, arrayValue);
-                }
-
-                // Store accumulated attrs for the final tag index
-                if (nTags > 0)
-                    result[currentTagIndex] = currentTagAttrs;
-
-                return result;
-            }
-        }
-    }
-
     private JdbcBaseDal.KeyedItems<Tag.Builder>
-    applyTagRecordAttrs(JdbcBaseDal.KeyedItems<Void> tagRecords, Map<String, Value>[] attrs) {
+    applyTagRecordAttrs(JdbcBaseDal.KeyedItems<Tag> tagRecords) {
 
         var tags = new Tag.Builder[tagRecords.keys.length];
 
         for (var i = 0; i < tagRecords.keys.length; i++) {
 
             tags[i] = Tag.newBuilder()
-                    .putAllAttr(attrs[i]);
+                    .putAllAttr(tagRecords.items[i].getAttrMap());
         }
 
         return new JdbcBaseDal.KeyedItems<>(tagRecords.keys, tagRecords.versions, tags);
     }
 
     private JdbcBaseDal.KeyedItems<Tag.Builder>
-    applyTagAttrs(JdbcBaseDal.KeyedItems<TagHeader> headers, Map<String, Value>[] attrs) {
+    applyTagAttrs(JdbcBaseDal.KeyedItems<TagHeader> headers, JdbcBaseDal.KeyedItems<Tag> tagRecords) {
 
         var tags = new Tag.Builder[headers.keys.length];
 
@@ -444,7 +418,7 @@ class JdbcReadBatchImpl {
 
             tags[i] = Tag.newBuilder()
                     .setHeader(headers.items[i])
-                    .putAllAttr(attrs[i]);
+                    .putAllAttr(tagRecords.items[i].getAttrMap());
         }
 
         return new JdbcBaseDal.KeyedItems<>(headers.keys, headers.versions, tags);
@@ -488,7 +462,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.fetchMappedPk", query)) {
 
             stmt.setInt(1, mappingStage);
 
@@ -528,7 +502,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.insertIdForMapping", query)) {
 
             var mappingStage = nextMappingStage();
 
@@ -558,7 +532,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.insertPk", query)) {
             return insertKeysForMapping(stmt, pks);
         }
     }
@@ -571,7 +545,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.insertFkForMapping", query)) {
             return insertKeysForMapping(stmt, fks);
         }
     }
@@ -604,7 +578,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceFirst("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.insertFkAndVersionForMapping", query)) {
 
             var mappingStage = nextMappingStage();
 
@@ -639,7 +613,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceAll("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query))  {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapObjectById", query))  {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -661,7 +635,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceAll("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query))  {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapDefinitionByVersion", query))  {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -683,7 +657,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceAll("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query))  {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapDefinitionByLatest", query))  {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -714,7 +688,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceAll("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapDefinitionByTagPk", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setShort(2, tenantId);
@@ -737,7 +711,7 @@ class JdbcReadBatchImpl {
 
         query = query.replaceAll("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query))  {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapTagByVersion", query))  {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -759,7 +733,30 @@ class JdbcReadBatchImpl {
 
         query = query.replaceAll("key_mapping", dialect.mappingTableName());
 
-        try (var stmt = conn.prepareStatement(query))  {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapTagByLatest", query))  {
+
+            stmt.setShort(1, tenantId);
+            stmt.setInt(2, mappingStage);
+
+            stmt.execute();
+        }
+    }
+
+    private void mapTagToAttrBase(Connection conn, short tenantId, int mappingStage) throws SQLException {
+
+        // Replace tag keys with the key of their base snapshot, tags that are snapshots keep their own key
+
+        var query =
+                "update key_mapping\n" +
+                "set pk = coalesce((\n" +
+                "  select tag.attr_base_fk from tag\n" +
+                "  where tag.tenant_id = ?\n" +
+                "  and tag.tag_pk = key_mapping.pk), pk)\n" +
+                "where mapping_stage = ?";
+
+        query = query.replaceAll("key_mapping", dialect.mappingTableName());
+
+        try (var stmt = JdbcQueryTracker.prepare(conn, "readBatch.mapTagToAttrBase", query))  {
 
             stmt.setShort(1, tenantId);
             stmt.setInt(2, mappingStage);
@@ -23,9 +23,6 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 
@@ -41,7 +38,7 @@ class JdbcReadImpl {
                 "and object_id_hi = ?\n" +
                 "and object_id_lo = ?";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "read.readObjectTypeById", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setLong(2, objectId.getMostSignificantBits());
@@ -77,7 +74,7 @@ class JdbcReadImpl {
                 "and object_fk = ?\n" +
                 "and object_version = ?";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "read.readDefinitionByVersion", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setLong(2, objectPk);
@@ -103,7 +100,7 @@ class JdbcReadImpl {
                 "  and lv.object_fk = ?\n" +
                 ")";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "read.readDefinitionByLatest", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setShort(2, tenantId);
@@ -125,6 +122,7 @@ class JdbcReadImpl {
             var version = rs.getInt(2);
             var defEncoded = rs.getBytes(3);
             var defDecoded = ObjectDefinition.parseFrom(defEncoded);
+            JdbcQueryTracker.recordDefinitionReturned(defEncoded.length);
 
             // TODO: Encode / decode helper, type = protobuf | json ?
 
@@ -138,17 +136,17 @@ class JdbcReadImpl {
         }
     }
 
-    KeyedItem<Void>
+    KeyedItem<Tag>
     readTagRecordByVersion(Connection conn, short tenantId, long definitionPk, int tagVersion) throws SQLException {
 
         var query =
-                "select tag_pk, tag_version \n" +
+                "select tag_pk, tag_version, tag_attrs \n" +
                 "from tag\n" +
                 "where tenant_id = ?\n" +
                 "and definition_fk = ?\n" +
                 "and tag_version = ?";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "read.readTagRecordByVersion", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setLong(2, definitionPk);
@@ -158,11 +156,11 @@ class JdbcReadImpl {
         }
     }
 
-    KeyedItem<Void>
+    KeyedItem<Tag>
     readTagRecordByLatest(Connection conn, short tenantId, long definitionPk) throws SQLException {
 
         var query =
-                "select tag_pk, tag_version \n" +
+                "select tag_pk, tag_version, tag_attrs \n" +
                 "from tag\n" +
                 "where tenant_id = ?\n" +
                 "and tag_pk = (\n" +
@@ -171,7 +169,7 @@ class JdbcReadImpl {
                 "  where lt.tenant_id = ?\n" +
                 "  and lt.definition_fk = ?)";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "read.readTagRecordByLatest", query)) {
 
             stmt.setShort(1, tenantId);
             stmt.setShort(2, tenantId);
@@ -181,7 +179,7 @@ class JdbcReadImpl {
         }
     }
 
-    private KeyedItem<Void>
+    private KeyedItem<Tag>
     readTagRecord(PreparedStatement stmt) throws SQLException {
 
         try (var rs = stmt.executeQuery()) {
@@ -191,69 +189,18 @@ class JdbcReadImpl {
 
             var tagPk = rs.getLong(1);
             var tagVersion = rs.getInt(2);
+            var tagAttrsEncoded = rs.getBytes(3);
 
             if (rs.next())
                 throw new JdbcException(JdbcErrorCode.TOO_MANY_ROWS);
 
-            // Tag record requires only PK and version info
-            return new KeyedItem<>(tagPk, tagVersion, null);
-        }
-    }
-
-    Map<String, Value>
-    readTagAttrs(Connection conn, short tenantId, long tagPk) throws SQLException {
-
-        var query =
-                "select * from tag_attr\n" +
-                "where tenant_id = ?\n" +
-                "and tag_fk = ?";
-
-        try (var stmt = conn.prepareStatement(query)) {
-
-            stmt.setShort(1, tenantId);
-            stmt.setLong(2, tagPk);
-
-            try (var rs = stmt.executeQuery()) {
-
-                var attrs = new HashMap<String, Value>();
-
-                var currentAttrArray = new ArrayList<Value>();
-                var currentAttrName = "";
+            // Tag attrs are serialized on the tag record, the tag_attr table is only used for search
+            var tagAttrs = Tag.parseFrom(tagAttrsEncoded);
 
-                while (rs.next()) {
-
-                    var attrName = rs.getString("attr_name");
-                    var attrIndex = rs.getInt("attr_index");
-                    var attrValue = JdbcAttrHelpers.readAttrValue(rs);
-
-                    // Check to see if we have finished processing a multi-valued attr
-                    // If so, record it against the last attr name before moving on
-                    if (!currentAttrArray.isEmpty() && !attrName.equals(currentAttrName)) {
-
-                        var arrayValue = JdbcAttrHelpers.assembleArrayValue(currentAttrArray);
-                        attrs.put(currentAttrName, arrayValue);
-
-                        currentAttrArray = new ArrayList<>();
-                    }
-
-                    // Update current attr name
-                    currentAttrName = attrName;
-
-                    // Accumulate the current attr record
-                    if (attrIndex < 0)
-                        attrs.put(attrName, attrValue);
-                    else
-                        currentAttrArray.add(attrValue);
-                }
-
-                // Check in case the last attr record was part of a multi-valued attr
-                if (!currentAttrArray.isEmpty()) {
-                    var arrayValue = JdbcAttrHelpers.assembleArrayValue(currentAttrArray);
-                    attrs.put(currentAttrName, arrayValue);
-                }
-
-                return attrs;
-            }
+            return new KeyedItem<>(tagPk, tagVersion, tagAttrs);
+        }
+        catch (InvalidProtocolBufferException e) {
+            throw new JdbcException(JdbcErrorCode.INVALID_OBJECT_DEFINITION);
         }
     }
 }
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.svc.meta.dal.CacheStatus;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+class JdbcResolutionCache {
+
+    // Cache for resolving object IDs and versions to primary keys, to skip key lookups in the DAL
+
+    // Object IDs and definitions are never updated once written, so those mappings never need invalidating
+    // Nothing is cached for keys that are not found, so preallocated IDs and new versions are picked up straight away
+
+    // Latest version / tag pointers change with every new version or tag, so caching them is optional
+    // They are off unless a TTL is set, writes in this service invalidate them after commit
+    // Writes by other service instances are not seen until the TTL expires
+
+    // Latest pointers use epochs to avoid caching stale values
+    // The epoch is captured before a read transaction starts and moves on whenever a pointer is invalidated
+    // A read that started before the invalidation cannot put its (possibly stale) result into the cache
+    // Invalidations are recorded per stripe of keys, so a write only blocks puts for keys in the same stripe
+
+    static final long DEFAULT_MAX_ENTRIES = 100000;
+
+    private static final int LATEST_EPOCH_STRIPES = 1024;
+
+    private final Cache<ObjectKey, ObjectEntry> objects;
+    private final Cache<VersionKey, Long> definitions;
+    private final Cache<Long, Integer> latestVersions;
+    private final Cache<Long, Integer> latestTags;
+    private final long maxEntries;
+
+    private final Object latestLock = new Object();
+    private final long[] latestVersionEpochs;
+    private final long[] latestTagEpochs;
+    private long latestEpoch;
+
+    JdbcResolutionCache() {
+        this(DEFAULT_MAX_ENTRIES, Duration.ZERO);
+    }
+
+    JdbcResolutionCache(long maxEntries, Duration latestTtl) {
+
+        objects = CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().build();
+        definitions = CacheBuilder.newBuilder().maximumSize(maxEntries).recordStats().build();
+
+        if (latestTtl.isZero() || latestTtl.isNegative()) {
+            latestVersions = null;
+            latestTags = null;
+        }
+        else {
+            latestVersions = latestCache(maxEntries, latestTtl);
+            latestTags = latestCache(maxEntries, latestTtl);
+        }
+
+        latestVersionEpochs = new long[LATEST_EPOCH_STRIPES];
+        latestTagEpochs = new long[LATEST_EPOCH_STRIPES];
+
+        this.maxEntries = maxEntries;
+    }
+
+    private static Cache<Long, Integer> latestCache(long maxEntries, Duration latestTtl) {
+
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(latestTtl.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    List<CacheStatus> cacheStatus() {
+
+        if (latestVersions == null) {
+
+            return List.of(
+                    CacheStatus.of("resolution.objects", objects, maxEntries),
+                    CacheStatus.of("resolution.definitions", definitions, maxEntries));
+        }
+
+        return List.of(
+                CacheStatus.of("resolution.objects", objects, maxEntries),
+                CacheStatus.of("resolution.definitions", definitions, maxEntries),
+                CacheStatus.of("resolution.latestVersions", latestVersions, maxEntries),
+                CacheStatus.of("resolution.latestTags", latestTags, maxEntries));
+    }
+
+
+    // Object ID -> (object PK, object type)
+
+    JdbcBaseDal.KeyedItem<ObjectType> getObject(short tenantId, UUID objectId) {
+
+        var entry = objects.getIfPresent(new ObjectKey(tenantId, objectId));
+
+        return entry != null
+                ? new JdbcBaseDal.KeyedItem<>(entry.objectPk, entry.objectType)
+                : null;
+    }
+
+    JdbcBaseDal.KeyedItems<ObjectType> getObjects(short tenantId, UUID[] objectId) {
+
+        // Only return a result if every object is in the cache, partial hits still need a full query
+
+        var keys = new long[objectId.length];
+        var types = new ObjectType[objectId.length];
+
+        for (var i = 0; i < objectId.length; i++) {
+
+            var entry = objects.getIfPresent(new ObjectKey(tenantId, objectId[i]));
+
+            if (entry == null)
+                return null;
+
+            keys[i] = entry.objectPk;
+            types[i] = entry.objectType;
+        }
+
+        return new JdbcBaseDal.KeyedItems<>(keys, types);
+    }
+
+    void putObject(short tenantId, UUID objectId, JdbcBaseDal.KeyedItem<ObjectType> object) {
+
+        objects.put(new ObjectKey(tenantId, objectId), new ObjectEntry(object.key, object.item));
+    }
+
+    void putObjects(short tenantId, UUID[] objectId, JdbcBaseDal.KeyedItems<ObjectType> objects) {
+
+        for (var i = 0; i < objectId.length; i++)
+            this.objects.put(new ObjectKey(tenantId, objectId[i]), new ObjectEntry(objects.keys[i], objects.items[i]));
+    }
+
+
+    // (Object PK, object version) -> definition PK
+
+    long[] getDefinitionPks(long[] objectPk, int[] version) {
+
+        var definitionPk = new long[objectPk.length];
+
+        for (var i = 0; i < objectPk.length; i++) {
+
+            var pk = definitions.getIfPresent(new VersionKey(objectPk[i], version[i]));
+
+            if (pk == null)
+                return null;
+
+            definitionPk[i] = pk;
+        }
+
+        return definitionPk;
+    }
+
+    void putDefinitionPks(long[] objectPk, int[] version, long[] definitionPk) {
+
+        for (var i = 0; i < objectPk.length; i++)
+            definitions.put(new VersionKey(objectPk[i], version[i]), definitionPk[i]);
+    }
+
+    void putDefinitionPk(long objectPk, int version, long definitionPk) {
+
+        definitions.put(new VersionKey(objectPk, version), definitionPk);
+    }
+
+
+    // Latest pointers, object PK -> latest object version and definition PK -> latest tag version
+
+    long latestEpoch() {
+
+        synchronized (latestLock) {
+            return latestEpoch;
+        }
+    }
+
+    Integer getLatestVersion(long objectPk) {
+
+        if (latestVersions == null)
+            return null;
+
+        return latestVersions.getIfPresent(objectPk);
+    }
+
+    Integer getLatestTag(long definitionPk) {
+
+        if (latestTags == null)
+            return null;
+
+        return latestTags.getIfPresent(definitionPk);
+    }
+
+    void putLatestVersion(long objectPk, int version, long epoch) {
+
+        if (latestVersions == null)
+            return;
+
+        synchronized (latestLock) {
+            if (epoch >= latestVersionEpochs[stripe(objectPk)])
+                latestVersions.put(objectPk, version);
+        }
+    }
+
+    void putLatestTag(long definitionPk, int tagVersion, long epoch) {
+
+        if (latestTags == null)
+            return;
+
+        synchronized (latestLock) {
+            if (epoch >= latestTagEpochs[stripe(definitionPk)])
+                latestTags.put(definitionPk, tagVersion);
+        }
+    }
+
+    void invalidateLatestVersions(long[] objectPk) {
+
+        if (latestVersions == null)
+            return;
+
+        synchronized (latestLock) {
+
+            latestEpoch++;
+
+            for (var pk : objectPk) {
+                latestVersionEpochs[stripe(pk)] = latestEpoch;
+                latestVersions.invalidate(pk);
+            }
+        }
+    }
+
+    void invalidateLatestTags(long[] definitionPk) {
+
+        if (latestTags == null)
+            return;
+
+        synchronized (latestLock) {
+
+            latestEpoch++;
+
+            for (var pk : definitionPk) {
+                latestTagEpochs[stripe(pk)] = latestEpoch;
+                latestTags.invalidate(pk);
+            }
+        }
+    }
+
+    private static int stripe(long pk) {
+
+        return (int) (pk & (LATEST_EPOCH_STRIPES - 1));
+    }
+
+
+    private static final class ObjectKey {
+
+        final short tenantId;
+        final UUID objectId;
+
+        ObjectKey(short tenantId, UUID objectId) {
+            this.tenantId = tenantId;
+            this.objectId = objectId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            var other = (ObjectKey) o;
+            return tenantId == other.tenantId && objectId.equals(other.objectId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, objectId);
+        }
+    }
+
+    private static final class VersionKey {
+
+        final long pk;
+        final int version;
+
+        VersionKey(long pk, int version) {
+            this.pk = pk;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            var other = (VersionKey) o;
+            return pk == other.pk && version == other.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(pk) * 31 + version;
+        }
+    }
+
+    private static final class ObjectEntry {
+
+        final long objectPk;
+        final ObjectType objectType;
+
+        ObjectEntry(long objectPk, ObjectType objectType) {
+            this.objectPk = objectPk;
+            this.objectType = objectType;
+        }
+    }
+}
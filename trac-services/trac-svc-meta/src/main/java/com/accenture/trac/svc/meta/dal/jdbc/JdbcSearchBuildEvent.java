@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.common.metadata.search.SearchExpression;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import jdk.jfr.*;
+
+
+@Name("trac.meta.SearchBuild")
+@Label("Search Query Build")
+@Category({"TRAC", "Metadata Service", "DAL"})
+@Description("Translation of a metadata search into SQL by JdbcSearchQueryBuilder")
+@StackTrace(false)
+class JdbcSearchBuildEvent extends Event {
+
+    // Expression shape is only measured when the event is going to be committed
+
+    @Label("Object Type")
+    String objectType;
+
+    @Label("Expression Depth")
+    int expressionDepth;
+
+    @Label("Term Count")
+    int termCount;
+
+    @Label("Parameter Count")
+    int paramCount;
+
+    @Label("Query Length")
+    @DataAmount(DataAmount.BYTES)
+    int queryLength;
+
+    void recordSearch(SearchParameters searchParameters, JdbcSearchQuery searchQuery) {
+
+        objectType = searchParameters.getObjectType().name();
+        expressionDepth = expressionDepth(searchParameters.getSearch());
+        termCount = termCount(searchParameters.getSearch());
+        paramCount = searchQuery.getParams().size();
+        queryLength = searchQuery.getQuery().length();
+    }
+
+    private static int expressionDepth(SearchExpression expr) {
+
+        if (!expr.hasLogical())
+            return 1;
+
+        var maxDepth = 0;
+
+        for (var subExpr : expr.getLogical().getExprList())
+            maxDepth = Math.max(maxDepth, expressionDepth(subExpr));
+
+        return maxDepth + 1;
+    }
+
+    private static int termCount(SearchExpression expr) {
+
+        if (expr.hasTerm())
+            return 1;
+
+        if (!expr.hasLogical())
+            return 0;
+
+        var count = 0;
+
+        for (var subExpr : expr.getLogical().getExprList())
+            count += termCount(subExpr);
+
+        return count;
+    }
+}
@@ -18,12 +18,17 @@ package com.accenture.trac.svc.meta.dal.jdbc;
 
 
 import com.accenture.trac.common.metadata.search.SearchParameters;
+import com.accenture.trac.svc.meta.dal.jdbc.dialects.IDialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 class JdbcSearchImpl {
 
@@ -35,14 +40,24 @@ class JdbcSearchImpl {
 
     long[] search(Connection conn, short tenantId, SearchParameters searchParameters) throws SQLException {
 
-        var query = queryBuilder.buildSearchQuery(tenantId, searchParameters);
+        var query = buildSearch(tenantId, searchParameters);
 
-        log.info("Running search query: \n{}", query.getQuery());
+        return search(conn, query);
+    }
+
+    JdbcSearchQuery buildSearch(short tenantId, SearchParameters searchParameters) {
+
+        return queryBuilder.buildSearchQuery(tenantId, searchParameters);
+    }
 
+    long[] search(Connection conn, JdbcSearchQuery query) throws SQLException {
+
+        // Search timings and slow searches are reported by the query log, see JdbcQueryLog
+        log.debug("Running search query: \n{}", query.getQuery());
 
         var pks = new long[MAX_SEARCH_RESULT];
 
-        try (var stmt = conn.prepareStatement(query.getQuery())) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "search.search", query.getQuery())) {
 
             for (int pIndex = 0; pIndex < query.getParams().size(); pIndex++)
                 query.getParams().get(pIndex).accept(stmt, pIndex + 1);
@@ -56,6 +71,8 @@ class JdbcSearchImpl {
                     i++;
                 }
 
+                JdbcQueryTracker.recordSearch(i);
+
                 if (i < MAX_SEARCH_RESULT)
                     return Arrays.copyOfRange(pks, 0, i);
                 else
@@ -63,4 +80,50 @@ class JdbcSearchImpl {
             }
         }
     }
+
+    List<String> explainParamTypes(JdbcSearchQuery query) throws SQLException {
+
+        // Apply the param setters to a stub statement, to see what types the builder binds
+        // Nothing is sent to the database, the stub only records the shape of each parameter
+
+        var paramTypes = new ArrayList<String>();
+
+        var stub = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+
+                    if (method.getName().startsWith("set") && args != null && args.length >= 2)
+                        paramTypes.add(method.getName().equals("setNull")
+                                ? "null" : JdbcQueryTracker.paramShape(args[1]));
+
+                    return null;
+                });
+
+        for (int pIndex = 0; pIndex < query.getParams().size(); pIndex++)
+            query.getParams().get(pIndex).accept(stub, pIndex + 1);
+
+        return paramTypes;
+    }
+
+    List<String> explainPlan(Connection conn, IDialect dialect, JdbcSearchQuery query) throws SQLException {
+
+        var explainQuery = dialect.explainQuery(query.getQuery());
+
+        if (explainQuery == null)
+            return List.of();
+
+        // EXPLAIN goes in front of the query, so parameter indexes are the same
+        // The plan query is not tracked, in the same way as plans for the slow query log
+
+        try (var stmt = conn.prepareStatement(explainQuery)) {
+
+            for (int pIndex = 0; pIndex < query.getParams().size(); pIndex++)
+                query.getParams().get(pIndex).accept(stmt, pIndex + 1);
+
+            try (var rs = stmt.executeQuery()) {
+                return JdbcQueryLog.readPlan(rs);
+            }
+        }
+    }
 }
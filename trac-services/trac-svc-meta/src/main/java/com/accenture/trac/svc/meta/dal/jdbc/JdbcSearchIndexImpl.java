@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.common.metadata.Tag;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+
+class JdbcSearchIndexImpl {
+
+    // Write-behind search indexing
+    // Tags are saved with their attrs serialized on the tag record and an entry in tag_index_queue
+    // The indexer picks up queued tags in batches and writes their tag_attr rows for search
+    // Several service instances may run the indexer, each queued tag is claimed by exactly one of them
+    // Indexed tags are always written as full snapshots, so they never depend on another unindexed tag
+
+    private final JdbcWriteBatchImpl writeBatch;
+
+    JdbcSearchIndexImpl(JdbcWriteBatchImpl writeBatch) {
+        this.writeBatch = writeBatch;
+    }
+
+    int indexQueuedTags(Connection conn, int batchSize) throws SQLException {
+
+        var query =
+                "select q.tenant_id, q.tag_fk, t.tag_attrs\n" +
+                "from tag_index_queue q\n" +
+                "join tag t\n" +
+                "  on t.tenant_id = q.tenant_id\n" +
+                "  and t.tag_pk = q.tag_fk\n" +
+                "order by q.tag_fk";
+
+        var queuedByTenant = new TreeMap<Short, QueuedTags>();
+        var nQueued = 0;
+
+        try (var stmt = JdbcQueryTracker.prepare(conn, "searchIndex.indexQueuedTags", query)) {
+
+            stmt.setMaxRows(batchSize);
+
+            try (var rs = stmt.executeQuery()) {
+
+                while (rs.next()) {
+
+                    var tenantId = rs.getShort(1);
+                    var tagPk = rs.getLong(2);
+                    var tagAttrs = Tag.parseFrom(rs.getBytes(3));
+
+                    var queued = queuedByTenant.computeIfAbsent(tenantId, t -> new QueuedTags());
+                    queued.tagPk.add(tagPk);
+                    queued.tag.add(tagAttrs);
+
+                    nQueued++;
+                }
+            }
+            catch (InvalidProtocolBufferException e) {
+                throw new JdbcException(JdbcErrorCode.INVALID_OBJECT_DEFINITION);
+            }
+        }
+
+        for (Map.Entry<Short, QueuedTags> queued : queuedByTenant.entrySet()) {
+
+            var tenantId = queued.getKey();
+            var queuedPk = queued.getValue().tagPk.stream().mapToLong(pk -> pk).toArray();
+
+            // Only index tags this indexer claimed, others are being indexed concurrently
+            // Entries are claimed in tenant and tag_fk order, so concurrent indexers cannot deadlock
+
+            var claimed = writeBatch.claimTagIndexQueue(conn, tenantId, queuedPk);
+
+            var tagPk = IntStream.range(0, queuedPk.length)
+                    .filter(i -> claimed[i])
+                    .mapToLong(i -> queuedPk[i])
+                    .toArray();
+
+            var tag = IntStream.range(0, queuedPk.length)
+                    .filter(i -> claimed[i])
+                    .mapToObj(i -> queued.getValue().tag.get(i))
+                    .toArray(Tag[]::new);
+
+            if (tagPk.length > 0)
+                writeBatch.writeTagAttrs(conn, tenantId, tagPk, tag);
+        }
+
+        return nQueued;
+    }
+
+    Instant readSearchWatermark(Connection conn, short tenantId, Duration safetyMargin) throws SQLException {
+
+        // Everything queued before the oldest entry still in the queue has been indexed
+        // If nothing is queued the index is up to date, as of the time the queue was checked
+
+        // Queue entries are stamped when the tag is written, before the writing transaction commits
+        // Until it commits the entry is not visible here, so the oldest visible entry can be later than it
+        // The watermark is moved back by a safety margin to allow for writes that have not committed yet
+
+        // This gives the guarantee: every write that committed before the watermark is reflected in search,
+        // provided write transactions commit within the safety margin of writing their tags,
+        // and the clocks of all service instances writing to the database agree to within the same margin
+
+        var checkTime = Instant.now();
+
+        var query =
+                "select min(queued_at)\n" +
+                "from tag_index_queue\n" +
+                "where tenant_id = ?";
+
+        try (var stmt = JdbcQueryTracker.prepare(conn, "searchIndex.readSearchWatermark", query)) {
+
+            stmt.setShort(1, tenantId);
+
+            try (var rs = stmt.executeQuery()) {
+
+                if (!rs.next())
+                    throw new JdbcException(JdbcErrorCode.NO_DATA);
+
+                var oldestQueued = rs.getTimestamp(1);
+
+                var indexedUpTo = oldestQueued != null && oldestQueued.toInstant().isBefore(checkTime)
+                        ? oldestQueued.toInstant()
+                        : checkTime;
+
+                return indexedUpTo.minus(safetyMargin);
+            }
+        }
+    }
+
+    private static class QueuedTags {
+
+        final List<Long> tagPk = new ArrayList<>();
+        final List<Tag> tag = new ArrayList<>();
+    }
+}
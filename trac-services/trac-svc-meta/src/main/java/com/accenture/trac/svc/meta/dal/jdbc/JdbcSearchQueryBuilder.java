@@ -42,6 +42,23 @@ class JdbcSearchQueryBuilder {
 
     JdbcSearchQuery buildSearchQuery(short tenantId, SearchParameters searchParameters) {
 
+        var event = new JdbcSearchBuildEvent();
+        event.begin();
+
+        var searchQuery = buildSearchQueryInternal(tenantId, searchParameters);
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.recordSearch(searchParameters, searchQuery);
+            event.commit();
+        }
+
+        return searchQuery;
+    }
+
+    private JdbcSearchQuery buildSearchQueryInternal(short tenantId, SearchParameters searchParameters) {
+
         // Base query template selects for tenant and object type
 
         // TODO: Order using temporal fields when they are available
@@ -303,9 +320,7 @@ class JdbcSearchQueryBuilder {
 
     JdbcSearchQuery buildEqualsTerm(JdbcSearchQuery baseQuery, SearchTerm searchTerm) {
 
-        var joinTemplate = "join tag_attr ta%1$d\n" +
-                "  on ta%1$d.tenant_id = t%2$d.tenant_id\n" +
-                "  and ta%1$d.tag_fk = t%2$d.tag_pk";
+        var joinTemplate = ATTR_JOIN_TEMPLATE;
 
         var whereTemplate = "ta%1$d.attr_name = ? " +
                 "and ta%1$d.attr_value_%2$s = ?";
@@ -344,9 +359,7 @@ class JdbcSearchQueryBuilder {
 
     JdbcSearchQuery buildInequalityTerm(JdbcSearchQuery baseQuery, SearchTerm searchTerm) {
 
-        var joinTemplate = "join tag_attr ta%1$d\n" +
-                "  on ta%1$d.tenant_id = t%2$d.tenant_id\n" +
-                "  and ta%1$d.tag_fk = t%2$d.tag_pk";
+        var joinTemplate = ATTR_JOIN_TEMPLATE;
 
         var whereTemplate = "ta%1$d.attr_name = ? " +
                 "and ta%1$d.attr_index = ? " +
@@ -374,9 +387,7 @@ class JdbcSearchQueryBuilder {
         var nItems = searchTerm.getSearchValue().getArrayValue().getItemCount();
         var itemPlaceholders = String.join(", ", Collections.nCopies(nItems, "?"));
 
-        var joinTemplate = "join tag_attr ta%1$d\n" +
-                "  on ta%1$d.tenant_id = t%2$d.tenant_id\n" +
-                "  and ta%1$d.tag_fk = t%2$d.tag_pk";
+        var joinTemplate = ATTR_JOIN_TEMPLATE;
 
         var whereTemplate = "ta%1$d.attr_name = ? " +
                 "and ta%1$d.attr_value_%2$s in (" + itemPlaceholders + ")";
@@ -537,4 +548,25 @@ class JdbcSearchQueryBuilder {
             Map.entry(SearchOperator.IN, "IN"));
 
     private static final int SINGLE_VALUED_ATTR_INDEX = -1;
+
+    // Join tag attrs for a search term, allowing for tags stored as a delta (see JdbcTagDelta)
+    // Attrs match from the tag itself, or from its base snapshot if they are not overridden in the delta
+    // Tombstone rows in a delta have no value, so they never match a search term
+
+    // The attr source (ts) is either the tag itself or its base snapshot, looked up by primary key
+    // Attrs are then joined on an equality with the source, so the join can use the tag_fk index
+    // Putting the OR directly on tag_fk stops some databases (e.g. H2) using the index at all,
+    // which makes every search term scan all the attrs for the tenant, once for each tag
+
+    private static final String ATTR_JOIN_TEMPLATE = "join tag ts%1$d\n" +
+            "  on ts%1$d.tenant_id = t%2$d.tenant_id\n" +
+            "  and ts%1$d.tag_pk in (t%2$d.tag_pk, t%2$d.attr_base_fk)\n" +
+            "join tag_attr ta%1$d\n" +
+            "  on ta%1$d.tenant_id = ts%1$d.tenant_id\n" +
+            "  and ta%1$d.tag_fk = ts%1$d.tag_pk\n" +
+            "  and (ts%1$d.tag_pk = t%2$d.tag_pk or not exists (\n" +
+            "      select 1 from tag_attr tao%1$d\n" +
+            "      where tao%1$d.tenant_id = t%2$d.tenant_id\n" +
+            "      and tao%1$d.tag_fk = t%2$d.tag_pk\n" +
+            "      and tao%1$d.attr_name = ta%1$d.attr_name))";
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+class JdbcTagDelta {
+
+    // Search attrs in tag_attr can be stored either as a snapshot or as a delta
+    // Reads by ID do not use tag_attr, they use the attrs serialized on the tag record
+    // Snapshots hold the full set of attrs for a tag, attr_base_fk is null
+    // Deltas hold only the attrs that differ from a snapshot tag of the same definition, which is attr_base_fk
+
+    // Deltas are always cumulative against a snapshot, never against another delta
+    // So search never needs more than two sets of attrs, the delta and its base snapshot
+    // Attrs in the delta replace attrs with the same name in the base snapshot
+    // Attrs removed since the snapshot are recorded in the delta as tombstone rows, using DELETED_ATTR_INDEX
+
+    // A new snapshot is written periodically, to stop deltas growing without limit
+    // Also if the delta would not be much smaller than the full tag, just write the full tag
+
+    static final int DELETED_ATTR_INDEX = -2;
+
+    static final int SNAPSHOT_INTERVAL = 20;
+
+    Long[] attrBaseFk;
+    List<Map<String, Value>> attrs;
+    List<Map<String, Value>> deletedAttrs;
+
+    static JdbcTagDelta snapshots(Tag[] tags) {
+
+        var delta = newDelta(tags.length);
+
+        for (var i = 0; i < tags.length; i++)
+            delta.attrs.set(i, tags[i].getAttrMap());
+
+        return delta;
+    }
+
+    static JdbcTagDelta deltas(Tag[] tags, int[] tagVersions, JdbcBaseDal.KeyedItems<Tag> snapshots) {
+
+        var delta = newDelta(tags.length);
+
+        for (var i = 0; i < tags.length; i++) {
+
+            var newAttrs = tags[i].getAttrMap();
+            var snapshot = snapshots.items[i];
+
+            // No usable snapshot, e.g. the latest tag is still waiting for write-behind indexing
+
+            if (snapshot == null) {
+                delta.attrs.set(i, newAttrs);
+                continue;
+            }
+
+            var baseAttrs = snapshot.getAttrMap();
+
+            var changedAttrs = new HashMap<String, Value>();
+            var deletedAttrs = new HashMap<String, Value>();
+
+            for (var attr : newAttrs.entrySet())
+                if (!attr.getValue().equals(baseAttrs.get(attr.getKey())))
+                    changedAttrs.put(attr.getKey(), attr.getValue());
+
+            for (var attr : baseAttrs.entrySet())
+                if (!newAttrs.containsKey(attr.getKey()))
+                    deletedAttrs.put(attr.getKey(), attr.getValue());
+
+            var deltaSize = changedAttrs.size() + deletedAttrs.size();
+            var snapshotDue = tagVersions[i] - snapshots.versions[i] >= SNAPSHOT_INTERVAL;
+
+            if (snapshotDue || deltaSize * 2 >= newAttrs.size()) {
+                delta.attrs.set(i, newAttrs);
+            }
+            else {
+                delta.attrBaseFk[i] = snapshots.keys[i];
+                delta.attrs.set(i, changedAttrs);
+                delta.deletedAttrs.set(i, deletedAttrs);
+            }
+        }
+
+        return delta;
+    }
+
+    private static JdbcTagDelta newDelta(int length) {
+
+        var delta = new JdbcTagDelta();
+        delta.attrBaseFk = new Long[length];
+        delta.attrs = new ArrayList<>(Collections.nCopies(length, Map.of()));
+        delta.deletedAttrs = new ArrayList<>(Collections.nCopies(length, Map.of()));
+
+        return delta;
+    }
+}
@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 class JdbcTenantImpl {
@@ -41,7 +42,7 @@ class JdbcTenantImpl {
 
         var query = "select tenant_id, tenant_code from tenant";
 
-        try (var stmt = conn.prepareStatement(query); var rs = stmt.executeQuery()) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "tenant.loadTenantMap", query); var rs = stmt.executeQuery()) {
 
             var newTenantMap = new HashMap<String, Short>();
 
@@ -57,6 +58,35 @@ class JdbcTenantImpl {
         }
     }
 
+    List<String> listTenants() {
+
+        Map<String, Short> currentTenantMap;
+
+        synchronized (tenantLock) {
+            currentTenantMap = this.tenantMap;
+        }
+
+        return List.copyOf(currentTenantMap.keySet());
+    }
+
+    Map<String, Short> getTenantMap() {
+
+        synchronized (tenantLock) {
+            return Map.copyOf(tenantMap);
+        }
+    }
+
+    boolean isKnownTenant(String tenant) {
+
+        Map<String, Short> currentTenantMap;
+
+        synchronized (tenantLock) {
+            currentTenantMap = this.tenantMap;
+        }
+
+        return currentTenantMap.containsKey(tenant);
+    }
+
     short getTenantId(String tenant) {
 
         Map<String, Short> currentTenantMap;
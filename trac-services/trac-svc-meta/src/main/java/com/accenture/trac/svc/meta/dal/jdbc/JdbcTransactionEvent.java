@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import jdk.jfr.*;
+
+
+@Name("trac.meta.DalTransaction")
+@Label("DAL Transaction")
+@Category({"TRAC", "Metadata Service", "DAL"})
+@Description("A single JDBC transaction in the metadata DAL, from taking a connection to commit or rollback")
+@StackTrace(false)
+class JdbcTransactionEvent extends Event {
+
+    // Statement counts come from the query tracker and are only set for transactions that complete
+    // Event fields are filled in after shouldCommit(), so there is no cost when the event is not enabled
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Tenant")
+    String tenant;
+
+    @Label("Statements")
+    int statements;
+
+    @Label("Round Trips")
+    int roundTrips;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Committed")
+    boolean committed;
+
+    @Label("Failed")
+    boolean failed;
+
+    void recordStatements(JdbcQueryTracker tracker) {
+
+        statements = tracker.getStatements();
+        roundTrips = tracker.getRoundTrips();
+        rows = tracker.getRows();
+    }
+}
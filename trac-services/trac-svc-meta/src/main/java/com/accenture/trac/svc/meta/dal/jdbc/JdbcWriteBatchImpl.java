@@ -21,6 +21,7 @@ import com.accenture.trac.common.metadata.*;
 import com.accenture.trac.svc.meta.dal.jdbc.dialects.IDialect;
 
 import java.sql.*;
+import java.time.Instant;
 import java.util.*;
 import java.util.UUID;
 
@@ -50,7 +51,9 @@ class JdbcWriteBatchImpl {
         var keySupport = dialect.supportsGeneratedKeys();
         var keyColumns = new String[] { "object_pk" };
 
-        try (var stmt = keySupport ? conn.prepareStatement(query, keyColumns) : conn.prepareStatement(query)) {
+        try (var stmt = keySupport
+                ? JdbcQueryTracker.prepare(conn, "writeBatch.writeObjectId", query, keyColumns)
+                : JdbcQueryTracker.prepare(conn, "writeBatch.writeObjectId", query)) {
 
             for (var i = 0; i < objectId.length; i++) {
 
@@ -89,14 +92,19 @@ class JdbcWriteBatchImpl {
         var keySupport = dialect.supportsGeneratedKeys();
         var keyColumns = new String[] { "definition_pk" };
 
-        try (var stmt = keySupport ? conn.prepareStatement(query, keyColumns) : conn.prepareStatement(query)) {
+        try (var stmt = keySupport
+                ? JdbcQueryTracker.prepare(conn, "writeBatch.writeObjectDefinition", query, keyColumns)
+                : JdbcQueryTracker.prepare(conn, "writeBatch.writeObjectDefinition", query)) {
 
             for (var i = 0; i < objectPk.length; i++) {
 
                 stmt.setShort(1, tenantId);
                 stmt.setLong(2, objectPk[i]);
                 stmt.setInt(3, objectVersion[i]);
-                stmt.setBytes(4, definition[i].toByteArray());
+                var defEncoded = definition[i].toByteArray();
+
+                stmt.setBytes(4, defEncoded);
+                JdbcQueryTracker.recordDefinitionStored(defEncoded.length);
 
                 stmt.addBatch();
             }
@@ -112,7 +120,19 @@ class JdbcWriteBatchImpl {
 
     long[] writeTagRecord(
             Connection conn, short tenantId,
-            long[] definitionPk, int[] tagVersion, ObjectType[] objectTypes)
+            long[] definitionPk, int[] tagVersion, ObjectType[] objectTypes,
+            Tag[] tag)
+            throws SQLException {
+
+        var noAttrBase = new Long[definitionPk.length];
+
+        return writeTagRecord(conn, tenantId, definitionPk, tagVersion, objectTypes, noAttrBase, tag);
+    }
+
+    long[] writeTagRecord(
+            Connection conn, short tenantId,
+            long[] definitionPk, int[] tagVersion, ObjectType[] objectTypes,
+            Long[] attrBaseFk, Tag[] tag)
             throws SQLException {
 
         var query =
@@ -120,15 +140,19 @@ class JdbcWriteBatchImpl {
                 "  tenant_id,\n" +
                 "  definition_fk,\n" +
                 "  tag_version,\n" +
-                "  object_type" +
+                "  object_type,\n" +
+                "  attr_base_fk,\n" +
+                "  tag_attrs" +
                 ")\n" +
-                "values (?, ?, ?, ?)";
+                "values (?, ?, ?, ?, ?, ?)";
 
         // Only request generated key columns if the driver supports it
         var keySupport = dialect.supportsGeneratedKeys();
         var keyColumns = new String[] { "tag_pk" };
 
-        try (var stmt = keySupport ? conn.prepareStatement(query, keyColumns) : conn.prepareStatement(query)) {
+        try (var stmt = keySupport
+                ? JdbcQueryTracker.prepare(conn, "writeBatch.writeTagRecord", query, keyColumns)
+                : JdbcQueryTracker.prepare(conn, "writeBatch.writeTagRecord", query)) {
 
             for (var i = 0; i < definitionPk.length; i++) {
 
@@ -137,6 +161,15 @@ class JdbcWriteBatchImpl {
                 stmt.setInt(3, tagVersion[i]);
                 stmt.setString(4, objectTypes[i].name());
 
+                if (attrBaseFk[i] != null)
+                    stmt.setLong(5, attrBaseFk[i]);
+                else
+                    stmt.setNull(5, Types.BIGINT);
+
+                // Attrs are always serialized on the tag record, as a tag with no header or definition
+                // Reads use the serialized attrs, tag_attr is written separately and only used for search
+                stmt.setBytes(6, encodeTagAttrs(tag[i]));
+
                 stmt.addBatch();
             }
 
@@ -154,6 +187,16 @@ class JdbcWriteBatchImpl {
             long[] tagPk, Tag[] tag)
             throws SQLException {
 
+        var snapshots = JdbcTagDelta.snapshots(tag);
+
+        writeTagAttrs(conn, tenantId, tagPk, snapshots);
+    }
+
+    void writeTagAttrs(
+            Connection conn, short tenantId,
+            long[] tagPk, JdbcTagDelta tagDelta)
+            throws SQLException {
+
         var query =
                 "insert into tag_attr (\n" +
                 "  tenant_id,\n" +
@@ -171,10 +214,10 @@ class JdbcWriteBatchImpl {
                 ")\n" +
                 "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (var stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.writeTagAttrs", query, Statement.RETURN_GENERATED_KEYS)) {
 
             for (var i = 0; i < tagPk.length; i++) {
-                for (var attr : tag[i].getAttrMap().entrySet()) {
+                for (var attr : tagDelta.attrs.get(i).entrySet()) {
 
                     var attrRootValue = attr.getValue();
                     var attrType = attrBasicType(attrRootValue);
@@ -216,12 +259,105 @@ class JdbcWriteBatchImpl {
                         attrIndex++;
                     }
                 }
+
+                // Tombstone rows mark attrs that have been removed since the base snapshot
+                // Keep the type of the removed attr, there is no value
+
+                for (var attr : tagDelta.deletedAttrs.get(i).entrySet()) {
+
+                    var attrType = attrBasicType(attr.getValue());
+
+                    stmt.setShort(1, tenantId);
+                    stmt.setLong(2, tagPk[i]);
+                    stmt.setString(3, attr.getKey());
+                    stmt.setString(4, attrType.name());
+                    stmt.setInt(5, JdbcTagDelta.DELETED_ATTR_INDEX);
+
+                    stmt.setNull(6, dialect.booleanType());
+                    stmt.setNull(7, Types.BIGINT);
+                    stmt.setNull(8, Types.DOUBLE);
+                    stmt.setNull(9, Types.VARCHAR);
+                    stmt.setNull(10, Types.DECIMAL);
+                    stmt.setNull(11, Types.DATE);
+                    stmt.setNull(12, Types.TIMESTAMP);
+
+                    stmt.addBatch();
+                }
+            }
+
+            stmt.executeBatch();
+        }
+    }
+
+    void writeTagIndexQueue(
+            Connection conn, short tenantId,
+            long[] tagPk, Instant queuedAt)
+            throws SQLException {
+
+        var query =
+                "insert into tag_index_queue (\n" +
+                "  tenant_id,\n" +
+                "  tag_fk,\n" +
+                "  queued_at\n" +
+                ")\n" +
+                "values (?, ?, ?)";
+
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.writeTagIndexQueue", query)) {
+
+            var queuedAtSql = Timestamp.from(queuedAt);
+
+            for (var i = 0; i < tagPk.length; i++) {
+
+                stmt.setShort(1, tenantId);
+                stmt.setLong(2, tagPk[i]);
+                stmt.setTimestamp(3, queuedAtSql);
+
+                stmt.addBatch();
             }
 
             stmt.executeBatch();
         }
     }
 
+    boolean[] claimTagIndexQueue(Connection conn, short tenantId, long[] tagPk) throws SQLException {
+
+        // Claim queued tags by deleting their queue entries in the indexing transaction
+        // If another indexer holds an entry the delete waits for it, then matches nothing once it commits
+        // If indexing fails the transaction rolls back and the entries are queued again
+
+        // Each delete is run on its own, because the claim depends on the row count for every entry
+        // Batch updates may report SUCCESS_NO_INFO instead of a count (e.g. Oracle before 12c, or MySQL
+        // with rewriteBatchedStatements), in which case there is no way to tell which entries were claimed
+
+        var query =
+                "delete from tag_index_queue\n" +
+                "where tenant_id = ?\n" +
+                "and tag_fk = ?";
+
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.claimTagIndexQueue", query)) {
+
+            var claimed = new boolean[tagPk.length];
+
+            for (var i = 0; i < tagPk.length; i++) {
+
+                stmt.setShort(1, tenantId);
+                stmt.setLong(2, tagPk[i]);
+
+                claimed[i] = stmt.executeUpdate() == 1;
+            }
+
+            return claimed;
+        }
+    }
+
+    private byte[] encodeTagAttrs(Tag tag) {
+
+        return Tag.newBuilder()
+                .putAllAttr(tag.getAttrMap())
+                .build()
+                .toByteArray();
+    }
+
     private BasicType attrBasicType(Value attrValue) {
 
         var basicType = TypeSystem.basicType(attrValue);
@@ -268,7 +404,7 @@ class JdbcWriteBatchImpl {
                 ")\n" +
                 "values (?, ?, ?)";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.writeLatestVersion", query)) {
             writeLatest(stmt, tenantId, objectFk, definitionPk);
         }
     }
@@ -286,7 +422,7 @@ class JdbcWriteBatchImpl {
                 ")\n" +
                 "values (?, ?, ?)";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.writeLatestTag", query)) {
             writeLatest(stmt, tenantId, definitionFk, tagPk);
         }
     }
@@ -319,7 +455,7 @@ class JdbcWriteBatchImpl {
                 "where tenant_id = ?\n" +
                 "  and object_fk = ?";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.updateLatestVersion", query)) {
             updateLatest(stmt, tenantId, objectFk, definitionPk);
         }
     }
@@ -335,7 +471,7 @@ class JdbcWriteBatchImpl {
                 "where tenant_id = ?\n" +
                 "  and definition_fk = ?";
 
-        try (var stmt = conn.prepareStatement(query)) {
+        try (var stmt = JdbcQueryTracker.prepare(conn, "writeBatch.updateLatestTag", query)) {
             updateLatest(stmt, tenantId, definitionFk, tagPk);
         }
     }
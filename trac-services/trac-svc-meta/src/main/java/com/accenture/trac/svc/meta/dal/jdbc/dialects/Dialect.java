@@ -65,6 +65,13 @@ public abstract class Dialect implements IDialect {
 
     protected abstract JdbcErrorCode mapDialectErrorCode(SQLException error);
 
+    @Override
+    public String explainQuery(String query) {
+
+        // Not all dialects can explain a query and return the plan as a result set, e.g. Oracle and SQL Server
+        return null;
+    }
+
 
     protected String loadKeyMappingDdl(String keyMappingDdl) {
 
@@ -31,8 +31,7 @@ public class H2SqlDialect extends Dialect {
             Map.entry(23505, JdbcErrorCode.INSERT_DUPLICATE),
             Map.entry(1452, JdbcErrorCode.INSERT_MISSING_FK));
 
-    private static final String DROP_KEY_MAPPING_DDL = "drop table if exists key_mapping;";
-    private static final String CREATE_KEY_MAPPING_FILE = "jdbc/mysql/key_mapping.ddl";
+    private static final String CREATE_KEY_MAPPING_FILE = "jdbc/h2/key_mapping.ddl";
     private static final String MAPPING_TABLE_NAME = "key_mapping";
 
     private final String createKeyMapping;
@@ -55,8 +54,9 @@ public class H2SqlDialect extends Dialect {
     @Override
     public void prepareMappingTable(Connection conn) throws SQLException {
 
+        // H2 temporary tables are global unless declared local, so use a local table for each connection
+        // The table is kept for the life of the connection and its rows are cleared on commit
         try (var stmt = conn.createStatement()) {
-            stmt.execute(DROP_KEY_MAPPING_DDL);
             stmt.execute(createKeyMapping);
         }
     }
@@ -75,4 +75,9 @@ public class H2SqlDialect extends Dialect {
     public int booleanType() {
         return Types.BOOLEAN;
     }
+
+    @Override
+    public String explainQuery(String query) {
+        return "EXPLAIN " + query;
+    }
 }
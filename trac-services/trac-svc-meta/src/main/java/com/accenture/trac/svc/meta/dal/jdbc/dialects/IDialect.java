@@ -37,4 +37,7 @@ public interface IDialect {
     boolean supportsGeneratedKeys();
 
     int booleanType();
+
+    // Query to show the execution plan for a query with the same parameters, or null if not supported
+    String explainQuery(String query);
 }
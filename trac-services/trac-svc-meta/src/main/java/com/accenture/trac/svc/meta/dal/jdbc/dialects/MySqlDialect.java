@@ -75,4 +75,9 @@ public class MySqlDialect extends Dialect {
     public int booleanType() {
         return Types.BOOLEAN;
     }
+
+    @Override
+    public String explainQuery(String query) {
+        return "EXPLAIN " + query;
+    }
 }
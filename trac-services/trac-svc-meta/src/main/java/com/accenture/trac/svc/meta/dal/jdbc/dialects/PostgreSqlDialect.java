@@ -87,4 +87,8 @@ public class PostgreSqlDialect extends Dialect {
         return Types.BOOLEAN;
     }
 
+    @Override
+    public String explainQuery(String query) {
+        return "EXPLAIN " + query;
+    }
 }
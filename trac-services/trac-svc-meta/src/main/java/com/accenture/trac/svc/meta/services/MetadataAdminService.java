@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.services;
+
+import com.accenture.trac.common.metadata.search.SearchParameters;
+import com.accenture.trac.svc.meta.dal.IMetadataDal;
+import com.accenture.trac.svc.meta.dal.SearchExplain;
+import com.accenture.trac.svc.meta.dal.TenantUsage;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+public class MetadataAdminService {
+
+    // Operator functions for the metadata service, these are not part of the public API
+
+    private final IMetadataDal dal;
+    private final TenantUsage tenantUsage;
+
+    public MetadataAdminService(IMetadataDal dal, TenantUsage tenantUsage) {
+        this.dal = dal;
+        this.tenantUsage = tenantUsage;
+    }
+
+    public CompletableFuture<Map<String, TenantUsage.Snapshot>>
+    getTenantUsage(String tenant) {
+
+        // Usage counters are held in memory, no need to go to the DAL
+
+        if (tenant == null || tenant.isEmpty())
+            return CompletableFuture.completedFuture(tenantUsage.snapshot());
+
+        var snapshot = tenantUsage.snapshot(tenant);
+
+        return CompletableFuture.completedFuture(Map.of(tenant, snapshot));
+    }
+
+    public CompletableFuture<SearchExplain>
+    explainSearch(String tenant, SearchParameters searchParameters) {
+
+        // Validation is the same as for regular searches, see MetadataSearchService
+
+        return dal.explainSearch(tenant, searchParameters);
+    }
+}
@@ -27,6 +27,10 @@ public class MetadataConstants {
     public static final int OBJECT_FIRST_VERSION = 1;
     public static final int TAG_FIRST_VERSION = 1;
 
+    // Limit on the number of IDs that can be reserved in a single preallocation request
+
+    public static final int PREALLOCATE_MAX_BATCH_SIZE = 1000;
+
     // Valid identifiers are made up of alpha-numeric characters and the underscore, starting with a letter
 
     // Use \\A - \\Z to match the whole input
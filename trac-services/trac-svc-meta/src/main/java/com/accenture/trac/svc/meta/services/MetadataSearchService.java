@@ -20,6 +20,7 @@ import com.accenture.trac.common.metadata.Tag;
 import com.accenture.trac.common.metadata.search.SearchParameters;
 import com.accenture.trac.svc.meta.dal.IMetadataDal;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -50,4 +51,10 @@ public class MetadataSearchService {
 
         return dal.search(tenant, searchParameters);
     }
+
+    public CompletableFuture<Instant>
+    searchWatermark(String tenant) {
+
+        return dal.loadSearchWatermark(tenant);
+    }
 }
@@ -21,6 +21,7 @@ import com.accenture.trac.common.metadata.*;
 import com.accenture.trac.svc.meta.dal.IMetadataDal;
 import com.accenture.trac.svc.meta.validation.MetadataValidator;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -31,9 +32,15 @@ import static com.accenture.trac.svc.meta.services.MetadataConstants.*;
 public class MetadataWriteService {
 
     private final IMetadataDal dal;
+    private final IObjectIdGenerator idGenerator;
 
-    public MetadataWriteService(IMetadataDal dal) {
+    public MetadataWriteService(IMetadataDal dal, IObjectIdGenerator idGenerator) {
         this.dal = dal;
+        this.idGenerator = idGenerator;
+    }
+
+    public MetadataWriteService(IMetadataDal dal) {
+        this(dal, new RandomObjectIdGenerator());
     }
 
     public CompletableFuture<TagHeader> createObject(
@@ -55,9 +62,10 @@ public class MetadataWriteService {
         }
 
         // Validation complete!
+        validator.complete();
 
 
-        var objectId = UUID.randomUUID();
+        var objectId = idGenerator.nextId();
 
         var newHeader = TagHeader.newBuilder()
                 .setObjectType(objectType)
@@ -105,6 +113,7 @@ public class MetadataWriteService {
         }
 
         // Validation complete!
+        validator.complete();
 
 
         var objectId = UUID.fromString(priorVersion.getObjectId());
@@ -160,6 +169,7 @@ public class MetadataWriteService {
         }
 
         // Validation complete!
+        validator.complete();
 
 
         var objectId = UUID.fromString(priorVersion.getObjectId());
@@ -194,8 +204,8 @@ public class MetadataWriteService {
 
     public CompletableFuture<TagHeader> preallocateId(String tenant, ObjectType objectType) {
 
-        // New random ID
-        var objectId = UUID.randomUUID();
+        // New ID from the configured generator
+        var objectId = idGenerator.nextId();
 
         // Header for preallocated IDs does not include an object or tag version
         var preallocatedHeader = TagHeader.newBuilder()
@@ -208,6 +218,39 @@ public class MetadataWriteService {
                 .thenApply(_ok -> preallocatedHeader);
     }
 
+    public CompletableFuture<List<TagHeader>> preallocateIds(String tenant, ObjectType objectType, int count) {
+
+        var validator = new MetadataValidator();
+        validator.preallocateCountIsValid(count);
+        validator.checkAndThrow();
+
+        // Validation complete!
+        validator.complete();
+
+
+        var objectTypes = new ArrayList<ObjectType>(count);
+        var objectIds = new ArrayList<UUID>(count);
+        var preallocatedHeaders = new ArrayList<TagHeader>(count);
+
+        for (var i = 0; i < count; i++) {
+
+            var objectId = idGenerator.nextId();
+
+            var preallocatedHeader = TagHeader.newBuilder()
+                    .setObjectType(objectType)
+                    .setObjectId(objectId.toString())
+                    .build();
+
+            objectTypes.add(objectType);
+            objectIds.add(objectId);
+            preallocatedHeaders.add(preallocatedHeader);
+        }
+
+        // All the IDs are reserved in a single DAL call, i.e. one transaction for the whole batch
+        return dal.preallocateObjectIds(tenant, objectTypes, objectIds)
+                .thenApply(_ok -> preallocatedHeaders);
+    }
+
     public CompletableFuture<TagHeader> createPreallocatedObject(
             String tenant, ObjectType objectType,
             TagSelector priorVersion,
@@ -227,6 +270,7 @@ public class MetadataWriteService {
         // So no need to check reserved tag attributes
 
         // Validation complete!
+        validator.complete();
 
 
         // In this case priorVersion refers to the preallocated ID
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.services;
+
+import java.util.UUID;
+
+
+/**
+ * Generate random (version 4) object IDs, using UUID.randomUUID().
+ *
+ * This is the default generator. Random IDs have no ordering, so inserts are
+ * spread across the whole object ID index.
+ */
+public class RandomObjectIdGenerator implements IObjectIdGenerator {
+
+    @Override
+    public UUID nextId() {
+
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.services;
+
+import jdk.jfr.*;
+
+
+@Name("trac.meta.TagUpdate")
+@Label("Tag Update")
+@Category({"TRAC", "Metadata Service", "Services"})
+@Description("Application of a list of tag updates to a tag, see TagUpdateService")
+@StackTrace(false)
+class TagUpdateEvent extends Event {
+
+    @Label("Object Type")
+    String objectType;
+
+    @Label("Update Count")
+    int updateCount;
+
+    @Label("Attrs Before")
+    int attrCountBefore;
+
+    @Label("Attrs After")
+    int attrCountAfter;
+}
@@ -68,12 +68,27 @@ public class TagUpdateService {
         BinaryOperator<Tag.Builder> SEQUENTIAL_COMBINATION =
                 (t1, t2) -> { throw new EUnexpected(); };
 
+        var event = new TagUpdateEvent();
+        event.begin();
+
         var newTag = updates.stream().reduce(
                 priorTag.toBuilder(),
                 TagUpdateService::applyTagUpdate,
                 SEQUENTIAL_COMBINATION);
 
-        return newTag.build();
+        var result = newTag.build();
+
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.objectType = priorTag.getHeader().getObjectType().name();
+            event.updateCount = updates.size();
+            event.attrCountBefore = priorTag.getAttrCount();
+            event.attrCountAfter = result.getAttrCount();
+            event.commit();
+        }
+
+        return result;
     }
 
     private static Tag.Builder applyTagUpdate(Tag.Builder prior, TagUpdate update) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.services;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Generate time-ordered object IDs, using the version 7 UUID layout.
+ *
+ * The top 48 bits of the ID hold a Unix timestamp in milliseconds, the remaining
+ * bits are random apart from the standard version and variant fields. IDs created
+ * close together in time are close together in the object ID index, so inserts go
+ * to the end of the index instead of being scattered across it.
+ *
+ * Random bits come from ThreadLocalRandom, so there is no contention on a shared
+ * SecureRandom when many objects are being created at once. Object IDs are
+ * identifiers, not secrets, so cryptographic strength randomness is not needed.
+ * IDs are still unique with overwhelming probability, there are 74 random bits
+ * for each millisecond.
+ */
+public class TimeOrderedObjectIdGenerator implements IObjectIdGenerator {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VERSION_MASK = 0xf000L;
+    private static final long VARIANT_RFC_4122 = 0x8000000000000000L;
+    private static final long VARIANT_MASK = 0xc000000000000000L;
+
+    private static final long TIMESTAMP_MASK = 0xffffffffffffL;
+
+    private final LongSupplier clock;
+
+    public TimeOrderedObjectIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedObjectIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID nextId() {
+
+        var random = ThreadLocalRandom.current();
+        var timestamp = clock.getAsLong() & TIMESTAMP_MASK;
+
+        // Most significant bits: 48 bit timestamp, 4 bit version, 12 random bits
+        var randA = random.nextLong() & ~VERSION_MASK & 0xffffL;
+        var msb = (timestamp << 16) | VERSION_7 | randA;
+
+        // Least significant bits: 2 bit variant, 62 random bits
+        var lsb = (random.nextLong() & ~VARIANT_MASK) | VARIANT_RFC_4122;
+
+        return new UUID(msb, lsb);
+    }
+}
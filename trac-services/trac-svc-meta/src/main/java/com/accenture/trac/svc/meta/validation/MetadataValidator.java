@@ -21,6 +21,7 @@ import com.accenture.trac.common.metadata.ObjectDefinition;
 import com.accenture.trac.common.metadata.ObjectType;
 import com.accenture.trac.common.metadata.TagSelector;
 import com.accenture.trac.common.exception.*;
+import com.accenture.trac.common.tracing.Span;
 
 import java.util.*;
 
@@ -43,9 +44,18 @@ public class MetadataValidator {
 
     private final List<String> validationErrors;
 
+    // Validation is traced as a single span, from creating the validator until complete() or a failed check
+    private final Span span;
+
     public MetadataValidator() {
 
         this.validationErrors = new ArrayList<>();
+        this.span = Span.current().startChild("validation");
+    }
+
+    public void complete() {
+
+        span.end();
     }
 
     public MetadataValidator checkAndThrow() {
@@ -56,6 +66,9 @@ public class MetadataValidator {
                     ? "There were multiple validation errors:\n" + String.join("\n", validationErrors)
                     : validationErrors.get(0);
 
+            span.setError(message);
+            span.end();
+
             throw new EInputValidation(message);
         }
 
@@ -70,6 +83,9 @@ public class MetadataValidator {
                     ? "There were multiple authorisation errors:\n" + String.join("\n", validationErrors)
                     : validationErrors.get(0);
 
+            span.setError(message);
+            span.end();
+
             throw new EAuthorization(message);
         }
 
@@ -164,6 +180,20 @@ public class MetadataValidator {
         return this;
     }
 
+    public MetadataValidator preallocateCountIsValid(int count) {
+
+        if (count < 1 || count > PREALLOCATE_MAX_BATCH_SIZE) {
+
+            var message = String.format(
+                    "Preallocation count must be between 1 and %d (count specified is %d)",
+                    PREALLOCATE_MAX_BATCH_SIZE, count);
+
+            validationErrors.add(message);
+        }
+
+        return this;
+    }
+
     public MetadataValidator tagAttributesAreValid(List<TagUpdate> updates) {
 
         for (var update : updates) {
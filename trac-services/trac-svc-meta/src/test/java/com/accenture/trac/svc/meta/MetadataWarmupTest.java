@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.svc.meta;
+
+import com.accenture.trac.common.api.meta.MetadataSearchApiGrpc;
+import com.accenture.trac.common.api.meta.MetadataSearchRequest;
+import com.accenture.trac.common.api.meta.MetadataSearchResponse;
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.svc.meta.api.MetadataReadApi;
+import com.accenture.trac.svc.meta.api.MetadataSearchApi;
+import com.accenture.trac.svc.meta.dal.IMetadataDal;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.services.MetadataReadService;
+import com.accenture.trac.svc.meta.services.MetadataSearchService;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import io.grpc.BindableService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataWarmupTest implements IDalTestable {
+
+    private static final int ITERATIONS = 20;
+    private static final int THREADS = 2;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    // One search per object type to find sample objects, before the iterations start
+    private static final int HARVEST_CALLS = 6;
+
+    private static final List<String> METADATA_TABLES = List.of(
+            "object_id", "object_definition", "tag", "tag_attr",
+            "latest_version", "latest_tag", "tag_index_queue");
+
+    private DataSource source;
+    private JdbcMetadataDal dal;
+
+    private Server server;
+    private ManagedChannel channel;
+
+    public void setDal(IMetadataDal dal) {
+        // Warmup needs the JDBC DAL for trial writes, tests use their own
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        dal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        dal.startup();
+    }
+
+    @AfterEach
+    void teardown() {
+
+        if (channel != null)
+            channel.shutdownNow();
+
+        if (server != null)
+            server.shutdownNow();
+
+        dal.shutdown();
+    }
+
+    @Test
+    void warmup_ok() throws Exception {
+
+        for (var objectType : List.of(ObjectType.DATA, ObjectType.MODEL, ObjectType.FLOW))
+            unwrap(dal.saveNewObject(TEST_TENANT, dummyTagForObjectType(objectType)));
+
+        startServer(
+                new MetadataReadApi(new MetadataReadService(dal)),
+                new MetadataSearchApi(new MetadataSearchService(dal)));
+
+        var rowsBefore = countRows();
+
+        var warmup = new MetadataWarmup(dal, channel, ITERATIONS, THREADS, TIMEOUT);
+        warmup.run();
+
+        // Every iteration makes one search, three reads and one trial write, since there are samples to read
+        assertEquals(0, warmup.getErrorCount());
+        assertEquals(HARVEST_CALLS + ITERATIONS * 5, warmup.getCallCount());
+
+        // Trial writes are rolled back, warmup does not change the metadata store
+        assertEquals(rowsBefore, countRows());
+    }
+
+    @Test
+    void warmup_errorsCounted() throws Exception {
+
+        // No API services, so every API call fails with UNIMPLEMENTED
+        // Trial writes go straight to the DAL and still succeed
+        startServer();
+
+        var warmup = new MetadataWarmup(dal, channel, ITERATIONS, THREADS, TIMEOUT);
+        warmup.run();
+
+        // With no samples, each iteration is one search and one trial write
+        assertEquals(HARVEST_CALLS + ITERATIONS, warmup.getErrorCount());
+        assertEquals(ITERATIONS, warmup.getCallCount());
+    }
+
+    @Test
+    void warmup_timeout() throws Exception {
+
+        // A search API that never answers, warmup must still finish once its timeout is up
+
+        var hangingSearch = new MetadataSearchApiGrpc.MetadataSearchApiImplBase() {
+
+            @Override
+            public void search(MetadataSearchRequest request, StreamObserver<MetadataSearchResponse> response) {
+                // Never respond
+            }
+        };
+
+        startServer(hangingSearch);
+
+        var timeout = Duration.ofSeconds(1);
+        var warmup = new MetadataWarmup(dal, channel, ITERATIONS, THREADS, timeout);
+
+        var startTime = System.nanoTime();
+        warmup.run();
+        var elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(10)) < 0, "Warmup took too long: " + elapsed);
+        assertTrue(warmup.getErrorCount() > 0);
+    }
+
+    private void startServer(BindableService... services) throws IOException {
+
+        var serverName = InProcessServerBuilder.generateName();
+        var serverBuilder = InProcessServerBuilder.forName(serverName).directExecutor();
+
+        for (var service : services)
+            serverBuilder.addService(service);
+
+        server = serverBuilder.build().start();
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+    }
+
+    private Map<String, Long> countRows() throws SQLException {
+
+        var counts = new HashMap<String, Long>();
+
+        try (var conn = source.getConnection(); var stmt = conn.createStatement()) {
+
+            for (var table : METADATA_TABLES) {
+                try (var rs = stmt.executeQuery("select count(*) from " + table)) {
+                    rs.next();
+                    counts.put(table, rs.getLong(1));
+                }
+            }
+        }
+
+        return counts;
+    }
+}
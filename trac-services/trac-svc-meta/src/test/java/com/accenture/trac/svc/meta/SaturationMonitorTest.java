@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta;
+
+import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SaturationMonitorTest {
+
+    private static final int POOL_WAIT_MILLIS = 100;
+    private static final int QUEUE_PERCENT = 90;
+    private static final int ERROR_PERCENT = 50;
+    private static final int MIN_TRANSACTIONS = 10;
+    private static final int RECOVERY_SAMPLES = 3;
+
+    private SaturationMonitor.Signals nextSample;
+    private List<ServingStatus> statusUpdates;
+    private SaturationMonitor monitor;
+
+    @BeforeEach
+    void setup() {
+
+        nextSample = signals(0, 0, 0, 0.0, 0, 0);
+        statusUpdates = new ArrayList<>();
+
+        monitor = new SaturationMonitor(
+                () -> nextSample, statusUpdates::add,
+                POOL_WAIT_MILLIS, QUEUE_PERCENT, ERROR_PERCENT,
+                MIN_TRANSACTIONS, RECOVERY_SAMPLES);
+
+        monitor.check();
+    }
+
+    @Test
+    void healthy_noUpdates() {
+
+        sample(signals(100, 100 * millis(5), 0, 0.5, 100, 1));
+        sample(signals(200, 200 * millis(5), 0, 0.5, 200, 2));
+
+        assertFalse(monitor.isSaturated());
+        assertEquals(List.of(), statusUpdates);
+    }
+
+    @Test
+    void poolWait_saturated() {
+
+        sample(signals(10, 10 * millis(POOL_WAIT_MILLIS * 2), 0, 0.0, 10, 0));
+
+        assertTrue(monitor.isSaturated());
+        assertEquals(List.of(ServingStatus.NOT_SERVING), statusUpdates);
+    }
+
+    @Test
+    void poolWait_comparedBetweenSamples() {
+
+        // A slow period in the past should not count once it is no longer recent
+
+        sample(signals(10, 10 * millis(POOL_WAIT_MILLIS * 2), 0, 0.0, 10, 0));
+
+        for (var i = 0; i < RECOVERY_SAMPLES; i++)
+            sample(signals(10 + 100 * (i + 1), 10 * millis(POOL_WAIT_MILLIS * 2), 0, 0.0, 10, 0));
+
+        assertFalse(monitor.isSaturated());
+        assertEquals(List.of(ServingStatus.NOT_SERVING, ServingStatus.SERVING), statusUpdates);
+    }
+
+    @Test
+    void poolTimeout_saturated() {
+
+        sample(signals(0, 0, 1, 0.0, 0, 0));
+
+        assertTrue(monitor.isSaturated());
+    }
+
+    @Test
+    void queueFull_saturated() {
+
+        sample(signals(0, 0, 0, 0.95, 0, 0));
+
+        assertTrue(monitor.isSaturated());
+    }
+
+    @Test
+    void errorRate_saturated() {
+
+        sample(signals(0, 0, 0, 0.0, 20, 15));
+
+        assertTrue(monitor.isSaturated());
+    }
+
+    @Test
+    void errorRate_ignoredBelowMinTransactions() {
+
+        sample(signals(0, 0, 0, 0.0, MIN_TRANSACTIONS - 1, MIN_TRANSACTIONS - 1));
+
+        assertFalse(monitor.isSaturated());
+    }
+
+    @Test
+    void recovery_needsConsecutiveHealthySamples() {
+
+        var saturated = signals(0, 0, 0, 1.0, 0, 0);
+        var healthy = signals(0, 0, 0, 0.0, 0, 0);
+
+        sample(saturated);
+
+        for (var i = 0; i < RECOVERY_SAMPLES - 1; i++)
+            sample(healthy);
+
+        // One more saturated sample resets the count
+        sample(saturated);
+
+        for (var i = 0; i < RECOVERY_SAMPLES - 1; i++)
+            sample(healthy);
+
+        assertTrue(monitor.isSaturated());
+        assertEquals(List.of(ServingStatus.NOT_SERVING), statusUpdates);
+
+        sample(healthy);
+
+        assertFalse(monitor.isSaturated());
+        assertEquals(List.of(ServingStatus.NOT_SERVING, ServingStatus.SERVING), statusUpdates);
+    }
+
+    private void sample(SaturationMonitor.Signals signals) {
+        nextSample = signals;
+        monitor.check();
+    }
+
+    private static SaturationMonitor.Signals signals(
+            long acquireCount, long acquireNanos, long timeouts,
+            double queueUtilisation, long transactions, long errors) {
+
+        return new SaturationMonitor.Signals(
+                acquireCount, acquireNanos, timeouts,
+                queueUtilisation, transactions, errors);
+    }
+
+    private static long millis(long millis) {
+        return millis * 1000000;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.svc.meta;
+
+import com.accenture.trac.common.api.meta.MetadataReadApiGrpc;
+import com.accenture.trac.common.config.ConfigManager;
+import com.accenture.trac.common.config.StandardArgs;
+import com.accenture.trac.common.db.JdbcSetup;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.health.v1.HealthCheckRequest;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.health.v1.HealthGrpc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TracMetadataServiceTest {
+
+    // Start the whole service against an in-memory H2 database, to check the startup sequence
+
+    private static final String CONFIG_FILE = "trac-test.properties";
+    private static final String SERVER_STATUS = "";
+    private static final String READ_API_STATUS = MetadataReadApiGrpc.SERVICE_NAME;
+
+    @TempDir
+    Path configDir;
+
+    private DataSource source;
+    private TracMetadataService service;
+    private ManagedChannel channel;
+
+    private final Map<String, HealthCheckResponse.ServingStatus> statusBeforeWarmup = new ConcurrentHashMap<>();
+    private final Map<String, HealthCheckResponse.ServingStatus> statusAfterWarmup = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+
+        var jdbcUrl = String.format("mem:%s;DB_CLOSE_DELAY=-1", UUID.randomUUID());
+
+        var dbProps = new Properties();
+        dbProps.setProperty("setup.jdbcUrl", jdbcUrl);
+        dbProps.setProperty("setup.dialect", "H2");
+        dbProps.setProperty("setup.h2.user", "trac");
+        dbProps.setProperty("setup.h2.pass", "trac");
+
+        source = JdbcSetup.createDatasource(dbProps, "setup");
+        JdbcUnit.deploySchema(source);
+
+        var port = freePort();
+
+        var config = String.join("\n",
+                "trac.svc.meta.api.port = " + port,
+                "trac.svc.meta.db.sql.dialect = H2",
+                "trac.svc.meta.db.sql.jdbcUrl = " + jdbcUrl,
+                "trac.svc.meta.db.sql.h2.user = trac",
+                "trac.svc.meta.db.sql.h2.pass = trac",
+                "trac.svc.meta.db.sql.pool.size = 4",
+                "trac.svc.meta.warmup.enabled = true",
+                "trac.svc.meta.warmup.iterations = 10",
+                "trac.svc.meta.warmup.threads = 2",
+                "trac.svc.meta.health.enabled = false");
+
+        Files.writeString(configDir.resolve(CONFIG_FILE), config);
+
+        var args = new StandardArgs(configDir, CONFIG_FILE, null);
+        var configManager = new ConfigManager(args);
+        configManager.initConfigPlugins();
+
+        channel = ManagedChannelBuilder.forAddress("localhost", port).usePlaintext().build();
+
+        // Check health from the outside, through the main server, either side of the warmup
+
+        service = new TracMetadataService(configManager) {
+
+            @Override
+            void runWarmup(Properties properties, List<ServerServiceDefinition> apiServices) throws IOException {
+
+                statusBeforeWarmup.put(SERVER_STATUS, healthCheck(SERVER_STATUS));
+                statusBeforeWarmup.put(READ_API_STATUS, healthCheck(READ_API_STATUS));
+
+                super.runWarmup(properties, apiServices);
+
+                statusAfterWarmup.put(SERVER_STATUS, healthCheck(SERVER_STATUS));
+                statusAfterWarmup.put(READ_API_STATUS, healthCheck(READ_API_STATUS));
+            }
+        };
+    }
+
+    @AfterEach
+    void teardown() {
+
+        channel.shutdownNow();
+
+        if (service != null)
+            service.stop();
+
+        JdbcSetup.destroyDatasource(source);
+    }
+
+    @Test
+    void notServingUntilWarmupComplete() throws Exception {
+
+        // The service registers a shutdown hook that waits for the thread that started it
+        // Start from a separate thread, so the hook does not wait on the test runner when the JVM exits
+
+        var startError = new Throwable[1];
+
+        var startThread = new Thread(() -> {
+            try {
+                service.start();
+            }
+            catch (Throwable e) {
+                startError[0] = e;
+            }
+        }, "service-start");
+
+        startThread.start();
+        startThread.join();
+
+        assertNull(startError[0]);
+
+        // The server is up during warmup, but reports not serving until warmup is finished
+
+        assertEquals(HealthCheckResponse.ServingStatus.NOT_SERVING, statusBeforeWarmup.get(SERVER_STATUS));
+        assertEquals(HealthCheckResponse.ServingStatus.NOT_SERVING, statusBeforeWarmup.get(READ_API_STATUS));
+        assertEquals(HealthCheckResponse.ServingStatus.NOT_SERVING, statusAfterWarmup.get(SERVER_STATUS));
+        assertEquals(HealthCheckResponse.ServingStatus.NOT_SERVING, statusAfterWarmup.get(READ_API_STATUS));
+
+        assertEquals(HealthCheckResponse.ServingStatus.SERVING, healthCheck(SERVER_STATUS));
+        assertEquals(HealthCheckResponse.ServingStatus.SERVING, healthCheck(READ_API_STATUS));
+    }
+
+    private HealthCheckResponse.ServingStatus healthCheck(String serviceName) {
+
+        var request = HealthCheckRequest.newBuilder().setService(serviceName).build();
+
+        return HealthGrpc.newBlockingStub(channel).check(request).getStatus();
+    }
+
+    private static int freePort() throws IOException {
+
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
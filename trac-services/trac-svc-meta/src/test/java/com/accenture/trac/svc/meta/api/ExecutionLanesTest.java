@@ -0,0 +1,272 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.api;
+
+import com.accenture.trac.common.api.meta.*;
+import com.accenture.trac.common.metadata.BasicType;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.TagHeader;
+import com.accenture.trac.common.metadata.search.*;
+import com.accenture.trac.svc.meta.dal.DelegatingMetadataDal;
+import com.accenture.trac.svc.meta.dal.IMetadataDal;
+import com.accenture.trac.svc.meta.services.MetadataReadService;
+import com.accenture.trac.svc.meta.services.MetadataSearchService;
+import com.accenture.trac.svc.meta.services.MetadataWriteService;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+import com.accenture.trac.svc.meta.test.TestData;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class ExecutionLanesTest implements IDalTestable {
+
+    private IMetadataDal dal;
+
+    private final Map<String, String> dalThreads = new ConcurrentHashMap<>();
+    private volatile CountDownLatch loadTagEntered;
+    private volatile CountDownLatch loadTagRelease;
+
+    private ExecutionLanes lanes;
+    private Server server;
+    private ManagedChannel channel;
+
+    private MetadataReadApiGrpc.MetadataReadApiBlockingStub readApi;
+    private MetadataTrustedWriteApiGrpc.MetadataTrustedWriteApiBlockingStub writeApi;
+    private MetadataSearchApiGrpc.MetadataSearchApiBlockingStub searchApi;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    void startServer(Map<String, ExecutionLanes.Lane> methodOverrides) throws Exception {
+
+        // Record which thread each DAL call runs on, optionally hold up loadTag to fill the read lane
+
+        var recordingDal = new DelegatingMetadataDal(dal) {
+
+            @Override
+            public CompletableFuture<Void> saveNewObject(String tenant, Tag tag) {
+                dalThreads.put("saveNewObject", Thread.currentThread().getName());
+                return super.saveNewObject(tenant, tag);
+            }
+
+            @Override
+            public CompletableFuture<Tag>
+            loadTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion, int tagVersion) {
+
+                dalThreads.put("loadTag", Thread.currentThread().getName());
+
+                if (loadTagRelease != null) {
+                    loadTagEntered.countDown();
+                    awaitRelease();
+                }
+
+                return super.loadTag(tenant, objectType, objectId, objectVersion, tagVersion);
+            }
+
+            @Override
+            public CompletableFuture<List<Tag>> search(String tenant, SearchParameters searchParameters) {
+                dalThreads.put("search", Thread.currentThread().getName());
+                return super.search(tenant, searchParameters);
+            }
+        };
+
+        // One thread per lane and no queue, so a single blocked call fills up a lane
+
+        var executors = new EnumMap<ExecutionLanes.Lane, ExecutorService>(ExecutionLanes.Lane.class);
+
+        for (var lane : ExecutionLanes.Lane.values()) {
+
+            var threadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("lane-" + lane.name().toLowerCase() + "-%d")
+                    .build();
+
+            var executor = new ThreadPoolExecutor(
+                    1, 1, 0, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), threadFactory);
+
+            executors.put(lane, executor);
+        }
+
+        lanes = new ExecutionLanes(executors, Map.of(), methodOverrides);
+
+        var serverName = InProcessServerBuilder.generateName();
+
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(lanes.bindService(
+                        new MetadataReadApi(new MetadataReadService(recordingDal)),
+                        ExecutionLanes.Lane.READ))
+                .addService(lanes.bindService(
+                        new MetadataTrustedWriteApi(new MetadataWriteService(recordingDal)),
+                        ExecutionLanes.Lane.WRITE))
+                .addService(lanes.bindService(
+                        new MetadataSearchApi(new MetadataSearchService(recordingDal)),
+                        ExecutionLanes.Lane.SEARCH))
+                .build()
+                .start();
+
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+
+        readApi = MetadataReadApiGrpc.newBlockingStub(channel);
+        writeApi = MetadataTrustedWriteApiGrpc.newBlockingStub(channel);
+        searchApi = MetadataSearchApiGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+
+        if (loadTagRelease != null)
+            loadTagRelease.countDown();
+
+        channel.shutdownNow();
+        server.shutdownNow();
+        lanes.shutdown(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void callsRunOnTheirLane() throws Exception {
+
+        startServer(Map.of());
+
+        var header = writeApi.createObject(writeRequest("callsRunOnTheirLane"));
+
+        // noinspection ResultOfMethodCallIgnored
+        readApi.loadTag(readRequest(header));
+
+        // noinspection ResultOfMethodCallIgnored
+        searchApi.search(searchRequest("callsRunOnTheirLane"));
+
+        assertTrue(dalThreads.get("saveNewObject").startsWith("lane-write-"));
+        assertTrue(dalThreads.get("loadTag").startsWith("lane-read-"));
+        assertTrue(dalThreads.get("search").startsWith("lane-search-"));
+    }
+
+    @Test
+    void methodOverride() throws Exception {
+
+        var loadTagMethod = MetadataReadApiGrpc.getLoadTagMethod().getFullMethodName();
+        startServer(Map.of(loadTagMethod, ExecutionLanes.Lane.ADMIN));
+
+        var header = writeApi.createObject(writeRequest("methodOverride"));
+
+        // noinspection ResultOfMethodCallIgnored
+        readApi.loadTag(readRequest(header));
+
+        assertTrue(dalThreads.get("loadTag").startsWith("lane-admin-"));
+        assertEquals(ExecutionLanes.Lane.ADMIN, lanes.classify(MetadataReadApiGrpc.getLoadTagMethod()));
+        assertEquals(ExecutionLanes.Lane.READ, lanes.classify(MetadataReadApiGrpc.getLoadLatestTagMethod()));
+    }
+
+    @Test
+    void fullLane_otherLanesUnaffected() throws Exception {
+
+        startServer(Map.of());
+
+        var header = writeApi.createObject(writeRequest("fullLane"));
+
+        loadTagEntered = new CountDownLatch(1);
+        loadTagRelease = new CountDownLatch(1);
+
+        // Tie up the only thread in the read lane
+
+        var blockedRead = CompletableFuture.supplyAsync(() -> readApi.loadTag(readRequest(header)));
+        assertTrue(loadTagEntered.await(10, TimeUnit.SECONDS));
+
+        // Another read is rejected straight away, rather than waiting behind the blocked one
+
+        var error = assertThrows(StatusRuntimeException.class, () -> readApi.loadTag(readRequest(header)));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, error.getStatus().getCode());
+
+        // Searches are in a different lane and still go through
+
+        var searchResult = searchApi.search(searchRequest("fullLane"));
+        assertEquals(1, searchResult.getSearchResultCount());
+
+        loadTagRelease.countDown();
+
+        var tag = blockedRead.get(10, TimeUnit.SECONDS);
+        assertEquals(header, tag.getHeader());
+    }
+
+    private void awaitRelease() {
+
+        try {
+            loadTagRelease.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MetadataWriteRequest writeRequest(String attrValue) {
+
+        return MetadataWriteRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(ObjectType.DATA)
+                .setDefinition(TestData.dummyDataDef())
+                .addAllTagUpdate(tagUpdatesForAttrs(Map.of("lane_test", encodeValue(attrValue))))
+                .build();
+    }
+
+    private MetadataReadRequest readRequest(TagHeader header) {
+
+        return MetadataReadRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(header.getObjectType())
+                .setObjectId(header.getObjectId())
+                .setObjectVersion(header.getObjectVersion())
+                .setTagVersion(header.getTagVersion())
+                .build();
+    }
+
+    private MetadataSearchRequest searchRequest(String attrValue) {
+
+        return MetadataSearchRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setSearchParams(SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                        .setAttrName("lane_test")
+                        .setAttrType(BasicType.STRING)
+                        .setOperator(SearchOperator.EQ)
+                        .setSearchValue(encodeValue(attrValue)))))
+                .build();
+    }
+}
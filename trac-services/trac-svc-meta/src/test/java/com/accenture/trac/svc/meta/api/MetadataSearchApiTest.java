@@ -52,6 +52,7 @@ import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
 import static com.accenture.trac.svc.meta.test.TestData.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 abstract class MetadataSearchApiTest implements IDalTestable {
@@ -174,6 +175,9 @@ abstract class MetadataSearchApiTest implements IDalTestable {
 
         assertEquals(1, searchResult.getSearchResultCount());
         assertEquals(t1, searchResult.getSearchResult(0));
+
+        // With sync indexing, the search watermark is always set
+        assertTrue(searchResult.hasSearchWatermark());
     }
 
     @Test
@@ -29,8 +29,10 @@ import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.testing.GrpcCleanupRule;
 
+import java.util.HashSet;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.accenture.trac.svc.meta.test.IDalTestable;
 import com.accenture.trac.svc.meta.test.JdbcUnit;
@@ -44,6 +46,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
+import static com.accenture.trac.svc.meta.services.MetadataConstants.PREALLOCATE_MAX_BATCH_SIZE;
 import static com.accenture.trac.svc.meta.test.TestData.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -1514,4 +1517,141 @@ abstract class MetadataWriteApiTest implements IDalTestable {
         var error3 = assertThrows(StatusRuntimeException.class, () -> readApi.loadLatestObject(readRequest));
         assertEquals(Status.Code.NOT_FOUND, error3.getStatus().getCode());
     }
+
+    @Test
+    void preallocateIds_ok() {
+
+        // Preallocate a batch of IDs, save an object to one of them and read it back
+
+        var preallocateRequest = MetadataPreallocateRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(ObjectType.DATA)
+                .setCount(10)
+                .build();
+
+        var preallocateResponse = trustedApi.preallocateIds(preallocateRequest);
+        var preallocateHeaders = preallocateResponse.getPreallocatedIdList();
+
+        assertEquals(10, preallocateHeaders.size());
+
+        var distinctIds = preallocateHeaders.stream()
+                .map(TagHeader::getObjectId)
+                .collect(Collectors.toSet());
+
+        assertEquals(10, distinctIds.size());
+
+        for (var header : preallocateHeaders) {
+            assertEquals(ObjectType.DATA, header.getObjectType());
+            assertEquals(0, header.getObjectVersion());
+            assertEquals(0, header.getTagVersion());
+        }
+
+        var preallocateHeader = preallocateHeaders.get(5);
+        var preallocateSelector = TestData.selectorForTag(preallocateHeader);
+
+        var newObject = TestData.dummyDefinitionForType(ObjectType.DATA);
+        var newTag = TestData.dummyTag(newObject, TestData.NO_HEADER);
+        var tagUpdates = TestData.tagUpdatesForAttrs(newTag.getAttrMap());
+
+        var writeRequest = MetadataWriteRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(ObjectType.DATA)
+                .setPriorVersion(preallocateSelector)
+                .setDefinition(newObject)
+                .addAllTagUpdate(tagUpdates)
+                .build();
+
+        var tagHeader = trustedApi.createPreallocatedObject(writeRequest);
+
+        assertEquals(preallocateHeader.getObjectId(), tagHeader.getObjectId());
+
+        var readRequest = MetadataReadRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(ObjectType.DATA)
+                .setObjectId(preallocateHeader.getObjectId())
+                .setObjectVersion(1)
+                .setTagVersion(1)
+                .build();
+
+        var savedTag = readApi.loadTag(readRequest);
+
+        assertEquals(newTag.toBuilder().setHeader(tagHeader).build(), savedTag);
+    }
+
+    @Test
+    void preallocateIds_invalidCount() {
+
+        // Count must be at least one and not more than the max batch size
+
+        var zeroRequest = MetadataPreallocateRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(ObjectType.DATA)
+                .setCount(0)
+                .build();
+
+        // noinspection ResultOfMethodCallIgnored
+        var error = assertThrows(StatusRuntimeException.class, () -> trustedApi.preallocateIds(zeroRequest));
+        assertEquals(Status.Code.INVALID_ARGUMENT, error.getStatus().getCode());
+
+        var negativeRequest = zeroRequest.toBuilder().setCount(-1).build();
+
+        // noinspection ResultOfMethodCallIgnored
+        var error2 = assertThrows(StatusRuntimeException.class, () -> trustedApi.preallocateIds(negativeRequest));
+        assertEquals(Status.Code.INVALID_ARGUMENT, error2.getStatus().getCode());
+
+        var tooLargeRequest = zeroRequest.toBuilder().setCount(PREALLOCATE_MAX_BATCH_SIZE + 1).build();
+
+        // noinspection ResultOfMethodCallIgnored
+        var error3 = assertThrows(StatusRuntimeException.class, () -> trustedApi.preallocateIds(tooLargeRequest));
+        assertEquals(Status.Code.INVALID_ARGUMENT, error3.getStatus().getCode());
+    }
+
+    @Test
+    void preallocateIds_pool() {
+
+        // Client side pool should refill in batches and keep separate pools for each object type
+
+        var pool = new PreallocatedIdPool(trustedApi, TEST_TENANT, 3);
+
+        assertEquals(0, pool.available(ObjectType.DATA));
+
+        var dataIds = new HashSet<String>();
+
+        for (var i = 0; i < 7; i++) {
+
+            var header = pool.nextId(ObjectType.DATA);
+
+            assertEquals(ObjectType.DATA, header.getObjectType());
+            dataIds.add(header.getObjectId());
+        }
+
+        // 7 IDs taken in batches of 3 leaves 2 in the pool, all IDs must be unique
+        assertEquals(7, dataIds.size());
+        assertEquals(2, pool.available(ObjectType.DATA));
+        assertEquals(0, pool.available(ObjectType.MODEL));
+
+        var modelHeader = pool.nextId(ObjectType.MODEL);
+
+        assertEquals(ObjectType.MODEL, modelHeader.getObjectType());
+        assertEquals(2, pool.available(ObjectType.MODEL));
+        assertEquals(2, pool.available(ObjectType.DATA));
+
+        // IDs from the pool are reserved and can be used to save objects
+
+        var preallocateSelector = TestData.selectorForTag(modelHeader);
+        var newObject = TestData.dummyDefinitionForType(ObjectType.MODEL);
+        var newTag = TestData.dummyTag(newObject, TestData.NO_HEADER);
+        var tagUpdates = TestData.tagUpdatesForAttrs(newTag.getAttrMap());
+
+        var writeRequest = MetadataWriteRequest.newBuilder()
+                .setTenant(TEST_TENANT)
+                .setObjectType(ObjectType.MODEL)
+                .setPriorVersion(preallocateSelector)
+                .setDefinition(newObject)
+                .addAllTagUpdate(tagUpdates)
+                .build();
+
+        var tagHeader = trustedApi.createPreallocatedObject(writeRequest);
+        assertEquals(modelHeader.getObjectId(), tagHeader.getObjectId());
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.BasicType;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.search.*;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalBatchCountsTest implements IDalTestable {
+
+    // Some drivers report SUCCESS_NO_INFO for batch updates instead of a row count for each statement
+    // E.g. Oracle before 12c, or MySQL / MariaDB with rewriteBatchedStatements = true
+    // The DAL must not depend on batch row counts, these tests run it against statements that never report them
+
+    private DataSource source;
+    private JdbcMetadataDal testDal;
+
+    private final AtomicInteger batchesWithoutCounts = new AtomicInteger();
+
+    public void setDal(IMetadataDal dal) {
+        // Tests use their own DAL, over statements that do not report batch counts
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        // The test DAL runs its own indexer, so every queue entry is claimed through the test statements
+
+        testDal = new JdbcMetadataDal(
+                JdbcDialect.H2, noBatchCounts(source), Runnable::run,
+                JdbcMetadataDal.SearchIndexMode.WRITE_BEHIND);
+
+        testDal.startup();
+    }
+
+    @AfterEach
+    void teardown() {
+
+        testDal.shutdown();
+    }
+
+    @Test
+    void writeBehind_allTagsIndexed() throws Exception {
+
+        var tags = new ArrayList<Tag>();
+
+        for (var i = 0; i < 20; i++) {
+            tags.add(dummyTagForObjectType(ObjectType.DATA).toBuilder()
+                    .putAttr("no_batch_counts_attr", encodeValue("no_batch_counts_value"))
+                    .build());
+        }
+
+        unwrap(testDal.saveNewObjects(TEST_TENANT, tags));
+        testDal.flushSearchIndex();
+
+        var searchParams = SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                    .setAttrName("no_batch_counts_attr")
+                    .setAttrType(BasicType.STRING)
+                    .setOperator(SearchOperator.EQ)
+                    .setSearchValue(encodeValue("no_batch_counts_value"))))
+                .build();
+
+        var searchResult = unwrap(testDal.search(TEST_TENANT, searchParams));
+
+        assertTrue(batchesWithoutCounts.get() > 0);
+        assertEquals(tags.size(), searchResult.size());
+    }
+
+    private DataSource noBatchCounts(DataSource source) {
+
+        return forward(DataSource.class, source, result -> result instanceof Connection
+                ? noBatchCounts((Connection) result)
+                : result);
+    }
+
+    private Connection noBatchCounts(Connection conn) {
+
+        return forward(Connection.class, conn, result -> result instanceof PreparedStatement
+                ? noBatchCounts((PreparedStatement) result)
+                : result);
+    }
+
+    private PreparedStatement noBatchCounts(PreparedStatement stmt) {
+
+        return forward(PreparedStatement.class, stmt, result -> {
+
+            if (!(result instanceof int[]))
+                return result;
+
+            // Only executeBatch() returns an int array
+
+            var counts = new int[((int[]) result).length];
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+
+            batchesWithoutCounts.incrementAndGet();
+
+            return counts;
+        });
+    }
+
+    private static <T> T forward(Class<T> iface, T target, UnaryOperator<Object> mapResult) {
+
+        var proxy = Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface }, (p, method, args) -> {
+
+            try {
+                var result = method.invoke(target, args);
+                return mapResult.apply(result);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+
+        return iface.cast(proxy);
+    }
+}
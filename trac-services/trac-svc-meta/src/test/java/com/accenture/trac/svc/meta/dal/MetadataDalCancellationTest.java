@@ -0,0 +1,341 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.UnaryOperator;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalCancellationTest implements IDalTestable {
+
+    // SQL state used by H2 and PostgreSQL for a cancelled statement
+    private static final String CANCELLED_SQL_STATE = "57014";
+
+    private IMetadataDal dal;
+    private DataSource source;
+    private ScheduledExecutorService scheduler;
+
+    private JdbcMetadataDal testDal;
+    private List<Integer> queryTimeouts;
+    private AtomicBoolean blockStatements;
+    private CountDownLatch statementRunning;
+    private CountDownLatch statementCancelled;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        queryTimeouts = new CopyOnWriteArrayList<>();
+        blockStatements = new AtomicBoolean(false);
+        statementRunning = new CountDownLatch(1);
+        statementCancelled = new CountDownLatch(1);
+
+        testDal = new JdbcMetadataDal(JdbcDialect.H2, watchStatements(source), Runnable::run);
+        testDal.startup();
+    }
+
+    @AfterEach
+    void cleanup() {
+
+        testDal.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void liveDeadline_ok() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(dal.saveNewObject(TEST_TENANT, origTag));
+
+        var context = Context.current().withDeadlineAfter(30, TimeUnit.SECONDS, scheduler);
+
+        try {
+            var result = unwrap(context.call(() -> loadTag(origTag)));
+            assertEquals(origTag, result);
+        }
+        finally {
+            context.cancel(null);
+        }
+    }
+
+    @Test
+    void cancelledCall_notRun() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var context = Context.current().withCancellation();
+        context.cancel(null);
+
+        var save = context.call(() -> dal.saveNewObject(TEST_TENANT, origTag));
+        var error = assertThrows(StatusRuntimeException.class, () -> unwrap(save));
+        assertEquals(Status.Code.CANCELLED, error.getStatus().getCode());
+
+        // Nothing should have been written for the cancelled call
+
+        var objectId = UUID.fromString(origTag.getHeader().getObjectId());
+        var load = dal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1);
+        assertThrows(Exception.class, () -> unwrap(load));
+    }
+
+    @Test
+    void expiredDeadline_notRun() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(dal.saveNewObject(TEST_TENANT, origTag));
+
+        var context = Context.current().withDeadlineAfter(1, TimeUnit.MILLISECONDS, scheduler);
+
+        try {
+
+            var expired = context.isCancelled() || awaitCancelled(context);
+            assertTrue(expired);
+
+            var load = context.call(() -> loadTag(origTag));
+            var error = assertThrows(StatusRuntimeException.class, () -> unwrap(load));
+            assertEquals(Status.Code.DEADLINE_EXCEEDED, error.getStatus().getCode());
+        }
+        finally {
+            context.cancel(null);
+        }
+    }
+
+    @Test
+    void cancelledDuringQuery() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var context = Context.current().withCancellation();
+
+        // Cancel the call once a statement is running
+        scheduler.execute(() -> {
+            awaitLatch(statementRunning);
+            context.cancel(null);
+        });
+
+        blockStatements.set(true);
+
+        var save = context.call(() -> testDal.saveNewObject(TEST_TENANT, origTag));
+        var error = assertThrows(StatusRuntimeException.class, () -> unwrap(save));
+        assertEquals(Status.Code.CANCELLED, error.getStatus().getCode());
+        assertEquals(0, statementCancelled.getCount());
+
+        // The save was rolled back
+
+        blockStatements.set(false);
+
+        var objectId = UUID.fromString(origTag.getHeader().getObjectId());
+        var load = testDal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1);
+        assertThrows(Exception.class, () -> unwrap(load));
+    }
+
+    @Test
+    void deadlineDuringQuery() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(testDal.saveNewObject(TEST_TENANT, origTag));
+
+        var context = Context.current().withDeadlineAfter(200, TimeUnit.MILLISECONDS, scheduler);
+
+        try {
+
+            blockStatements.set(true);
+
+            var load = context.call(() -> loadTag(testDal, origTag));
+            var error = assertThrows(StatusRuntimeException.class, () -> unwrap(load));
+            assertEquals(Status.Code.DEADLINE_EXCEEDED, error.getStatus().getCode());
+            assertEquals(0, statementCancelled.getCount());
+        }
+        finally {
+            context.cancel(null);
+        }
+    }
+
+    @Test
+    void deadline_queryTimeoutApplied() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(testDal.saveNewObject(TEST_TENANT, origTag));
+
+        var context = Context.current().withDeadlineAfter(30, TimeUnit.SECONDS, scheduler);
+
+        try {
+            var load = context.call(() -> loadTag(testDal, origTag));
+            assertEquals(origTag, unwrap(load));
+        }
+        finally {
+            context.cancel(null);
+        }
+
+        // Every statement gets the time left on the deadline, rounded up to whole seconds
+        assertFalse(queryTimeouts.isEmpty());
+
+        for (var timeout : queryTimeouts)
+            assertTrue(timeout > 0 && timeout <= 30, "Unexpected query timeout: " + timeout);
+    }
+
+    @Test
+    void noDeadline_noQueryTimeout() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(testDal.saveNewObject(TEST_TENANT, origTag));
+        unwrap(loadTag(testDal, origTag));
+
+        assertTrue(queryTimeouts.isEmpty());
+    }
+
+    private CompletableFuture<Tag> loadTag(Tag tag) {
+
+        return loadTag(dal, tag);
+    }
+
+    private CompletableFuture<Tag> loadTag(IMetadataDal dal, Tag tag) {
+
+        var header = tag.getHeader();
+        var objectId = UUID.fromString(header.getObjectId());
+
+        return dal.loadTag(TEST_TENANT, header.getObjectType(), objectId,
+                header.getObjectVersion(), header.getTagVersion());
+    }
+
+    private boolean awaitCancelled(Context.CancellableContext context) throws Exception {
+
+        var cancelled = new CompletableFuture<Boolean>();
+        context.addListener(ctx -> cancelled.complete(true), Runnable::run);
+
+        return cancelled.get(10, TimeUnit.SECONDS);
+    }
+
+    private void awaitLatch(CountDownLatch latch) {
+
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The test DAL runs on a data source that watches the statements it creates
+    // Query timeouts are recorded as they are set, and statements can be held up to look like long-running queries
+    // A held statement runs until it is cancelled, then fails the same way a JDBC driver reports a cancelled query
+
+    private DataSource watchStatements(DataSource source) {
+
+        return forward(DataSource.class, source, result -> result instanceof Connection
+                ? watchStatements((Connection) result)
+                : result);
+    }
+
+    private Connection watchStatements(Connection conn) {
+
+        return forward(Connection.class, conn, result -> result instanceof PreparedStatement
+                ? watchStatement((PreparedStatement) result)
+                : result);
+    }
+
+    private PreparedStatement watchStatement(PreparedStatement stmt) {
+
+        var proxy = Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (p, method, args) -> {
+
+                    var methodName = method.getName();
+
+                    if (methodName.equals("setQueryTimeout"))
+                        queryTimeouts.add((Integer) args[0]);
+
+                    if (methodName.equals("cancel"))
+                        statementCancelled.countDown();
+
+                    if (methodName.startsWith("execute") && blockStatements.get()) {
+
+                        statementRunning.countDown();
+                        awaitLatch(statementCancelled);
+
+                        throw new SQLException("Statement was cancelled", CANCELLED_SQL_STATE);
+                    }
+
+                    try {
+                        return method.invoke(stmt, args);
+                    }
+                    catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        return (PreparedStatement) proxy;
+    }
+
+    private static <T> T forward(Class<T> iface, T target, UnaryOperator<Object> mapResult) {
+
+        var proxy = Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface }, (p, method, args) -> {
+
+            try {
+                var result = method.invoke(target, args);
+                return mapResult.apply(result);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+
+        return iface.cast(proxy);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.Concurrent.class)
+class MetadataDalConcurrencyTest implements IDalTestable {
+
+    // Batch operations stage their keys in the dialect's key mapping table
+    // Transactions running at the same time, e.g. on different execution lanes, must not see each other's keys
+
+    private static final int N_THREADS = 4;
+    private static final int N_ROUNDS = 10;
+    private static final int BATCH_SIZE = 5;
+
+    private IMetadataDal dal;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Test
+    void concurrentBatchWrites_ok() throws Exception {
+
+        var executor = Executors.newFixedThreadPool(N_THREADS);
+        var startSignal = new CountDownLatch(1);
+
+        try {
+
+            var workers = new ArrayList<Future<?>>();
+
+            for (var i = 0; i < N_THREADS; i++) {
+
+                workers.add(executor.submit(() -> {
+
+                    startSignal.await();
+
+                    for (var round = 0; round < N_ROUNDS; round++)
+                        writeAndReadBatch();
+
+                    return null;
+                }));
+            }
+
+            startSignal.countDown();
+
+            for (var worker : workers)
+                worker.get(60, TimeUnit.SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void writeAndReadBatch() throws Exception {
+
+        var origTags = new ArrayList<Tag>();
+
+        for (var i = 0; i < BATCH_SIZE; i++)
+            origTags.add(dummyTagForObjectType(ObjectType.DATA));
+
+        unwrap(dal.saveNewObjects(TEST_TENANT, origTags));
+
+        // New versions and tags look up existing objects in batches through the key mapping table
+
+        var nextVersions = origTags.stream()
+                .map(tag -> tagForNextObject(tag, nextDataDef(tag.getDefinition()), INCLUDE_HEADER))
+                .collect(Collectors.toList());
+
+        unwrap(dal.saveNewVersions(TEST_TENANT, nextVersions));
+
+        var nextTags = nextVersions.stream()
+                .map(tag -> nextTag(tag, UPDATE_TAG_VERSION))
+                .collect(Collectors.toList());
+
+        unwrap(dal.saveNewTags(TEST_TENANT, nextTags));
+
+        var objectTypes = Collections.nCopies(BATCH_SIZE, ObjectType.DATA);
+
+        var objectIds = origTags.stream()
+                .map(tag -> UUID.fromString(tag.getHeader().getObjectId()))
+                .collect(Collectors.toList());
+
+        var loaded = unwrap(dal.loadTags(TEST_TENANT, objectTypes, objectIds,
+                Collections.nCopies(BATCH_SIZE, 2),
+                Collections.nCopies(BATCH_SIZE, 2)));
+
+        var latest = unwrap(dal.loadLatestVersions(TEST_TENANT, objectTypes, objectIds));
+
+        assertEquals(nextTags, loaded);
+        assertEquals(nextTags, latest);
+
+        // Loading the originals again checks that keys from other transactions did not leak into this batch
+        var origLoaded = unwrap(dal.loadTags(TEST_TENANT, objectTypes, objectIds,
+                Collections.nCopies(BATCH_SIZE, 1),
+                Collections.nCopies(BATCH_SIZE, 1)));
+
+        assertEquals(origTags, origLoaded);
+    }
+}
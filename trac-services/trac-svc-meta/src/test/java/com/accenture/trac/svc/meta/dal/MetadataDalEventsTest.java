@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalEventsTest implements IDalTestable {
+
+    private IMetadataDal dal;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Test
+    void transactionEvents_recorded(@TempDir Path tempDir) throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var objectId = UUID.fromString(origTag.getHeader().getObjectId());
+
+        try (var recording = new Recording()) {
+
+            recording.enable("trac.meta.DalTransaction").withThreshold(Duration.ZERO);
+            recording.start();
+
+            unwrap(dal.saveNewObject(TEST_TENANT, origTag));
+            unwrap(dal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1));
+
+            recording.stop();
+
+            var recordingFile = tempDir.resolve("dal.jfr");
+            recording.dump(recordingFile);
+
+            var events = RecordingFile.readAllEvents(recordingFile).stream()
+                    .filter(event -> event.getEventType().getName().equals("trac.meta.DalTransaction"))
+                    .collect(Collectors.toList());
+
+            var save = findOperation(events, "saveNewObjects");
+            assertEquals(TEST_TENANT, save.getString("tenant"));
+            assertTrue(save.getInt("statements") > 0);
+            assertTrue(save.getBoolean("committed"));
+            assertFalse(save.getBoolean("failed"));
+
+            var load = findOperation(events, "loadTag");
+            assertTrue(load.getLong("rows") > 0);
+        }
+    }
+
+    private RecordedEvent findOperation(List<RecordedEvent> events, String operation) {
+
+        return events.stream()
+                .filter(event -> operation.equals(event.getString("operation")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No DAL transaction event for " + operation));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalLatestCacheTest implements IDalTestable {
+
+    private static final Duration LATEST_TTL = Duration.ofMinutes(5);
+    private static final Duration SHORT_TTL = Duration.ofMillis(200);
+
+    private IMetadataDal dal;
+    private DataSource source;
+    private JdbcMetadataDal cachingDal;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        cachingDal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        cachingDal.configureLatestCache(LATEST_TTL);
+        cachingDal.startup();
+    }
+
+    @AfterEach
+    void teardown() {
+
+        cachingDal.shutdown();
+    }
+
+    @Test
+    void latestCache_offByDefault() {
+
+        // The DAL from the test setup is not configured with a latest cache
+
+        var jdbcDal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        var cacheNames = jdbcDal.getCacheStatus().stream().map(CacheStatus::getName);
+
+        assertTrue(cacheNames.noneMatch(name -> name.startsWith("resolution.latest")));
+    }
+
+    @Test
+    void loadLatest_cacheHit() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var origId = UUID.fromString(origTag.getHeader().getObjectId());
+
+        unwrap(cachingDal.saveNewObject(TEST_TENANT, origTag));
+
+        var result1 = unwrap(cachingDal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, origId));
+        var result2 = unwrap(cachingDal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, origId));
+
+        assertEquals(origTag, result1);
+        assertEquals(origTag, result2);
+
+        assertEquals(1, cacheStatus("resolution.latestVersions").getHitCount());
+        assertEquals(1, cacheStatus("resolution.latestTags").getHitCount());
+    }
+
+    @Test
+    void saveNewVersion_invalidatesLatest() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var origId = UUID.fromString(origTag.getHeader().getObjectId());
+
+        unwrap(cachingDal.saveNewObject(TEST_TENANT, origTag));
+        unwrap(cachingDal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, origId));
+
+        var nextTag = tagForNextObject(origTag, nextDataDef(origTag.getDefinition()), INCLUDE_HEADER);
+        unwrap(cachingDal.saveNewVersion(TEST_TENANT, nextTag));
+
+        var result = unwrap(cachingDal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, origId));
+
+        assertEquals(nextTag, result);
+    }
+
+    @Test
+    void saveNewTag_invalidatesLatest() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var origId = UUID.fromString(origTag.getHeader().getObjectId());
+
+        unwrap(cachingDal.saveNewObject(TEST_TENANT, origTag));
+        unwrap(cachingDal.loadLatestTag(TEST_TENANT, ObjectType.DATA, origId, 1));
+
+        var nextTag = nextTag(origTag, UPDATE_TAG_VERSION);
+        unwrap(cachingDal.saveNewTag(TEST_TENANT, nextTag));
+
+        var result = unwrap(cachingDal.loadLatestTag(TEST_TENANT, ObjectType.DATA, origId, 1));
+
+        assertEquals(nextTag, result);
+    }
+
+    @Test
+    void otherInstanceWrite_visibleAfterTtl() throws Exception {
+
+        var shortTtlDal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        shortTtlDal.configureLatestCache(SHORT_TTL);
+        shortTtlDal.startup();
+
+        try {
+
+            var origTag = dummyTagForObjectType(ObjectType.DATA);
+            var origId = UUID.fromString(origTag.getHeader().getObjectId());
+
+            unwrap(shortTtlDal.saveNewObject(TEST_TENANT, origTag));
+            unwrap(shortTtlDal.loadLatestTag(TEST_TENANT, ObjectType.DATA, origId, 1));
+
+            // Written through the DAL from the test setup, as if by another service instance
+
+            var nextTag = nextTag(origTag, UPDATE_TAG_VERSION);
+            unwrap(dal.saveNewTag(TEST_TENANT, nextTag));
+
+            var staleResult = unwrap(shortTtlDal.loadLatestTag(TEST_TENANT, ObjectType.DATA, origId, 1));
+            assertEquals(origTag, staleResult);
+
+            Thread.sleep(SHORT_TTL.toMillis() * 2);
+
+            var result = unwrap(shortTtlDal.loadLatestTag(TEST_TENANT, ObjectType.DATA, origId, 1));
+            assertEquals(nextTag, result);
+        }
+        finally {
+            shortTtlDal.shutdown();
+        }
+    }
+
+    private CacheStatus cacheStatus(String cacheName) {
+
+        return cachingDal.getCacheStatus().stream()
+                .filter(status -> status.getName().equals(cacheName))
+                .findFirst()
+                .orElseThrow();
+    }
+}
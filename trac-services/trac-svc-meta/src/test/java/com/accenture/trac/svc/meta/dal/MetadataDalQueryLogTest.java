@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalQueryLogTest implements IDalTestable {
+
+    private DataSource source;
+    private MetricsRegistry metrics;
+    private JdbcMetadataDal dal;
+
+    public void setDal(IMetadataDal dal) {
+        // The query log is configured on a separate DAL for these tests
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        // Every statement is logged as slow and explained, so the EXPLAIN path runs as well
+
+        metrics = new MetricsRegistry();
+
+        dal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        dal.configureQueryLog(metrics, Duration.ZERO, true);
+        dal.startup();
+    }
+
+    @AfterEach
+    void teardown() {
+
+        dal.shutdown();
+    }
+
+    @Test
+    void saveAndLoad_queriesRecorded() throws Exception {
+
+        var tag1 = dummyTagForObjectType(ObjectType.DATA);
+        var tag2 = dummyTagForObjectType(ObjectType.MODEL);
+        unwrap(dal.saveNewObjects(TEST_TENANT, List.of(tag1, tag2)));
+
+        var header = tag1.getHeader();
+        var objectId = UUID.fromString(header.getObjectId());
+        var loaded = unwrap(dal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1));
+        assertEquals(tag1, loaded);
+
+        var text = metrics.writeText();
+
+        // Writes are batched, both objects go in a single statement
+        assertTrue(text.contains("trac_db_query_batch_items_total{query=\"writeBatch.writeObjectId\"} 2\n"));
+        assertTrue(text.contains("trac_db_query_rows_total{query=\"writeBatch.writeObjectId\"} 2\n"));
+
+        assertTrue(text.contains("trac_db_query_seconds_count{query=\"read.readDefinitionByVersion\"} 1\n"));
+        assertTrue(text.contains("trac_db_query_rows_total{query=\"read.readDefinitionByVersion\"} 1\n"));
+
+        // Slow query threshold is zero, so every statement counts as slow
+        assertTrue(text.contains("trac_db_slow_queries_total{query=\"read.readDefinitionByVersion\"} 1\n"));
+
+        assertTrue(text.contains("trac_db_transaction_round_trips_count 2\n"));
+        assertTrue(text.contains("trac_db_transaction_rows_count 2\n"));
+    }
+}
@@ -35,6 +35,7 @@ import java.time.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -1285,6 +1286,76 @@ abstract class MetadataDalSearchTest implements IDalTestable {
         assertEquals(v2t2, searchResult2.get(0));
     }
 
+    @Test
+    void deltaTagAttrs() throws Exception {
+
+        // Tags with lots of attrs and small updates are stored as deltas
+        // Search should see the full set of attrs for the latest tag, whichever way it is stored
+
+        var def = TestData.dummyDataDef();
+        var tagBuilder = TestData.dummyTag(def, INCLUDE_HEADER).toBuilder();
+
+        for (var i = 0; i < 10; i++)
+            tagBuilder.putAttr("delta_search_attr_" + i, encodeValue("delta_value_" + i));
+
+        var tagT1 = tagBuilder
+                .putAttr("delta_search_status", encodeValue("pending"))
+                .putAttr("delta_search_removed", encodeValue("going_soon"))
+                .build();
+
+        var tagT2 = tagT1.toBuilder()
+                .setHeader(TestData.nextTagHeader(tagT1.getHeader()))
+                .putAttr("delta_search_status", encodeValue("complete"))
+                .removeAttr("delta_search_removed")
+                .build();
+
+        unwrap(CompletableFuture.completedFuture(true)
+                .thenCompose(x -> dal.saveNewObject(TEST_TENANT, tagT1))
+                .thenCompose(x -> dal.saveNewTag(TEST_TENANT, tagT2)));
+
+        var expectedResult = clearDefinitionBody(tagT2);
+
+        // Unchanged attr, stored in the base snapshot
+        var unchangedSearch = searchForTerm("delta_search_attr_3", encodeValue("delta_value_3"));
+        var unchangedResult = unwrap(dal.search(TEST_TENANT, unchangedSearch));
+        assertEquals(List.of(expectedResult), unchangedResult);
+
+        // Changed attr, new value is in the delta and old value must not match
+        var newValueSearch = searchForTerm("delta_search_status", encodeValue("complete"));
+        var newValueResult = unwrap(dal.search(TEST_TENANT, newValueSearch));
+        assertEquals(List.of(expectedResult), newValueResult);
+
+        var oldValueSearch = searchForTerm("delta_search_status", encodeValue("pending"));
+        var oldValueResult = unwrap(dal.search(TEST_TENANT, oldValueSearch));
+        assertEquals(0, oldValueResult.size());
+
+        // Removed attr, still present in the base snapshot but must not match
+        var removedSearch = searchForTerm("delta_search_removed", encodeValue("going_soon"));
+        var removedResult = unwrap(dal.search(TEST_TENANT, removedSearch));
+        assertEquals(0, removedResult.size());
+
+        // Negative search on the old value goes through a sub-query, the latest tag should match
+        var negativeSearch = SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(SearchExpression.newBuilder()
+                .setLogical(LogicalExpression.newBuilder()
+                .setOperator(LogicalOperator.AND)
+                .addExpr(searchTerm("delta_search_attr_3", BasicType.STRING, SearchOperator.EQ, encodeValue("delta_value_3")))
+                .addExpr(searchTerm("delta_search_status", BasicType.STRING, SearchOperator.NE, encodeValue("pending")))))
+                .build();
+
+        var negativeResult = unwrap(dal.search(TEST_TENANT, negativeSearch));
+        assertEquals(List.of(expectedResult), negativeResult);
+    }
+
+    private SearchParameters searchForTerm(String attrName, Value attrValue) {
+
+        return SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(searchTerm(attrName, BasicType.STRING, SearchOperator.EQ, attrValue))
+                .build();
+    }
+
     @Test
     @Disabled
     void priorVersionsFlag() {
@@ -1310,6 +1381,41 @@ abstract class MetadataDalSearchTest implements IDalTestable {
     }
 
 
+    // -----------------------------------------------------------------------------------------------------------------
+    // EXPLAIN
+    // -----------------------------------------------------------------------------------------------------------------
+
+    @Test
+    void explainSearch() throws Exception {
+
+        var rodentName = "Rattus " + UUID.randomUUID();
+
+        var def1 = TestData.dummyDataDef();
+        var tag1 = tagForDef(def1, "rodent_name", encodeValue(rodentName));
+
+        unwrap(dal.saveNewObject(TestData.TEST_TENANT, tag1));
+
+        var searchParams = SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(searchTerm("rodent_name", BasicType.STRING, SearchOperator.EQ, encodeValue(rodentName)))
+                .build();
+
+        var explain = unwrap(dal.explainSearch(TestData.TEST_TENANT, searchParams));
+
+        assertEquals(1, explain.getResultCount());
+        assertTrue(explain.getQuery().toLowerCase().contains("select"));
+
+        // Parameters are reported by type, values are not included
+        var expectedType = "string(" + rodentName.length() + ")";
+        assertTrue(explain.getParamTypes().contains(expectedType));
+        assertTrue(explain.getParamTypes().stream().noneMatch(t -> t.contains(rodentName)));
+
+        assertTrue(explain.getBuildNanos() > 0);
+        assertTrue(explain.getExecuteNanos() > 0);
+        assertTrue(explain.getHydrateNanos() > 0);
+    }
+
+
     // -----------------------------------------------------------------------------------------------------------------
     // HELPERS
     // -----------------------------------------------------------------------------------------------------------------
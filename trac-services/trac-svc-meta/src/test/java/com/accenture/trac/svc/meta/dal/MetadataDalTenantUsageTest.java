@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.BasicType;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.search.SearchExpression;
+import com.accenture.trac.common.metadata.search.SearchOperator;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+import com.accenture.trac.common.metadata.search.SearchTerm;
+import com.accenture.trac.common.metrics.MetricsRegistry;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalTenantUsageTest implements IDalTestable {
+
+    private IMetadataDal dal;
+    private MetricsRegistry metrics;
+    private TenantUsage tenantUsage;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Override
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setTenantUsage(TenantUsage tenantUsage) {
+        this.tenantUsage = tenantUsage;
+    }
+
+    @Test
+    void saveAndLoad_usageRecorded() throws Exception {
+
+        var tag1 = dummyTagForObjectType(ObjectType.DATA);
+        var tag2 = dummyTagForObjectType(ObjectType.MODEL);
+        unwrap(dal.saveNewObjects(TEST_TENANT, List.of(tag1, tag2)));
+
+        var afterSave = tenantUsage.snapshot(TEST_TENANT);
+
+        var storedBytes = tag1.getDefinition().getSerializedSize() + tag2.getDefinition().getSerializedSize();
+
+        assertEquals(1, afterSave.requests);
+        assertEquals(storedBytes, afterSave.definitionBytesStored);
+        assertEquals(0, afterSave.definitionBytesReturned);
+        assertTrue(afterSave.rowsWritten > 0);
+        assertTrue(afterSave.dbNanos > 0);
+
+        var objectId = UUID.fromString(tag1.getHeader().getObjectId());
+        unwrap(dal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1));
+
+        var afterLoad = tenantUsage.snapshot(TEST_TENANT);
+
+        assertEquals(2, afterLoad.requests);
+        assertEquals(tag1.getDefinition().getSerializedSize(), afterLoad.definitionBytesReturned);
+        assertEquals(afterSave.rowsWritten, afterLoad.rowsWritten);
+        assertTrue(afterLoad.rowsRead > afterSave.rowsRead);
+        assertEquals(0, afterLoad.searches);
+    }
+
+    @Test
+    void search_usageRecorded() throws Exception {
+
+        var tag1 = dummyTagForObjectType(ObjectType.DATA);
+        var tag2 = dummyTagForObjectType(ObjectType.MODEL);
+        unwrap(dal.saveNewObjects(TEST_TENANT, List.of(tag1, tag2)));
+
+        var searchParams = SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                    .setAttrName("dataset_key")
+                    .setAttrType(BasicType.STRING)
+                    .setOperator(SearchOperator.EQ)
+                    .setSearchValue(encodeValue("widget_orders"))))
+                .build();
+
+        var searchResult = unwrap(dal.search(TEST_TENANT, searchParams));
+        assertFalse(searchResult.isEmpty());
+
+        var usage = tenantUsage.snapshot(TEST_TENANT);
+
+        assertEquals(1, usage.searches);
+        assertEquals(searchResult.size(), usage.searchResults);
+        assertTrue(usage.searchNanos > 0);
+        assertTrue(usage.searchNanos <= usage.dbNanos);
+
+        var text = metrics.writeText();
+
+        assertTrue(text.contains("trac_tenant_requests_total{tenant=\"" + TEST_TENANT + "\"} 2\n"));
+        assertTrue(text.contains("trac_tenant_searches_total{tenant=\"" + TEST_TENANT + "\"} 1\n"));
+    }
+
+    @Test
+    void unknownTenant_notRecorded() throws Exception {
+
+        var tag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(dal.saveNewObject(TEST_TENANT, tag));
+
+        var usageBefore = tenantUsage.snapshot();
+        var metricsBefore = metrics.writeText();
+
+        // Each call names a different tenant, none of these should add counters or metric series
+
+        for (var i = 0; i < 10; i++) {
+
+            var unknownTenant = "NO_SUCH_TENANT_" + i;
+            var objectId = UUID.fromString(tag.getHeader().getObjectId());
+
+            assertThrows(Exception.class, () -> unwrap(dal.saveNewObject(unknownTenant, tag)));
+            assertThrows(Exception.class, () -> unwrap(dal.loadTag(unknownTenant, ObjectType.DATA, objectId, 1, 1)));
+        }
+
+        var usageAfter = tenantUsage.snapshot();
+
+        assertEquals(usageBefore.keySet(), usageAfter.keySet());
+        assertEquals(usageBefore.get(TEST_TENANT).requests, usageAfter.get(TEST_TENANT).requests);
+        assertEquals(metricsBefore, metrics.writeText());
+    }
+
+    @Test
+    void unknownTenant_zeroUsage() {
+
+        var usage = tenantUsage.snapshot("NO_SUCH_TENANT");
+
+        assertEquals(0, usage.requests);
+        assertFalse(tenantUsage.snapshot().containsKey("NO_SUCH_TENANT"));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.exception.EDuplicateItem;
+import com.accenture.trac.svc.meta.exception.EMissingItem;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataDalTrialWriteTest implements IDalTestable {
+
+    // Trial writes run the full save for new objects and then roll back, they are used by warmup
+    // They must leave nothing behind: no rows, no reserved object IDs and nothing in the resolution cache
+
+    private static final List<String> METADATA_TABLES = List.of(
+            "object_id", "object_definition", "tag", "tag_attr",
+            "latest_version", "latest_tag", "tag_index_queue");
+
+    private DataSource source;
+    private JdbcMetadataDal dal;
+
+    public void setDal(IMetadataDal dal) {
+        // Trial writes are not part of IMetadataDal, tests use their own JDBC DAL
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        // Turn on the latest cache, so any cache side effects would show up
+        dal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        dal.configureLatestCache(Duration.ofMinutes(5));
+        dal.startup();
+    }
+
+    @AfterEach
+    void teardown() {
+
+        dal.shutdown();
+    }
+
+    @Test
+    void trialSave_noRows() throws Exception {
+
+        var existingTag = dummyTagForObjectType(ObjectType.DATA);
+        unwrap(dal.saveNewObject(TEST_TENANT, existingTag));
+
+        var rowsBefore = countRows();
+
+        var trialTags = List.of(
+                dummyTagForObjectType(ObjectType.DATA),
+                dummyTagForObjectType(ObjectType.MODEL));
+
+        unwrap(dal.trialSaveNewObjects(TEST_TENANT, trialTags));
+
+        assertEquals(rowsBefore, countRows());
+
+        for (var tag : trialTags) {
+
+            var header = tag.getHeader();
+            var objectId = UUID.fromString(header.getObjectId());
+
+            var load = dal.loadTag(TEST_TENANT, header.getObjectType(), objectId, 1, 1);
+            assertThrows(EMissingItem.class, () -> unwrap(load));
+        }
+    }
+
+    @Test
+    void trialSave_idsNotReserved() throws Exception {
+
+        // The same objects can be saved for real after a trial save
+
+        var tag = dummyTagForObjectType(ObjectType.DATA);
+        var objectId = UUID.fromString(tag.getHeader().getObjectId());
+
+        unwrap(dal.trialSaveNewObjects(TEST_TENANT, List.of(tag)));
+        unwrap(dal.saveNewObject(TEST_TENANT, tag));
+
+        var result = unwrap(dal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1));
+        assertEquals(tag, result);
+    }
+
+    @Test
+    void trialSave_noCacheSideEffects() throws Exception {
+
+        var tag = dummyTagForObjectType(ObjectType.DATA);
+        var objectId = UUID.fromString(tag.getHeader().getObjectId());
+
+        var cacheBefore = cacheSizes();
+
+        unwrap(dal.trialSaveNewObjects(TEST_TENANT, List.of(tag)));
+
+        assertEquals(cacheBefore, cacheSizes());
+
+        // Nothing about the trial object is remembered, so the real save is visible straight away
+
+        var loadTrial = dal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, objectId);
+        assertThrows(EMissingItem.class, () -> unwrap(loadTrial));
+
+        unwrap(dal.saveNewObject(TEST_TENANT, tag));
+
+        var result = unwrap(dal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, objectId));
+        assertEquals(tag, result);
+    }
+
+    @Test
+    void trialSave_duplicate() throws Exception {
+
+        // Trial writes hit the same errors as real ones, and the existing object is not changed
+
+        var tag = dummyTagForObjectType(ObjectType.DATA);
+        var objectId = UUID.fromString(tag.getHeader().getObjectId());
+
+        unwrap(dal.saveNewObject(TEST_TENANT, tag));
+
+        var rowsBefore = countRows();
+
+        var trialDup = dal.trialSaveNewObjects(TEST_TENANT, List.of(tag));
+        assertThrows(EDuplicateItem.class, () -> unwrap(trialDup));
+
+        assertEquals(rowsBefore, countRows());
+
+        var result = unwrap(dal.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1));
+        assertEquals(tag, result);
+    }
+
+    private Map<String, Long> countRows() throws SQLException {
+
+        var counts = new HashMap<String, Long>();
+
+        try (var conn = source.getConnection(); var stmt = conn.createStatement()) {
+
+            for (var table : METADATA_TABLES) {
+                try (var rs = stmt.executeQuery("select count(*) from " + table)) {
+                    rs.next();
+                    counts.put(table, rs.getLong(1));
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    private Map<String, Long> cacheSizes() {
+
+        return dal.getCacheStatus().stream()
+                .collect(Collectors.toMap(CacheStatus::getName, CacheStatus::getSize));
+    }
+}
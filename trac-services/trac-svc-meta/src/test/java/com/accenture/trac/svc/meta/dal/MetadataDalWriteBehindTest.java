@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.*;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.WriteBehind.class)
+class MetadataDalWriteBehindTest implements IDalTestable {
+
+    private static final Duration INDEX_TIMEOUT = Duration.ofSeconds(10);
+
+    private IMetadataDal dal;
+    private DataSource source;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @Override
+    public void setDataSource(DataSource source) {
+        this.source = source;
+    }
+
+    @Test
+    void readAfterWrite_consistent() throws Exception {
+
+        var origTag = dummyTagForObjectType(ObjectType.DATA);
+        var origId = UUID.fromString(origTag.getHeader().getObjectId());
+
+        unwrap(dal.saveNewObject(TEST_TENANT, origTag));
+
+        // Reads by ID must not depend on the search index
+        var result = unwrap(dal.loadTag(TEST_TENANT, ObjectType.DATA, origId, 1, 1));
+        assertEquals(origTag, result);
+
+        var nextVersion = tagForNextObject(origTag, dummyDataDef(), INCLUDE_HEADER);
+        var nextTag = nextTag(nextVersion, UPDATE_TAG_VERSION);
+
+        unwrap(dal.saveNewVersion(TEST_TENANT, nextVersion));
+        unwrap(dal.saveNewTag(TEST_TENANT, nextTag));
+
+        var latest = unwrap(dal.loadLatestVersion(TEST_TENANT, ObjectType.DATA, origId));
+        assertEquals(nextTag, latest);
+
+        var batch = unwrap(dal.loadLatestTags(TEST_TENANT,
+                List.of(ObjectType.DATA, ObjectType.DATA),
+                List.of(origId, origId),
+                List.of(1, 2)));
+
+        assertEquals(origTag, batch.get(0));
+        assertEquals(nextTag, batch.get(1));
+    }
+
+    @Test
+    void searchAfterIndexing() throws Exception {
+
+        var tag = dummyTagForObjectType(ObjectType.DATA).toBuilder()
+                .putAttr("write_behind_attr", encodeValue("write_behind_value"))
+                .build();
+
+        unwrap(dal.saveNewObject(TEST_TENANT, tag));
+
+        // The watermark passes this time once everything queued before it is indexed, including the save
+        var writeTime = Instant.now();
+
+        awaitSearchIndex(writeTime);
+
+        var searchParams = SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                    .setAttrName("write_behind_attr")
+                    .setAttrType(BasicType.STRING)
+                    .setOperator(SearchOperator.EQ)
+                    .setSearchValue(encodeValue("write_behind_value"))))
+                .build();
+
+        var searchResult = unwrap(dal.search(TEST_TENANT, searchParams));
+
+        assertEquals(1, searchResult.size());
+        assertEquals(tag.toBuilder().clearDefinition().build(), searchResult.get(0));
+    }
+
+    @Test
+    void concurrentIndexers_eachTagIndexedOnce() throws Exception {
+
+        var tags = new ArrayList<Tag>();
+
+        for (var i = 0; i < 50; i++) {
+            tags.add(dummyTagForObjectType(ObjectType.DATA).toBuilder()
+                    .putAttr("concurrent_index_attr", encodeValue("concurrent_index_value"))
+                    .build());
+        }
+
+        unwrap(dal.saveNewObjects(TEST_TENANT, tags));
+
+        // Several indexers running at once, as if several service instances share one database
+        // The background indexer of the test DAL may also be running
+        // Indexing the same tag twice would break the unique constraint on tag_attr
+
+        var executor = Executors.newFixedThreadPool(3);
+
+        try {
+            var indexers = new ArrayList<Future<?>>();
+
+            for (var i = 0; i < 3; i++) {
+                var otherInstance = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run, JdbcMetadataDal.SearchIndexMode.WRITE_BEHIND);
+                indexers.add(executor.submit(() -> { otherInstance.flushSearchIndex(); return null; }));
+            }
+
+            for (var indexer : indexers)
+                indexer.get(INDEX_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        var searchParams = SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                    .setAttrName("concurrent_index_attr")
+                    .setAttrType(BasicType.STRING)
+                    .setOperator(SearchOperator.EQ)
+                    .setSearchValue(encodeValue("concurrent_index_value"))))
+                .build();
+
+        var searchResult = unwrap(dal.search(TEST_TENANT, searchParams));
+
+        assertEquals(tags.size(), searchResult.size());
+    }
+
+    @Test
+    void watermark_heldBackBySafetyMargin() throws Exception {
+
+        // Writes that have not committed yet are not visible in the index queue
+        // The watermark must stay behind them, by at least the safety margin for write transactions
+
+        var margin = Duration.ofHours(1);
+
+        var otherInstance = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run, JdbcMetadataDal.SearchIndexMode.WRITE_BEHIND);
+        otherInstance.configureSearchWatermark(margin);
+        otherInstance.startup();
+
+        try {
+
+            var tag = dummyTagForObjectType(ObjectType.DATA);
+            unwrap(dal.saveNewObject(TEST_TENANT, tag));
+
+            var checkTime = Instant.now();
+            var watermark = unwrap(otherInstance.loadSearchWatermark(TEST_TENANT));
+
+            assertFalse(watermark.isAfter(checkTime.minus(margin)));
+            assertTrue(watermark.isAfter(checkTime.minus(margin).minus(INDEX_TIMEOUT)));
+        }
+        finally {
+            otherInstance.shutdown();
+        }
+    }
+
+    private void awaitSearchIndex(Instant writeTime) throws Exception {
+
+        var deadline = Instant.now().plus(INDEX_TIMEOUT);
+
+        while (Instant.now().isBefore(deadline)) {
+
+            var watermark = unwrap(dal.loadSearchWatermark(TEST_TENANT));
+
+            if (watermark.isAfter(writeTime))
+                return;
+
+            Thread.sleep(50);
+        }
+
+        fail("Search index did not catch up within " + INDEX_TIMEOUT);
+    }
+}
@@ -19,12 +19,18 @@ package com.accenture.trac.svc.meta.dal;
 import com.accenture.trac.svc.meta.exception.EDuplicateItem;
 import com.accenture.trac.svc.meta.exception.EMissingItem;
 import com.accenture.trac.svc.meta.exception.EWrongItemType;
+import com.accenture.trac.common.metadata.BasicType;
+import com.accenture.trac.common.metadata.MetadataCodec;
 import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.TypeSystem;
 import static com.accenture.trac.svc.meta.test.TestData.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import com.accenture.trac.svc.meta.test.IDalTestable;
 import com.accenture.trac.svc.meta.test.JdbcUnit;
@@ -496,6 +502,76 @@ abstract class MetadataDalWriteTest implements IDalTestable {
         assertThrows(EMissingItem.class, () -> unwrap(loadWrongType2));
     }
 
+    @Test
+    void testSaveNewTag_deltaAttrs() throws Exception {
+
+        // Tags with lots of attrs and small updates are stored as deltas
+        // Make sure every tag version reads back correctly, including across periodic snapshots
+
+        var origDef = dummyDataDef();
+        var origTagBuilder = dummyTag(origDef, INCLUDE_HEADER).toBuilder();
+
+        for (var i = 0; i < 10; i++)
+            origTagBuilder.putAttr("delta_attr_" + i, MetadataCodec.encodeValue("value_" + i));
+
+        var origTag = addMultiValuedAttr(origTagBuilder.build());
+        var origId = UUID.fromString(origTag.getHeader().getObjectId());
+
+        unwrap(dal.saveNewObject(TEST_TENANT, origTag));
+
+        var tags = new ArrayList<com.accenture.trac.common.metadata.Tag>();
+        tags.add(origTag);
+
+        for (var tagVersion = 2; tagVersion <= 50; tagVersion++) {
+
+            var priorTag = tags.get(tags.size() - 1);
+
+            var nextTag = priorTag.toBuilder()
+                    .setHeader(nextTagHeader(priorTag.getHeader()))
+                    .putAttr("status_counter", MetadataCodec.encodeValue(tagVersion));
+
+            // Mix in some deletes, re-creates and changes to multi-valued attrs
+
+            if (tagVersion == 3)
+                nextTag.removeAttr("delta_attr_0");
+
+            if (tagVersion == 5)
+                nextTag.putAttr("delta_attr_0", MetadataCodec.encodeValue(true));
+
+            if (tagVersion == 7)
+                nextTag.putAttr("data_classification", MetadataCodec.encodeArrayValue(
+                        List.of("pii", "confidential"), TypeSystem.descriptor(BasicType.STRING)));
+
+            if (tagVersion == 9)
+                nextTag.removeAttr("data_classification");
+
+            if (tagVersion % 10 == 0)
+                nextTag.removeAttr("delta_attr_" + (tagVersion / 10));
+
+            tags.add(nextTag.build());
+            unwrap(dal.saveNewTag(TEST_TENANT, tags.get(tags.size() - 1)));
+        }
+
+        for (var tag : tags) {
+
+            var tagVersion = tag.getHeader().getTagVersion();
+            var result = dal.loadTag(TEST_TENANT, ObjectType.DATA, origId, 1, tagVersion);
+
+            assertEquals(tag, unwrap(result));
+        }
+
+        var latestResult = dal.loadLatestTag(TEST_TENANT, ObjectType.DATA, origId, 1);
+        assertEquals(tags.get(tags.size() - 1), unwrap(latestResult));
+
+        var batchResult = dal.loadTags(TEST_TENANT,
+                Collections.nCopies(tags.size(), ObjectType.DATA),
+                Collections.nCopies(tags.size(), origId),
+                Collections.nCopies(tags.size(), 1),
+                tags.stream().map(tag -> tag.getHeader().getTagVersion()).collect(Collectors.toList()));
+
+        assertEquals(tags, unwrap(batchResult));
+    }
+
     @Test
     void testPreallocate_ok() throws Exception {
 
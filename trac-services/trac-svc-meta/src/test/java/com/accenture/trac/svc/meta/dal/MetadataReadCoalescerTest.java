@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.svc.meta.exception.EMissingItem;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataReadCoalescerTest implements IDalTestable {
+
+    private static final int N_LOADS = 20;
+
+    private IMetadataDal dal;
+    private IMetadataDal coalescer;
+    private ExecutorService executor;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @BeforeEach
+    void setup() {
+        coalescer = new MetadataReadCoalescer(dal, Duration.ofMillis(20), 8);
+        executor = Executors.newFixedThreadPool(N_LOADS);
+    }
+
+    @AfterEach
+    void cleanup() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentLoads_ok() throws Exception {
+
+        var tags = new ArrayList<Tag>();
+
+        for (var i = 0; i < N_LOADS; i++) {
+            var tag = dummyTagForObjectType(ObjectType.DATA);
+            unwrap(dal.saveNewObject(TEST_TENANT, tag));
+            tags.add(tag);
+        }
+
+        var results = loadConcurrently(tags);
+
+        for (var i = 0; i < N_LOADS; i++)
+            assertEquals(tags.get(i), unwrap(results.get(i)));
+    }
+
+    @Test
+    void concurrentLoads_oneMissing() throws Exception {
+
+        var tags = new ArrayList<Tag>();
+
+        for (var i = 0; i < N_LOADS; i++) {
+            var tag = dummyTagForObjectType(ObjectType.DATA);
+            if (i != 3)
+                unwrap(dal.saveNewObject(TEST_TENANT, tag));
+            tags.add(tag);
+        }
+
+        var results = loadConcurrently(tags);
+
+        // Only the missing item should fail, other loads in the same batch still succeed
+
+        for (var i = 0; i < N_LOADS; i++) {
+
+            var result = results.get(i);
+
+            if (i == 3)
+                assertThrows(EMissingItem.class, () -> unwrap(result));
+            else
+                assertEquals(tags.get(i), unwrap(result));
+        }
+    }
+
+    @Test
+    void interruptedLeader_closesBatchEarly() throws Exception {
+
+        // A leader whose thread is interrupted must not wait out (or spin through) the coalescing window
+        // The interrupt is kept, so the code running the lane can still see it
+
+        var tag = dummyTagForObjectType(ObjectType.DATA);
+        var objectId = UUID.fromString(tag.getHeader().getObjectId());
+
+        var interruptedDuringLoad = new CompletableFuture<Boolean>();
+
+        var stubDal = new DelegatingMetadataDal(dal) {
+
+            @Override
+            public CompletableFuture<Tag> loadTag(String tenant, ObjectType objectType, UUID objectId, int objectVersion, int tagVersion) {
+                interruptedDuringLoad.complete(Thread.currentThread().isInterrupted());
+                return CompletableFuture.completedFuture(tag);
+            }
+        };
+
+        var longWindow = Duration.ofSeconds(30);
+        var slowCoalescer = new MetadataReadCoalescer(stubDal, longWindow, 8);
+
+        var start = System.nanoTime();
+        CompletableFuture<Tag> result;
+        boolean stillInterrupted;
+
+        try {
+            Thread.currentThread().interrupt();
+            result = slowCoalescer.loadTag(TEST_TENANT, ObjectType.DATA, objectId, 1, 1);
+        }
+        finally {
+            stillInterrupted = Thread.interrupted();
+        }
+
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(5)) < 0);
+        assertTrue(stillInterrupted);
+        assertTrue(interruptedDuringLoad.getNow(false));
+        assertEquals(tag, result.get(1, TimeUnit.SECONDS));
+    }
+
+    private List<CompletableFuture<Tag>> loadConcurrently(List<Tag> tags) throws Exception {
+
+        var start = new CountDownLatch(1);
+        var submitted = new ArrayList<Future<CompletableFuture<Tag>>>();
+
+        for (var tag : tags) {
+
+            var objectId = UUID.fromString(tag.getHeader().getObjectId());
+
+            submitted.add(executor.submit(() -> {
+                start.await();
+                return coalescer.loadLatestVersion(TEST_TENANT, ObjectType.DATA, objectId);
+            }));
+        }
+
+        start.countDown();
+
+        var results = new ArrayList<CompletableFuture<Tag>>();
+
+        for (var future : submitted)
+            results.add(future.get(10, TimeUnit.SECONDS));
+
+        return results;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal;
+
+import com.accenture.trac.common.metadata.BasicType;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.search.*;
+import com.accenture.trac.svc.meta.test.IDalTestable;
+import com.accenture.trac.svc.meta.test.JdbcUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+import static com.accenture.trac.svc.meta.test.TestData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@ExtendWith(JdbcUnit.class)
+class MetadataSearchCacheTest implements IDalTestable {
+
+    private IMetadataDal dal;
+    private IMetadataDal searchCache;
+    private AtomicInteger searchCount;
+
+    public void setDal(IMetadataDal dal) {
+        this.dal = dal;
+    }
+
+    @BeforeEach
+    void setup() {
+
+        searchCount = new AtomicInteger();
+
+        var countingDal = new DelegatingMetadataDal(dal) {
+
+            @Override
+            public CompletableFuture<List<Tag>> search(String tenant, SearchParameters searchParameters) {
+                searchCount.incrementAndGet();
+                return super.search(tenant, searchParameters);
+            }
+        };
+
+        searchCache = new MetadataSearchCache(countingDal, 100);
+    }
+
+    @Test
+    void repeatedSearch_servedFromCache() throws Exception {
+
+        var tag = searchableTag(ObjectType.DATA, "cache_hit");
+        unwrap(searchCache.saveNewObject(TEST_TENANT, tag));
+
+        var params = searchParams(ObjectType.DATA, "cache_hit");
+
+        var result1 = unwrap(searchCache.search(TEST_TENANT, params));
+        var result2 = unwrap(searchCache.search(TEST_TENANT, params));
+
+        assertEquals(1, result1.size());
+        assertEquals(result1, result2);
+        assertEquals(1, searchCount.get());
+    }
+
+    @Test
+    void writeSameType_invalidates() throws Exception {
+
+        var tag1 = searchableTag(ObjectType.DATA, "cache_invalidate");
+        unwrap(searchCache.saveNewObject(TEST_TENANT, tag1));
+
+        var params = searchParams(ObjectType.DATA, "cache_invalidate");
+        var result1 = unwrap(searchCache.search(TEST_TENANT, params));
+
+        var tag2 = searchableTag(ObjectType.DATA, "cache_invalidate");
+        unwrap(searchCache.saveNewObject(TEST_TENANT, tag2));
+
+        var result2 = unwrap(searchCache.search(TEST_TENANT, params));
+
+        assertEquals(1, result1.size());
+        assertEquals(2, result2.size());
+        assertEquals(2, searchCount.get());
+    }
+
+    @Test
+    void writeOtherType_noInvalidation() throws Exception {
+
+        var tag1 = searchableTag(ObjectType.DATA, "cache_other_type");
+        unwrap(searchCache.saveNewObject(TEST_TENANT, tag1));
+
+        var params = searchParams(ObjectType.DATA, "cache_other_type");
+        unwrap(searchCache.search(TEST_TENANT, params));
+
+        var tag2 = searchableTag(ObjectType.MODEL, "cache_other_type");
+        unwrap(searchCache.saveNewObject(TEST_TENANT, tag2));
+
+        var result = unwrap(searchCache.search(TEST_TENANT, params));
+
+        assertEquals(1, result.size());
+        assertEquals(1, searchCount.get());
+    }
+
+    private Tag searchableTag(ObjectType objectType, String value) {
+
+        return dummyTagForObjectType(objectType).toBuilder()
+                .putAttr("search_cache_attr", encodeValue(value))
+                .build();
+    }
+
+    private SearchParameters searchParams(ObjectType objectType, String value) {
+
+        return SearchParameters.newBuilder()
+                .setObjectType(objectType)
+                .setSearch(SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                    .setAttrName("search_cache_attr")
+                    .setAttrType(BasicType.STRING)
+                    .setOperator(SearchOperator.EQ)
+                    .setSearchValue(encodeValue(value))))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class JdbcResolutionCacheTest {
+
+    private static final Duration LATEST_TTL = Duration.ofMinutes(5);
+
+    @Test
+    void latestCache_offByDefault() {
+
+        var cache = new JdbcResolutionCache();
+        var epoch = cache.latestEpoch();
+
+        cache.putLatestVersion(1, 1, epoch);
+        cache.putLatestTag(1, 1, epoch);
+
+        assertNull(cache.getLatestVersion(1));
+        assertNull(cache.getLatestTag(1));
+    }
+
+    @Test
+    void putLatest_rejectedAfterInvalidation() {
+
+        var cache = new JdbcResolutionCache(100, LATEST_TTL);
+
+        // A read that captured its epoch before a write must not cache what it read
+
+        var staleEpoch = cache.latestEpoch();
+
+        cache.invalidateLatestVersions(new long[] {1});
+        cache.invalidateLatestTags(new long[] {2});
+
+        cache.putLatestVersion(1, 1, staleEpoch);
+        cache.putLatestTag(2, 1, staleEpoch);
+
+        assertNull(cache.getLatestVersion(1));
+        assertNull(cache.getLatestTag(2));
+
+        // Reads that start after the write can cache their result
+
+        var currentEpoch = cache.latestEpoch();
+
+        cache.putLatestVersion(1, 2, currentEpoch);
+        cache.putLatestTag(2, 2, currentEpoch);
+
+        assertEquals(2, cache.getLatestVersion(1));
+        assertEquals(2, cache.getLatestTag(2));
+    }
+
+    @Test
+    void putLatest_otherKeysNotRejected() {
+
+        var cache = new JdbcResolutionCache(100, LATEST_TTL);
+
+        var epoch = cache.latestEpoch();
+
+        cache.invalidateLatestVersions(new long[] {1});
+        cache.invalidateLatestTags(new long[] {1});
+
+        // Writes to other objects do not stop in-flight reads from caching their results
+
+        cache.putLatestVersion(2, 1, epoch);
+        cache.putLatestTag(2, 1, epoch);
+
+        assertEquals(1, cache.getLatestVersion(2));
+        assertEquals(1, cache.getLatestTag(2));
+    }
+
+    @Test
+    void latestCache_expiresAfterTtl() throws Exception {
+
+        var ttl = Duration.ofMillis(100);
+        var cache = new JdbcResolutionCache(100, ttl);
+
+        cache.putLatestVersion(1, 1, cache.latestEpoch());
+        assertEquals(1, cache.getLatestVersion(1));
+
+        Thread.sleep(ttl.toMillis() * 2);
+
+        assertNull(cache.getLatestVersion(1));
+    }
+}
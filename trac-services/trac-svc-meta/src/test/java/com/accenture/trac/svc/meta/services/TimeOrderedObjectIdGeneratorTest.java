@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.services;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class TimeOrderedObjectIdGeneratorTest {
+
+    @Test
+    void nextId_versionAndVariant() {
+
+        var generator = new TimeOrderedObjectIdGenerator();
+
+        for (var i = 0; i < 1000; i++) {
+
+            var id = generator.nextId();
+
+            assertEquals(7, id.version());
+            assertEquals(2, id.variant());
+
+            // IDs must round trip through the standard string format
+            assertEquals(id, UUID.fromString(id.toString()));
+        }
+    }
+
+    @Test
+    void nextId_timestamp() {
+
+        var clock = new AtomicLong(1600000000000L);
+        var generator = new TimeOrderedObjectIdGenerator(clock::get);
+
+        var id = generator.nextId();
+
+        assertEquals(1600000000000L, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void nextId_ordering() {
+
+        // IDs from later milliseconds sort after IDs from earlier milliseconds
+        // Object IDs are stored as signed hi / lo longs, so compare the hi part as signed
+
+        var clock = new AtomicLong(1600000000000L);
+        var generator = new TimeOrderedObjectIdGenerator(clock::get);
+
+        var priorId = generator.nextId();
+
+        for (var i = 0; i < 1000; i++) {
+
+            clock.incrementAndGet();
+
+            var id = generator.nextId();
+
+            assertTrue(id.getMostSignificantBits() > priorId.getMostSignificantBits());
+            assertTrue(id.compareTo(priorId) > 0);
+
+            priorId = id;
+        }
+    }
+
+    @Test
+    void nextId_unique() {
+
+        // Fixed clock, all IDs fall in the same millisecond and rely on the random bits
+
+        var generator = new TimeOrderedObjectIdGenerator(() -> 1600000000000L);
+        var ids = new HashSet<UUID>();
+
+        for (var i = 0; i < 100000; i++)
+            ids.add(generator.nextId());
+
+        assertEquals(100000, ids.size());
+    }
+}
@@ -16,10 +16,26 @@
 
 package com.accenture.trac.svc.meta.test;
 
+import com.accenture.trac.common.metrics.MetricsRegistry;
 import com.accenture.trac.svc.meta.dal.IMetadataDal;
+import com.accenture.trac.svc.meta.dal.TenantUsage;
+
+import javax.sql.DataSource;
 
 
 public interface IDalTestable {
 
     void setDal(IMetadataDal dal);
+
+    default void setMetrics(MetricsRegistry metrics) {
+        // Most DAL tests do not look at metrics
+    }
+
+    default void setTenantUsage(TenantUsage tenantUsage) {
+        // Or tenant usage
+    }
+
+    default void setDataSource(DataSource source) {
+        // Or the underlying database, unless they need to act as another service instance
+    }
 }
@@ -17,6 +17,7 @@
 package com.accenture.trac.svc.meta.test;
 
 import com.accenture.trac.common.db.JdbcSetup;
+import com.accenture.trac.common.metrics.MetricsRegistry;
 import com.accenture.trac.common.util.InterfaceLogging;
 import com.accenture.trac.common.db.JdbcDialect;
 import com.accenture.trac.svc.meta.dal.IMetadataDal;
@@ -27,6 +28,9 @@ import org.junit.jupiter.api.extension.*;
 
 import javax.sql.DataSource;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.UUID;
@@ -38,9 +42,53 @@ public class JdbcUnit implements BeforeAllCallback, BeforeEachCallback, AfterEac
 
     private static final String JDBC_URL_TEMPLATE = "mem:%s;DB_CLOSE_DELAY=-1";
 
+    public static final Duration WRITE_BEHIND_WATERMARK_MARGIN = Duration.ofMillis(100);
+
+    // Schema scripts in version order, the same sequence deploy-metadb applies with Flyway
+    // Migration 004 is a data backfill in deploy-metadb, there is nothing to backfill in a new database
+    private static final List<String> SCHEMA_SCRIPTS = List.of(
+            "/h2/001__trac_metadata.ddl",
+            "/h2/002__tag_attr_delta.ddl",
+            "/h2/003__search_index_queue.ddl",
+            "/h2/005__tag_attrs_not_null.ddl");
+
+    private final JdbcMetadataDal.SearchIndexMode searchIndexMode;
+    private final int poolSize;
+
     private DataSource source;
     private JdbcMetadataDal dal;
 
+    public JdbcUnit() {
+        this(JdbcMetadataDal.SearchIndexMode.SYNC, 1);
+    }
+
+    protected JdbcUnit(JdbcMetadataDal.SearchIndexMode searchIndexMode, int poolSize) {
+        this.searchIndexMode = searchIndexMode;
+        this.poolSize = poolSize;
+    }
+
+    public static class Concurrent extends JdbcUnit {
+
+        public Concurrent() {
+            // Enough connections for several DAL transactions to run at the same time
+            super(JdbcMetadataDal.SearchIndexMode.SYNC, 4);
+        }
+    }
+
+    public static class WriteBehind extends JdbcUnit {
+
+        public WriteBehind() {
+            // The background indexer needs its own connection alongside the test
+            super(JdbcMetadataDal.SearchIndexMode.WRITE_BEHIND, 4);
+        }
+
+        @Override
+        void configureDal(JdbcMetadataDal dal) {
+            // Test writes commit straight away, a short margin keeps tests waiting on the watermark quick
+            dal.configureSearchWatermark(WRITE_BEHIND_WATERMARK_MARGIN);
+        }
+    }
+
     @Override
     public void beforeAll(ExtensionContext context) throws Exception {
 
@@ -52,23 +100,33 @@ public class JdbcUnit implements BeforeAllCallback, BeforeEachCallback, AfterEac
         props.setProperty("unit.dialect", "H2");
         props.setProperty("unit.h2.user", "trac");
         props.setProperty("unit.h2.pass", "trac");
-        props.setProperty("unit.pool.size", "1");
+        props.setProperty("unit.pool.size", Integer.toString(poolSize));
 
         source = JdbcSetup.createDatasource(props, "unit");
 
-        var inputStream = JdbcUnit.class.getResourceAsStream("/h2/001__trac_metadata.ddl");
-        var scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A");
-        var deployScript = scanner.next();
+        deploySchema(source);
+    }
+
+    public static void deploySchema(DataSource source) throws SQLException {
+
+        // Deploy the metadata schema and a test tenant into an empty H2 database
 
         try (var conn = source.getConnection(); var stmt = conn.createStatement()) {
 
             System.out.println("SQL >>> Deploying database schema");
 
-            for (var deployCommand : deployScript.split(";"))
-                if (!deployCommand.isBlank()) {
-                    System.out.println("SQL >>>\n\n" + deployCommand.strip() + "\n");
-                    stmt.execute(deployCommand);
-                }
+            for (var script : SCHEMA_SCRIPTS) {
+
+                var inputStream = JdbcUnit.class.getResourceAsStream(script);
+                var scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A");
+                var deployScript = scanner.next();
+
+                for (var deployCommand : deployScript.split(";"))
+                    if (!deployCommand.isBlank()) {
+                        System.out.println("SQL >>>\n\n" + deployCommand.strip() + "\n");
+                        stmt.execute(deployCommand);
+                    }
+            }
 
             stmt.execute(String.format("insert into tenant (tenant_id, tenant_code) values (1, '%s')", TEST_TENANT));
         }
@@ -82,7 +140,11 @@ public class JdbcUnit implements BeforeAllCallback, BeforeEachCallback, AfterEac
         if (testClass.isEmpty() || !IDalTestable.class.isAssignableFrom(testClass.get()))
             Assertions.fail("JUnit extension for DAL testing requires the test class to implement IDalTestable");
 
-        var dal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run);
+        var metrics = new MetricsRegistry();
+
+        var dal = new JdbcMetadataDal(JdbcDialect.H2, source, Runnable::run, searchIndexMode);
+        dal.configureTenantUsage(metrics);
+        configureDal(dal);
         dal.startup();
 
         this.dal = dal;
@@ -93,9 +155,16 @@ public class JdbcUnit implements BeforeAllCallback, BeforeEachCallback, AfterEac
         if (testInstance.isPresent()) {
             var testCase = (IDalTestable) testInstance.get();
             testCase.setDal(dalWithLogging);
+            testCase.setMetrics(metrics);
+            testCase.setTenantUsage(dal.getTenantUsage());
+            testCase.setDataSource(source);
         }
     }
 
+    void configureDal(JdbcMetadataDal dal) {
+        // Extension variants can add DAL config for their tests
+    }
+
     @Override
     public void afterEach(ExtensionContext context) {
 
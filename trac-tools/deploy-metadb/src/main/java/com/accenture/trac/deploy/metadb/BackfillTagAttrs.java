@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.accenture.trac.deploy.metadb;
+
+import com.accenture.trac.common.exception.ETracInternal;
+import com.accenture.trac.common.metadata.*;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+class BackfillTagAttrs implements JavaMigration {
+
+    // Schema version 003 adds serialized attrs on the tag record, version 005 makes them not null
+    // Tags saved before 003 only have their attrs in tag_attr, this migration serializes them onto the tag
+    // Decoding attr values needs the metadata codec, so this step cannot be a SQL script
+
+    private static final MigrationVersion VERSION = MigrationVersion.fromVersion("004");
+    private static final String DESCRIPTION = "backfill tag attrs";
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Tombstone rows in tag_attr deltas, see JdbcTagDelta in the metadata service
+    private static final int DELETED_ATTR_INDEX = -2;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public MigrationVersion getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public String getDescription() {
+        return DESCRIPTION;
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean isUndo() {
+        return false;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+
+        var conn = context.getConnection();
+        var nTags = 0L;
+
+        // Tags are paged through in tag_pk order, each batch starts after the last tag_pk of the one before
+        // Paging on the primary key means each batch is a range scan, rather than a new scan for null attrs
+
+        var lastTagPk = Long.MIN_VALUE;
+        var batch = readTagsToBackfill(conn, lastTagPk);
+
+        while (!batch.isEmpty()) {
+
+            for (var tagKey : batch) {
+                var attrs = readTagAttrs(conn, tagKey.tenantId, tagKey.tagPk);
+                writeTagAttrs(conn, tagKey.tenantId, tagKey.tagPk, attrs);
+            }
+
+            nTags += batch.size();
+            log.info("Backfilled serialized attrs for {} tags", nTags);
+
+            lastTagPk = batch.get(batch.size() - 1).tagPk;
+            batch = readTagsToBackfill(conn, lastTagPk);
+        }
+    }
+
+    private List<TagKey> readTagsToBackfill(Connection conn, long afterTagPk) throws SQLException {
+
+        var query =
+                "select tenant_id, tag_pk from tag\n" +
+                "where tag_pk > ?\n" +
+                "and tag_attrs is null\n" +
+                "order by tag_pk";
+
+        try (var stmt = conn.prepareStatement(query)) {
+
+            stmt.setLong(1, afterTagPk);
+            stmt.setMaxRows(BATCH_SIZE);
+
+            try (var rs = stmt.executeQuery()) {
+
+                var batch = new ArrayList<TagKey>();
+
+                while (rs.next())
+                    batch.add(new TagKey(rs.getShort(1), rs.getLong(2)));
+
+                return batch;
+            }
+        }
+    }
+
+    private Map<String, Value> readTagAttrs(Connection conn, short tenantId, long tagPk) throws SQLException {
+
+        // Tags stored as a delta are combined with their base snapshot, the same way search reads them
+
+        var query =
+                "select ta.* from tag t\n" +
+                "join tag_attr ta\n" +
+                "  on ta.tenant_id = t.tenant_id\n" +
+                "  and (ta.tag_fk = t.tag_pk or (\n" +
+                "    ta.tag_fk = t.attr_base_fk and not exists (\n" +
+                "      select 1 from tag_attr tao\n" +
+                "      where tao.tenant_id = t.tenant_id\n" +
+                "      and tao.tag_fk = t.tag_pk\n" +
+                "      and tao.attr_name = ta.attr_name)))\n" +
+                "where t.tenant_id = ?\n" +
+                "and t.tag_pk = ?\n" +
+                "and ta.attr_index <> ?\n" +
+                "order by ta.attr_name, ta.attr_index";
+
+        try (var stmt = conn.prepareStatement(query)) {
+
+            stmt.setShort(1, tenantId);
+            stmt.setLong(2, tagPk);
+            stmt.setInt(3, DELETED_ATTR_INDEX);
+
+            try (var rs = stmt.executeQuery()) {
+
+                var attrs = new HashMap<String, Value>();
+
+                var currentAttrArray = new ArrayList<Value>();
+                var currentAttrName = "";
+
+                while (rs.next()) {
+
+                    var attrName = rs.getString("attr_name");
+                    var attrIndex = rs.getInt("attr_index");
+                    var attrValue = readAttrValue(rs);
+
+                    // Multi-valued attrs are stored one row per item, with attr_index counting from zero
+                    if (!currentAttrArray.isEmpty() && !attrName.equals(currentAttrName)) {
+                        attrs.put(currentAttrName, arrayValue(currentAttrArray));
+                        currentAttrArray = new ArrayList<>();
+                    }
+
+                    currentAttrName = attrName;
+
+                    if (attrIndex < 0)
+                        attrs.put(attrName, attrValue);
+                    else
+                        currentAttrArray.add(attrValue);
+                }
+
+                if (!currentAttrArray.isEmpty())
+                    attrs.put(currentAttrName, arrayValue(currentAttrArray));
+
+                return attrs;
+            }
+        }
+    }
+
+    private void writeTagAttrs(Connection conn, short tenantId, long tagPk, Map<String, Value> attrs) throws SQLException {
+
+        // Same encoding the metadata service uses when it writes tags
+
+        var tagAttrs = Tag.newBuilder()
+                .putAllAttr(attrs)
+                .build()
+                .toByteArray();
+
+        var query =
+                "update tag set tag_attrs = ?\n" +
+                "where tenant_id = ?\n" +
+                "and tag_pk = ?";
+
+        try (var stmt = conn.prepareStatement(query)) {
+
+            stmt.setBytes(1, tagAttrs);
+            stmt.setShort(2, tenantId);
+            stmt.setLong(3, tagPk);
+
+            stmt.executeUpdate();
+        }
+    }
+
+    private Value readAttrValue(ResultSet rs) throws SQLException {
+
+        var attrType = BasicType.valueOf(rs.getString("attr_type"));
+
+        switch (attrType) {
+
+            case BOOLEAN:
+                return MetadataCodec.encodeValue(rs.getBoolean("attr_value_boolean"));
+
+            case INTEGER:
+                return MetadataCodec.encodeValue(rs.getLong("attr_value_integer"));
+
+            case FLOAT:
+                return MetadataCodec.encodeValue(rs.getDouble("attr_value_float"));
+
+            case STRING:
+                return MetadataCodec.encodeValue(rs.getString("attr_value_string"));
+
+            case DECIMAL:
+                var decimal = rs.getBigDecimal("attr_value_decimal");
+                return MetadataCodec.encodeValue(decimal.stripTrailingZeros());
+
+            case DATE:
+                var date = rs.getDate("attr_value_date");
+                return MetadataCodec.encodeValue(date.toLocalDate());
+
+            case DATETIME:
+                var timestamp = rs.getTimestamp("attr_value_datetime");
+                return MetadataCodec.encodeValue(timestamp.toInstant().atOffset(ZoneOffset.UTC));
+
+            default:
+
+                var message = String.format(
+                        "Failed to backfill tag attrs (attr type %s is not recognised as a primitive type)",
+                        attrType.name());
+
+                log.error(message);
+
+                throw new ETracInternal(message);
+        }
+    }
+
+    private Value arrayValue(List<Value> items) {
+
+        var arrayBasicType = items.get(0).getType().getBasicType();
+
+        var typeDescriptor = TypeDescriptor.newBuilder()
+                .setBasicType(BasicType.ARRAY)
+                .setArrayType(TypeDescriptor.newBuilder()
+                .setBasicType(arrayBasicType));
+
+        return Value.newBuilder()
+                .setType(typeDescriptor)
+                .setArrayValue(ArrayValue.newBuilder().addAllItem(items))
+                .build();
+    }
+
+    private static class TagKey {
+
+        final short tenantId;
+        final long tagPk;
+
+        TagKey(short tenantId, long tagPk) {
+            this.tenantId = tenantId;
+            this.tagPk = tagPk;
+        }
+    }
+}
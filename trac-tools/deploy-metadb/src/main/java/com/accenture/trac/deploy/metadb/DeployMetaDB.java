@@ -107,6 +107,7 @@ public class DeployMetaDB {
                 .locations(scriptsLocation)
                 .sqlMigrationPrefix("")
                 .sqlMigrationSuffixes(".sql", ".ddl", ".dml")
+                .javaMigrations(new BackfillTagAttrs())
                 .load();
 
         flyway.migrate();
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.generate.metadb;
+
+import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.common.metadata.ObjectType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+
+public class CorpusConfig {
+
+    // Corpus settings live under trac.generate in the same config file as the metadata service
+    // The database connection is the normal service DB config, so any supported dialect can be a target
+
+    private static final String CONFIG_ROOT = "trac.generate";
+
+    private static final String OBJECT_COUNT_KEY = CONFIG_ROOT + ".objectCount";
+    private static final String MIX_ROOT = CONFIG_ROOT + ".mix.";
+    private static final String VERSIONS_MEAN_KEY = CONFIG_ROOT + ".versions.mean";
+    private static final String VERSIONS_MAX_KEY = CONFIG_ROOT + ".versions.max";
+    private static final String TAGS_MEAN_KEY = CONFIG_ROOT + ".tags.mean";
+    private static final String TAGS_MAX_KEY = CONFIG_ROOT + ".tags.max";
+    private static final String ATTR_VOCABULARY_KEY = CONFIG_ROOT + ".attrs.vocabulary";
+    private static final String ATTR_SKEW_KEY = CONFIG_ROOT + ".attrs.skew";
+    private static final String ATTRS_PER_TAG_KEY = CONFIG_ROOT + ".attrs.perTag";
+    private static final String MULTI_VALUED_PERCENT_KEY = CONFIG_ROOT + ".attrs.multiValuedPercent";
+    private static final String MAX_ARRAY_SIZE_KEY = CONFIG_ROOT + ".attrs.maxArraySize";
+    private static final String DATA_MAX_FIELDS_KEY = CONFIG_ROOT + ".data.maxFields";
+    private static final String FLOW_MAX_MODELS_KEY = CONFIG_ROOT + ".flow.maxModels";
+    private static final String MODEL_MAX_PARAMS_KEY = CONFIG_ROOT + ".model.maxParams";
+    private static final String WRITERS_KEY = CONFIG_ROOT + ".writers";
+    private static final String BATCH_SIZE_KEY = CONFIG_ROOT + ".batchSize";
+    private static final String RANDOM_SEED_KEY = CONFIG_ROOT + ".randomSeed";
+    private static final String PROGRESS_INTERVAL_KEY = CONFIG_ROOT + ".progressIntervalSeconds";
+
+    // Default mix is weighted towards data and jobs, which is where production volume is
+    private static final Map<ObjectType, Integer> DEFAULT_MIX = Map.of(
+            ObjectType.DATA, 40,
+            ObjectType.MODEL, 10,
+            ObjectType.FLOW, 5,
+            ObjectType.JOB, 30,
+            ObjectType.FILE, 10,
+            ObjectType.CUSTOM, 5);
+
+    private static final double DEFAULT_VERSIONS_MEAN = 3.0;
+    private static final int DEFAULT_VERSIONS_MAX = 50;
+    private static final double DEFAULT_TAGS_MEAN = 3.0;
+    private static final int DEFAULT_TAGS_MAX = 50;
+    private static final int DEFAULT_ATTR_VOCABULARY = 1000;
+    private static final double DEFAULT_ATTR_SKEW = 1.1;
+    private static final int DEFAULT_ATTRS_PER_TAG = 20;
+    private static final int DEFAULT_MULTI_VALUED_PERCENT = 10;
+    private static final int DEFAULT_MAX_ARRAY_SIZE = 10;
+    private static final int DEFAULT_DATA_MAX_FIELDS = 200;
+    private static final int DEFAULT_FLOW_MAX_MODELS = 50;
+    private static final int DEFAULT_MODEL_MAX_PARAMS = 20;
+    private static final int DEFAULT_WRITERS = 4;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_RANDOM_SEED = 0;
+    private static final int DEFAULT_PROGRESS_INTERVAL = 10;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final int objectCount;
+    private final Map<ObjectType, Integer> mixWeights;
+    private final double versionsMean;
+    private final int versionsMax;
+    private final double tagsMean;
+    private final int tagsMax;
+    private final int attrVocabulary;
+    private final double attrSkew;
+    private final int attrsPerTag;
+    private final int multiValuedPercent;
+    private final int maxArraySize;
+    private final int dataMaxFields;
+    private final int flowMaxModels;
+    private final int modelMaxParams;
+    private final int writers;
+    private final int batchSize;
+    private final long randomSeed;
+    private final int progressIntervalSeconds;
+
+    public CorpusConfig(Properties props) {
+
+        objectCount = readInt(props, OBJECT_COUNT_KEY, null, 1);
+
+        mixWeights = new EnumMap<>(ObjectType.class);
+
+        for (var mixEntry : DEFAULT_MIX.entrySet()) {
+            var mixKey = MIX_ROOT + mixEntry.getKey().name().toLowerCase();
+            mixWeights.put(mixEntry.getKey(), readInt(props, mixKey, mixEntry.getValue(), 0));
+        }
+
+        if (mixWeights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+
+            var message = "Object type mix is empty, at least one " + MIX_ROOT + "* weight must be set";
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        versionsMean = readDouble(props, VERSIONS_MEAN_KEY, DEFAULT_VERSIONS_MEAN, 1.0);
+        versionsMax = readInt(props, VERSIONS_MAX_KEY, DEFAULT_VERSIONS_MAX, 1);
+        tagsMean = readDouble(props, TAGS_MEAN_KEY, DEFAULT_TAGS_MEAN, 1.0);
+        tagsMax = readInt(props, TAGS_MAX_KEY, DEFAULT_TAGS_MAX, 1);
+
+        attrVocabulary = readInt(props, ATTR_VOCABULARY_KEY, DEFAULT_ATTR_VOCABULARY, 1);
+        attrSkew = readDouble(props, ATTR_SKEW_KEY, DEFAULT_ATTR_SKEW, 0.0);
+        attrsPerTag = readInt(props, ATTRS_PER_TAG_KEY, DEFAULT_ATTRS_PER_TAG, 0);
+        multiValuedPercent = readInt(props, MULTI_VALUED_PERCENT_KEY, DEFAULT_MULTI_VALUED_PERCENT, 0);
+        maxArraySize = readInt(props, MAX_ARRAY_SIZE_KEY, DEFAULT_MAX_ARRAY_SIZE, 1);
+
+        dataMaxFields = readInt(props, DATA_MAX_FIELDS_KEY, DEFAULT_DATA_MAX_FIELDS, 1);
+        flowMaxModels = readInt(props, FLOW_MAX_MODELS_KEY, DEFAULT_FLOW_MAX_MODELS, 1);
+        modelMaxParams = readInt(props, MODEL_MAX_PARAMS_KEY, DEFAULT_MODEL_MAX_PARAMS, 0);
+
+        writers = readInt(props, WRITERS_KEY, DEFAULT_WRITERS, 1);
+        batchSize = readInt(props, BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE, 1);
+        randomSeed = readInt(props, RANDOM_SEED_KEY, DEFAULT_RANDOM_SEED, null);
+        progressIntervalSeconds = readInt(props, PROGRESS_INTERVAL_KEY, DEFAULT_PROGRESS_INTERVAL, 1);
+
+        if (multiValuedPercent > 100) {
+
+            var message = "Config property must be at most 100: " + MULTI_VALUED_PERCENT_KEY;
+            log.error(message);
+            throw new EStartup(message);
+        }
+    }
+
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    public Map<ObjectType, Integer> getMixWeights() {
+        return mixWeights;
+    }
+
+    public double getVersionsMean() {
+        return versionsMean;
+    }
+
+    public int getVersionsMax() {
+        return versionsMax;
+    }
+
+    public double getTagsMean() {
+        return tagsMean;
+    }
+
+    public int getTagsMax() {
+        return tagsMax;
+    }
+
+    public int getAttrVocabulary() {
+        return attrVocabulary;
+    }
+
+    public double getAttrSkew() {
+        return attrSkew;
+    }
+
+    public int getAttrsPerTag() {
+        return attrsPerTag;
+    }
+
+    public int getMultiValuedPercent() {
+        return multiValuedPercent;
+    }
+
+    public int getMaxArraySize() {
+        return maxArraySize;
+    }
+
+    public int getDataMaxFields() {
+        return dataMaxFields;
+    }
+
+    public int getFlowMaxModels() {
+        return flowMaxModels;
+    }
+
+    public int getModelMaxParams() {
+        return modelMaxParams;
+    }
+
+    public int getWriters() {
+        return writers;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public int getProgressIntervalSeconds() {
+        return progressIntervalSeconds;
+    }
+
+    private int readInt(Properties props, String propKey, Integer propDefault, Integer minValue) {
+
+        var propValue = props.getProperty(propKey);
+
+        if (propValue == null || propValue.isBlank()) {
+
+            if (propDefault == null) {
+
+                var message = "Missing required config property: " + propKey;
+                log.error(message);
+                throw new EStartup(message);
+            }
+            else
+                return propDefault;
+        }
+
+        int value;
+
+        try {
+            value = Integer.parseInt(propValue.trim());
+        }
+        catch (NumberFormatException e) {
+
+            var message = "Config property must be an integer: " + propKey + ", got value '" + propValue + "'";
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        if (minValue != null && value < minValue) {
+
+            var message = "Config property must be at least " + minValue + ": " + propKey;
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        return value;
+    }
+
+    private double readDouble(Properties props, String propKey, double propDefault, double minValue) {
+
+        var propValue = props.getProperty(propKey);
+
+        if (propValue == null || propValue.isBlank())
+            return propDefault;
+
+        double value;
+
+        try {
+            value = Double.parseDouble(propValue.trim());
+        }
+        catch (NumberFormatException e) {
+
+            var message = "Config property must be a number: " + propKey + ", got value '" + propValue + "'";
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        if (value < minValue) {
+
+            var message = "Config property must be at least " + minValue + ": " + propKey;
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        return value;
+    }
+}
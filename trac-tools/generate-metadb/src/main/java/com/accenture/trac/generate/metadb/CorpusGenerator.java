@@ -0,0 +1,466 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.generate.metadb;
+
+import com.accenture.trac.common.metadata.*;
+import com.google.protobuf.ByteString;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeArrayValue;
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+
+
+public class CorpusGenerator {
+
+    // Generate the full history of one object as a list of tags, in the order they would have been written
+    // The first tag creates the object, each later tag is either a new object version or a new tag on a version
+
+    // Every object is generated from its own random source, seeded from the corpus seed, tenant and object index
+    // So the corpus content does not depend on how objects are split across writer threads
+
+    // Attr names come from a fixed vocabulary with a Zipf distribution, so a few attrs are on most objects
+    // The type of each attr, and whether it is multi-valued, is fixed by its name, as in a real application
+
+    private static final List<ObjectType> VERSIONED_TYPES = List.of(ObjectType.DATA, ObjectType.CUSTOM);
+
+    private static final String NAME_ATTR = "name";
+    private static final String BUSINESS_LINE_ATTR = "business_line";
+    private static final String OWNER_ATTR = "owner";
+    private static final String VOCABULARY_ATTR = "attr_%05d";
+
+    private static final int BUSINESS_LINE_COUNT = 20;
+    private static final int OWNER_COUNT = 500;
+    private static final int VALUE_CARDINALITY = 100;
+    private static final int MAX_TAG_CHANGES = 3;
+
+    private static final List<BasicType> ATTR_TYPES = List.of(
+            BasicType.STRING, BasicType.INTEGER, BasicType.FLOAT,
+            BasicType.BOOLEAN, BasicType.DECIMAL, BasicType.DATE, BasicType.DATETIME);
+
+    private static final List<BasicType> FIELD_TYPES = List.of(
+            BasicType.STRING, BasicType.INTEGER, BasicType.FLOAT,
+            BasicType.DECIMAL, BasicType.DATE, BasicType.BOOLEAN);
+
+    private static final LocalDate BASE_DATE = LocalDate.of(2015, 1, 1);
+    private static final OffsetDateTime BASE_DATETIME = OffsetDateTime.of(2015, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final CorpusConfig config;
+    private final long tenantSeed;
+    private final ObjectType[] typeTable;
+    private final ZipfDistribution attrDistribution;
+
+    public CorpusGenerator(CorpusConfig config, String tenant) {
+
+        this.config = config;
+        this.tenantSeed = config.getRandomSeed() * 31 + tenant.hashCode();
+        this.typeTable = buildTypeTable(config.getMixWeights());
+        this.attrDistribution = new ZipfDistribution(config.getAttrVocabulary(), config.getAttrSkew());
+    }
+
+    public List<Tag> objectHistory(long objectIndex) {
+
+        var random = new Random(mixSeed(tenantSeed, objectIndex));
+
+        var objectType = typeTable[random.nextInt(typeTable.length)];
+        var objectId = new UUID(
+                (random.nextLong() & ~0xf000L) | 0x4000L,
+                (random.nextLong() & ~0xc000000000000000L) | 0x8000000000000000L);
+
+        var versionCount = VERSIONED_TYPES.contains(objectType)
+                ? depth(random, config.getVersionsMean(), config.getVersionsMax())
+                : 1;
+
+        var history = new ArrayList<Tag>();
+
+        var header = TagHeader.newBuilder()
+                .setObjectType(objectType)
+                .setObjectId(objectId.toString())
+                .setObjectVersion(1)
+                .setTagVersion(1)
+                .build();
+
+        var tag = Tag.newBuilder()
+                .setHeader(header)
+                .setDefinition(definition(random, objectType))
+                .putAllAttr(initialAttrs(random, objectIndex))
+                .build();
+
+        for (var version = 1; version <= versionCount; version++) {
+
+            if (version > 1) {
+
+                var versionHeader = tag.getHeader().toBuilder()
+                        .setObjectVersion(version)
+                        .setTagVersion(1);
+
+                var nextTag = tag.toBuilder()
+                        .setHeader(versionHeader)
+                        .setDefinition(nextVersion(random, tag.getDefinition()));
+
+                changeAttrs(random, nextTag);
+                tag = nextTag.build();
+            }
+
+            history.add(tag);
+
+            var tagCount = depth(random, config.getTagsMean(), config.getTagsMax());
+
+            for (var tagVersion = 2; tagVersion <= tagCount; tagVersion++) {
+
+                var tagHeader = tag.getHeader().toBuilder().setTagVersion(tagVersion);
+                var nextTag = tag.toBuilder().setHeader(tagHeader);
+
+                changeAttrs(random, nextTag);
+                tag = nextTag.build();
+
+                history.add(tag);
+            }
+        }
+
+        return history;
+    }
+
+    private Map<String, Value> initialAttrs(Random random, long objectIndex) {
+
+        var attrs = new HashMap<String, Value>();
+
+        attrs.put(NAME_ATTR, encodeValue("object_" + objectIndex));
+        attrs.put(BUSINESS_LINE_ATTR, encodeValue("business_line_" + random.nextInt(BUSINESS_LINE_COUNT)));
+        attrs.put(OWNER_ATTR, encodeValue("user_" + random.nextInt(OWNER_COUNT)));
+
+        // Names are drawn with repeats, so popular attrs are still only set once and rare attrs are often skipped
+        for (var i = 0; i < config.getAttrsPerTag(); i++) {
+            var rank = attrDistribution.sample(random);
+            attrs.put(attrName(rank), attrValue(random, rank));
+        }
+
+        return attrs;
+    }
+
+    private void changeAttrs(Random random, Tag.Builder tag) {
+
+        // Each update sets or replaces a few attrs, occasionally one is removed
+
+        var changes = 1 + random.nextInt(MAX_TAG_CHANGES);
+
+        for (var i = 0; i < changes; i++) {
+
+            var rank = attrDistribution.sample(random);
+            var attrName = attrName(rank);
+
+            if (random.nextInt(10) == 0 && tag.containsAttr(attrName))
+                tag.removeAttr(attrName);
+            else
+                tag.putAttr(attrName, attrValue(random, rank));
+        }
+    }
+
+    private String attrName(int rank) {
+
+        return String.format(VOCABULARY_ATTR, rank);
+    }
+
+    private Value attrValue(Random random, int rank) {
+
+        var basicType = ATTR_TYPES.get(rank % ATTR_TYPES.size());
+
+        if (isMultiValued(rank)) {
+
+            var arraySize = 1 + random.nextInt(config.getMaxArraySize());
+            var items = new ArrayList<Object>(arraySize);
+
+            for (var i = 0; i < arraySize; i++)
+                items.add(primitiveValue(random, basicType));
+
+            return encodeArrayValue(items, TypeSystem.descriptor(basicType));
+        }
+
+        return encodeValue(primitiveValue(random, basicType), basicType);
+    }
+
+    private boolean isMultiValued(int rank) {
+
+        // Spread multi-valued attrs evenly across the vocabulary, independent of the type cycle
+        var bucket = (int) Math.floorMod(rank * 2654435761L, 100L);
+        return bucket < config.getMultiValuedPercent();
+    }
+
+    private Object primitiveValue(Random random, BasicType basicType) {
+
+        var valueIndex = random.nextInt(VALUE_CARDINALITY);
+
+        switch (basicType) {
+
+            case STRING: return "value_" + valueIndex;
+            case INTEGER: return (long) valueIndex * 1000;
+            case FLOAT: return valueIndex + random.nextDouble();
+            case BOOLEAN: return valueIndex % 2 == 0;
+            case DECIMAL: return BigDecimal.valueOf(random.nextInt(10000000), 2);
+            case DATE: return BASE_DATE.plusDays(random.nextInt(3650));
+            case DATETIME: return BASE_DATETIME.plusSeconds(random.nextInt(3650 * 24 * 3600));
+
+            default:
+                throw new IllegalArgumentException("Unsupported attr type: " + basicType);
+        }
+    }
+
+    private ObjectDefinition definition(Random random, ObjectType objectType) {
+
+        var definition = ObjectDefinition.newBuilder().setObjectType(objectType);
+
+        switch (objectType) {
+
+            case DATA: return definition.setData(dataDefinition(random)).build();
+            case MODEL: return definition.setModel(modelDefinition(random)).build();
+            case FLOW: return definition.setFlow(flowDefinition(random)).build();
+            case JOB: return definition.setJob(jobDefinition(random)).build();
+            case FILE: return definition.setFile(fileDefinition(random)).build();
+            case CUSTOM: return definition.setCustom(customDefinition(random, 1)).build();
+
+            default:
+                throw new IllegalArgumentException("Unsupported object type: " + objectType);
+        }
+    }
+
+    private ObjectDefinition nextVersion(Random random, ObjectDefinition prior) {
+
+        // New data versions extend the schema, which is the versioning rule for DATA
+        // New custom versions replace the content and bump the schema version
+
+        if (prior.getObjectType() == ObjectType.DATA) {
+
+            var schema = prior.getData().getSchema().toBuilder();
+            var newFields = 1 + random.nextInt(5);
+
+            for (var i = 0; i < newFields; i++)
+                schema.addField(field(random, schema.getFieldCount()));
+
+            return prior.toBuilder()
+                    .setData(prior.getData().toBuilder().setSchema(schema))
+                    .build();
+        }
+
+        var schemaVersion = prior.getCustom().getCustomSchemaVersion() + 1;
+
+        return prior.toBuilder()
+                .setCustom(customDefinition(random, schemaVersion))
+                .build();
+    }
+
+    private DataDefinition dataDefinition(Random random) {
+
+        // Skew towards narrow tables, with a long tail up to the configured maximum
+
+        var skew = random.nextDouble();
+        var fieldCount = 1 + (int) (skew * skew * (config.getDataMaxFields() - 1));
+
+        return DataDefinition.newBuilder()
+                .setSchema(table(random, fieldCount))
+                .addStorage("storage_" + random.nextInt(4))
+                .putStorageInfo("container", encodeValue("container_" + random.nextInt(20)))
+                .setPath("data/" + Long.toHexString(random.nextLong()))
+                .setFormat(random.nextBoolean() ? DataFormat.CSV : DataFormat.PARQUET)
+                .build();
+    }
+
+    private ModelDefinition modelDefinition(Random random) {
+
+        var model = ModelDefinition.newBuilder()
+                .setLanguage("python")
+                .setRepository("repo_" + random.nextInt(50))
+                .setRepositoryVersion(Integer.toHexString(random.nextInt()))
+                .setPath("src/models")
+                .setEntryPoint("models.model_" + random.nextInt(1000) + ".Model");
+
+        var paramCount = random.nextInt(config.getModelMaxParams() + 1);
+
+        for (var i = 0; i < paramCount; i++) {
+
+            var paramType = ATTR_TYPES.get(random.nextInt(ATTR_TYPES.size()));
+
+            model.putParam("param_" + i, ModelParameter.newBuilder()
+                    .setLabel("Parameter " + i)
+                    .setParamType(TypeSystem.descriptor(paramType))
+                    .build());
+        }
+
+        var inputCount = 1 + random.nextInt(3);
+        var outputCount = 1 + random.nextInt(2);
+
+        for (var i = 0; i < inputCount; i++)
+            model.putInput("input_" + i, table(random, 5 + random.nextInt(20)));
+
+        for (var i = 0; i < outputCount; i++)
+            model.putOutput("output_" + i, table(random, 5 + random.nextInt(20)));
+
+        return model.build();
+    }
+
+    private FlowDefinition flowDefinition(Random random) {
+
+        // A chain of models, each with its own input and output, as in the benchmark data
+
+        var modelCount = 1 + random.nextInt(config.getFlowMaxModels());
+        var flow = FlowDefinition.newBuilder();
+
+        for (var i = 0; i < modelCount; i++) {
+
+            var inputNode = "input_" + i;
+            var modelNode = "model_" + i;
+            var outputNode = "output_" + i;
+
+            flow.putNode(inputNode, FlowNode.newBuilder().setNodeType(FlowNodeType.INPUT_NODE).build());
+            flow.putNode(modelNode, FlowNode.newBuilder().setNodeType(FlowNodeType.MODEL_NODE).build());
+            flow.putNode(outputNode, FlowNode.newBuilder().setNodeType(FlowNodeType.OUTPUT_NODE).build());
+
+            flow.addEdge(FlowEdge.newBuilder()
+                    .setHead(FlowSocket.newBuilder().setNode(modelNode).setSocket("input"))
+                    .setTail(FlowSocket.newBuilder().setNode(inputNode)));
+
+            flow.addEdge(FlowEdge.newBuilder()
+                    .setHead(FlowSocket.newBuilder().setNode(outputNode))
+                    .setTail(FlowSocket.newBuilder().setNode(modelNode).setSocket("output")));
+
+            if (i > 0) {
+                flow.addEdge(FlowEdge.newBuilder()
+                        .setHead(FlowSocket.newBuilder().setNode(modelNode).setSocket("upstream"))
+                        .setTail(FlowSocket.newBuilder().setNode("model_" + (i - 1)).setSocket("output")));
+            }
+        }
+
+        return flow.build();
+    }
+
+    private JobDefinition jobDefinition(Random random) {
+
+        // Jobs refer to other objects by selector, the targets are random IDs and are not resolved
+
+        var job = JobDefinition.newBuilder()
+                .setJobType(JobType.RUN_MODEL)
+                .setTarget(selector(random, ObjectType.MODEL));
+
+        var inputCount = 1 + random.nextInt(3);
+
+        for (var i = 0; i < inputCount; i++)
+            job.putInput("input_" + i, selector(random, ObjectType.DATA));
+
+        job.putOutput("output_0", selector(random, ObjectType.DATA));
+        job.putParam("run_date", encodeValue(BASE_DATE.plusDays(random.nextInt(3650))));
+
+        return job.build();
+    }
+
+    private FileDefinition fileDefinition(Random random) {
+
+        var fileIndex = Long.toHexString(random.nextLong());
+
+        return FileDefinition.newBuilder()
+                .addStorage("storage_" + random.nextInt(4))
+                .setStoragePath("files/" + fileIndex + ".xlsx")
+                .setName("file_" + fileIndex)
+                .setExtension("xlsx")
+                .setSize(1024 + random.nextInt(10 * 1024 * 1024))
+                .build();
+    }
+
+    private CustomDefinition customDefinition(Random random, int schemaVersion) {
+
+        var content = new byte[100 + random.nextInt(2000)];
+        random.nextBytes(content);
+
+        return CustomDefinition.newBuilder()
+                .setCustomType("custom_type_" + random.nextInt(10))
+                .setCustomSchemaVersion(schemaVersion)
+                .setCustomData(ByteString.copyFrom(content))
+                .build();
+    }
+
+    private TableDefinition table(Random random, int fieldCount) {
+
+        var table = TableDefinition.newBuilder();
+
+        for (var i = 0; i < fieldCount; i++)
+            table.addField(field(random, i));
+
+        return table.build();
+    }
+
+    private FieldDefinition field(Random random, int fieldIndex) {
+
+        return FieldDefinition.newBuilder()
+                .setFieldName("field_" + fieldIndex)
+                .setFieldOrder(fieldIndex + 1)
+                .setFieldType(FIELD_TYPES.get(random.nextInt(FIELD_TYPES.size())))
+                .setFieldLabel("Field " + fieldIndex)
+                .setBusinessKey(fieldIndex == 0)
+                .setCategorical(random.nextInt(5) == 0)
+                .build();
+    }
+
+    private TagSelector selector(Random random, ObjectType objectType) {
+
+        return TagSelector.newBuilder()
+                .setObjectType(objectType)
+                .setObjectId(new UUID(random.nextLong(), random.nextLong()).toString())
+                .setObjectVersion(1)
+                .setLatestTag(true)
+                .build();
+    }
+
+    private static int depth(Random random, double mean, int max) {
+
+        // Geometric distribution with the given mean, starting at 1
+        // Most objects have short histories, a few have very deep ones
+
+        if (mean <= 1.0)
+            return 1;
+
+        var p = 1.0 / mean;
+        var u = 1.0 - random.nextDouble();
+        var depth = 1 + (int) Math.floor(Math.log(u) / Math.log(1.0 - p));
+
+        return Math.min(depth, max);
+    }
+
+    private static ObjectType[] buildTypeTable(Map<ObjectType, Integer> mixWeights) {
+
+        var table = new ArrayList<ObjectType>();
+
+        for (var mixEntry : mixWeights.entrySet())
+            for (var i = 0; i < mixEntry.getValue(); i++)
+                table.add(mixEntry.getKey());
+
+        return table.toArray(ObjectType[]::new);
+    }
+
+    private static long mixSeed(long seed, long index) {
+
+        // SplitMix64 finaliser, so neighbouring object indexes get unrelated random sequences
+
+        var z = seed + (index + 1) * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.generate.metadb;
+
+import com.accenture.trac.common.exception.ETrac;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.svc.meta.dal.IMetadataDal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class CorpusWriter {
+
+    // Write a generated corpus into one tenant, using the batch write paths of the metadata DAL
+    // Objects are split into chunks of batchSize, each writer thread takes the next chunk until all are written
+
+    // Within a chunk, histories are written in steps, each step is one batch call to the DAL
+    // Step 0 creates all the objects, step N writes the Nth entry in each object's history
+    // An object only appears once in each step, so its history is always written in order
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final CorpusConfig config;
+    private final IMetadataDal dal;
+
+    private final AtomicLong objectsWritten = new AtomicLong();
+    private final AtomicLong versionsWritten = new AtomicLong();
+    private final AtomicLong tagsWritten = new AtomicLong();
+
+    public CorpusWriter(CorpusConfig config, IMetadataDal dal) {
+
+        this.config = config;
+        this.dal = dal;
+    }
+
+    public void writeCorpus(String tenant) throws InterruptedException {
+
+        var objectCount = config.getObjectCount();
+        var batchSize = config.getBatchSize();
+        var chunkCount = (objectCount + batchSize - 1) / batchSize;
+
+        log.info("Generating {} objects in tenant [{}], {} writer(s), batch size = {}, seed = {}",
+                objectCount, tenant, config.getWriters(), batchSize, config.getRandomSeed());
+
+        var generator = new CorpusGenerator(config, tenant);
+        var nextChunk = new AtomicLong();
+        var firstError = new AtomicReference<Throwable>();
+
+        objectsWritten.set(0);
+        versionsWritten.set(0);
+        tagsWritten.set(0);
+
+        var startTime = System.nanoTime();
+
+        var writerPool = Executors.newFixedThreadPool(config.getWriters());
+        var progress = Executors.newSingleThreadScheduledExecutor();
+
+        progress.scheduleAtFixedRate(
+                () -> logProgress(tenant, startTime),
+                config.getProgressIntervalSeconds(), config.getProgressIntervalSeconds(), TimeUnit.SECONDS);
+
+        try {
+
+            for (var writer = 0; writer < config.getWriters(); writer++) {
+
+                writerPool.submit(() -> {
+
+                    long chunk;
+
+                    while (firstError.get() == null && (chunk = nextChunk.getAndIncrement()) < chunkCount) {
+
+                        var firstObject = chunk * batchSize;
+                        var lastObject = Math.min(firstObject + batchSize, objectCount);
+
+                        try {
+                            writeChunk(tenant, generator, firstObject, lastObject);
+                        }
+                        catch (Throwable e) {
+                            firstError.compareAndSet(null, e);
+                        }
+                    }
+                });
+            }
+
+            writerPool.shutdown();
+
+            while (!writerPool.awaitTermination(1, TimeUnit.SECONDS))
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+        }
+        finally {
+
+            writerPool.shutdownNow();
+            progress.shutdownNow();
+        }
+
+        var error = firstError.get();
+
+        if (error != null) {
+
+            var cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+
+            var message = String.format("Corpus generation failed for tenant [%s]: %s", tenant, cause.getMessage());
+            log.error(message, cause);
+
+            throw new ETrac(message, cause);
+        }
+
+        logProgress(tenant, startTime);
+        log.info("Corpus generation complete for tenant [{}]", tenant);
+    }
+
+    private void writeChunk(String tenant, CorpusGenerator generator, long firstObject, long lastObject) {
+
+        var histories = new ArrayList<List<Tag>>((int) (lastObject - firstObject));
+
+        for (var objectIndex = firstObject; objectIndex < lastObject; objectIndex++)
+            histories.add(generator.objectHistory(objectIndex));
+
+        var newObjects = new ArrayList<Tag>(histories.size());
+
+        for (var history : histories)
+            newObjects.add(history.get(0));
+
+        dal.saveNewObjects(tenant, newObjects).join();
+        objectsWritten.addAndGet(newObjects.size());
+
+        for (var step = 1; ; step++) {
+
+            var newVersions = new ArrayList<Tag>();
+            var newTags = new ArrayList<Tag>();
+
+            for (var history : histories) {
+
+                if (history.size() <= step)
+                    continue;
+
+                var tag = history.get(step);
+
+                if (tag.getHeader().getTagVersion() == 1)
+                    newVersions.add(tag);
+                else
+                    newTags.add(tag);
+            }
+
+            if (newVersions.isEmpty() && newTags.isEmpty())
+                break;
+
+            if (!newVersions.isEmpty()) {
+                dal.saveNewVersions(tenant, newVersions).join();
+                versionsWritten.addAndGet(newVersions.size());
+            }
+
+            if (!newTags.isEmpty()) {
+                dal.saveNewTags(tenant, newTags).join();
+                tagsWritten.addAndGet(newTags.size());
+            }
+        }
+    }
+
+    private void logProgress(String tenant, long startTime) {
+
+        var elapsedSeconds = Math.max((System.nanoTime() - startTime) / 1.0e9, 0.001);
+        var objects = objectsWritten.get();
+        var versions = versionsWritten.get();
+        var tags = tagsWritten.get();
+
+        log.info("Tenant [{}]: {} / {} objects, {} new versions, {} new tags, {} s, {} objects/s, {} tags/s",
+                tenant, objects, config.getObjectCount(), versions, tags,
+                String.format("%.1f", elapsedSeconds),
+                String.format("%.0f", objects / elapsedSeconds),
+                String.format("%.0f", (objects + versions + tags) / elapsedSeconds));
+    }
+}
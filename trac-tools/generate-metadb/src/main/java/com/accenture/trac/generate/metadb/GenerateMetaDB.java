@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.generate.metadb;
+
+import com.accenture.trac.common.config.ConfigManager;
+import com.accenture.trac.common.config.StandardArgs;
+import com.accenture.trac.common.config.StandardArgsProcessor;
+import com.accenture.trac.common.db.JdbcSetup;
+import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.common.util.VersionInfo;
+import com.accenture.trac.svc.meta.dal.jdbc.JdbcMetadataDal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Properties;
+
+
+public class GenerateMetaDB {
+
+    // Bulk-generate a synthetic metadata corpus for scale testing, see CorpusGenerator for what is generated
+    // Run DeployMetaDB first to deploy the schema and add the tenants, then generate into each tenant
+
+    private final static String DB_CONFIG_ROOT = "trac.svc.meta.db.sql";
+    private final static String POOL_SIZE_KEY = DB_CONFIG_ROOT + ".pool.size";
+
+    private final static String GENERATE_TASK_NAME = "generate";
+
+    private final static List<StandardArgs.Task> GENERATE_TASKS = List.of(
+            StandardArgs.task(GENERATE_TASK_NAME, "TENANT_CODE", "Generate a synthetic corpus in an existing tenant"));
+
+    private final Logger log;
+    private final ConfigManager configManager;
+
+    public GenerateMetaDB(ConfigManager configManager) {
+
+        this.log = LoggerFactory.getLogger(getClass());
+        this.configManager = configManager;
+    }
+
+    public void runGeneration(List<StandardArgs.Task> tasks) throws InterruptedException {
+
+        var componentName = VersionInfo.getComponentName(GenerateMetaDB.class);
+        var componentVersion = VersionInfo.getComponentVersion(GenerateMetaDB.class);
+        log.info("{} {}", componentName, componentVersion);
+
+        var properties = configManager.loadRootProperties();
+        var dialect = JdbcSetup.getSqlDialect(properties, DB_CONFIG_ROOT);
+        var config = new CorpusConfig(properties);
+
+        log.info("SQL Dialect: " + dialect);
+
+        // One connection per writer thread, DAL calls run directly on the writer threads
+
+        var dbProperties = new Properties();
+        dbProperties.putAll(properties);
+        dbProperties.setProperty(POOL_SIZE_KEY, Integer.toString(config.getWriters()));
+
+        var dataSource = JdbcSetup.createDatasource(dbProperties, DB_CONFIG_ROOT);
+        var dal = new JdbcMetadataDal(dialect, dataSource, Runnable::run);
+
+        try {
+
+            dal.startup();
+
+            var writer = new CorpusWriter(config, dal);
+
+            for (var task : tasks) {
+
+                if (GENERATE_TASK_NAME.equals(task.getTaskName())) {
+
+                    var tenant = task.getTaskArg();
+
+                    if (!dal.getTenantMap().containsKey(tenant)) {
+
+                        var message = String.format(
+                                "Tenant [%s] not found, use deploy-metadb to add the tenant first", tenant);
+
+                        log.error(message);
+                        throw new EStartup(message);
+                    }
+
+                    writer.writeCorpus(tenant);
+                }
+                else
+                    throw new EStartup(String.format("Unknown task: [%s]", task.getTaskName()));
+            }
+
+            log.info("All tasks complete");
+        }
+        finally {
+
+            dal.shutdown();
+            JdbcSetup.destroyDatasource(dataSource);
+        }
+    }
+
+    public static void main(String[] args) {
+
+        try {
+
+            var componentName = VersionInfo.getComponentName(GenerateMetaDB.class);
+            var componentVersion = VersionInfo.getComponentVersion(GenerateMetaDB.class);
+            var startupBanner = String.format(">>> %s %s", componentName, componentVersion);
+            System.out.println(startupBanner);
+
+            var standardArgs = StandardArgsProcessor.processArgs(componentName, args, GENERATE_TASKS);
+
+            System.out.println(">>> Working directory: " + standardArgs.getWorkingDir());
+            System.out.println(">>> Config file: " + standardArgs.getConfigFile());
+            System.out.println();
+
+            var configManager = new ConfigManager(standardArgs);
+            configManager.initConfigPlugins();
+            configManager.initLogging();
+
+            var generate = new GenerateMetaDB(configManager);
+            generate.runGeneration(standardArgs.getTasks());
+
+            System.exit(0);
+        }
+        catch (EStartup e) {
+
+            if (e.isQuiet())
+                System.exit(e.getExitCode());
+
+            System.err.println("The service failed to start: " + e.getMessage());
+            e.printStackTrace(System.err);
+
+            System.exit(e.getExitCode());
+        }
+        catch (Exception e) {
+
+            System.err.println("There was an unexpected error on the main thread: " + e.getMessage());
+            e.printStackTrace(System.err);
+
+            System.exit(-1);
+        }
+    }
+}
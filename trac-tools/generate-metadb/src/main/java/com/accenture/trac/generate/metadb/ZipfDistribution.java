@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.generate.metadb;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+public class ZipfDistribution {
+
+    // Pick ranks 0 .. n-1 with probability proportional to 1 / (rank + 1) ^ skew
+    // Real tag vocabularies look like this, a few attrs are on almost every object and most are rare
+    // A skew of 0 gives a uniform distribution, around 1 is typical for real vocabularies
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double skew) {
+
+        cumulative = new double[n];
+
+        var total = 0.0;
+
+        for (var rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+
+        for (var rank = 0; rank < n; rank++)
+            cumulative[rank] /= total;
+    }
+
+    public int sample(Random random) {
+
+        var u = random.nextDouble();
+        var index = Arrays.binarySearch(cumulative, u);
+
+        // binarySearch gives (-insertionPoint - 1) when there is no exact match
+        var rank = index >= 0 ? index : -index - 1;
+
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
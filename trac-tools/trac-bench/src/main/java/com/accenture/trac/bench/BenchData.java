@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.bench;
+
+import com.accenture.trac.common.api.meta.TagOperation;
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.metadata.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeArrayValue;
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+
+
+public class BenchData {
+
+    // Fixtures for benchmarks, similar to TestData in the metadata service but with sizes as parameters
+    // Everything here is deterministic for a given size, so results are comparable between runs
+
+    public static final String BENCH_TENANT = "BENCH_CORP";
+
+    private static final int ATTR_TYPE_CYCLE = 8;
+    private static final int MULTI_VALUE_COUNT = 5;
+
+    private static final LocalDate BASE_DATE = LocalDate.of(2020, 1, 1);
+    private static final OffsetDateTime BASE_DATETIME = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+
+    public static TagHeader newHeader(ObjectType objectType) {
+
+        return TagHeader.newBuilder()
+                .setObjectType(objectType)
+                .setObjectId(UUID.randomUUID().toString())
+                .setObjectVersion(1)
+                .setTagVersion(1)
+                .build();
+    }
+
+    public static TagHeader nextTagHeader(TagHeader priorTagHeader) {
+
+        return priorTagHeader.toBuilder()
+                .setTagVersion(priorTagHeader.getTagVersion() + 1)
+                .build();
+    }
+
+    public static ObjectDefinition dataDef(int fieldCount) {
+
+        var schema = TableDefinition.newBuilder();
+
+        for (var i = 0; i < fieldCount; i++) {
+
+            var fieldType = i % 4 == 0 ? BasicType.STRING
+                    : i % 4 == 1 ? BasicType.INTEGER
+                    : i % 4 == 2 ? BasicType.DECIMAL
+                    : BasicType.DATE;
+
+            schema.addField(FieldDefinition.newBuilder()
+                    .setFieldName("field_" + i)
+                    .setFieldType(fieldType)
+                    .setFieldOrder(i + 1)
+                    .setBusinessKey(i < 2)
+                    .setFieldLabel("Field number " + i));
+        }
+
+        return ObjectDefinition.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setData(DataDefinition.newBuilder()
+                .addStorage("bench-storage")
+                .setPath("path/to/bench/dataset")
+                .setFormat(DataFormat.CSV)
+                .setSchema(schema))
+                .build();
+    }
+
+    public static ObjectDefinition flowDef(int modelCount) {
+
+        // A chain of models, each with its own input and output
+
+        var flow = FlowDefinition.newBuilder();
+
+        for (var i = 0; i < modelCount; i++) {
+
+            var inputNode = "input_" + i;
+            var modelNode = "model_" + i;
+            var outputNode = "output_" + i;
+
+            flow.putNode(inputNode, FlowNode.newBuilder().setNodeType(FlowNodeType.INPUT_NODE).build());
+            flow.putNode(modelNode, FlowNode.newBuilder().setNodeType(FlowNodeType.MODEL_NODE).build());
+            flow.putNode(outputNode, FlowNode.newBuilder().setNodeType(FlowNodeType.OUTPUT_NODE).build());
+
+            flow.addEdge(FlowEdge.newBuilder()
+                    .setHead(FlowSocket.newBuilder().setNode(modelNode).setSocket("input"))
+                    .setTail(FlowSocket.newBuilder().setNode(inputNode)));
+
+            flow.addEdge(FlowEdge.newBuilder()
+                    .setHead(FlowSocket.newBuilder().setNode(outputNode))
+                    .setTail(FlowSocket.newBuilder().setNode(modelNode).setSocket("output")));
+
+            if (i > 0) {
+                flow.addEdge(FlowEdge.newBuilder()
+                        .setHead(FlowSocket.newBuilder().setNode(modelNode).setSocket("upstream"))
+                        .setTail(FlowSocket.newBuilder().setNode("model_" + (i - 1)).setSocket("output")));
+            }
+        }
+
+        return ObjectDefinition.newBuilder()
+                .setObjectType(ObjectType.FLOW)
+                .setFlow(flow)
+                .build();
+    }
+
+    public static String attrName(int index) {
+
+        return "bench_attr_" + index;
+    }
+
+    public static Value attrValue(int index, int variant) {
+
+        // Cycle through the primitive types, with one multi-valued attr in each cycle
+        // The type for a given index never changes, so variants can be used to replace or append
+
+        switch (index % ATTR_TYPE_CYCLE) {
+
+            case 0: return encodeValue("value_" + index + "_" + variant);
+            case 1: return encodeValue((long) index * 1000 + variant);
+            case 2: return encodeValue(index + variant / 10.0);
+            case 3: return encodeValue(variant % 2 == 0);
+            case 4: return encodeValue(BigDecimal.valueOf(index * 100L + variant, 2));
+            case 5: return encodeValue(BASE_DATE.plusDays(index + variant));
+            case 6: return encodeValue(BASE_DATETIME.plusMinutes(index * 60L + variant));
+
+            default:
+
+                var items = new ArrayList<String>(MULTI_VALUE_COUNT);
+
+                for (var i = 0; i < MULTI_VALUE_COUNT; i++)
+                    items.add("item_" + index + "_" + variant + "_" + i);
+
+                return encodeArrayValue(items, TypeSystem.descriptor(BasicType.STRING));
+        }
+    }
+
+    public static Tag tag(ObjectDefinition definition, int attrCount) {
+
+        var tag = Tag.newBuilder()
+                .setHeader(newHeader(definition.getObjectType()))
+                .setDefinition(definition);
+
+        for (var i = 0; i < attrCount; i++)
+            tag.putAttr(attrName(i), attrValue(i, 0));
+
+        return tag.build();
+    }
+
+    public static List<TagUpdate> tagUpdates(int attrCount, int updateCount) {
+
+        // Updates are spread over the existing attrs, each attr is touched at most once
+        // Single-valued attrs are replaced and multi-valued attrs are appended to
+        // If there are more updates than attrs, the extra updates create new attrs
+
+        var updates = new ArrayList<TagUpdate>(updateCount);
+
+        for (var i = 0; i < updateCount; i++) {
+
+            if (i < attrCount) {
+
+                var attrIndex = (int) ((long) i * attrCount / Math.min(updateCount, attrCount));
+                var multiValued = attrIndex % ATTR_TYPE_CYCLE == ATTR_TYPE_CYCLE - 1;
+
+                updates.add(TagUpdate.newBuilder()
+                        .setOperation(multiValued ? TagOperation.APPEND_ATTR : TagOperation.REPLACE_ATTR)
+                        .setAttrName(attrName(attrIndex))
+                        .setValue(attrValue(attrIndex, 1))
+                        .build());
+            }
+            else {
+
+                updates.add(TagUpdate.newBuilder()
+                        .setOperation(TagOperation.CREATE_ATTR)
+                        .setAttrName(attrName(i))
+                        .setValue(attrValue(i, 0))
+                        .build());
+            }
+        }
+
+        return updates;
+    }
+
+    public static List<TagUpdate> tagUpdatesForTag(Tag tag) {
+
+        var updates = new ArrayList<TagUpdate>(tag.getAttrCount());
+
+        for (var attr : tag.getAttrMap().entrySet()) {
+
+            updates.add(TagUpdate.newBuilder()
+                    .setOperation(TagOperation.CREATE_OR_REPLACE_ATTR)
+                    .setAttrName(attr.getKey())
+                    .setValue(attr.getValue())
+                    .build());
+        }
+
+        return updates;
+    }
+}
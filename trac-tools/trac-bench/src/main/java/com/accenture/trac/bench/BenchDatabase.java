@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.bench;
+
+import com.accenture.trac.common.db.JdbcDialect;
+import com.accenture.trac.common.db.JdbcSetup;
+import com.accenture.trac.common.exception.EStartup;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+
+public class BenchDatabase implements AutoCloseable {
+
+    // In-memory H2 database with the metadata schema deployed, for DAL benchmarks
+    // Each instance is a new, empty database
+
+    // Benchmarks that call create() can also run against another database, to compare dialects
+    // Set the system property trac.bench.db.config to a config file with the metadata service DB settings
+    // The schema must already be deployed (use deploy-metadb), new tenants are added and left in place afterwards
+
+    public static final String DB_CONFIG_PROPERTY = "trac.bench.db.config";
+
+    private static final String DB_CONFIG_ROOT = "trac.svc.meta.db.sql";
+    private static final String JDBC_URL_TEMPLATE = "mem:bench_%s;DB_CLOSE_DELAY=-1";
+
+    // Schema scripts in version order, the same sequence deploy-metadb applies with Flyway
+    // Migration 004 is a data backfill in deploy-metadb, there is nothing to backfill in a new database
+    private static final List<String> SCHEMA_SCRIPTS = List.of(
+            "/h2/001__trac_metadata.ddl",
+            "/h2/002__tag_attr_delta.ddl",
+            "/h2/003__search_index_queue.ddl",
+            "/h2/005__tag_attrs_not_null.ddl");
+
+    private final DataSource source;
+    private final JdbcDialect dialect;
+
+    public static BenchDatabase create(String... tenants) {
+
+        var configFile = System.getProperty(DB_CONFIG_PROPERTY);
+
+        if (configFile == null || configFile.isBlank())
+            return inMemoryH2(tenants);
+
+        return configuredDatabase(configFile, tenants);
+    }
+
+    public static BenchDatabase inMemoryH2(String... tenants) {
+
+        var props = new Properties();
+        props.setProperty("bench.jdbcUrl", String.format(JDBC_URL_TEMPLATE, UUID.randomUUID()));
+        props.setProperty("bench.dialect", "H2");
+        props.setProperty("bench.h2.user", "trac");
+        props.setProperty("bench.h2.pass", "trac");
+        props.setProperty("bench.pool.size", "4");
+
+        var source = JdbcSetup.createDatasource(props, "bench");
+
+        try (var conn = source.getConnection(); var stmt = conn.createStatement()) {
+
+            for (var script : SCHEMA_SCRIPTS)
+                for (var deployCommand : readSchemaScript(script).split(";"))
+                    if (!deployCommand.isBlank())
+                        stmt.execute(deployCommand);
+
+            for (var i = 0; i < tenants.length; i++) {
+
+                var insertTenant = String.format(
+                        "insert into tenant (tenant_id, tenant_code) values (%d, '%s')",
+                        i + 1, tenants[i]);
+
+                stmt.execute(insertTenant);
+            }
+
+            return new BenchDatabase(source, JdbcDialect.H2);
+        }
+        catch (SQLException e) {
+
+            JdbcSetup.destroyDatasource(source);
+            throw new EStartup("Failed to deploy benchmark database: " + e.getMessage(), e);
+        }
+    }
+
+    private static BenchDatabase configuredDatabase(String configFile, String... tenants) {
+
+        var props = new Properties();
+
+        try (var stream = Files.newInputStream(Paths.get(configFile))) {
+            props.load(stream);
+        }
+        catch (IOException e) {
+            throw new EStartup("Failed to read benchmark DB config: " + e.getMessage(), e);
+        }
+
+        var dialect = JdbcSetup.getSqlDialect(props, DB_CONFIG_ROOT);
+        var source = JdbcSetup.createDatasource(props, DB_CONFIG_ROOT);
+
+        // Add tenants after any that are already there, in the same way as deploy-metadb
+
+        var maxSelect = "select max(tenant_id) from tenant";
+        var insertTenant = "insert into tenant (tenant_id, tenant_code) values (?, ?)";
+
+        try (var conn = source.getConnection()) {
+
+            short nextId = 1;
+
+            try (var stmt = conn.prepareStatement(maxSelect); var rs = stmt.executeQuery()) {
+
+                if (rs.next()) {
+                    var maxId = rs.getShort(1);
+                    nextId = rs.wasNull() ? 1 : (short) (maxId + 1);
+                }
+            }
+
+            try (var stmt = conn.prepareStatement(insertTenant)) {
+
+                for (var tenant : tenants) {
+                    stmt.setShort(1, nextId++);
+                    stmt.setString(2, tenant);
+                    stmt.execute();
+                }
+            }
+
+            if (!conn.getAutoCommit())
+                conn.commit();
+
+            return new BenchDatabase(source, dialect);
+        }
+        catch (SQLException e) {
+
+            JdbcSetup.destroyDatasource(source);
+            throw new EStartup("Failed to add tenants to benchmark database: " + e.getMessage(), e);
+        }
+    }
+
+    private BenchDatabase(DataSource source, JdbcDialect dialect) {
+        this.source = source;
+        this.dialect = dialect;
+    }
+
+    public JdbcDialect getDialect() {
+        return dialect;
+    }
+
+    public DataSource getDataSource() {
+        return source;
+    }
+
+    @Override
+    public void close() {
+        JdbcSetup.destroyDatasource(source);
+    }
+
+    private static String readSchemaScript(String script) {
+
+        try (InputStream stream = BenchDatabase.class.getResourceAsStream(script)) {
+
+            if (stream == null)
+                throw new EStartup("Schema script not found: " + script);
+
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new EStartup("Failed to read schema script: " + e.getMessage(), e);
+        }
+    }
+}
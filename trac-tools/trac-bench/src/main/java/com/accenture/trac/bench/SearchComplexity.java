@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.bench;
+
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.TypeSystem;
+import com.accenture.trac.common.metadata.Value;
+import com.accenture.trac.common.metadata.search.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.accenture.trac.bench.SearchCorpus.matchValue;
+import static com.accenture.trac.bench.SearchShape.logical;
+import static com.accenture.trac.bench.SearchShape.term;
+import static com.accenture.trac.common.metadata.MetadataCodec.decodeValue;
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeArrayValue;
+
+
+public class SearchComplexity {
+
+    // Search expressions for SearchCorpus, built up from the shapes in SearchShape / MetadataDalSearchTest
+    // Each dimension of complexity is a separate setting, so they can be scaled one at a time
+
+    // terms:   number of search terms, each on a different attr where possible
+    // nesting: levels of logical expressions, terms are split evenly between the branches at each level
+    // logic:   which logical operators are used
+    // inWidth: if set, the first term is an IN term with a list of this width
+    // prior:   whether prior versions and / or prior tags are included
+
+    // The offset shifts every search value along by that many variants, without changing the shape of the search
+    // Benchmarks rotate the offset, so the database cannot answer repeated searches from a result cache
+
+    public enum Logic {
+
+        /** All logical expressions are AND */
+        AND,
+
+        /** All logical expressions are OR */
+        OR,
+
+        /** AND expressions, with every second branch wrapped in NOT */
+        NOT,
+
+        /** Levels alternate between OR and AND starting with OR, the last branch at each level is wrapped in NOT */
+        MIXED
+    }
+
+    public enum Prior {
+        NONE, VERSIONS, TAGS, BOTH
+    }
+
+    public static SearchParameters searchParams(
+            int terms, int nesting, Logic logic,
+            int inWidth, Prior prior, int offset) {
+
+        return SearchParameters.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setSearch(searchExpr(terms, nesting, logic, inWidth, offset))
+                .setPriorVersions(prior == Prior.VERSIONS || prior == Prior.BOTH)
+                .setPriorTags(prior == Prior.TAGS || prior == Prior.BOTH)
+                .build();
+    }
+
+    public static SearchExpression searchExpr(int terms, int nesting, Logic logic, int inWidth, int offset) {
+
+        if (terms < 1 || nesting < 1)
+            throw new IllegalArgumentException("Search complexity needs at least one term and one level of nesting");
+
+        var leaves = new ArrayList<SearchExpression>(terms);
+
+        for (var i = 0; i < terms; i++) {
+
+            var attrIndex = i % SearchCorpus.ATTR_COUNT;
+
+            // Terms look for the offset variant, or the next variant up once every attr has been used
+
+            if (i == 0 && inWidth > 0)
+                leaves.add(term(attrIndex, SearchOperator.IN, inList(attrIndex, inWidth, offset)));
+            else
+                leaves.add(term(attrIndex, SearchOperator.EQ, matchValue(attrIndex, offset + i / SearchCorpus.ATTR_COUNT)));
+        }
+
+        // A single term can still be negated, but AND / OR need at least two branches
+
+        if (leaves.size() == 1) {
+
+            var leaf = leaves.get(0);
+
+            return logic == Logic.NOT || logic == Logic.MIXED
+                    ? logical(LogicalOperator.NOT, leaf)
+                    : leaf;
+        }
+
+        return branch(leaves, nesting, 0, logic);
+    }
+
+    private static SearchExpression branch(List<SearchExpression> leaves, int nesting, int level, Logic logic) {
+
+        if (leaves.size() == 1)
+            return leaves.get(0);
+
+        // At the last level, all the remaining leaves go in one logical expression
+        // Otherwise split into two halves and recurse
+
+        List<SearchExpression> children;
+
+        if (level == nesting - 1)
+            children = leaves;
+        else {
+            var mid = leaves.size() / 2;
+            children = List.of(
+                    branch(leaves.subList(0, mid), nesting, level + 1, logic),
+                    branch(leaves.subList(mid, leaves.size()), nesting, level + 1, logic));
+        }
+
+        var operator = logic == Logic.OR || (logic == Logic.MIXED && level % 2 == 0)
+                ? LogicalOperator.OR
+                : LogicalOperator.AND;
+
+        var exprs = new ArrayList<SearchExpression>(children.size());
+
+        for (var i = 0; i < children.size(); i++) {
+
+            var child = children.get(i);
+
+            var negate =
+                    (logic == Logic.NOT && i % 2 == 1) ||
+                    (logic == Logic.MIXED && i == children.size() - 1);
+
+            exprs.add(negate ? logical(LogicalOperator.NOT, child) : child);
+        }
+
+        return logical(operator, exprs.toArray(SearchExpression[]::new));
+    }
+
+    private static Value inList(int attrIndex, int width, int offset) {
+
+        // List values are consecutive variants of the attr, so wider lists match more objects
+        // Past VALUE_CARDINALITY the extra values match nothing, but still make the query bigger
+
+        var items = new ArrayList<Object>(width);
+
+        for (var variant = offset; variant < offset + width; variant++)
+            items.add(decodeValue(matchValue(attrIndex, variant)));
+
+        var itemType = TypeSystem.basicType(matchValue(attrIndex, 0));
+
+        return encodeArrayValue(items, TypeSystem.descriptor(itemType));
+    }
+}
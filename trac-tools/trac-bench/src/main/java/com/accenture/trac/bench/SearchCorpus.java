@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.bench;
+
+import com.accenture.trac.common.metadata.ObjectDefinition;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.Value;
+import com.accenture.trac.svc.meta.dal.IMetadataDal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.accenture.trac.bench.BenchData.attrName;
+import static com.accenture.trac.bench.BenchData.attrValue;
+
+
+public class SearchCorpus {
+
+    // A tenant of DATA objects with version and tag histories, for search benchmarks
+    // Each object has historyDepth versions, the latest version also has historyDepth tags
+
+    // Every attr takes one of VALUE_CARDINALITY variants, so an EQ term on one attr matches about 1% of objects
+    // Variants are picked independently for each attr, so AND narrows the result set and OR widens it
+    // Each step back in the history shifts the variants, so searching prior versions / tags matches more objects
+
+    public static final int ATTR_COUNT = 16;
+    public static final int VALUE_CARDINALITY = 100;
+
+    private static final int DATA_FIELDS = 20;
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    public static void load(IMetadataDal dal, String tenant, int objectCount, int historyDepth) {
+
+        var definition = BenchData.dataDef(DATA_FIELDS);
+
+        for (var batchStart = 0; batchStart < objectCount; batchStart += LOAD_BATCH_SIZE) {
+
+            var batchEnd = Math.min(batchStart + LOAD_BATCH_SIZE, objectCount);
+            var histories = new ArrayList<List<Tag>>(batchEnd - batchStart);
+
+            for (var objectIndex = batchStart; objectIndex < batchEnd; objectIndex++)
+                histories.add(objectHistory(definition, objectIndex, historyDepth));
+
+            // Write the histories one step at a time, so every object's history is written in order
+
+            for (var step = 0; step < 2 * historyDepth - 1; step++) {
+
+                var stepTags = new ArrayList<Tag>(histories.size());
+
+                for (var history : histories)
+                    stepTags.add(history.get(step));
+
+                var header = stepTags.get(0).getHeader();
+
+                if (step == 0)
+                    dal.saveNewObjects(tenant, stepTags).join();
+                else if (header.getTagVersion() == 1)
+                    dal.saveNewVersions(tenant, stepTags).join();
+                else
+                    dal.saveNewTags(tenant, stepTags).join();
+            }
+        }
+    }
+
+    public static int variant(int objectIndex, int attrIndex, int historyStep) {
+
+        // Cheap integer hash, so variants look random but the corpus is the same every time
+
+        var hash = objectIndex * 0x9e3779b1 + attrIndex * 0x85ebca6b;
+        hash ^= hash >>> 15;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 13;
+
+        return Math.floorMod(hash + historyStep, VALUE_CARDINALITY);
+    }
+
+    private static List<Tag> objectHistory(ObjectDefinition definition, int objectIndex, int historyDepth) {
+
+        // History step 0 is the oldest tag, the last step is the latest tag of the latest version
+
+        var historySize = 2 * historyDepth - 1;
+        var history = new ArrayList<Tag>(historySize);
+
+        var objectId = new UUID(objectIndex, 0x8000000000000000L | objectIndex).toString();
+        var header = BenchData.newHeader(ObjectType.DATA).toBuilder().setObjectId(objectId);
+
+        for (var step = 0; step < historySize; step++) {
+
+            var objectVersion = Math.min(step + 1, historyDepth);
+            var tagVersion = Math.max(step - historyDepth + 2, 1);
+
+            var stepsBack = historySize - 1 - step;
+
+            var tag = Tag.newBuilder()
+                    .setHeader(header.setObjectVersion(objectVersion).setTagVersion(tagVersion))
+                    .setDefinition(definition);
+
+            for (var attrIndex = 0; attrIndex < ATTR_COUNT; attrIndex++)
+                tag.putAttr(attrName(attrIndex), attrValue(attrIndex, variant(objectIndex, attrIndex, stepsBack)));
+
+            history.add(tag.build());
+        }
+
+        return history;
+    }
+
+    public static Value matchValue(int attrIndex, int variant) {
+
+        // Value to search for that matches objects holding the given variant
+        // For the multi-valued attrs this is one of the items in the array
+
+        var value = attrValue(attrIndex, variant);
+
+        if (value.hasArrayValue())
+            return value.getArrayValue().getItem(0);
+
+        return value;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.bench;
+
+import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.svc.meta.dal.jdbc.SearchScalingBench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+
+public class SearchScalingSuite {
+
+    // Runs SearchScalingBench once for each sweep, varying one dimension with the others held at the baseline
+    // For each sweep, the raw JMH results are written as <sweep>.json and the scaling curve as <sweep>.csv
+
+    // Usage: SearchScalingSuite [-o output_dir] [-q] [sweep[=v1,v2,...]] ...
+    //   -o   output dir, default is build/search-scaling
+    //   -q   quick run with fewer iterations, for checking the suite works rather than for real numbers
+    //   sweep names select which sweeps to run (default all), values replace the default points for that sweep
+
+    // Set -Dtrac.bench.db.config to run against a database other than in-memory H2, see BenchDatabase
+
+    // The logic sweep uses a small tenant with two terms, because OR and NOT do not scale with tenant size
+    // OR terms are joined as a cross product of each tag's attrs, NOT is a correlated sub-query over the tenant
+    // At the baseline tenant size a single OR / NOT search can take minutes on H2
+
+    private static final String DEFAULT_OUTPUT_DIR = "build/search-scaling";
+
+    private static final String CSV_HEADER = "x,score_us,error_us,rows_read_per_search,results_per_search,db_us_per_search";
+
+    private static final List<Sweep> SWEEPS = List.of(
+            new Sweep("tenant_size", "objectCount", List.of("1000", "10000", "50000"), Map.of()),
+            new Sweep("history_depth", "historyDepth", List.of("1", "2", "4", "8"), Map.of()),
+            new Sweep("terms", "terms", List.of("1", "2", "4", "8", "16"), Map.of()),
+            new Sweep("nesting", "nesting", List.of("1", "2", "3", "4"), Map.of("terms", "16")),
+            new Sweep("logic", "logic", List.of("AND", "OR", "NOT", "MIXED"), Map.of("objectCount", "200", "terms", "2")),
+            new Sweep("in_width", "inWidth", List.of("1", "10", "100", "1000"), Map.of()),
+            new Sweep("prior", "prior", List.of("NONE", "VERSIONS", "TAGS", "BOTH"), Map.of("historyDepth", "4")));
+
+    private static class Sweep {
+
+        final String name;
+        final String param;
+        final List<String> values;
+        final Map<String, String> fixed;
+
+        Sweep(String name, String param, List<String> values, Map<String, String> fixed) {
+            this.name = name;
+            this.param = param;
+            this.values = values;
+            this.fixed = fixed;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        var outputDir = Paths.get(DEFAULT_OUTPUT_DIR);
+        var quick = false;
+        var selected = new ArrayList<Sweep>();
+
+        for (var i = 0; i < args.length; i++) {
+
+            if ("-o".equals(args[i]) && i + 1 < args.length)
+                outputDir = Paths.get(args[++i]);
+
+            else if ("-q".equals(args[i]))
+                quick = true;
+
+            else
+                selected.add(parseSweep(args[i]));
+        }
+
+        if (selected.isEmpty())
+            selected.addAll(SWEEPS);
+
+        Files.createDirectories(outputDir);
+
+        for (var sweep : selected)
+            runSweep(sweep, outputDir, quick);
+    }
+
+    private static Sweep parseSweep(String arg) {
+
+        var sep = arg.indexOf('=');
+        var name = sep < 0 ? arg : arg.substring(0, sep);
+
+        var sweep = SWEEPS.stream()
+                .filter(s -> s.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new EStartup("Unknown sweep: " + name));
+
+        if (sep < 0)
+            return sweep;
+
+        var values = List.of(arg.substring(sep + 1).split(","));
+
+        return new Sweep(sweep.name, sweep.param, values, sweep.fixed);
+    }
+
+    private static void runSweep(Sweep sweep, Path outputDir, boolean quick) throws RunnerException, IOException {
+
+        var jsonFile = outputDir.resolve(sweep.name + ".json");
+        var csvFile = outputDir.resolve(sweep.name + ".csv");
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(SearchScalingBench.class.getName())
+                .param(sweep.param, sweep.values.toArray(String[]::new))
+                .resultFormat(ResultFormatType.JSON)
+                .result(jsonFile.toString());
+
+        for (var fixed : sweep.fixed.entrySet())
+            options = options.param(fixed.getKey(), fixed.getValue());
+
+        // Benchmark forks do not inherit system properties, pass on the DB config if there is one
+
+        var dbConfig = System.getProperty(BenchDatabase.DB_CONFIG_PROPERTY);
+
+        if (dbConfig != null && !dbConfig.isBlank())
+            options = options.jvmArgsAppend("-D" + BenchDatabase.DB_CONFIG_PROPERTY + "=" + dbConfig);
+
+        if (quick) {
+            options = options
+                    .warmupIterations(1).warmupTime(TimeValue.milliseconds(500))
+                    .measurementIterations(2).measurementTime(TimeValue.milliseconds(500));
+        }
+
+        var results = new Runner(options.build()).run();
+
+        // Results come back sorted by param value as a string, put them back in sweep order
+
+        var ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingInt(r -> sweep.values.indexOf(r.getParams().getParam(sweep.param))));
+
+        var lines = new ArrayList<String>();
+        lines.add(CSV_HEADER);
+
+        for (var result : ordered)
+            lines.add(csvLine(sweep, result));
+
+        Files.write(csvFile, lines, StandardCharsets.UTF_8);
+
+        printCurve(sweep, lines);
+    }
+
+    private static String csvLine(Sweep sweep, RunResult result) {
+
+        var primary = result.getPrimaryResult();
+        var secondary = result.getSecondaryResults();
+
+        // Aux counters are totals over all the measurement iterations, so take ratios to get per-search figures
+
+        var searches = secondary.get("searches").getScore();
+        var rowsRead = secondary.get("rowsRead").getScore();
+        var searchResults = secondary.get("searchResults").getScore();
+        var dbNanos = secondary.get("dbNanos").getScore();
+
+        return String.format(Locale.ROOT, "%s,%.3f,%.3f,%.1f,%.1f,%.3f",
+                result.getParams().getParam(sweep.param),
+                primary.getScore(), primary.getScoreError(),
+                perSearch(rowsRead, searches),
+                perSearch(searchResults, searches),
+                perSearch(dbNanos, searches) / 1000.0);
+    }
+
+    private static double perSearch(double total, double searches) {
+
+        return searches > 0 ? total / searches : Double.NaN;
+    }
+
+    private static void printCurve(Sweep sweep, List<String> lines) {
+
+        System.out.println();
+        System.out.printf("Search scaling: %s (%s)%n", sweep.name, sweep.param);
+
+        for (var line : lines) {
+
+            var cols = line.split(",");
+            var row = new StringBuilder();
+
+            for (var col : cols)
+                row.append(String.format("%22s", col));
+
+            System.out.println(row);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.bench;
+
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.accenture.trac.bench.BenchData.attrName;
+import static com.accenture.trac.bench.BenchData.attrValue;
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeArrayValue;
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+
+
+public enum SearchShape {
+
+    // Representative search expressions, following the shapes used in MetadataDalSearchTest
+    // Attribute names and types line up with the attrs created by BenchData.tag()
+
+    SINGLE_TERM,
+    LOGICAL_AND,
+    LOGICAL_OR,
+    LOGICAL_NOT,
+    IN_LIST,
+    COMPLEX_COMPOUND;
+
+    private static final int IN_LIST_WIDTH = 20;
+
+    public SearchParameters searchParams(ObjectType objectType) {
+
+        return SearchParameters.newBuilder()
+                .setObjectType(objectType)
+                .setSearch(searchExpr())
+                .build();
+    }
+
+    public SearchExpression searchExpr() {
+
+        switch (this) {
+
+            case SINGLE_TERM:
+                return term(0, SearchOperator.EQ, attrValue(0, 0));
+
+            case LOGICAL_AND:
+                return logical(LogicalOperator.AND,
+                        term(0, SearchOperator.EQ, attrValue(0, 0)),
+                        term(1, SearchOperator.EQ, attrValue(1, 0)),
+                        term(2, SearchOperator.GT, attrValue(2, 0)));
+
+            case LOGICAL_OR:
+                return logical(LogicalOperator.OR,
+                        term(0, SearchOperator.EQ, attrValue(0, 0)),
+                        term(1, SearchOperator.EQ, attrValue(1, 0)),
+                        term(2, SearchOperator.GT, attrValue(2, 0)));
+
+            case LOGICAL_NOT:
+                return logical(LogicalOperator.NOT,
+                        term(0, SearchOperator.EQ, attrValue(0, 0)));
+
+            case IN_LIST:
+                return term(0, SearchOperator.IN, inList(0, IN_LIST_WIDTH));
+
+            case COMPLEX_COMPOUND:
+
+                // Same shape as complexCompoundSearch in MetadataDalSearchTest
+                // attr_0 == x AND ( attr_5 < date OR NOT ( attr_7 IN [...] ) )
+
+                return logical(LogicalOperator.AND,
+                        term(0, SearchOperator.EQ, attrValue(0, 0)),
+                        logical(LogicalOperator.OR,
+                                term(5, SearchOperator.LT, encodeValue(LocalDate.of(2020, 6, 1))),
+                                logical(LogicalOperator.NOT,
+                                        term(7, SearchOperator.IN, inList(7, 2)))));
+
+            default:
+                throw new IllegalStateException("Unknown search shape: " + this.name());
+        }
+    }
+
+    public static SearchExpression term(int attrIndex, SearchOperator operator, Value searchValue) {
+
+        // For IN searches the attr type is the type of the list items
+
+        var attrType = TypeSystem.isPrimitive(searchValue)
+                ? TypeSystem.basicType(searchValue)
+                : searchValue.getType().getArrayType().getBasicType();
+
+        return SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                .setAttrName(attrName(attrIndex))
+                .setAttrType(attrType)
+                .setOperator(operator)
+                .setSearchValue(searchValue))
+                .build();
+    }
+
+    public static SearchExpression logical(LogicalOperator operator, SearchExpression... exprs) {
+
+        return SearchExpression.newBuilder()
+                .setLogical(LogicalExpression.newBuilder()
+                .setOperator(operator)
+                .addAllExpr(List.of(exprs)))
+                .build();
+    }
+
+    public static Value inList(int attrIndex, int width) {
+
+        var items = new ArrayList<String>(width);
+
+        for (var i = 0; i < width; i++)
+            items.add("value_" + attrIndex + "_" + i);
+
+        return encodeArrayValue(items, TypeSystem.descriptor(BasicType.STRING));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.common.metadata;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataCodecBench {
+
+    // Encode / decode between native Java objects and metadata values, for single values and arrays
+
+    private static final int ARRAY_SIZE = 100;
+
+    @Param({"BOOLEAN", "INTEGER", "FLOAT", "DECIMAL", "STRING", "DATE", "DATETIME"})
+    public BasicType basicType;
+
+    private Object nativeValue;
+    private List<Object> nativeArray;
+    private TypeDescriptor itemType;
+
+    private Value encodedValue;
+    private Value encodedArray;
+
+    @Setup
+    public void setup() {
+
+        nativeValue = nativeValue(basicType, 0);
+        nativeArray = new ArrayList<>(ARRAY_SIZE);
+
+        for (var i = 0; i < ARRAY_SIZE; i++)
+            nativeArray.add(nativeValue(basicType, i));
+
+        itemType = TypeSystem.descriptor(basicType);
+
+        encodedValue = MetadataCodec.encodeValue(nativeValue, basicType);
+        encodedArray = MetadataCodec.encodeArrayValue(nativeArray, itemType);
+    }
+
+    @Benchmark
+    public Value encodeValue() {
+
+        return MetadataCodec.encodeValue(nativeValue, basicType);
+    }
+
+    @Benchmark
+    public Object decodeValue() {
+
+        return MetadataCodec.decodeValue(encodedValue);
+    }
+
+    @Benchmark
+    public Value encodeArrayValue() {
+
+        return MetadataCodec.encodeArrayValue(nativeArray, itemType);
+    }
+
+    @Benchmark
+    public List<?> decodeArrayValue() {
+
+        return MetadataCodec.decodeArrayValue(encodedArray);
+    }
+
+    private static Object nativeValue(BasicType basicType, int index) {
+
+        switch (basicType) {
+
+            case BOOLEAN: return index % 2 == 0;
+            case INTEGER: return 123456789L + index;
+            case FLOAT: return 3.14159 * (index + 1);
+            case DECIMAL: return new BigDecimal("12345.6789").add(BigDecimal.valueOf(index));
+            case STRING: return "a_typical_attribute_value_" + index;
+            case DATE: return LocalDate.of(2020, 1, 1).plusDays(index);
+            case DATETIME: return OffsetDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC).plusSeconds(index);
+
+            default:
+                throw new IllegalArgumentException("Basic type not supported: " + basicType);
+        }
+    }
+}
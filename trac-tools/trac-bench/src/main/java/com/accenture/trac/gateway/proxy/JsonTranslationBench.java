@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.gateway.proxy;
+
+import com.accenture.trac.bench.BenchData;
+import com.accenture.trac.bench.SearchShape;
+import com.accenture.trac.common.api.meta.MetadataSearchRequest;
+import com.accenture.trac.common.api.meta.MetadataSearchResponse;
+import com.accenture.trac.common.api.meta.MetadataWriteRequest;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.search.SearchExpression;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonTranslationBench {
+
+    // JSON <-> protobuf translation done by the gateway for the REST API
+    // Requests go through the same steps as RestApiUnaryHandler and RestApiRequestBuilder
+    // Responses are printed the same way RestApiUnaryHandler prints them
+
+    private static final String SEARCH_URL_TEMPLATE =
+            "/trac-meta/api/v1/{tenant}/{searchParams.objectType}/search?priorVersions={searchParams.priorVersions}";
+
+    private static final String SEARCH_URL =
+            "/trac-meta/api/v1/" + BenchData.BENCH_TENANT + "/DATA/search?priorVersions=false";
+
+    private static final String CREATE_URL_TEMPLATE =
+            "/trac-meta/api/v1/{tenant}/{objectType}/create-object";
+
+    private static final String CREATE_URL =
+            "/trac-meta/api/v1/" + BenchData.BENCH_TENANT + "/DATA/create-object";
+
+    private static final int SEARCH_RESULT_COUNT = 50;
+
+    @Param({"10", "100"})
+    public int attrCount;
+
+    private RestApiRequestBuilder<MetadataSearchRequest> searchRequestBuilder;
+    private RestApiRequestBuilder<MetadataWriteRequest> createRequestBuilder;
+
+    private byte[] searchJson;
+    private byte[] createJson;
+
+    private Tag tag;
+    private MetadataSearchResponse searchResponse;
+
+    @Setup
+    public void setup() throws Exception {
+
+        searchRequestBuilder = new RestApiRequestBuilder<>(
+                SEARCH_URL_TEMPLATE, MetadataSearchRequest.getDefaultInstance(), "searchParams.search");
+
+        createRequestBuilder = new RestApiRequestBuilder<>(
+                CREATE_URL_TEMPLATE, MetadataWriteRequest.getDefaultInstance(), true);
+
+        var printer = JsonFormat.printer();
+
+        searchJson = printer
+                .print(SearchShape.COMPLEX_COMPOUND.searchExpr())
+                .getBytes(StandardCharsets.UTF_8);
+
+        tag = BenchData.tag(BenchData.dataDef(20), attrCount);
+
+        var createRequest = MetadataWriteRequest.newBuilder()
+                .setDefinition(tag.getDefinition())
+                .addAllTagUpdate(BenchData.tagUpdatesForTag(tag))
+                .build();
+
+        createJson = printer.print(createRequest).getBytes(StandardCharsets.UTF_8);
+
+        var searchResult = MetadataSearchResponse.newBuilder();
+
+        for (var i = 0; i < SEARCH_RESULT_COUNT; i++) {
+
+            // Search results do not include the definition body
+            var resultTag = BenchData.tag(BenchData.dataDef(0), attrCount).toBuilder()
+                    .clearDefinition()
+                    .build();
+
+            searchResult.addSearchResult(resultTag);
+        }
+
+        searchResponse = searchResult.build();
+    }
+
+    @Benchmark
+    public MetadataSearchRequest translateSearchRequest() throws IOException {
+
+        var body = parseJson(searchJson, SearchExpression.newBuilder());
+
+        return searchRequestBuilder.build(SEARCH_URL, body);
+    }
+
+    @Benchmark
+    public MetadataWriteRequest translateCreateRequest() throws IOException {
+
+        var body = parseJson(createJson, MetadataWriteRequest.newBuilder());
+
+        return createRequestBuilder.build(CREATE_URL, body);
+    }
+
+    @Benchmark
+    public String printTag() throws InvalidProtocolBufferException {
+
+        return JsonFormat.printer().print(tag);
+    }
+
+    @Benchmark
+    public String printSearchResponse() throws InvalidProtocolBufferException {
+
+        return JsonFormat.printer().print(searchResponse);
+    }
+
+    private static Message parseJson(byte[] json, Message.Builder builder) throws IOException {
+
+        try (var jsonStream = new ByteArrayInputStream(json);
+             var jsonReader = new InputStreamReader(jsonStream)) {
+
+            JsonFormat.parser().merge(jsonReader, builder);
+
+            return builder.build();
+        }
+    }
+}
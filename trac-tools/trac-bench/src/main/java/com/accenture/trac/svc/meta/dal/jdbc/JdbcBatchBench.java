@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.bench.BenchData;
+import com.accenture.trac.bench.BenchDatabase;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.Tag;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.accenture.trac.bench.BenchData.BENCH_TENANT;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcBatchBench {
+
+    // Batch reads and writes through JdbcMetadataDal, against in-memory H2
+    // Write benchmarks add to the database as they run, so the later iterations see a larger database
+    // Read benchmarks use a fixed set of objects, saved during setup
+
+    private static final int PRELOAD_OBJECTS = 1000;
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    @Param({"10"})
+    public int attrCount;
+
+    private BenchDatabase database;
+    private JdbcMetadataDal dal;
+
+    private Tag templateTag;
+    private List<Tag> preloaded;
+    private List<Tag> latestTags;
+    private int nextBatch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        database = BenchDatabase.inMemoryH2(BENCH_TENANT);
+
+        dal = new JdbcMetadataDal(database.getDialect(), database.getDataSource(), Runnable::run);
+        dal.startup();
+
+        templateTag = BenchData.tag(BenchData.dataDef(20), attrCount);
+
+        preloaded = new ArrayList<>(PRELOAD_OBJECTS);
+
+        for (var i = 0; i < PRELOAD_OBJECTS; i++)
+            preloaded.add(newObject());
+
+        for (var i = 0; i < PRELOAD_OBJECTS; i += 100)
+            dal.saveNewObjects(BENCH_TENANT, preloaded.subList(i, Math.min(i + 100, PRELOAD_OBJECTS))).join();
+
+        // Shuffle with a fixed seed, so reads are not in insert order but runs are repeatable
+        Collections.shuffle(preloaded, new Random(0));
+
+        latestTags = new ArrayList<>(preloaded);
+        nextBatch = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        dal.shutdown();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Tag> saveNewObjects() {
+
+        var tags = new ArrayList<Tag>(batchSize);
+
+        for (var i = 0; i < batchSize; i++)
+            tags.add(newObject());
+
+        dal.saveNewObjects(BENCH_TENANT, tags).join();
+
+        return tags;
+    }
+
+    @Benchmark
+    public List<Tag> saveNewTags() {
+
+        // Each call adds a new tag version to the next batch of preloaded objects
+
+        var batchStart = nextBatchStart();
+        var tags = new ArrayList<Tag>(batchSize);
+
+        for (var i = batchStart; i < batchStart + batchSize; i++) {
+
+            var priorTag = latestTags.get(i);
+            var nextTag = priorTag.toBuilder()
+                    .setHeader(BenchData.nextTagHeader(priorTag.getHeader()))
+                    .build();
+
+            latestTags.set(i, nextTag);
+            tags.add(nextTag);
+        }
+
+        dal.saveNewTags(BENCH_TENANT, tags).join();
+
+        return tags;
+    }
+
+    @Benchmark
+    public List<Tag> loadTags() {
+
+        var batch = nextReadBatch();
+
+        var types = batch.stream().map(t -> t.getHeader().getObjectType()).collect(Collectors.toList());
+        var ids = batch.stream().map(t -> UUID.fromString(t.getHeader().getObjectId())).collect(Collectors.toList());
+        var versions = batch.stream().map(t -> t.getHeader().getObjectVersion()).collect(Collectors.toList());
+        var tagVersions = batch.stream().map(t -> t.getHeader().getTagVersion()).collect(Collectors.toList());
+
+        return dal.loadTags(BENCH_TENANT, types, ids, versions, tagVersions).join();
+    }
+
+    @Benchmark
+    public List<Tag> loadLatestVersions() {
+
+        var batch = nextReadBatch();
+
+        var types = batch.stream().map(t -> t.getHeader().getObjectType()).collect(Collectors.toList());
+        var ids = batch.stream().map(t -> UUID.fromString(t.getHeader().getObjectId())).collect(Collectors.toList());
+
+        return dal.loadLatestVersions(BENCH_TENANT, types, ids).join();
+    }
+
+    private Tag newObject() {
+
+        return templateTag.toBuilder()
+                .setHeader(BenchData.newHeader(ObjectType.DATA))
+                .build();
+    }
+
+    private List<Tag> nextReadBatch() {
+
+        var batchStart = nextBatchStart();
+
+        return preloaded.subList(batchStart, batchStart + batchSize);
+    }
+
+    private int nextBatchStart() {
+
+        if (nextBatch + batchSize > PRELOAD_OBJECTS)
+            nextBatch = 0;
+
+        var batchStart = nextBatch;
+        nextBatch += batchSize;
+
+        return batchStart;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.bench.SearchShape;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBuilderBench {
+
+    // Time to turn a search expression into SQL, no database involved
+    // Lives in the JDBC package because the query builder is package-private
+
+    private static final short TENANT_ID = 1;
+
+    @Param
+    public SearchShape shape;
+
+    private JdbcSearchQueryBuilder queryBuilder;
+    private SearchParameters searchParams;
+
+    @Setup
+    public void setup() {
+
+        queryBuilder = new JdbcSearchQueryBuilder();
+        searchParams = shape.searchParams(ObjectType.DATA);
+    }
+
+    @Benchmark
+    public JdbcSearchQuery buildSearchQuery() {
+
+        return queryBuilder.buildSearchQuery(TENANT_ID, searchParams);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.dal.jdbc;
+
+import com.accenture.trac.bench.BenchDatabase;
+import com.accenture.trac.bench.SearchComplexity;
+import com.accenture.trac.bench.SearchCorpus;
+import com.accenture.trac.common.metadata.Tag;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchScalingBench {
+
+    // Search latency and DB work as the tenant and the search expression grow, see SearchCorpus / SearchComplexity
+    // The defaults are the baseline point, SearchScalingSuite varies one parameter at a time to get scaling curves
+    // DB work comes from the DAL tenant usage counters, so it is the same accounting the service reports
+
+    // Runs against in-memory H2 unless trac.bench.db.config is set, see BenchDatabase
+    // Each trial uses a new tenant, so trials against a shared database do not see each other's objects
+
+    // Each call moves on to the next of a set of searches with the same shape but different values
+    // Otherwise the database can serve the result of the last identical search (H2 does this by default)
+
+    private static final String TENANT_PREFIX = "SRCH_";
+    private static final int SEARCH_ROTATION = 16;
+
+    @Param({"10000"})
+    public int objectCount;
+
+    @Param({"2"})
+    public int historyDepth;
+
+    @Param({"1"})
+    public int terms;
+
+    @Param({"1"})
+    public int nesting;
+
+    @Param({"AND"})
+    public SearchComplexity.Logic logic;
+
+    @Param({"0"})
+    public int inWidth;
+
+    @Param({"NONE"})
+    public SearchComplexity.Prior prior;
+
+    private BenchDatabase database;
+    private JdbcMetadataDal dal;
+    private String tenant;
+
+    private SearchParameters[] searches;
+    private int nextSearch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        tenant = TENANT_PREFIX + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+
+        database = BenchDatabase.create(tenant);
+
+        dal = new JdbcMetadataDal(database.getDialect(), database.getDataSource(), Runnable::run);
+        dal.startup();
+
+        SearchCorpus.load(dal, tenant, objectCount, historyDepth);
+
+        searches = new SearchParameters[SEARCH_ROTATION];
+
+        for (var offset = 0; offset < SEARCH_ROTATION; offset++)
+            searches[offset] = SearchComplexity.searchParams(terms, nesting, logic, inWidth, prior, offset);
+
+        nextSearch = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        dal.shutdown();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Tag> search(DbWork work) {
+
+        var searchParams = searches[nextSearch];
+        nextSearch = (nextSearch + 1) % SEARCH_ROTATION;
+
+        var before = dal.getTenantUsage().snapshot(tenant);
+
+        var result = dal.search(tenant, searchParams).join();
+
+        var after = dal.getTenantUsage().snapshot(tenant);
+
+        work.searches += after.searches - before.searches;
+        work.rowsRead += after.rowsRead - before.rowsRead;
+        work.searchResults += after.searchResults - before.searchResults;
+        work.dbNanos += after.searchNanos - before.searchNanos;
+
+        return result;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class DbWork {
+
+        // Totals for each iteration, JMH reports them alongside the primary score
+        // Divide by searches to get the work per search
+
+        public long searches;
+        public long rowsRead;
+        public long searchResults;
+        public long dbNanos;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+
+            searches = 0;
+            rowsRead = 0;
+            searchResults = 0;
+            dbNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.services;
+
+import com.accenture.trac.bench.BenchData;
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.metadata.Tag;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagUpdateBench {
+
+    // Applying tag updates copies the whole attr map, so cost grows with the size of the prior tag
+
+    @Param({"10", "100", "1000"})
+    public int attrCount;
+
+    @Param({"1", "10", "100"})
+    public int updateCount;
+
+    private Tag priorTag;
+    private List<TagUpdate> updates;
+
+    @Setup
+    public void setup() {
+
+        priorTag = BenchData.tag(BenchData.dataDef(10), attrCount);
+        updates = BenchData.tagUpdates(attrCount, updateCount);
+    }
+
+    @Benchmark
+    public Tag applyTagUpdates() {
+
+        return TagUpdateService.applyTagUpdates(priorTag, updates);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.svc.meta.validation;
+
+import com.accenture.trac.bench.BenchData;
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.metadata.ObjectDefinition;
+import com.accenture.trac.common.metadata.ObjectType;
+import com.accenture.trac.common.metadata.TagSelector;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetadataValidatorBench {
+
+    // Validation chains as run by MetadataWriteService for the public API
+
+    @Param({"10", "100", "1000"})
+    public int attrCount;
+
+    private ObjectDefinition definition;
+    private List<TagUpdate> tagUpdates;
+    private TagSelector priorVersion;
+
+    @Setup
+    public void setup() {
+
+        var tag = BenchData.tag(BenchData.dataDef(20), attrCount);
+
+        definition = tag.getDefinition();
+        tagUpdates = BenchData.tagUpdatesForTag(tag);
+
+        priorVersion = TagSelector.newBuilder()
+                .setObjectType(ObjectType.DATA)
+                .setObjectId(tag.getHeader().getObjectId())
+                .setObjectVersion(1)
+                .setTagVersion(1)
+                .build();
+    }
+
+    @Benchmark
+    public ObjectDefinition validateCreateObject() {
+
+        var validator = new MetadataValidator();
+
+        var normalDefinition = validator.normalizeObjectType(definition);
+        validator.definitionMatchesType(normalDefinition, ObjectType.DATA);
+        validator.tagAttributesAreValid(tagUpdates);
+        validator.checkAndThrow();
+
+        validator.tagAttributesAreNotReserved(tagUpdates);
+        validator.checkAndThrowPermissions();
+
+        validator.complete();
+
+        return normalDefinition;
+    }
+
+    @Benchmark
+    public MetadataValidator validateUpdateTag() {
+
+        var validator = new MetadataValidator();
+
+        validator.validObjectID(priorVersion);
+        validator.priorVersionMatchesType(priorVersion, ObjectType.DATA);
+        validator.tagAttributesAreValid(tagUpdates);
+        validator.checkAndThrow();
+
+        validator.tagAttributesAreNotReserved(tagUpdates);
+        validator.checkAndThrowPermissions();
+
+        validator.complete();
+
+        return validator;
+    }
+}
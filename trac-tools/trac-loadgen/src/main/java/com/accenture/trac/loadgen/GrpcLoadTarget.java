@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.api.meta.*;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.netty.NettyChannelBuilder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+public class GrpcLoadTarget implements ILoadTarget {
+
+    // Calls the metadata service directly over gRPC, using the public write API
+
+    private final ManagedChannel channel;
+
+    private final MetadataPublicWriteApiGrpc.MetadataPublicWriteApiFutureStub writeApi;
+    private final MetadataReadApiGrpc.MetadataReadApiFutureStub readApi;
+    private final MetadataSearchApiGrpc.MetadataSearchApiFutureStub searchApi;
+
+    private final long timeoutMillis;
+
+    public GrpcLoadTarget(String host, int port, int timeoutMillis) {
+
+        this.channel = NettyChannelBuilder.forAddress(host, port)
+                .usePlaintext()
+                .build();
+
+        this.writeApi = MetadataPublicWriteApiGrpc.newFutureStub(channel);
+        this.readApi = MetadataReadApiGrpc.newFutureStub(channel);
+        this.searchApi = MetadataSearchApiGrpc.newFutureStub(channel);
+
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public CompletableFuture<TagHeader> createObject(
+            String tenant, ObjectDefinition definition, List<TagUpdate> tagUpdates) {
+
+        var request = MetadataWriteRequest.newBuilder()
+                .setTenant(tenant)
+                .setObjectType(definition.getObjectType())
+                .setDefinition(definition)
+                .addAllTagUpdate(tagUpdates)
+                .build();
+
+        return unaryCall(writeApi.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS).createObject(request));
+    }
+
+    @Override
+    public CompletableFuture<TagHeader> updateTag(
+            String tenant, TagHeader priorVersion, List<TagUpdate> tagUpdates) {
+
+        var request = MetadataWriteRequest.newBuilder()
+                .setTenant(tenant)
+                .setObjectType(priorVersion.getObjectType())
+                .setPriorVersion(selectorFor(priorVersion))
+                .addAllTagUpdate(tagUpdates)
+                .build();
+
+        return unaryCall(writeApi.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS).updateTag(request));
+    }
+
+    @Override
+    public CompletableFuture<Tag> loadTag(String tenant, TagHeader selector) {
+
+        var request = MetadataReadRequest.newBuilder()
+                .setTenant(tenant)
+                .setObjectType(selector.getObjectType())
+                .setObjectId(selector.getObjectId())
+                .setObjectVersion(selector.getObjectVersion())
+                .setTagVersion(selector.getTagVersion())
+                .build();
+
+        return unaryCall(readApi.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS).loadTag(request));
+    }
+
+    @Override
+    public CompletableFuture<Tag> loadLatestObject(String tenant, ObjectType objectType, String objectId) {
+
+        var request = MetadataReadRequest.newBuilder()
+                .setTenant(tenant)
+                .setObjectType(objectType)
+                .setObjectId(objectId)
+                .build();
+
+        return unaryCall(readApi.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS).loadLatestObject(request));
+    }
+
+    @Override
+    public CompletableFuture<List<Tag>> search(String tenant, SearchParameters searchParams) {
+
+        var request = MetadataSearchRequest.newBuilder()
+                .setTenant(tenant)
+                .setSearchParams(searchParams)
+                .build();
+
+        return unaryCall(searchApi.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS).search(request))
+                .thenApply(MetadataSearchResponse::getSearchResultList);
+    }
+
+    @Override
+    public void close() {
+
+        channel.shutdown();
+
+        try {
+            channel.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static TagSelector selectorFor(TagHeader header) {
+
+        return TagSelector.newBuilder()
+                .setObjectType(header.getObjectType())
+                .setObjectId(header.getObjectId())
+                .setObjectVersion(header.getObjectVersion())
+                .setTagVersion(header.getTagVersion())
+                .build();
+    }
+
+    private <T> CompletableFuture<T> unaryCall(ListenableFuture<T> call) {
+
+        var result = new CompletableFuture<T>();
+
+        Futures.addCallback(call, new FutureCallback<>() {
+
+            @Override
+            public void onSuccess(T response) {
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+
+                var status = Status.fromThrowable(error);
+                result.completeExceptionally(new ELoadCallFailed(
+                        status.getCode().name(), status.getDescription(), error));
+            }
+
+        }, MoreExecutors.directExecutor());
+
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+
+public interface ILoadTarget extends AutoCloseable {
+
+    // Calls must not block, results are delivered through the returned futures
+    // Failed calls complete exceptionally, with ELoadCallFailed where the failure can be classified
+
+    CompletableFuture<TagHeader> createObject(String tenant, ObjectDefinition definition, List<TagUpdate> tagUpdates);
+
+    CompletableFuture<TagHeader> updateTag(String tenant, TagHeader priorVersion, List<TagUpdate> tagUpdates);
+
+    CompletableFuture<Tag> loadTag(String tenant, TagHeader selector);
+
+    CompletableFuture<Tag> loadLatestObject(String tenant, ObjectType objectType, String objectId);
+
+    CompletableFuture<List<Tag>> search(String tenant, SearchParameters searchParams);
+
+    @Override
+    void close();
+}
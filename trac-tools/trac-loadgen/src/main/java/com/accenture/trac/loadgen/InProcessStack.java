@@ -0,0 +1,295 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.config.ConfigManager;
+import com.accenture.trac.common.config.StandardArgs;
+import com.accenture.trac.common.db.JdbcSetup;
+import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.gateway.TracPlatformGateway;
+import com.accenture.trac.svc.meta.TracMetadataService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class InProcessStack {
+
+    // Runs the metadata service (and the gateway for REST targets) inside the load generator process
+    // The metadata store is an in-memory H2 database, so no external setup is needed
+
+    // Services are configured with generated config files in a temp directory
+    // Defaults can be overridden with trac.loadgen.inProcess.meta.* and trac.loadgen.inProcess.gw.* in the load config
+
+    private static final String DB_CONFIG_ROOT = "trac.svc.meta.db.sql";
+    private static final String JDBC_URL_TEMPLATE = "mem:trac_loadgen_%s;DB_CLOSE_DELAY=-1";
+
+    // Schema scripts in version order, the same sequence deploy-metadb applies with Flyway
+    // Migration 004 is a data backfill in deploy-metadb, there is nothing to backfill in a new database
+    private static final List<String> SCHEMA_SCRIPTS = List.of(
+            "/h2/001__trac_metadata.ddl",
+            "/h2/002__tag_attr_delta.ddl",
+            "/h2/003__search_index_queue.ddl",
+            "/h2/005__tag_attrs_not_null.ddl");
+
+    private static final String META_CONFIG_FILE = "trac-loadgen-meta.properties";
+    private static final String GATEWAY_CONFIG_FILE = "trac-loadgen-gw.properties";
+
+    private static final long GATEWAY_STARTUP_TIMEOUT_MILLIS = 30000;
+    private static final long GATEWAY_POLL_MILLIS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final LoadConfig config;
+
+    private Path configDir;
+    private DataSource dataSource;
+    private Thread gatewayThread;
+
+    public InProcessStack(LoadConfig config) {
+        this.config = config;
+    }
+
+    public void start() throws IOException, InterruptedException {
+
+        configDir = Files.createTempDirectory("trac-loadgen");
+
+        var metaProps = metaServiceProperties();
+        writeConfig(META_CONFIG_FILE, metaProps);
+
+        log.info("Deploying in-memory metadata database...");
+        deployDatabase(metaProps, config.getTenants());
+
+        log.info("Starting in-process metadata service on port {}...", config.getGrpcPort());
+
+        startMetaService(configManager(META_CONFIG_FILE));
+
+        if (config.getTarget() == LoadConfig.Target.REST) {
+
+            log.info("Starting in-process gateway on port {}...", config.getRestPort());
+
+            writeConfig(GATEWAY_CONFIG_FILE, gatewayProperties());
+            startGateway(configManager(GATEWAY_CONFIG_FILE));
+        }
+
+        log.info("In-process stack is up");
+    }
+
+    public void stop() {
+
+        // The metadata service registers its own shutdown hook and stops cleanly when the process exits
+        // The gateway has no shutdown hook, its thread is a daemon and goes down with the process
+        // The in-memory database goes when the process exits, so only the generated config needs cleaning up
+
+        if (configDir != null) {
+            try {
+                Files.deleteIfExists(configDir.resolve(META_CONFIG_FILE));
+                Files.deleteIfExists(configDir.resolve(GATEWAY_CONFIG_FILE));
+                Files.deleteIfExists(configDir);
+            }
+            catch (IOException e) {
+                log.warn("Failed to clean up config dir: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Properties metaServiceProperties() {
+
+        var props = new Properties();
+
+        props.setProperty("trac.svc.meta.api.port", String.valueOf(config.getGrpcPort()));
+        props.setProperty(DB_CONFIG_ROOT + ".dialect", "H2");
+        props.setProperty(DB_CONFIG_ROOT + ".jdbcUrl", String.format(JDBC_URL_TEMPLATE, UUID.randomUUID()));
+        props.setProperty(DB_CONFIG_ROOT + ".h2.user", "trac");
+        props.setProperty(DB_CONFIG_ROOT + ".h2.pass", "trac");
+        props.setProperty(DB_CONFIG_ROOT + ".pool.size", "10");
+        props.setProperty(DB_CONFIG_ROOT + ".pool.overflow", "5");
+        props.setProperty("trac.svc.meta.lanes.enabled", "true");
+
+        props.putAll(config.getInProcessMetaProps());
+
+        return props;
+    }
+
+    private Properties gatewayProperties() {
+
+        var props = new Properties();
+
+        props.setProperty("trac.gw.api.port", String.valueOf(config.getRestPort()));
+        props.setProperty("trac.gw.services.meta.host", "localhost");
+        props.setProperty("trac.gw.services.meta.port", String.valueOf(config.getGrpcPort()));
+
+        props.putAll(config.getInProcessGatewayProps());
+
+        return props;
+    }
+
+    private void deployDatabase(Properties metaProps, List<String> tenants) {
+
+        // Keep this datasource open for the life of the stack, so the in-memory database stays in place
+        // It only needs a single connection, the service has its own pool
+
+        var deployProps = new Properties();
+        deployProps.putAll(metaProps);
+        deployProps.setProperty(DB_CONFIG_ROOT + ".pool.size", "1");
+
+        dataSource = JdbcSetup.createDatasource(deployProps, DB_CONFIG_ROOT);
+
+        try (var conn = dataSource.getConnection(); var stmt = conn.createStatement()) {
+
+            for (var script : SCHEMA_SCRIPTS)
+                for (var deployCommand : readSchemaScript(script).split(";"))
+                    if (!deployCommand.isBlank())
+                        stmt.execute(deployCommand);
+
+            for (var i = 0; i < tenants.size(); i++) {
+
+                var insertTenant = String.format(
+                        "insert into tenant (tenant_id, tenant_code) values (%d, '%s')",
+                        i + 1, tenants.get(i));
+
+                stmt.execute(insertTenant);
+            }
+        }
+        catch (SQLException e) {
+
+            var message = "Failed to deploy in-memory metadata database: " + e.getMessage();
+            log.error(message);
+            throw new EStartup(message, e);
+        }
+    }
+
+    private void startMetaService(ConfigManager configManager) throws InterruptedException {
+
+        // The service shutdown hook waits for the thread that started the service
+        // Start it on its own thread, so the hook does not wait on the main thread while it is exiting
+
+        var metaService = new TracMetadataService(configManager);
+        var startupError = new AtomicReference<Exception>();
+
+        var startupThread = new Thread(() -> {
+            try {
+                metaService.start();
+            }
+            catch (Exception e) {
+                startupError.set(e);
+            }
+        }, "loadgen-meta-startup");
+
+        startupThread.start();
+        startupThread.join();
+
+        if (startupError.get() != null) {
+
+            var error = startupError.get();
+
+            if (error instanceof EStartup)
+                throw (EStartup) error;
+
+            var message = "In-process metadata service failed to start: " + error.getMessage();
+            log.error(message);
+            throw new EStartup(message, error);
+        }
+    }
+
+    private void startGateway(ConfigManager configManager) throws InterruptedException {
+
+        var gateway = new TracPlatformGateway(configManager);
+
+        gatewayThread = new Thread(() -> {
+            try {
+                gateway.run();
+            }
+            catch (Exception e) {
+                log.error("In-process gateway failed: {}", e.getMessage(), e);
+            }
+        }, "loadgen-gateway");
+
+        gatewayThread.setDaemon(true);
+        gatewayThread.start();
+
+        // Gateway start is blocking, so wait for the port to open
+
+        var deadline = System.currentTimeMillis() + GATEWAY_STARTUP_TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+
+            if (!gatewayThread.isAlive())
+                break;
+
+            try (var socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", config.getRestPort()), (int) GATEWAY_POLL_MILLIS);
+                return;
+            }
+            catch (IOException e) {
+                Thread.sleep(GATEWAY_POLL_MILLIS);
+            }
+        }
+
+        var message = "In-process gateway did not start on port " + config.getRestPort();
+        log.error(message);
+        throw new EStartup(message);
+    }
+
+    private ConfigManager configManager(String configFile) {
+
+        // Logging is already set up by the load generator, only the config plugins are needed
+
+        var args = new StandardArgs(configDir, configFile, null);
+        var configManager = new ConfigManager(args);
+        configManager.initConfigPlugins();
+
+        return configManager;
+    }
+
+    private void writeConfig(String configFile, Properties props) throws IOException {
+
+        try (Writer writer = Files.newBufferedWriter(configDir.resolve(configFile), StandardCharsets.UTF_8)) {
+            props.store(writer, "Generated by the TRAC load generator");
+        }
+    }
+
+    private static String readSchemaScript(String script) {
+
+        try (InputStream stream = InProcessStack.class.getResourceAsStream(script)) {
+
+            if (stream == null)
+                throw new EStartup("Schema script not found: " + script);
+
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new EStartup("Failed to read schema script: " + e.getMessage(), e);
+        }
+    }
+}
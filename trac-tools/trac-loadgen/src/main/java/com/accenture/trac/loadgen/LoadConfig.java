@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+
+public class LoadConfig {
+
+    // All load generator settings live under trac.loadgen in the root config file
+    // See etc/trac-loadgen.properties for an example
+
+    private static final String CONFIG_ROOT = "trac.loadgen";
+
+    private static final String TARGET_KEY = CONFIG_ROOT + ".target";
+    private static final String STACK_KEY = CONFIG_ROOT + ".stack";
+    private static final String GRPC_HOST_KEY = CONFIG_ROOT + ".grpc.host";
+    private static final String GRPC_PORT_KEY = CONFIG_ROOT + ".grpc.port";
+    private static final String REST_HOST_KEY = CONFIG_ROOT + ".rest.host";
+    private static final String REST_PORT_KEY = CONFIG_ROOT + ".rest.port";
+    private static final String RATE_KEY = CONFIG_ROOT + ".rate";
+    private static final String WARMUP_SECONDS_KEY = CONFIG_ROOT + ".warmupSeconds";
+    private static final String DURATION_SECONDS_KEY = CONFIG_ROOT + ".durationSeconds";
+    private static final String REPORT_INTERVAL_KEY = CONFIG_ROOT + ".reportIntervalSeconds";
+    private static final String MAX_IN_FLIGHT_KEY = CONFIG_ROOT + ".maxInFlight";
+    private static final String TIMEOUT_KEY = CONFIG_ROOT + ".timeoutMillis";
+    private static final String TENANTS_KEY = CONFIG_ROOT + ".tenants";
+    private static final String TENANT_COUNT_KEY = CONFIG_ROOT + ".tenantCount";
+    private static final String SEED_OBJECTS_KEY = CONFIG_ROOT + ".seedObjects";
+    private static final String RANDOM_SEED_KEY = CONFIG_ROOT + ".randomSeed";
+    private static final String ATTR_COUNT_KEY = CONFIG_ROOT + ".data.attrCount";
+    private static final String MIX_ROOT = CONFIG_ROOT + ".mix.";
+    private static final String OUTPUT_DIR_KEY = CONFIG_ROOT + ".output.dir";
+    private static final String IN_PROCESS_META_ROOT = CONFIG_ROOT + ".inProcess.meta.";
+    private static final String IN_PROCESS_GATEWAY_ROOT = CONFIG_ROOT + ".inProcess.gw.";
+
+    private static final String TENANT_CODE_TEMPLATE = "LOADGEN_%02d";
+
+    private static final int DEFAULT_GRPC_PORT = 8081;
+    private static final int DEFAULT_REST_PORT = 8080;
+    private static final int DEFAULT_WARMUP_SECONDS = 10;
+    private static final int DEFAULT_DURATION_SECONDS = 60;
+    private static final int DEFAULT_REPORT_INTERVAL = 5;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 10000;
+    private static final int DEFAULT_TENANT_COUNT = 1;
+    private static final int DEFAULT_SEED_OBJECTS = 100;
+    private static final int DEFAULT_RANDOM_SEED = 0;
+    private static final int DEFAULT_ATTR_COUNT = 10;
+
+    public enum Target { GRPC, REST }
+
+    public enum Stack { IN_PROCESS, REMOTE }
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final Target target;
+    private final Stack stack;
+    private final String grpcHost;
+    private final int grpcPort;
+    private final String restHost;
+    private final int restPort;
+    private final int rate;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int reportIntervalSeconds;
+    private final int maxInFlight;
+    private final int timeoutMillis;
+    private final List<String> tenants;
+    private final int seedObjects;
+    private final long randomSeed;
+    private final int attrCount;
+    private final Map<Operation, Integer> mixWeights;
+    private final String outputDir;
+    private final Properties inProcessMetaProps;
+    private final Properties inProcessGatewayProps;
+
+    public LoadConfig(Properties props) {
+
+        target = readEnum(props, TARGET_KEY, Target.class, Target.GRPC);
+        stack = readEnum(props, STACK_KEY, Stack.class, Stack.IN_PROCESS);
+
+        grpcHost = props.getProperty(GRPC_HOST_KEY, "localhost").trim();
+        grpcPort = readInt(props, GRPC_PORT_KEY, DEFAULT_GRPC_PORT, 1);
+        restHost = props.getProperty(REST_HOST_KEY, "localhost").trim();
+        restPort = readInt(props, REST_PORT_KEY, DEFAULT_REST_PORT, 1);
+
+        rate = readInt(props, RATE_KEY, null, 1);
+        warmupSeconds = readInt(props, WARMUP_SECONDS_KEY, DEFAULT_WARMUP_SECONDS, 0);
+        durationSeconds = readInt(props, DURATION_SECONDS_KEY, DEFAULT_DURATION_SECONDS, 1);
+        reportIntervalSeconds = readInt(props, REPORT_INTERVAL_KEY, DEFAULT_REPORT_INTERVAL, 1);
+        maxInFlight = readInt(props, MAX_IN_FLIGHT_KEY, DEFAULT_MAX_IN_FLIGHT, 1);
+        timeoutMillis = readInt(props, TIMEOUT_KEY, DEFAULT_TIMEOUT_MILLIS, 1);
+
+        tenants = readTenants(props);
+        seedObjects = readInt(props, SEED_OBJECTS_KEY, DEFAULT_SEED_OBJECTS, 0);
+        randomSeed = readInt(props, RANDOM_SEED_KEY, DEFAULT_RANDOM_SEED, null);
+        attrCount = readInt(props, ATTR_COUNT_KEY, DEFAULT_ATTR_COUNT, 1);
+
+        mixWeights = new EnumMap<>(Operation.class);
+
+        for (var op : Operation.values())
+            mixWeights.put(op, readInt(props, MIX_ROOT + op.getConfigName(), 0, 0));
+
+        var outputDirProp = props.getProperty(OUTPUT_DIR_KEY);
+        outputDir = outputDirProp != null && !outputDirProp.isBlank() ? outputDirProp.trim() : null;
+
+        inProcessMetaProps = subProperties(props, IN_PROCESS_META_ROOT);
+        inProcessGatewayProps = subProperties(props, IN_PROCESS_GATEWAY_ROOT);
+
+        if (seedObjects == 0 && mixNeedsObjects()) {
+
+            var message = String.format(
+                    "Config property %s must be at least 1 when the mix has update, load or latest load operations",
+                    SEED_OBJECTS_KEY);
+
+            log.error(message);
+            throw new EStartup(message);
+        }
+    }
+
+    public Target getTarget() {
+        return target;
+    }
+
+    public Stack getStack() {
+        return stack;
+    }
+
+    public String getGrpcHost() {
+        return grpcHost;
+    }
+
+    public int getGrpcPort() {
+        return grpcPort;
+    }
+
+    public String getRestHost() {
+        return restHost;
+    }
+
+    public int getRestPort() {
+        return restPort;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getReportIntervalSeconds() {
+        return reportIntervalSeconds;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public List<String> getTenants() {
+        return tenants;
+    }
+
+    public int getSeedObjects() {
+        return seedObjects;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public int getAttrCount() {
+        return attrCount;
+    }
+
+    public Map<Operation, Integer> getMixWeights() {
+        return mixWeights;
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+
+    public Properties getInProcessMetaProps() {
+        return inProcessMetaProps;
+    }
+
+    public Properties getInProcessGatewayProps() {
+        return inProcessGatewayProps;
+    }
+
+    private boolean mixNeedsObjects() {
+
+        return mixWeights.get(Operation.UPDATE_TAG) > 0 ||
+                mixWeights.get(Operation.LOAD) > 0 ||
+                mixWeights.get(Operation.LATEST_LOAD) > 0;
+    }
+
+    private List<String> readTenants(Properties props) {
+
+        // An explicit list of tenant codes takes priority
+        // Otherwise generate codes for the requested number of tenants
+
+        var tenantList = props.getProperty(TENANTS_KEY);
+
+        if (tenantList != null && !tenantList.isBlank()) {
+
+            var tenantCodes = new ArrayList<String>();
+
+            for (var tenant : tenantList.split(","))
+                if (!tenant.isBlank())
+                    tenantCodes.add(tenant.trim());
+
+            return List.copyOf(tenantCodes);
+        }
+
+        var tenantCount = readInt(props, TENANT_COUNT_KEY, DEFAULT_TENANT_COUNT, 1);
+        var tenantCodes = new ArrayList<String>(tenantCount);
+
+        for (var i = 1; i <= tenantCount; i++)
+            tenantCodes.add(String.format(TENANT_CODE_TEMPLATE, i));
+
+        return List.copyOf(tenantCodes);
+    }
+
+    private Properties subProperties(Properties props, String prefix) {
+
+        var subProps = new Properties();
+
+        for (var key : props.stringPropertyNames())
+            if (key.startsWith(prefix))
+                subProps.setProperty(key.substring(prefix.length()), props.getProperty(key));
+
+        return subProps;
+    }
+
+    private <T extends Enum<T>> T readEnum(Properties props, String propKey, Class<T> enumClass, T propDefault) {
+
+        var propValue = props.getProperty(propKey);
+
+        if (propValue == null || propValue.isBlank())
+            return propDefault;
+
+        // Config values are written in lower case with dashes, e.g. in-process
+        var enumName = propValue.trim().toUpperCase().replace("-", "_");
+
+        try {
+            return Enum.valueOf(enumClass, enumName);
+        }
+        catch (IllegalArgumentException e) {
+
+            var message = String.format("Config property %s has an invalid value: [%s]", propKey, propValue);
+            log.error(message);
+            throw new EStartup(message);
+        }
+    }
+
+    private int readInt(Properties props, String propKey, Integer propDefault, Integer minValue) {
+
+        var propValue = props.getProperty(propKey);
+
+        if (propValue == null || propValue.isBlank()) {
+
+            if (propDefault == null) {
+
+                var message = "Missing required config property: " + propKey;
+                log.error(message);
+                throw new EStartup(message);
+            }
+            else
+                return propDefault;
+        }
+
+        int value;
+
+        try {
+            value = Integer.parseInt(propValue.trim());
+        }
+        catch (NumberFormatException e) {
+
+            var message = "Config property must be an integer: " + propKey + ", got value '" + propValue + "'";
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        if (minValue != null && value < minValue) {
+
+            var message = "Config property must be at least " + minValue + ": " + propKey;
+            log.error(message);
+            throw new EStartup(message);
+        }
+
+        return value;
+    }
+}
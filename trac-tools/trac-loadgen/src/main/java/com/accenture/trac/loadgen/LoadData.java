@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.api.meta.TagOperation;
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeArrayValue;
+import static com.accenture.trac.common.metadata.MetadataCodec.encodeValue;
+
+
+public class LoadData {
+
+    // Request content for the load generator
+    // All content comes from the random source passed in, so a fixed seed gives a repeatable request sequence
+
+    // Every object gets a key, a category and a status, which searches select on
+    // Keys are fairly selective, categories and statuses match larger result sets
+
+    private static final String KEY_ATTR = "loadgen_key";
+    private static final String CATEGORY_ATTR = "loadgen_category";
+    private static final String STATUS_ATTR = "loadgen_status";
+    private static final String UPDATED_ATTR = "loadgen_updated";
+    private static final String ATTR_PREFIX = "loadgen_attr_";
+
+    private static final int KEY_COUNT = 1000;
+    private static final int CATEGORY_COUNT = 20;
+    private static final List<String> STATUSES = List.of("draft", "review", "approved", "published", "retired");
+
+    private static final int MIN_MODELS = 1;
+    private static final int MAX_MODELS = 10;
+
+    private static final LocalDate BASE_DATE = LocalDate.of(2020, 1, 1);
+    private static final OffsetDateTime BASE_DATETIME = OffsetDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final int attrCount;
+
+    public LoadData(int attrCount) {
+        this.attrCount = attrCount;
+    }
+
+    public ObjectDefinition flowDefinition(Random random) {
+
+        // Only FLOW and CUSTOM objects can be created through the public API, so the load uses flows
+        // Each flow is a chain of models with their own inputs and outputs, so definition size varies
+
+        var modelCount = MIN_MODELS + random.nextInt(MAX_MODELS - MIN_MODELS + 1);
+        var flow = FlowDefinition.newBuilder();
+
+        for (var i = 0; i < modelCount; i++) {
+
+            var inputNode = "input_" + i;
+            var modelNode = "model_" + i;
+            var outputNode = "output_" + i;
+
+            flow.putNode(inputNode, FlowNode.newBuilder().setNodeType(FlowNodeType.INPUT_NODE).build());
+            flow.putNode(modelNode, FlowNode.newBuilder().setNodeType(FlowNodeType.MODEL_NODE).build());
+            flow.putNode(outputNode, FlowNode.newBuilder().setNodeType(FlowNodeType.OUTPUT_NODE).build());
+
+            flow.addEdge(FlowEdge.newBuilder()
+                    .setHead(FlowSocket.newBuilder().setNode(modelNode).setSocket("input"))
+                    .setTail(FlowSocket.newBuilder().setNode(inputNode)));
+
+            flow.addEdge(FlowEdge.newBuilder()
+                    .setHead(FlowSocket.newBuilder().setNode(outputNode))
+                    .setTail(FlowSocket.newBuilder().setNode(modelNode).setSocket("output")));
+
+            if (i > 0) {
+                flow.addEdge(FlowEdge.newBuilder()
+                        .setHead(FlowSocket.newBuilder().setNode(modelNode).setSocket("upstream"))
+                        .setTail(FlowSocket.newBuilder().setNode("model_" + (i - 1)).setSocket("output")));
+            }
+        }
+
+        return ObjectDefinition.newBuilder()
+                .setObjectType(ObjectType.FLOW)
+                .setFlow(flow)
+                .build();
+    }
+
+    public List<TagUpdate> createAttrs(Random random) {
+
+        var updates = new ArrayList<TagUpdate>(attrCount + 3);
+
+        updates.add(tagUpdate(TagOperation.CREATE_ATTR, KEY_ATTR, randomKey(random)));
+        updates.add(tagUpdate(TagOperation.CREATE_ATTR, CATEGORY_ATTR, randomCategory(random)));
+        updates.add(tagUpdate(TagOperation.CREATE_ATTR, STATUS_ATTR, randomStatus(random)));
+
+        for (var i = 0; i < attrCount; i++)
+            updates.add(tagUpdate(TagOperation.CREATE_ATTR, ATTR_PREFIX + i, attrValue(random, i)));
+
+        return updates;
+    }
+
+    public List<TagUpdate> updateAttrs(Random random) {
+
+        var updated = BASE_DATETIME.plusSeconds(random.nextInt(365 * 24 * 3600));
+
+        return List.of(
+                tagUpdate(TagOperation.CREATE_OR_REPLACE_ATTR, STATUS_ATTR, randomStatus(random)),
+                tagUpdate(TagOperation.CREATE_OR_REPLACE_ATTR, UPDATED_ATTR, encodeValue(updated)));
+    }
+
+    public SearchParameters search(Random random) {
+
+        // A spread of search shapes, from a single selective term to a small compound expression
+
+        SearchExpression search;
+
+        switch (random.nextInt(3)) {
+
+            case 0:
+                search = term(KEY_ATTR, SearchOperator.EQ, randomKey(random));
+                break;
+
+            case 1:
+                search = logical(LogicalOperator.AND,
+                        term(CATEGORY_ATTR, SearchOperator.EQ, randomCategory(random)),
+                        term(STATUS_ATTR, SearchOperator.IN, encodeArrayValue(
+                                List.of(STATUSES.get(random.nextInt(STATUSES.size())), STATUSES.get(0)),
+                                TypeSystem.descriptor(BasicType.STRING))));
+                break;
+
+            default:
+                search = logical(LogicalOperator.AND,
+                        term(CATEGORY_ATTR, SearchOperator.EQ, randomCategory(random)),
+                        logical(LogicalOperator.NOT,
+                                term(STATUS_ATTR, SearchOperator.EQ, encodeValue("retired"))));
+        }
+
+        return SearchParameters.newBuilder()
+                .setObjectType(ObjectType.FLOW)
+                .setSearch(search)
+                .build();
+    }
+
+    private Value attrValue(Random random, int index) {
+
+        switch (index % 6) {
+
+            case 0: return encodeValue("value_" + random.nextInt(KEY_COUNT));
+            case 1: return encodeValue((long) random.nextInt());
+            case 2: return encodeValue(random.nextDouble() * 1000);
+            case 3: return encodeValue(random.nextBoolean());
+            case 4: return encodeValue(BigDecimal.valueOf(random.nextInt(1000000), 2));
+            default: return encodeValue(BASE_DATE.plusDays(random.nextInt(3650)));
+        }
+    }
+
+    private Value randomKey(Random random) {
+        return encodeValue("key_" + random.nextInt(KEY_COUNT));
+    }
+
+    private Value randomCategory(Random random) {
+        return encodeValue("category_" + random.nextInt(CATEGORY_COUNT));
+    }
+
+    private Value randomStatus(Random random) {
+        return encodeValue(STATUSES.get(random.nextInt(STATUSES.size())));
+    }
+
+    private static TagUpdate tagUpdate(TagOperation operation, String attrName, Value value) {
+
+        return TagUpdate.newBuilder()
+                .setOperation(operation)
+                .setAttrName(attrName)
+                .setValue(value)
+                .build();
+    }
+
+    private static SearchExpression term(String attrName, SearchOperator operator, Value searchValue) {
+
+        var attrType = TypeSystem.isPrimitive(searchValue)
+                ? TypeSystem.basicType(searchValue)
+                : searchValue.getType().getArrayType().getBasicType();
+
+        return SearchExpression.newBuilder()
+                .setTerm(SearchTerm.newBuilder()
+                .setAttrName(attrName)
+                .setAttrType(attrType)
+                .setOperator(operator)
+                .setSearchValue(searchValue))
+                .build();
+    }
+
+    private static SearchExpression logical(LogicalOperator operator, SearchExpression... exprs) {
+
+        return SearchExpression.newBuilder()
+                .setLogical(LogicalExpression.newBuilder()
+                .setOperator(operator)
+                .addAllExpr(List.of(exprs)))
+                .build();
+    }
+}
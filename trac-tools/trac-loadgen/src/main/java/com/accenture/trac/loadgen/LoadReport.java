@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+public class LoadReport {
+
+    // Final results of a load run, only calls scheduled in the measurement window are included
+    // Throughput is successful calls per second of the measurement window
+    // Latencies are in milliseconds, measured from the scheduled send time
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private static final String ROW_FORMAT = "%-12s %7s %9s %9s %10s %9s %9s %9s %9s %9s %9s %9s%n";
+
+    private final LoadConfig config;
+    private final WorkloadMix mix;
+    private final Map<Operation, LoadStats> stats;
+    private final long measuredNanos;
+    private final long dropped;
+    private final long maxLagNanos;
+
+    public LoadReport(
+            LoadConfig config, WorkloadMix mix,
+            Map<Operation, LoadStats> stats,
+            long measuredNanos, long dropped, long maxLagNanos) {
+
+        this.config = config;
+        this.mix = mix;
+        this.stats = stats;
+        this.measuredNanos = measuredNanos;
+        this.dropped = dropped;
+        this.maxLagNanos = maxLagNanos;
+    }
+
+    public long getTotalErrors() {
+
+        return stats.values().stream().mapToLong(LoadStats::getFailed).sum();
+    }
+
+    public void print(PrintStream out) {
+
+        var seconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        var ratios = mix.ratios();
+
+        out.println();
+        out.println("Load test results");
+        out.println();
+        out.printf("  Target: %s (%s stack), tenants = %d%n",
+                config.getTarget(), config.getStack(), config.getTenants().size());
+        out.printf("  Target rate = %d/s, measured for %.0f s after %d s warmup%n",
+                config.getRate(), seconds, config.getWarmupSeconds());
+        out.printf("  Dropped at client (max in flight = %d): %d%n", config.getMaxInFlight(), dropped);
+        out.printf("  Max schedule lag: %s ms%n", formatMillis(TimeUnit.NANOSECONDS.toMicros(maxLagNanos)));
+        out.println();
+
+        out.printf(ROW_FORMAT, "Operation", "Mix", "OK", "Errors", "OK/s",
+                "Mean", "p50", "p90", "p99", "p99.9", "Max", "(ms)");
+
+        var all = new Histogram(3);
+        var allOk = 0L;
+        var allErrors = 0L;
+
+        for (var opStats : stats.values()) {
+
+            if (!ratios.containsKey(opStats.getOperation()))
+                continue;
+
+            var histogram = opStats.getCumulative();
+            var ratio = String.format("%.0f%%", ratios.get(opStats.getOperation()) * 100);
+
+            printRow(out, opStats.getOperation().name(), ratio,
+                    opStats.getSucceeded(), opStats.getFailed(), seconds, histogram);
+
+            all.add(histogram);
+            allOk += opStats.getSucceeded();
+            allErrors += opStats.getFailed();
+        }
+
+        printRow(out, "ALL", "100%", allOk, allErrors, seconds, all);
+
+        if (allErrors > 0) {
+
+            out.println();
+            out.println("Errors");
+            out.println();
+
+            for (var opStats : stats.values())
+                for (var error : opStats.getErrors().entrySet())
+                    out.printf("  %-12s %-30s %9d%n", opStats.getOperation().name(), error.getKey(), error.getValue());
+        }
+
+        out.println();
+    }
+
+    public void writeFiles(Path outputDir) throws IOException {
+
+        // Summary as printed, plus the full HDR percentile distribution for each operation
+        // The .hgrm files can be plotted with the standard HdrHistogram tools
+
+        Files.createDirectories(outputDir);
+
+        try (var out = new PrintStream(outputDir.resolve("summary.txt").toFile(), StandardCharsets.UTF_8)) {
+            print(out);
+        }
+
+        for (var opStats : stats.values()) {
+
+            if (opStats.getCumulative().getTotalCount() == 0)
+                continue;
+
+            var fileName = "latency-" + opStats.getOperation().getConfigName() + ".hgrm";
+
+            try (var out = new PrintStream(outputDir.resolve(fileName).toFile(), StandardCharsets.UTF_8)) {
+                opStats.getCumulative().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private void printRow(
+            PrintStream out, String label, String ratio,
+            long ok, long errors, double seconds, Histogram histogram) {
+
+        var empty = histogram.getTotalCount() == 0;
+
+        out.printf(ROW_FORMAT, label, ratio, ok, errors,
+                String.format("%.1f", ok / seconds),
+                empty ? "-" : String.format("%.2f", histogram.getMean() / MICROS_PER_MILLI),
+                empty ? "-" : formatMillis(histogram.getValueAtPercentile(50)),
+                empty ? "-" : formatMillis(histogram.getValueAtPercentile(90)),
+                empty ? "-" : formatMillis(histogram.getValueAtPercentile(99)),
+                empty ? "-" : formatMillis(histogram.getValueAtPercentile(99.9)),
+                empty ? "-" : formatMillis(histogram.getMaxValue()),
+                "");
+    }
+
+    static String formatMillis(long micros) {
+
+        return String.format("%.2f", micros / MICROS_PER_MILLI);
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.common.metadata.ObjectDefinition;
+import com.accenture.trac.common.metadata.TagHeader;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+public class LoadRunner {
+
+    // Open-loop load: requests are sent on a fixed schedule at the target rate, whether or not earlier calls have finished
+    // Latency is measured from the scheduled send time, not the actual send time
+    // This avoids coordinated omission, a stalled service shows up as high latency instead of a lower send rate
+
+    // Request content and the sequence of operations come from a single seeded random source on the dispatch thread
+    // The client limits calls in flight, calls that would go over the limit are counted as errors and not sent
+
+    static final String CLIENT_SATURATED = "CLIENT_SATURATED";
+    static final String NO_OBJECTS = "NO_OBJECTS";
+
+    private static final int SEED_CONCURRENCY = 8;
+    private static final int SEED_MAX_RETRIES = 10;
+    private static final long SEED_RETRY_DELAY_MILLIS = 20;
+    private static final Set<String> SEED_RETRY_CODES = Set.of("RESOURCE_EXHAUSTED", "UNAVAILABLE", "HTTP_503");
+    private static final long DRAIN_GRACE_MILLIS = 1000;
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final LoadConfig config;
+    private final ILoadTarget target;
+    private final WorkloadMix mix;
+    private final LoadData data;
+    private final ObjectPool pool;
+    private final List<String> tenants;
+    private final Random random;
+
+    private final Map<Operation, LoadStats> stats;
+    private final AtomicInteger inFlight;
+    private final LongAdder sent;
+    private final LongAdder dropped;
+    private long maxLagNanos;
+
+    // Reporting thread only
+    private long lastSucceeded;
+    private long lastFailed;
+    private long lastSent;
+
+    public LoadRunner(LoadConfig config, ILoadTarget target) {
+
+        this.config = config;
+        this.target = target;
+        this.mix = new WorkloadMix(config.getMixWeights());
+        this.data = new LoadData(config.getAttrCount());
+        this.pool = new ObjectPool(config.getTenants());
+        this.tenants = config.getTenants();
+        this.random = new Random(config.getRandomSeed());
+
+        this.stats = new EnumMap<>(Operation.class);
+
+        for (var op : Operation.values())
+            stats.put(op, new LoadStats(op));
+
+        this.inFlight = new AtomicInteger();
+        this.sent = new LongAdder();
+        this.dropped = new LongAdder();
+    }
+
+    public void seedObjects() throws InterruptedException {
+
+        // Create the starting set of objects in each tenant, for updates and loads to work on
+        // This is not part of the measured load, calls are made with a small fixed concurrency
+
+        var seedObjects = config.getSeedObjects();
+
+        if (seedObjects == 0)
+            return;
+
+        log.info("Seeding {} objects in each of {} tenant(s)...", seedObjects, tenants.size());
+
+        var semaphore = new Semaphore(SEED_CONCURRENCY);
+        var failures = new AtomicInteger();
+        var firstError = new AtomicReference<Throwable>();
+
+        for (var tenant : tenants) {
+            for (var i = 0; i < seedObjects; i++) {
+
+                semaphore.acquire();
+
+                var definition = data.flowDefinition(random);
+                var attrs = data.createAttrs(random);
+
+                seedObject(tenant, definition, attrs, 0)
+                        .whenComplete((header, error) -> {
+
+                            if (error == null)
+                                pool.add(tenant, header);
+                            else {
+                                failures.incrementAndGet();
+                                firstError.compareAndSet(null, error);
+                            }
+
+                            semaphore.release();
+                        });
+            }
+        }
+
+        semaphore.acquire(SEED_CONCURRENCY);
+        semaphore.release(SEED_CONCURRENCY);
+
+        for (var tenant : tenants) {
+
+            if (pool.size(tenant) == 0) {
+
+                var cause = firstError.get();
+                var message = String.format("Seeding failed for tenant [%s]: %s", tenant,
+                        cause != null ? errorCode(cause) + " " + cause.getMessage() : "no objects created");
+
+                log.error(message);
+                throw new EStartup(message, cause);
+            }
+        }
+
+        if (failures.get() > 0)
+            log.warn("Seeding complete with {} failed call(s), first error: {}", failures.get(), errorCode(firstError.get()));
+        else
+            log.info("Seeding complete");
+    }
+
+    private CompletableFuture<TagHeader> seedObject(
+            String tenant, ObjectDefinition definition, List<TagUpdate> attrs, int attempt) {
+
+        // The service may reject seeding calls if they arrive faster than it can take them
+        // Back off and retry in that case, seeding only needs the objects to exist
+
+        return target.createObject(tenant, definition, attrs)
+                .handle((header, error) -> {
+
+                    if (error == null)
+                        return CompletableFuture.completedFuture(header);
+
+                    if (attempt < SEED_MAX_RETRIES && SEED_RETRY_CODES.contains(errorCode(error))) {
+
+                        var delay = CompletableFuture.delayedExecutor(
+                                SEED_RETRY_DELAY_MILLIS * (attempt + 1), TimeUnit.MILLISECONDS);
+
+                        return CompletableFuture.supplyAsync(() -> null, delay)
+                                .thenCompose(x -> seedObject(tenant, definition, attrs, attempt + 1));
+                    }
+
+                    return CompletableFuture.<TagHeader>failedFuture(error);
+                })
+                .thenCompose(result -> result);
+    }
+
+    public LoadReport run() throws InterruptedException {
+
+        var intervalNanos = (double) TimeUnit.SECONDS.toNanos(1) / config.getRate();
+
+        var startTime = System.nanoTime();
+        var measureStart = startTime + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        var measureEnd = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+        log.info("Running load: rate = {}/s, warmup = {} s, duration = {} s, mix = {}",
+                config.getRate(), config.getWarmupSeconds(), config.getDurationSeconds(), mix.ratios());
+
+        var threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("loadgen-report")
+                .setDaemon(true)
+                .build();
+
+        var reporter = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        var reportInterval = config.getReportIntervalSeconds();
+
+        reporter.scheduleAtFixedRate(
+                () -> reportInterval(startTime, measureStart),
+                reportInterval, reportInterval, TimeUnit.SECONDS);
+
+        try {
+
+            for (long i = 0; ; i++) {
+
+                var scheduledTime = startTime + (long) (i * intervalNanos);
+
+                if (scheduledTime >= measureEnd)
+                    break;
+
+                waitUntil(scheduledTime);
+
+                var measured = scheduledTime >= measureStart;
+
+                if (measured)
+                    maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - scheduledTime);
+
+                dispatch(scheduledTime, measured);
+            }
+
+            awaitDrain();
+        }
+        finally {
+
+            reporter.shutdown();
+            reporter.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        // Pick up everything recorded since the last interval report
+        for (var opStats : stats.values())
+            opStats.sampleInterval();
+
+        var measuredNanos = measureEnd - measureStart;
+
+        return new LoadReport(config, mix, stats, measuredNanos, dropped.sum(), maxLagNanos);
+    }
+
+    private void dispatch(long scheduledTime, boolean measured) {
+
+        var op = mix.pick(random);
+        var tenant = tenants.get(random.nextInt(tenants.size()));
+        var opStats = stats.get(op);
+
+        if (inFlight.get() >= config.getMaxInFlight()) {
+
+            dropped.increment();
+
+            if (measured)
+                opStats.recordError(CLIENT_SATURATED);
+
+            return;
+        }
+
+        CompletableFuture<?> call;
+
+        try {
+            call = startCall(op, tenant);
+        }
+        catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        inFlight.incrementAndGet();
+        sent.increment();
+
+        call.whenComplete((result, error) -> {
+
+            var latency = System.nanoTime() - scheduledTime;
+
+            inFlight.decrementAndGet();
+
+            if (!measured)
+                return;
+
+            if (error == null)
+                opStats.recordSuccess(latency);
+            else
+                opStats.recordError(errorCode(error));
+        });
+    }
+
+    private CompletableFuture<?> startCall(Operation op, String tenant) {
+
+        switch (op) {
+
+            case CREATE:
+
+                return target.createObject(tenant, data.flowDefinition(random), data.createAttrs(random))
+                        .thenAccept(header -> pool.add(tenant, header));
+
+            case UPDATE_TAG:
+
+                var priorVersion = pool.pick(tenant, random);
+
+                if (priorVersion == null)
+                    return noObjects(tenant);
+
+                return target.updateTag(tenant, priorVersion, data.updateAttrs(random))
+                        .thenAccept(header -> pool.add(tenant, header));
+
+            case LOAD:
+
+                var selector = pool.pick(tenant, random);
+
+                if (selector == null)
+                    return noObjects(tenant);
+
+                return target.loadTag(tenant, selector);
+
+            case LATEST_LOAD:
+
+                var latest = pool.pick(tenant, random);
+
+                if (latest == null)
+                    return noObjects(tenant);
+
+                return target.loadLatestObject(tenant, latest.getObjectType(), latest.getObjectId());
+
+            case SEARCH:
+
+                return target.search(tenant, data.search(random));
+
+            default:
+                throw new IllegalStateException("Unknown operation: " + op);
+        }
+    }
+
+    private CompletableFuture<?> noObjects(String tenant) {
+
+        var message = "No objects available in tenant " + tenant;
+        return CompletableFuture.failedFuture(new ELoadCallFailed(NO_OBJECTS, message));
+    }
+
+    private void reportInterval(long startTime, long measureStart) {
+
+        var now = System.nanoTime();
+        var elapsed = TimeUnit.NANOSECONDS.toSeconds(now - startTime);
+        var phase = now < measureStart ? "warmup" : "measure";
+
+        var interval = new Histogram(3);
+        var succeeded = 0L;
+        var failed = 0L;
+
+        for (var opStats : stats.values()) {
+
+            interval.add(opStats.sampleInterval());
+            succeeded += opStats.getSucceeded();
+            failed += opStats.getFailed();
+        }
+
+        var sentTotal = sent.sum();
+        var seconds = (double) config.getReportIntervalSeconds();
+
+        log.info("[{} s, {}] sent = {}/s, ok = {}/s, errors = {}/s, in flight = {}, p50 = {} ms, p99 = {} ms",
+                elapsed, phase,
+                String.format("%.0f", (sentTotal - lastSent) / seconds),
+                String.format("%.0f", (succeeded - lastSucceeded) / seconds),
+                String.format("%.0f", (failed - lastFailed) / seconds),
+                inFlight.get(),
+                LoadReport.formatMillis(interval.getValueAtPercentile(50)),
+                LoadReport.formatMillis(interval.getValueAtPercentile(99)));
+
+        lastSent = sentTotal;
+        lastSucceeded = succeeded;
+        lastFailed = failed;
+    }
+
+    private void awaitDrain() throws InterruptedException {
+
+        var deadline = System.currentTimeMillis() + config.getTimeoutMillis() + DRAIN_GRACE_MILLIS;
+
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(DRAIN_POLL_MILLIS);
+
+        if (inFlight.get() > 0)
+            log.warn("{} call(s) still in flight after the timeout, they are not included in the results", inFlight.get());
+    }
+
+    private static void waitUntil(long scheduledTime) throws InterruptedException {
+
+        long remaining;
+
+        while ((remaining = scheduledTime - System.nanoTime()) > 0) {
+
+            LockSupport.parkNanos(remaining);
+
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    static String errorCode(Throwable error) {
+
+        var cause = error;
+
+        while (cause instanceof CompletionException && cause.getCause() != null)
+            cause = cause.getCause();
+
+        if (cause instanceof ELoadCallFailed)
+            return ((ELoadCallFailed) cause).getErrorCode();
+
+        return cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+public class LoadStats {
+
+    // Results for one operation type
+    // Latencies go into an HDR recorder, which can be sampled for interval reports without stopping the load
+    // Interval samples are added to a cumulative histogram, which is only touched by the reporting thread
+
+    // Latency is recorded in microseconds, anything above the highest trackable value is clamped
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Operation operation;
+
+    private final Recorder recorder;
+    private final Histogram cumulative;
+    private Histogram interval;
+
+    private final LongAdder succeeded;
+    private final LongAdder failed;
+    private final ConcurrentMap<String, LongAdder> errors;
+
+    public LoadStats(Operation operation) {
+
+        this.operation = operation;
+
+        this.recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        this.cumulative = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+        this.succeeded = new LongAdder();
+        this.failed = new LongAdder();
+        this.errors = new ConcurrentHashMap<>();
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+
+        var latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+
+        recorder.recordValue(Math.min(Math.max(latencyMicros, 0), HIGHEST_TRACKABLE_MICROS));
+        succeeded.increment();
+    }
+
+    public void recordError(String errorCode) {
+
+        errors.computeIfAbsent(errorCode, code -> new LongAdder()).increment();
+        failed.increment();
+    }
+
+    public Histogram sampleInterval() {
+
+        // Reporting thread only
+
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.add(interval);
+
+        return interval;
+    }
+
+    public Histogram getCumulative() {
+        return cumulative;
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public Map<String, Long> getErrors() {
+
+        var errorCounts = new TreeMap<String, Long>();
+        errors.forEach((code, count) -> errorCounts.put(code, count.sum()));
+
+        return errorCounts;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.metadata.TagHeader;
+
+import java.util.*;
+
+
+public class ObjectPool {
+
+    // Objects known to exist in each tenant, with the latest tag version seen for each one
+    // Updates and loads pick their targets from here, results of creates and updates are added back in
+
+    private final Map<String, TenantObjects> tenants;
+
+    public ObjectPool(List<String> tenants) {
+
+        var tenantMap = new HashMap<String, TenantObjects>();
+
+        for (var tenant : tenants)
+            tenantMap.put(tenant, new TenantObjects());
+
+        this.tenants = Map.copyOf(tenantMap);
+    }
+
+    public void add(String tenant, TagHeader header) {
+
+        var objects = tenants.get(tenant);
+
+        synchronized (objects) {
+
+            var index = objects.index.get(header.getObjectId());
+
+            if (index == null) {
+                objects.index.put(header.getObjectId(), objects.headers.size());
+                objects.headers.add(header);
+            }
+            else if (objects.headers.get(index).getTagVersion() < header.getTagVersion()) {
+                objects.headers.set(index, header);
+            }
+        }
+    }
+
+    public TagHeader pick(String tenant, Random random) {
+
+        var objects = tenants.get(tenant);
+
+        synchronized (objects) {
+
+            if (objects.headers.isEmpty())
+                return null;
+
+            return objects.headers.get(random.nextInt(objects.headers.size()));
+        }
+    }
+
+    public int size(String tenant) {
+
+        var objects = tenants.get(tenant);
+
+        synchronized (objects) {
+            return objects.headers.size();
+        }
+    }
+
+    private static class TenantObjects {
+
+        final List<TagHeader> headers = new ArrayList<>();
+        final Map<String, Integer> index = new HashMap<>();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.api.meta.MetadataSearchResponse;
+import com.accenture.trac.common.api.meta.MetadataWriteRequest;
+import com.accenture.trac.common.api.meta.TagUpdate;
+import com.accenture.trac.common.metadata.*;
+import com.accenture.trac.common.metadata.search.SearchParameters;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageOrBuilder;
+import com.google.protobuf.util.JsonFormat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+
+public class RestLoadTarget implements ILoadTarget {
+
+    // Calls the metadata API through the gateway REST routes, as configured in TracApiConfig
+    // JSON bodies are produced and parsed the same way a REST client would, using the protobuf JSON format
+
+    private static final String API_ROOT = "/trac-meta/api/v1/";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public RestLoadTarget(String host, int port, int timeoutMillis) {
+
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(timeoutMillis))
+                .build();
+
+        this.baseUrl = "http://" + host + ":" + port + API_ROOT;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+    }
+
+    @Override
+    public CompletableFuture<TagHeader> createObject(
+            String tenant, ObjectDefinition definition, List<TagUpdate> tagUpdates) {
+
+        var url = String.format("%s%s/%s/create-object", baseUrl, tenant, definition.getObjectType());
+
+        var body = MetadataWriteRequest.newBuilder()
+                .setDefinition(definition)
+                .addAllTagUpdate(tagUpdates);
+
+        return post(url, body, TagHeader::newBuilder);
+    }
+
+    @Override
+    public CompletableFuture<TagHeader> updateTag(
+            String tenant, TagHeader priorVersion, List<TagUpdate> tagUpdates) {
+
+        var url = String.format("%s%s/%s/update-tag", baseUrl, tenant, priorVersion.getObjectType());
+
+        var body = MetadataWriteRequest.newBuilder()
+                .setPriorVersion(GrpcLoadTarget.selectorFor(priorVersion))
+                .addAllTagUpdate(tagUpdates);
+
+        return post(url, body, TagHeader::newBuilder);
+    }
+
+    @Override
+    public CompletableFuture<Tag> loadTag(String tenant, TagHeader selector) {
+
+        var url = String.format("%s%s/%s/%s/versions/%d/tags/%d", baseUrl, tenant,
+                selector.getObjectType(), selector.getObjectId(),
+                selector.getObjectVersion(), selector.getTagVersion());
+
+        return get(url, Tag::newBuilder);
+    }
+
+    @Override
+    public CompletableFuture<Tag> loadLatestObject(String tenant, ObjectType objectType, String objectId) {
+
+        var url = String.format("%s%s/%s/%s/versions/latest/tags/latest", baseUrl, tenant, objectType, objectId);
+
+        return get(url, Tag::newBuilder);
+    }
+
+    @Override
+    public CompletableFuture<List<Tag>> search(String tenant, SearchParameters searchParams) {
+
+        var url = String.format("%s%s/%s/search?priorVersions=%s", baseUrl, tenant,
+                searchParams.getObjectType(), searchParams.getPriorVersions());
+
+        return this.<MetadataSearchResponse>post(url, searchParams.getSearch(), MetadataSearchResponse::newBuilder)
+                .thenApply(MetadataSearchResponse::getSearchResultList);
+    }
+
+    @Override
+    public void close() {
+
+        // Java's HTTP client has no close method, connections are released when the client is collected
+    }
+
+    private <T extends Message> CompletableFuture<T> post(
+            String url, MessageOrBuilder body, Supplier<? extends Message.Builder> responseType) {
+
+        String json;
+
+        try {
+            json = JsonFormat.printer().print(body);
+        }
+        catch (InvalidProtocolBufferException e) {
+            return CompletableFuture.failedFuture(new ELoadCallFailed("JSON_ENCODE", e.getMessage(), e));
+        }
+
+        var request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", JSON_CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+
+        return send(request, responseType);
+    }
+
+    private <T extends Message> CompletableFuture<T> get(
+            String url, Supplier<? extends Message.Builder> responseType) {
+
+        var request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .GET()
+                .build();
+
+        return send(request, responseType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Message> CompletableFuture<T> send(
+            HttpRequest request, Supplier<? extends Message.Builder> responseType) {
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+
+                    if (error != null)
+                        throw classifyError(error);
+
+                    if (response.statusCode() != 200) {
+                        throw new ELoadCallFailed(
+                                "HTTP_" + response.statusCode(),
+                                response.body());
+                    }
+
+                    try {
+
+                        var builder = responseType.get();
+                        JsonFormat.parser().merge(response.body(), builder);
+
+                        return (T) builder.build();
+                    }
+                    catch (InvalidProtocolBufferException e) {
+                        throw new ELoadCallFailed("JSON_DECODE", e.getMessage(), e);
+                    }
+                });
+    }
+
+    private ELoadCallFailed classifyError(Throwable error) {
+
+        var cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+
+        if (cause instanceof HttpTimeoutException)
+            return new ELoadCallFailed("TIMEOUT", cause.getMessage(), cause);
+
+        return new ELoadCallFailed(cause.getClass().getSimpleName(), cause.getMessage(), cause);
+    }
+}
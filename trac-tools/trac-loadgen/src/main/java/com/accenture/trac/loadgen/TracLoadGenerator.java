@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.config.ConfigManager;
+import com.accenture.trac.common.config.StandardArgsProcessor;
+import com.accenture.trac.common.exception.EStartup;
+import com.accenture.trac.common.util.VersionInfo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+
+
+public class TracLoadGenerator {
+
+    // Drive a configurable workload mix against the metadata API, over gRPC or through the gateway REST routes
+    // Targets can be a remote stack, or an in-process stack on H2 that runs on any developer machine
+
+    private final Logger log;
+    private final ConfigManager configManager;
+
+    public TracLoadGenerator(ConfigManager configManager) {
+
+        this.log = LoggerFactory.getLogger(getClass());
+        this.configManager = configManager;
+    }
+
+    public LoadReport runLoad() throws Exception {
+
+        var componentName = VersionInfo.getComponentName(TracLoadGenerator.class);
+        var componentVersion = VersionInfo.getComponentVersion(TracLoadGenerator.class);
+        log.info("{} {}", componentName, componentVersion);
+
+        var properties = configManager.loadRootProperties();
+        var config = new LoadConfig(properties);
+
+        log.info("Target: {}, stack: {}, tenants: {}", config.getTarget(), config.getStack(), config.getTenants());
+
+        InProcessStack stack = null;
+
+        try {
+
+            if (config.getStack() == LoadConfig.Stack.IN_PROCESS) {
+                stack = new InProcessStack(config);
+                stack.start();
+            }
+
+            try (var target = createTarget(config)) {
+
+                var runner = new LoadRunner(config, target);
+                runner.seedObjects();
+
+                var report = runner.run();
+                report.print(System.out);
+
+                if (config.getOutputDir() != null) {
+
+                    var outputDir = Paths.get(config.getOutputDir());
+                    report.writeFiles(outputDir);
+
+                    log.info("Results written to {}", outputDir.toAbsolutePath());
+                }
+
+                return report;
+            }
+        }
+        finally {
+
+            if (stack != null)
+                stack.stop();
+        }
+    }
+
+    private ILoadTarget createTarget(LoadConfig config) {
+
+        if (config.getTarget() == LoadConfig.Target.REST)
+            return new RestLoadTarget(config.getRestHost(), config.getRestPort(), config.getTimeoutMillis());
+        else
+            return new GrpcLoadTarget(config.getGrpcHost(), config.getGrpcPort(), config.getTimeoutMillis());
+    }
+
+    public static void main(String[] args) {
+
+        try {
+
+            var componentName = VersionInfo.getComponentName(TracLoadGenerator.class);
+            var componentVersion = VersionInfo.getComponentVersion(TracLoadGenerator.class);
+            var startupBanner = String.format(">>> %s %s", componentName, componentVersion);
+            System.out.println(startupBanner);
+
+            var standardArgs = StandardArgsProcessor.processArgs(componentName, args);
+
+            System.out.println(">>> Working directory: " + standardArgs.getWorkingDir());
+            System.out.println(">>> Config file: " + standardArgs.getConfigFile());
+            System.out.println();
+
+            var configManager = new ConfigManager(standardArgs);
+            configManager.initConfigPlugins();
+            configManager.initLogging();
+
+            var loadGenerator = new TracLoadGenerator(configManager);
+            var report = loadGenerator.runLoad();
+
+            // Exit code is non-zero if any calls failed, so scripted runs can detect errors
+            System.exit(report.getTotalErrors() == 0 ? 0 : 1);
+        }
+        catch (EStartup e) {
+
+            if (e.isQuiet())
+                System.exit(e.getExitCode());
+
+            System.err.println("The load generator failed to start: " + e.getMessage());
+            e.printStackTrace(System.err);
+
+            System.exit(e.getExitCode());
+        }
+        catch (Exception e) {
+
+            System.err.println("There was an unexpected error on the main thread: " + e.getMessage());
+            e.printStackTrace(System.err);
+
+            System.exit(-1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Accenture Global Solutions Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.accenture.trac.loadgen;
+
+import com.accenture.trac.common.exception.EStartup;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+
+public class WorkloadMix {
+
+    // Operations are picked at random, in proportion to their configured weights
+    // Weights are relative, e.g. 1 : 1 : 8 is the same mix as 10 : 10 : 80
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    public WorkloadMix(Map<Operation, Integer> weights) {
+
+        var activeOps = weights.entrySet().stream()
+                .filter(w -> w.getValue() > 0)
+                .collect(Collectors.toList());
+
+        if (activeOps.isEmpty())
+            throw new EStartup("Workload mix is empty, at least one operation must have a weight above zero");
+
+        operations = new Operation[activeOps.size()];
+        cumulativeWeights = new int[activeOps.size()];
+
+        var total = 0;
+
+        for (var i = 0; i < activeOps.size(); i++) {
+
+            total += activeOps.get(i).getValue();
+
+            operations[i] = activeOps.get(i).getKey();
+            cumulativeWeights[i] = total;
+        }
+
+        totalWeight = total;
+    }
+
+    public Operation pick(Random random) {
+
+        var sample = random.nextInt(totalWeight);
+
+        for (var i = 0; i < cumulativeWeights.length; i++)
+            if (sample < cumulativeWeights[i])
+                return operations[i];
+
+        return operations[operations.length - 1];
+    }
+
+    public boolean includes(Operation operation) {
+
+        for (var op : operations)
+            if (op == operation)
+                return true;
+
+        return false;
+    }
+
+    public Map<Operation, Double> ratios() {
+
+        var ratios = new EnumMap<Operation, Double>(Operation.class);
+        var previous = 0;
+
+        for (var i = 0; i < operations.length; i++) {
+
+            ratios.put(operations[i], (double) (cumulativeWeights[i] - previous) / totalWeight);
+            previous = cumulativeWeights[i];
+        }
+
+        return ratios;
+    }
+}